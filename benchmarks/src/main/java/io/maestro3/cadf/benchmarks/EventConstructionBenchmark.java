@@ -0,0 +1,112 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.benchmarks;
+
+import io.maestro3.cadf.codec.binary.BinaryOutput;
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+import io.maestro3.cadf.codec.binary.CadfBinaryEventBuilder;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building an event from scratch: resources, attachments, measurements, tags and the builder checks. The encoding
+ * variants compare building and encoding a new event to encoding with one reused {@link CadfBinaryEventBuilder}
+ * with inline resources, the nested lists are shared by both.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventConstructionBenchmark {
+
+    @Param
+    private EventShape shape;
+
+    private int sequence;
+    private CadfAuditEvent template;
+    private CadfBinaryCodec codec;
+    private CadfBinaryEventBuilder eventBuilder;
+    private BinaryOutput output;
+
+    @Setup
+    public void setUp() {
+        sequence = 0;
+        template = shape.create(0);
+        codec = CadfBinaryCodec.create();
+        output = new BinaryOutput();
+        eventBuilder = codec.newEventBuilder()
+            .withEventType(CadfEventType.fromName(template.getEventType()))
+            .withEventTime(template.getEventTime())
+            .withAction(CadfActions.byRelativeURI(template.getAction()))
+            .withOutcome(CadfOutcomes.success())
+            .withObserver(template.getObserver())
+            .withName(template.getName())
+            .withSeverity(template.getSeverity());
+        if (template.getMeasurements() != null) {
+            eventBuilder.withMeasurements(template.getMeasurements());
+        }
+        if (template.getTags() != null) {
+            eventBuilder.withTags(template.getTags());
+        }
+        if (template.getAttachments() != null) {
+            eventBuilder.withAttachments(template.getAttachments())
+                .withSecureAttachments(template.getSecureAttachments());
+        }
+    }
+
+    @Benchmark
+    public CadfAuditEvent build() {
+        return shape.create(sequence++);
+    }
+
+    @Benchmark
+    public int buildAndEncode() {
+        CadfAuditEvent event = shape.create(sequence++);
+        codec.encode(event, output.reset());
+        return output.size();
+    }
+
+    @Benchmark
+    public int encodeWithEventBuilder() {
+        int current = sequence++;
+        eventBuilder.withId("maestro2:" + current)
+            .withInitiator("user-" + (current & 15), CadfResourceTypes.data().security().account().user(),
+                "admin@example.com")
+            .withTarget("i-" + Integer.toHexString(current), CadfResourceTypes.compute().machine().vm(),
+                "instance-" + current)
+            .encode(output.reset());
+        return output.size();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.benchmarks;
+
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfMetric;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.model.CadfTag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Event shapes every benchmark is parameterized with, from the bare required fields to an event with attachments,
+ * measurements and tags.
+ */
+public enum EventShape {
+
+    BARE(false, false, false),
+    ATTACHMENTS(true, false, false),
+    MEASUREMENTS(false, true, false),
+    TAGS(false, false, true),
+    FULL(true, true, true);
+
+    private final boolean attachments;
+    private final boolean measurements;
+    private final boolean tags;
+
+    EventShape(boolean attachments, boolean measurements, boolean tags) {
+        this.attachments = attachments;
+        this.measurements = measurements;
+        this.tags = tags;
+    }
+
+    public CadfAuditEvent create(int sequence) {
+        return builder(sequence).build();
+    }
+
+    /**
+     * Fully populated builder, everything but {@link CadfAuditEvent.Builder#build()} is done.
+     */
+    public CadfAuditEvent.Builder builder(int sequence) {
+        CadfAuditEvent.Builder builder = CadfAuditEvent.builder()
+            .withId("maestro2:" + sequence)
+            .withEventType(measurements ? CadfEventType.MONITOR : CadfEventType.ACTIVITY)
+            .withEventTime("2023-07-04T12:08:56.235+00:00")
+            .withAction(measurements ? CadfActions.monitor() : CadfActions.update())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfResource.builder()
+                .withId("user-" + (sequence & 15))
+                .ofType(CadfResourceTypes.data().security().account().user())
+                .withName("admin@example.com")
+                .build())
+            .withTarget(target(sequence))
+            .withObserver(CadfResource.builder()
+                .withId("maestro3")
+                .ofType(CadfResourceTypes.service().oss())
+                .build())
+            .withName("instance-update")
+            .withSeverity("info");
+        if (attachments) {
+            builder.withAttachments(attachments(sequence));
+            builder.withSecureAttachments(secureAttachments());
+        }
+        if (measurements) {
+            builder.withMeasurements(measurements(sequence));
+        }
+        if (tags) {
+            builder.withTags(tags(sequence));
+        }
+        return builder;
+    }
+
+    private static CadfResource target(int sequence) {
+        CadfResource target = CadfResource.builder()
+            .withId("i-" + Integer.toHexString(sequence))
+            .ofType(CadfResourceTypes.compute().machine().vm())
+            .withName("instance-" + sequence)
+            .build();
+        CadfCredential<String> credential = new CadfCredential<>();
+        credential.setType("bearer");
+        credential.setToken("token-" + sequence);
+        credential.setAuthority("keycloak");
+        target.setCredential(credential);
+        return target;
+    }
+
+    private static List<CadfAttachment> attachments(int sequence) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("region", "eu-central-1");
+        details.put("zone", "eu-central-1a");
+        details.put("cpu", 4);
+        details.put("memoryMb", 16384L);
+        details.put("spot", false);
+        details.put("labels", Arrays.asList("prod", "team-a"));
+        CadfResource volume = CadfResource.builder()
+            .withId("vol-" + sequence)
+            .ofType(CadfResourceTypes.storage().volume())
+            .build();
+        return new ArrayList<>(Arrays.asList(
+            CadfAttachment.<Map<String, Object>>builder()
+                .withContentType("instanceDetails")
+                .withName("details")
+                .withContent(details)
+                .build(),
+            CadfAttachment.ofResource(volume)));
+    }
+
+    private static List<CadfAttachment> secureAttachments() {
+        return new ArrayList<>(Arrays.asList(CadfAttachment.<String>builder()
+            .withContentType("text")
+            .withName("password")
+            .withContent("secret")
+            .build()));
+    }
+
+    private static List<CadfMeasurement> measurements(int sequence) {
+        CadfMetric latency = new CadfMetric();
+        latency.setMetricId("latency");
+        latency.setUnit("ms");
+        latency.setName("Request latency");
+        return new ArrayList<>(Arrays.asList(
+            CadfMeasurement.<Double>builder().withResult(0.5 + (sequence & 7)).withMetricId("cpu").build(),
+            CadfMeasurement.<Long>builder().withResult(1024L * sequence).withMetricId("memory").build(),
+            CadfMeasurement.<Integer>builder().withResult(sequence & 127).withMetric(latency).build()));
+    }
+
+    private static List<CadfTag> tags(int sequence) {
+        return new ArrayList<>(Arrays.asList(
+            CadfTag.builder().withName("tenant").withValue("tenant-" + (sequence & 3)).build(),
+            CadfTag.builder().withName("region").withValue("eu-central-1").build(),
+            CadfTag.builder().withName("owner").withValue("admin@example.com").build(),
+            CadfTag.builder().withName("env").withValue("prod").build()));
+    }
+}
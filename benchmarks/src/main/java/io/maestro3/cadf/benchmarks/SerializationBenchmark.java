@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.benchmarks;
+
+import io.maestro3.cadf.codec.binary.BinaryOutput;
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+import io.maestro3.cadf.codec.json.CadfJsonReader;
+import io.maestro3.cadf.codec.json.CadfJsonWriter;
+import io.maestro3.cadf.codec.json.JsonOutput;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON and binary encoding and decoding of a single event into reused buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param
+    private EventShape shape;
+
+    private final CadfJsonWriter jsonWriter = CadfJsonWriter.create();
+    private final CadfJsonReader jsonReader = CadfJsonReader.create();
+    private final CadfBinaryCodec binaryCodec = CadfBinaryCodec.create();
+    private final CadfJsonReader batchJsonReader = CadfJsonReader.builder().withMeasurementBatches(true).build();
+    private final CadfBinaryCodec batchBinaryCodec = CadfBinaryCodec.builder().withMeasurementBatches(true).build();
+
+    private CadfAuditEvent event;
+    private JsonOutput jsonOutput;
+    private BinaryOutput binaryOutput;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        event = shape.create(1);
+        jsonOutput = jsonWriter.newOutput();
+        binaryOutput = new BinaryOutput();
+        json = jsonWriter.toBytes(event);
+        binary = binaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public int jsonWrite() {
+        jsonOutput.reset();
+        jsonWriter.write(event, jsonOutput);
+        return jsonOutput.size();
+    }
+
+    @Benchmark
+    public CadfAuditEvent jsonRead() {
+        return jsonReader.read(json);
+    }
+
+    @Benchmark
+    public CadfAuditEvent jsonReadMeasurementBatches() {
+        return batchJsonReader.read(json);
+    }
+
+    @Benchmark
+    public int binaryEncode() {
+        binaryOutput.reset();
+        binaryCodec.encode(event, binaryOutput);
+        return binaryOutput.size();
+    }
+
+    @Benchmark
+    public CadfAuditEvent binaryDecode() {
+        return binaryCodec.decode(binary);
+    }
+
+    @Benchmark
+    public CadfAuditEvent binaryDecodeMeasurementBatches() {
+        return batchBinaryCodec.decode(binary);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.benchmarks;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving every taxonomy reference of an event back from its uri, the way consumers of persisted events do.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaxonomyBenchmark {
+
+    /**
+     * Resources of an event of every shape, their number and types depend on the shape.
+     */
+    @State(Scope.Thread)
+    public static class ShapedEvent {
+
+        @Param
+        private EventShape shape;
+
+        private CadfResource[] resources;
+
+        @Setup
+        public void setUp() {
+            CadfAuditEvent event = shape.create(1);
+            List<CadfResource> found = new ArrayList<>();
+            found.add(event.getInitiator());
+            found.add(event.getTarget());
+            found.add(event.getObserver());
+            collect(event.getAttachments(), found);
+            if (event.getMeasurements() != null) {
+                for (CadfMeasurement measurement : event.getMeasurements()) {
+                    if (measurement.getCalculatedBy() != null) {
+                        found.add(measurement.getCalculatedBy());
+                    }
+                }
+            }
+            resources = found.toArray(new CadfResource[0]);
+        }
+    }
+
+    /**
+     * Action and outcome of an event, which are single uris whatever the shape of the event.
+     */
+    @State(Scope.Thread)
+    public static class Uris {
+
+        private String action;
+        private String outcome;
+
+        @Setup
+        public void setUp() {
+            action = CadfActions.update().size().getRelativeUri();
+            outcome = CadfOutcomes.success().getRelativeUri();
+        }
+    }
+
+    @Benchmark
+    public ICadfAction actionByRelativeUri(Uris uris) {
+        return CadfActions.byRelativeURI(uris.action);
+    }
+
+    @Benchmark
+    public ICadfOutcome outcomeFromRelativeUri(Uris uris) {
+        return CadfOutcomes.fromRelativeUri(uris.outcome);
+    }
+
+    @Benchmark
+    public void resourceTypeByRelativeUri(ShapedEvent event, Blackhole blackhole) {
+        for (CadfResource resource : event.resources) {
+            ICadfResourceType type = CadfResourceTypes.byRelativeURI(resource.getTypeURI());
+            blackhole.consume(type);
+        }
+    }
+
+    @Benchmark
+    public void fullTypeUri(ShapedEvent event, Blackhole blackhole) {
+        for (CadfResource resource : event.resources) {
+            blackhole.consume(CadfResource.getFullTypeUri(resource));
+        }
+    }
+
+    private static void collect(List<CadfAttachment> attachments, List<CadfResource> found) {
+        if (attachments == null) {
+            return;
+        }
+        for (CadfAttachment attachment : attachments) {
+            if (attachment.getContent() instanceof CadfResource) {
+                found.add((CadfResource) attachment.getContent());
+            }
+        }
+    }
+}
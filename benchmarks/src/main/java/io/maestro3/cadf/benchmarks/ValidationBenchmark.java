@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.benchmarks;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.validation.CadfValidator;
+import io.maestro3.cadf.validation.CadfViolation;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks of {@link CadfAuditEvent.Builder#build()} on an already populated builder, Bean Validation of the
+ * model's jakarta.validation constraints and the hand-written {@link CadfValidator}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param
+    private EventShape shape;
+
+    private CadfAuditEvent.Builder builder;
+    private CadfAuditEvent event;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private CadfValidator cadfValidator;
+
+    @Setup
+    public void setUp() {
+        builder = shape.builder(1);
+        event = builder.build();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        cadfValidator = CadfValidator.create();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public CadfAuditEvent builderChecks() {
+        return builder.build();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CadfAuditEvent>> beanValidation() {
+        return validator.validate(event);
+    }
+
+    @Benchmark
+    public List<CadfViolation> cadfValidator() {
+        return cadfValidator.validate(event);
+    }
+}
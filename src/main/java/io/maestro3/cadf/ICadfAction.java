@@ -20,4 +20,12 @@ public interface ICadfAction {
 
     String getRelativeUri();
 
+    /**
+     * Dense ordinal of a canonical action registered in {@link io.maestro3.cadf.model.CadfActions},
+     * or -1 for actions that are not part of the taxonomy.
+     */
+    default int getOrdinal() {
+        return -1;
+    }
+
 }
@@ -20,4 +20,12 @@ public interface ICadfOutcome {
 
     String getRelativeUri();
 
+    /**
+     * Dense ordinal of a canonical outcome from {@link io.maestro3.cadf.model.CadfOutcomes},
+     * or -1 for outcomes that are not part of the taxonomy.
+     */
+    default int getOrdinal() {
+        return -1;
+    }
+
 }
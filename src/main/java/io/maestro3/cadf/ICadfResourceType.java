@@ -20,4 +20,12 @@ public interface ICadfResourceType {
 
     String getRelativeUri();
 
+    /**
+     * Dense ordinal of a canonical resource type registered in {@link io.maestro3.cadf.model.CadfResourceTypes},
+     * or -1 for resource types that are not part of the taxonomy.
+     */
+    default int getOrdinal() {
+        return -1;
+    }
+
 }
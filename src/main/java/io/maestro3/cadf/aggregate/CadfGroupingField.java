@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.aggregate;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfResource;
+
+/**
+ * Event attribute which rollups of {@link CadfWindowAggregator} can be keyed by.
+ */
+public enum CadfGroupingField {
+    EVENT_TYPE("eventType"),
+    ACTION("action"),
+    OUTCOME("outcome"),
+    INITIATOR_ID("initiator.id"),
+    INITIATOR_TYPE("initiator.type"),
+    TARGET_ID("target.id"),
+    TARGET_TYPE("target.type");
+
+    private final String name;
+
+    CadfGroupingField(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    String valueOf(CadfAuditEvent event) {
+        switch (this) {
+            case EVENT_TYPE:
+                return event.getEventType();
+            case ACTION:
+                return event.getAction();
+            case OUTCOME:
+                return event.getOutcome();
+            case INITIATOR_ID:
+                return id(event.getInitiator());
+            case INITIATOR_TYPE:
+                return typeURI(event.getInitiator());
+            case TARGET_ID:
+                return id(event.getTarget());
+            default:
+                return typeURI(event.getTarget());
+        }
+    }
+
+    private static String id(CadfResource resource) {
+        return resource != null ? resource.getId() : null;
+    }
+
+    private static String typeURI(CadfResource resource) {
+        return resource != null ? resource.getTypeURI() : null;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.aggregate;
+
+import io.maestro3.cadf.util.CadfTimestamps;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Number of events of a window sharing the values of the grouping fields. Rollups hold no reference to the events.
+ */
+public final class CadfRollup {
+
+    private final CadfGroupingField[] fields;
+    private final String[] values;
+    private final long windowStartNanos;
+    private final long windowEndNanos;
+    private final long count;
+
+    CadfRollup(CadfGroupingField[] fields, String[] values, long windowStartNanos, long windowEndNanos, long count) {
+        this.fields = fields;
+        this.values = values;
+        this.windowStartNanos = windowStartNanos;
+        this.windowEndNanos = windowEndNanos;
+        this.count = count;
+    }
+
+    /**
+     * @return grouping fields of the aggregator, in configuration order
+     */
+    public List<CadfGroupingField> getFields() {
+        return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    /**
+     * @return value of the grouping field, null if the events do not have it
+     * @throws IllegalArgumentException if the aggregator does not group by the field
+     */
+    public String getValue(CadfGroupingField field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] == field) {
+                return values[i];
+            }
+        }
+        throw new IllegalArgumentException("rollup is not grouped by " + field);
+    }
+
+    /**
+     * Inclusive, epoch nanos.
+     */
+    public long getWindowStartNanos() {
+        return windowStartNanos;
+    }
+
+    /**
+     * Exclusive, epoch nanos.
+     */
+    public long getWindowEndNanos() {
+        return windowEndNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CadfRollup{window=[")
+            .append(CadfTimestamps.format(windowStartNanos)).append(", ")
+            .append(CadfTimestamps.format(windowEndNanos)).append(')');
+        for (int i = 0; i < fields.length; i++) {
+            builder.append(", ").append(fields[i].getName()).append('=').append(values[i]);
+        }
+        return builder.append(", count=").append(count).append('}').toString();
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.aggregate;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.publisher.ICadfEventSink;
+import io.maestro3.cadf.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events per tumbling or sliding window of event time, keyed by a combination of {@link CadfGroupingField}s,
+ * and emits a {@link CadfRollup} per window and key to the {@link ICadfRollupSink}s once the window closes.
+ * <p/>
+ * Counting happens inline with ingest: keys are hashed to striped counter tables, so concurrent producers only contend
+ * for the same stripe, and an event costs a hash and a counter increment unless it introduces a new key. The
+ * watermark follows the greatest event time minus the allowed lateness and can be moved further with
+ * {@link #advanceWatermark(long)}; a window closes when the watermark reaches its end. Events of closed windows are
+ * dropped and counted as late.
+ *
+ * <pre>{@code
+ * CadfWindowAggregator aggregator = CadfWindowAggregator.builder()
+ *     .withTumblingWindow(Duration.ofMinutes(1))
+ *     .withAllowedLateness(Duration.ofSeconds(10))
+ *     .withGroupBy(CadfGroupingField.ACTION, CadfGroupingField.OUTCOME, CadfGroupingField.TARGET_TYPE)
+ *     .withSink(rollups -> metrics.record(rollups))
+ *     .build();
+ * publisher = CadfEventPublisher.builder().withSink(aggregator).build();
+ * }</pre>
+ */
+public final class CadfWindowAggregator implements ICadfEventSink {
+
+    private final CadfGroupingField[] fields;
+    private final WindowGeometry geometry;
+    private final long windowNanos;
+    private final long latenessNanos;
+    private final CounterStripe[] stripes;
+    private final List<ICadfRollupSink> sinks;
+
+    private final Object watermarkLock = new Object();
+    private final LongAdder aggregated = new LongAdder();
+    private final LongAdder late = new LongAdder();
+
+    // written under watermarkLock after the windows were closed
+    private volatile long maxEventTime = Long.MIN_VALUE;
+    private volatile long watermark = Long.MIN_VALUE;
+    // guarded by watermarkLock, valid once maxEventTime was set
+    private long firstOpenWindow;
+
+    private CadfWindowAggregator(Builder builder) {
+        this.fields = builder.fields;
+        this.windowNanos = builder.window.toNanos();
+        this.latenessNanos = builder.lateness.toNanos();
+        this.geometry = new WindowGeometry(windowNanos, builder.slide.toNanos(), latenessNanos);
+        this.stripes = new CounterStripe[builder.stripes];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new CounterStripe(fields, geometry.ring);
+        }
+        this.sinks = new ArrayList<>(builder.sinks);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Counts the event, closing windows first if its event time moves the watermark.
+     *
+     * @return false if the window of the event was already closed
+     */
+    public boolean add(CadfAuditEvent event) {
+        Assert.notNull(event, "event can not be null");
+        long eventTime = event.eventTimeNanos();
+        if (eventTime > maxEventTime) {
+            advanceEventTime(eventTime);
+        }
+        int hash = hash(event);
+        CounterStripe stripe = stripes[(int) (((hash * 0x9E3779B9) & 0xFFFFFFFFL) * stripes.length >>> 32)];
+        if (!stripe.increment(event, hash, Math.floorDiv(eventTime, geometry.paneNanos))) {
+            late.increment();
+            return false;
+        }
+        aggregated.increment();
+        return true;
+    }
+
+    @Override
+    public void publish(List<CadfAuditEvent> events) {
+        for (CadfAuditEvent event : events) {
+            add(event);
+        }
+    }
+
+    /**
+     * Moves the watermark to the epoch nanos, if it is ahead, and emits the windows ending before it. Useful to close
+     * windows while no events arrive.
+     */
+    public void advanceWatermark(long epochNanos) {
+        synchronized (watermarkLock) {
+            if (maxEventTime != Long.MIN_VALUE) {
+                closeUpTo(epochNanos);
+            }
+        }
+    }
+
+    /**
+     * Closes every window holding counted events, events of those windows which arrive later are late.
+     */
+    public void flush() {
+        synchronized (watermarkLock) {
+            if (maxEventTime != Long.MIN_VALUE) {
+                closeUpTo(maxEventTime + windowNanos);
+            }
+        }
+    }
+
+    // ================================= counters ========================================
+
+    /**
+     * @return events counted into windows
+     */
+    public long getAggregatedCount() {
+        return aggregated.sum();
+    }
+
+    /**
+     * @return events dropped because their window was already closed
+     */
+    public long getLateCount() {
+        return late.sum();
+    }
+
+    /**
+     * @return epoch nanos all windows ending at or before are closed, {@link Long#MIN_VALUE} before the first event
+     */
+    public long getWatermarkNanos() {
+        return watermark;
+    }
+
+    // ================================= windows ========================================
+
+    private void advanceEventTime(long eventTime) {
+        synchronized (watermarkLock) {
+            if (eventTime <= maxEventTime) {
+                return;
+            }
+            if (maxEventTime == Long.MIN_VALUE) {
+                firstOpenWindow = geometry.firstOpenWindow(eventTime - latenessNanos);
+                for (CounterStripe stripe : stripes) {
+                    stripe.close(firstOpenWindow, new ArrayList<>(), firstOpenWindow * geometry.slidePanes, geometry);
+                }
+                watermark = eventTime - latenessNanos;
+            } else {
+                closeUpTo(eventTime - latenessNanos);
+            }
+            // only published once the stripes cover the event time, add() relies on that
+            maxEventTime = eventTime;
+        }
+    }
+
+    private void closeUpTo(long watermarkNanos) {
+        if (watermarkNanos <= watermark) {
+            return;
+        }
+        long nextOpenWindow = geometry.firstOpenWindow(watermarkNanos);
+        if (nextOpenWindow > firstOpenWindow) {
+            // only windows overlapping the open panes can hold counts, the others are skipped without a look
+            long openEnd = firstOpenWindow * geometry.slidePanes + geometry.ring;
+            long lastWindow = Math.min(nextOpenWindow, -Math.floorDiv(-openEnd, geometry.slidePanes));
+            List<List<CadfRollup>> windows = new ArrayList<>();
+            for (long window = firstOpenWindow; window < lastWindow; window++) {
+                windows.add(new ArrayList<>());
+            }
+            for (CounterStripe stripe : stripes) {
+                stripe.close(firstOpenWindow, windows, nextOpenWindow * geometry.slidePanes, geometry);
+            }
+            firstOpenWindow = nextOpenWindow;
+            watermark = watermarkNanos;
+            for (List<CadfRollup> rollups : windows) {
+                if (!rollups.isEmpty()) {
+                    emit(rollups);
+                }
+            }
+        } else {
+            watermark = watermarkNanos;
+        }
+    }
+
+    private void emit(List<CadfRollup> rollups) {
+        for (int i = 0; i < sinks.size(); i++) {
+            sinks.get(i).publish(i == sinks.size() - 1 ? rollups : new ArrayList<>(rollups));
+        }
+    }
+
+    private int hash(CadfAuditEvent event) {
+        int hash = 1;
+        for (CadfGroupingField field : fields) {
+            hash = 31 * hash + Objects.hashCode(field.valueOf(event));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private final List<ICadfRollupSink> sinks = new ArrayList<>();
+        private CadfGroupingField[] fields = new CadfGroupingField[0];
+        private Duration window;
+        private Duration slide;
+        private Duration lateness = Duration.ZERO;
+        private int stripes = Runtime.getRuntime().availableProcessors() * 2;
+
+        private Builder() {
+        }
+
+        /**
+         * Required, either a tumbling or a sliding window.
+         */
+        public Builder withTumblingWindow(Duration size) {
+            return withSlidingWindow(size, size);
+        }
+
+        /**
+         * Windows of the size starting every slide, so an event is counted in {@code size / slide} windows.
+         */
+        public Builder withSlidingWindow(Duration size, Duration slide) {
+            Assert.notNull(size, "size can not be null");
+            Assert.notNull(slide, "slide can not be null");
+            Assert.isTrue(!size.isNegative() && !size.isZero(), "size must be positive");
+            Assert.isTrue(!slide.isNegative() && !slide.isZero(), "slide must be positive");
+            Assert.isTrue(slide.compareTo(size) <= 0, "slide must not exceed size");
+            this.window = size;
+            this.slide = slide;
+            return this;
+        }
+
+        /**
+         * How far the watermark trails the greatest event time, none by default.
+         */
+        public Builder withAllowedLateness(Duration lateness) {
+            Assert.notNull(lateness, "lateness can not be null");
+            Assert.isTrue(!lateness.isNegative(), "lateness must not be negative");
+            this.lateness = lateness;
+            return this;
+        }
+
+        /**
+         * Fields the rollups are keyed by, none by default which counts all events of a window together.
+         */
+        public Builder withGroupBy(CadfGroupingField... fields) {
+            Assert.notNull(fields, "fields can not be null");
+            for (CadfGroupingField field : fields) {
+                Assert.notNull(field, "field can not be null");
+            }
+            Assert.isTrue(Arrays.stream(fields).distinct().count() == fields.length, "fields must be distinct");
+            this.fields = fields.clone();
+            return this;
+        }
+
+        /**
+         * Number of independently locked counter tables, twice the number of processors by default.
+         */
+        public Builder withStripes(int stripes) {
+            Assert.isTrue(stripes > 0 && stripes <= 1024, "stripes must be between 1 and 1024");
+            this.stripes = stripes;
+            return this;
+        }
+
+        /**
+         * Required, at least one. Every window is published to all sinks in registration order.
+         */
+        public Builder withSink(ICadfRollupSink sink) {
+            Assert.notNull(sink, "sink can not be null");
+            sinks.add(sink);
+            return this;
+        }
+
+        public CadfWindowAggregator build() {
+            Assert.notNull(window, "window can not be null");
+            Assert.isTrue(!sinks.isEmpty(), "you must provide at least one sink");
+            return new CadfWindowAggregator(this);
+        }
+    }
+}
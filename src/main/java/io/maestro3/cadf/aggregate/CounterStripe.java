@@ -0,0 +1,209 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.aggregate;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Counters of the keys hashed to one stripe of a {@link CadfWindowAggregator}: an open addressing table of keys with
+ * a ring of per-pane counts for each of them, all in one {@code long[]}.
+ * <p/>
+ * Only panes in {@code [minOpenPane, minOpenPane + ring)} are counted, the aggregator advances the watermark before
+ * counting an event beyond that range.
+ */
+final class CounterStripe {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final CadfGroupingField[] fields;
+    private final int ring;
+    private String[][] keys;
+    private int[] hashes;
+    // counts[slot * ring + pane % ring]
+    private long[] counts;
+    private int keyCount;
+    private long minOpenPane = Long.MIN_VALUE;
+
+    CounterStripe(CadfGroupingField[] fields, int ring) {
+        this.fields = fields;
+        this.ring = ring;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return false if the pane was already closed
+     */
+    synchronized boolean increment(CadfAuditEvent event, int hash, long pane) {
+        if (pane < minOpenPane) {
+            return false;
+        }
+        counts[slot(event, hash) * ring + (int) Math.floorMod(pane, (long) ring)]++;
+        return true;
+    }
+
+    /**
+     * Sums the panes of the closing windows and drops the panes before {@code newMinOpenPane}.
+     *
+     * @param windows    rollups of each closing window are added to the list at index {@code window - fromWindow}
+     * @param fromWindow first closing window, its panes start at {@code fromWindow * slidePanes}
+     */
+    synchronized void close(long fromWindow, List<List<CadfRollup>> windows, long newMinOpenPane,
+                            WindowGeometry geometry) {
+        if (minOpenPane == Long.MIN_VALUE) {
+            minOpenPane = newMinOpenPane;
+            return;
+        }
+        long openEnd = minOpenPane + ring;
+        boolean empty = false;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == null) {
+                continue;
+            }
+            int base = slot * ring;
+            for (int w = 0; w < windows.size(); w++) {
+                long firstPane = Math.max((fromWindow + w) * geometry.slidePanes, minOpenPane);
+                long endPane = Math.min((fromWindow + w) * geometry.slidePanes + geometry.windowPanes, openEnd);
+                long count = 0;
+                for (long pane = firstPane; pane < endPane; pane++) {
+                    count += counts[base + (int) Math.floorMod(pane, (long) ring)];
+                }
+                if (count > 0) {
+                    long start = (fromWindow + w) * geometry.slidePanes * geometry.paneNanos;
+                    windows.get(w).add(new CadfRollup(fields, keys[slot], start,
+                        start + geometry.windowPanes * geometry.paneNanos, count));
+                }
+            }
+            long live = 0;
+            for (long pane = minOpenPane; pane < openEnd; pane++) {
+                int index = base + (int) Math.floorMod(pane, (long) ring);
+                if (pane < newMinOpenPane) {
+                    counts[index] = 0;
+                } else {
+                    live |= counts[index];
+                }
+            }
+            empty |= live == 0;
+        }
+        minOpenPane = Math.max(minOpenPane, newMinOpenPane);
+        if (empty) {
+            evictEmptyKeys();
+        }
+    }
+
+    // ================================= table ========================================
+
+    private int slot(CadfAuditEvent event, int hash) {
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && matches(keys[slot], event)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        String[] key = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            key[i] = fields[i].valueOf(event);
+        }
+        keys[slot] = key;
+        hashes[slot] = hash;
+        if (++keyCount * 2 > keys.length) {
+            resize(keys.length << 1);
+            return find(key, hash);
+        }
+        return slot;
+    }
+
+    private boolean matches(String[] key, CadfAuditEvent event) {
+        for (int i = 0; i < fields.length; i++) {
+            if (!Objects.equals(key[i], fields[i].valueOf(event))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int find(String[] key, int hash) {
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        while (keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void evictEmptyKeys() {
+        List<Integer> live = new ArrayList<>();
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null && !isEmpty(slot)) {
+                live.add(slot);
+            }
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (live.size() * 2 > capacity) {
+            capacity <<= 1;
+        }
+        rehash(capacity, live);
+    }
+
+    private boolean isEmpty(int slot) {
+        for (int i = slot * ring, end = i + ring; i < end; i++) {
+            if (counts[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void resize(int capacity) {
+        List<Integer> live = new ArrayList<>(keyCount);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                live.add(slot);
+            }
+        }
+        rehash(capacity, live);
+    }
+
+    private void rehash(int capacity, List<Integer> liveSlots) {
+        String[][] oldKeys = keys;
+        int[] oldHashes = hashes;
+        long[] oldCounts = counts;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int oldSlot : liveSlots) {
+            int slot = oldHashes[oldSlot] & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[oldSlot];
+            hashes[slot] = oldHashes[oldSlot];
+            System.arraycopy(oldCounts, oldSlot * ring, counts, slot * ring, ring);
+        }
+        keyCount = liveSlots.size();
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity][];
+        hashes = new int[capacity];
+        counts = new long[Math.multiplyExact(capacity, ring)];
+    }
+}
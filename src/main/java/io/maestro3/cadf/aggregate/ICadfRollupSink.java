@@ -0,0 +1,33 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.aggregate;
+
+import java.util.List;
+
+/**
+ * Destination of the rollups emitted by {@link CadfWindowAggregator} when the watermark passes the end of a window.
+ * <p/>
+ * Windows are emitted in order of their end, from the thread which advanced the watermark, one call per non-empty
+ * window.
+ */
+public interface ICadfRollupSink {
+
+    /**
+     * @param rollups non-empty rollups of a single window, owned by the sink after the call
+     */
+    void publish(List<CadfRollup> rollups);
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.aggregate;
+
+import io.maestro3.cadf.util.Assert;
+
+/**
+ * Windows in units of panes, the greatest common divisor of window size and slide. Window {@code k} spans panes
+ * {@code [k * slidePanes, k * slidePanes + windowPanes)}.
+ */
+final class WindowGeometry {
+
+    static final int MAX_RING = 1 << 16;
+
+    final long paneNanos;
+    final long windowPanes;
+    final long slidePanes;
+    /**
+     * Panes which can be open at once: a window and the allowed lateness, plus the panes the bounds fall into.
+     */
+    final int ring;
+
+    WindowGeometry(long windowNanos, long slideNanos, long latenessNanos) {
+        long pane = gcd(windowNanos, slideNanos);
+        this.paneNanos = pane;
+        this.windowPanes = windowNanos / pane;
+        this.slidePanes = slideNanos / pane;
+        long ring = windowPanes + (latenessNanos + pane - 1) / pane + 2;
+        Assert.isTrue(ring <= MAX_RING, "window, slide and lateness span " + ring + " panes, at most " + MAX_RING
+            + " are supported");
+        this.ring = (int) ring;
+    }
+
+    /**
+     * @return the first window which ends after the watermark
+     */
+    long firstOpenWindow(long watermarkNanos) {
+        long pane = Math.floorDiv(watermarkNanos, paneNanos);
+        return -Math.floorDiv(windowPanes - pane - 1, slidePanes);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec;
+
+import io.maestro3.cadf.util.Assert;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Payload kept in the form it was read in, see {@link CadfLazyAttachment} and {@link CadfLazyCredential}. Encoders
+ * of the same format copy the bytes as is instead of encoding the decoded payload again.
+ * <p/>
+ * Binary payloads are self-contained: they never refer to the dictionary of the stream they were read from.
+ */
+public final class CadfEncodedPayload {
+
+    public enum Format {
+        BINARY,
+        JSON
+    }
+
+    private final Format format;
+    private final byte[] bytes;
+    private final boolean empty;
+    private final Function<byte[], ?> decoder;
+
+    /**
+     * Payload which is not known to be empty.
+     *
+     * @see #CadfEncodedPayload(Format, byte[], boolean, Function)
+     */
+    public CadfEncodedPayload(Format format, byte[] bytes, Function<byte[], ?> decoder) {
+        this(format, bytes, false, decoder);
+    }
+
+    /**
+     * @param bytes   encoded payload, owned by the instance from now on
+     * @param empty   whether the payload decodes into null, a blank string or an empty collection, map or array, as
+     *                told by the decoder which read it
+     * @param decoder decodes the bytes into the payload, called at most once per lazy holder
+     */
+    public CadfEncodedPayload(Format format, byte[] bytes, boolean empty, Function<byte[], ?> decoder) {
+        Assert.notNull(format, "format can not be null");
+        Assert.notNull(bytes, "bytes can not be null");
+        Assert.notNull(decoder, "decoder can not be null");
+        this.format = format;
+        this.bytes = bytes;
+        this.empty = empty;
+        this.decoder = decoder;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Direct access to the encoded bytes, which must not be modified.
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * Lets validators check the payload is present without decoding it.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are malformed
+     */
+    public Object decode() {
+        return decoder.apply(bytes);
+    }
+
+    /**
+     * Payloads are equal by format and bytes, the decoder is left out.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CadfEncodedPayload that = (CadfEncodedPayload) o;
+        return format == that.format && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * format.hashCode() + Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "CadfEncodedPayload{" +
+            "format=" + format +
+            ", size=" + bytes.length +
+            '}';
+    }
+}
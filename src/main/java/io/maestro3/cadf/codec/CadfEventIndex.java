@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec;
+
+import io.maestro3.cadf.util.Assert;
+
+/**
+ * Byte ranges of the relayable fields of an encoded event, as indexes of the buffer it was read from. A missing
+ * field has an empty range at the offset it would be inserted at.
+ *
+ * @see ICadfEventRelay#index(java.nio.ByteBuffer)
+ */
+public final class CadfEventIndex {
+
+    public enum Field {
+        OBSERVER,
+        SEVERITY,
+        TAGS
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private final int start;
+    private final int end;
+    private final int[] fieldStarts = new int[FIELDS.length];
+    private final int[] fieldEnds = new int[FIELDS.length];
+    private final boolean[] present = new boolean[FIELDS.length];
+
+    private CadfEventIndex(int start, int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public static Builder builder(int start, int end) {
+        Assert.isTrue(start >= 0 && start <= end, "start must be within [0, end]");
+        return new Builder(start, end);
+    }
+
+    /**
+     * @return offset of the first byte of the event
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * @return offset after the last byte of the event
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    public boolean isPresent(Field field) {
+        return present[field.ordinal()];
+    }
+
+    /**
+     * @return offset of the first byte of the field's value, or its insertion offset if it is missing
+     */
+    public int getStart(Field field) {
+        return fieldStarts[field.ordinal()];
+    }
+
+    /**
+     * @return offset after the last byte of the field's value, or its insertion offset if it is missing
+     */
+    public int getEnd(Field field) {
+        return fieldEnds[field.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("CadfEventIndex{[").append(start).append(", ").append(end).append(')');
+        for (Field field : FIELDS) {
+            result.append(", ").append(field).append(present[field.ordinal()] ? "=[" : "=missing@[")
+                .append(getStart(field)).append(", ").append(getEnd(field)).append(')');
+        }
+        return result.append('}').toString();
+    }
+
+    public static final class Builder {
+
+        private final CadfEventIndex index;
+
+        private Builder(int start, int end) {
+            index = new CadfEventIndex(start, end);
+            for (Field field : FIELDS) {
+                index.fieldStarts[field.ordinal()] = end;
+                index.fieldEnds[field.ordinal()] = end;
+            }
+        }
+
+        public Builder withField(Field field, int start, int end) {
+            Assert.notNull(field, "field can not be null");
+            Assert.isTrue(start >= index.start && start <= end && end <= index.end, "range is out of event bounds");
+            index.fieldStarts[field.ordinal()] = start;
+            index.fieldEnds[field.ordinal()] = end;
+            index.present[field.ordinal()] = true;
+            return this;
+        }
+
+        /**
+         * Offset a missing field would be inserted at, the end of the event by default.
+         */
+        public Builder withInsertionPoint(Field field, int offset) {
+            Assert.notNull(field, "field can not be null");
+            Assert.isTrue(offset >= index.start && offset <= index.end, "offset is out of event bounds");
+            index.fieldStarts[field.ordinal()] = offset;
+            index.fieldEnds[field.ordinal()] = offset;
+            index.present[field.ordinal()] = false;
+            return this;
+        }
+
+        public CadfEventIndex build() {
+            return index;
+        }
+    }
+}
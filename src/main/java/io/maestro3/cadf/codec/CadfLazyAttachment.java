@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec;
+
+import io.maestro3.cadf.model.CadfAttachment;
+
+import java.util.Objects;
+
+/**
+ * Attachment read by a decoder with lazy payloads enabled. Its content stays encoded until the first
+ * {@link #getContent()}, so consumers looking at contentType and name only never pay for decoding it, and encoders
+ * copy untouched content verbatim.
+ * <p/>
+ * Decoding is thread-safe, a malformed content fails on first access with an {@link IllegalArgumentException}.
+ */
+public final class CadfLazyAttachment<T> extends CadfAttachment<T> {
+
+    private volatile CadfEncodedPayload encodedContent;
+
+    public CadfLazyAttachment() {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getContent() {
+        if (encodedContent != null) {
+            synchronized (this) {
+                CadfEncodedPayload encoded = encodedContent;
+                if (encoded != null) {
+                    super.setContent((T) encoded.decode());
+                    encodedContent = null;
+                }
+            }
+        }
+        return super.getContent();
+    }
+
+    @Override
+    public void setContent(T content) {
+        encodedContent = null;
+        super.setContent(content);
+    }
+
+    @Override
+    protected Object pendingContent() {
+        return encodedContent;
+    }
+
+    /**
+     * Two lazy attachments whose contents are both still encoded in the same format compare by the encoded bytes
+     * without decoding them. The encoders of this library write equal values the same way, a value formatted
+     * differently by another writer compares unequal until decoded. Otherwise the contents are decoded and compared
+     * as usual.
+     */
+    @Override
+    public boolean equals(Object o) {
+        CadfEncodedPayload encoded = encodedContent;
+        CadfEncodedPayload thatEncoded = o instanceof CadfAttachment ? encodedContent((CadfAttachment<?>) o) : null;
+        if (encoded == null || thatEncoded == null || encoded.getFormat() != thatEncoded.getFormat()) {
+            return super.equals(o);
+        }
+        CadfAttachment<?> that = (CadfAttachment<?>) o;
+        return Objects.equals(getContentType(), that.getContentType())
+            && Objects.equals(getName(), that.getName())
+            && encoded.equals(thatEncoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    /**
+     * @return content as read, or null once it was decoded or replaced
+     */
+    public CadfEncodedPayload getEncodedContent() {
+        return encodedContent;
+    }
+
+    public void setEncodedContent(CadfEncodedPayload encodedContent) {
+        super.setContent(null);
+        this.encodedContent = encodedContent;
+    }
+
+    /**
+     * @return encoded content of the attachment if it is a lazy one and its content is untouched, otherwise null
+     */
+    public static CadfEncodedPayload encodedContent(CadfAttachment<?> attachment) {
+        return attachment instanceof CadfLazyAttachment ? ((CadfLazyAttachment<?>) attachment).encodedContent : null;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec;
+
+import io.maestro3.cadf.model.CadfCredential;
+
+import java.util.Objects;
+
+/**
+ * Credential read by a decoder with lazy payloads enabled. Its token stays encoded until the first
+ * {@link #getToken()}, so consumers looking at type and authority only never pay for decoding it, and encoders
+ * copy an untouched token verbatim.
+ * <p/>
+ * Decoding is thread-safe, a malformed token fails on first access with an {@link IllegalArgumentException}.
+ */
+public final class CadfLazyCredential<T> extends CadfCredential<T> {
+
+    private volatile CadfEncodedPayload encodedToken;
+
+    public CadfLazyCredential() {
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getToken() {
+        if (encodedToken != null) {
+            synchronized (this) {
+                CadfEncodedPayload encoded = encodedToken;
+                if (encoded != null) {
+                    super.setToken((T) encoded.decode());
+                    encodedToken = null;
+                }
+            }
+        }
+        return super.getToken();
+    }
+
+    @Override
+    public void setToken(T token) {
+        encodedToken = null;
+        super.setToken(token);
+    }
+
+    @Override
+    protected Object pendingToken() {
+        return encodedToken;
+    }
+
+    /**
+     * Two lazy credentials whose tokens are both still encoded in the same format compare by the encoded bytes without
+     * decoding them. The encoders of this library write equal values the same way, a value formatted differently by
+     * another writer compares unequal until decoded. Otherwise the tokens are decoded and compared as usual.
+     */
+    @Override
+    public boolean equals(Object o) {
+        CadfEncodedPayload encoded = encodedToken;
+        CadfEncodedPayload thatEncoded = o instanceof CadfCredential ? encodedToken((CadfCredential<?>) o) : null;
+        if (encoded == null || thatEncoded == null || encoded.getFormat() != thatEncoded.getFormat()) {
+            return super.equals(o);
+        }
+        CadfCredential<?> that = (CadfCredential<?>) o;
+        return Objects.equals(getType(), that.getType())
+            && Objects.equals(getAuthority(), that.getAuthority())
+            && encoded.equals(thatEncoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    /**
+     * @return token as read, or null once it was decoded or replaced
+     */
+    public CadfEncodedPayload getEncodedToken() {
+        return encodedToken;
+    }
+
+    public void setEncodedToken(CadfEncodedPayload encodedToken) {
+        super.setToken(null);
+        this.encodedToken = encodedToken;
+    }
+
+    /**
+     * @return encoded token of the credential if it is a lazy one and its token is untouched, otherwise null
+     */
+    public static CadfEncodedPayload encodedToken(CadfCredential<?> credential) {
+        return credential instanceof CadfLazyCredential ? ((CadfLazyCredential<?>) credential).encodedToken : null;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec;
+
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Changes an {@link ICadfEventRelay} splices into encoded events: a replacement observer and severity, and tags
+ * appended to the existing ones. Immutable, meant to be built once and applied to every relayed event, relays
+ * keep the encoded values of the last patch they applied.
+ */
+public final class CadfRelayPatch {
+
+    private CadfResource observer;
+    private String severity;
+    private List<CadfTag> tags = Collections.emptyList();
+
+    private CadfRelayPatch() {
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return replacement observer, or null to keep the event's one
+     */
+    public CadfResource getObserver() {
+        return observer;
+    }
+
+    /**
+     * @return replacement severity, or null to keep the event's one
+     */
+    public String getSeverity() {
+        return severity;
+    }
+
+    /**
+     * @return tags appended to the event's ones, possibly empty
+     */
+    public List<CadfTag> getTags() {
+        return tags;
+    }
+
+    public boolean isEmpty() {
+        return observer == null && severity == null && tags.isEmpty();
+    }
+
+    public static final class Builder {
+
+        private final CadfRelayPatch patch = new CadfRelayPatch();
+        private final List<CadfTag> tags = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder withObserver(CadfResource observer) {
+            Assert.notNull(observer, "observer can not be null");
+            patch.observer = observer;
+            return this;
+        }
+
+        public Builder withSeverity(String severity) {
+            Assert.hasText(severity, "severity can not be null or empty");
+            patch.severity = severity;
+            return this;
+        }
+
+        public Builder withTag(CadfTag tag) {
+            Assert.notNull(tag, "tag can not be null");
+            tags.add(tag);
+            return this;
+        }
+
+        public CadfRelayPatch build() {
+            patch.tags = tags.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(tags));
+            return patch;
+        }
+    }
+}
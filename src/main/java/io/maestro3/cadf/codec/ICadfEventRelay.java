@@ -0,0 +1,61 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Forwards encoded events with a {@link CadfRelayPatch} applied, without decoding them: the relayable fields are
+ * located by skipping over the encoding, and the output is a sequence of slices of the original bytes interleaved
+ * with the patch's pre-encoded values. Instances are thread-safe.
+ */
+public interface ICadfEventRelay {
+
+    /**
+     * Locates the relayable fields of the single event in [position, limit) of the buffer, the buffer's position is
+     * not changed.
+     *
+     * @throws IllegalArgumentException if the event is malformed
+     */
+    CadfEventIndex index(ByteBuffer event);
+
+    /**
+     * @return buffers which, written in order, hold the bytes in [position, limit) of the event with the patch
+     * applied. Slices of the event share its content, the event's position is not changed.
+     * @throws IllegalArgumentException if the event is malformed
+     */
+    ByteBuffer[] splice(ByteBuffer event, CadfRelayPatch patch);
+
+    /**
+     * Writes the patched event with gathering writes, until all of it is written.
+     *
+     * @return number of bytes written
+     */
+    default long relay(ByteBuffer event, CadfRelayPatch patch, GatheringByteChannel channel) throws IOException {
+        ByteBuffer[] parts = splice(event, patch);
+        long written = 0;
+        for (int first = 0; first < parts.length; ) {
+            written += channel.write(parts, first, parts.length - first);
+            while (first < parts.length && !parts[first].hasRemaining()) {
+                first++;
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.util.Assert;
+
+/**
+ * Action or outcome read by a decoder which is not part of the taxonomy, its relative uri is kept as is.
+ */
+public final class UnknownTaxonomyValue implements ICadfAction, ICadfOutcome {
+
+    private final String relativeUri;
+
+    public UnknownTaxonomyValue(String relativeUri) {
+        Assert.notNull(relativeUri, "relativeUri can not be null");
+        this.relativeUri = relativeUri;
+    }
+
+    @Override
+    public String getRelativeUri() {
+        return relativeUri;
+    }
+
+    @Override
+    public int getOrdinal() {
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return relativeUri;
+    }
+}
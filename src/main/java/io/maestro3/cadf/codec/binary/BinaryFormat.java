@@ -0,0 +1,112 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+/**
+ * Constants of the binary event format, version 2.
+ * <p/>
+ * An event record starts with a varint of presence flags, followed by the present fields in flag order. The event time
+ * is a fixed 8 byte epoch nanos (version 1 kept it as text or zigzag micros). Actions and outcomes are written as
+ * {@code ordinal + 1}, resource types as {@code (ordinal + 1) << 1 | fullUri}, a zero stands for a literal string
+ * which follows. Resource ids, names and other repetitive strings go through the per-stream dictionary: {@code 0} +
+ * literal adds the string to the dictionary, {@code index + 1} references it. Without a dictionary (self-contained
+ * records) such strings are plain literals.
+ */
+final class BinaryFormat {
+
+    static final byte[] MAGIC = {'C', 'A', 'D', 'B'};
+    static final int VERSION = 2;
+
+    // ================================= event fields ========================================
+
+    static final int EVENT_ID = 1;
+    static final int EVENT_TYPE = 1 << 1;
+    static final int EVENT_TIME = 1 << 2;
+    static final int EVENT_ACTION = 1 << 3;
+    static final int EVENT_OUTCOME = 1 << 4;
+    static final int EVENT_INITIATOR = 1 << 5;
+    static final int EVENT_TARGET = 1 << 6;
+    static final int EVENT_OBSERVER = 1 << 7;
+    static final int EVENT_MEASUREMENTS = 1 << 8;
+    static final int EVENT_NAME = 1 << 9;
+    static final int EVENT_SEVERITY = 1 << 10;
+    static final int EVENT_TAGS = 1 << 11;
+    static final int EVENT_ATTACHMENTS = 1 << 12;
+    static final int EVENT_SECURE_ATTACHMENTS = 1 << 13;
+
+    // ================================= nested fields ========================================
+
+    /**
+     * Flags value of a null list element.
+     */
+    static final int NULL_ELEMENT = 0x80;
+
+    static final int RESOURCE_ID = 1;
+    static final int RESOURCE_TYPE_URI = 1 << 1;
+    static final int RESOURCE_NAME = 1 << 2;
+    static final int RESOURCE_CREDENTIAL = 1 << 3;
+    static final int RESOURCE_ATTACHMENTS = 1 << 4;
+
+    static final int ATTACHMENT_CONTENT_TYPE = 1;
+    static final int ATTACHMENT_CONTENT = 1 << 1;
+    static final int ATTACHMENT_NAME = 1 << 2;
+
+    static final int MEASUREMENT_RESULT = 1;
+    static final int MEASUREMENT_METRIC_ID = 1 << 1;
+    static final int MEASUREMENT_METRIC = 1 << 2;
+    static final int MEASUREMENT_CALCULATED_BY_ID = 1 << 3;
+    static final int MEASUREMENT_CALCULATED_BY = 1 << 4;
+
+    static final int METRIC_ID = 1;
+    static final int METRIC_UNIT = 1 << 1;
+    static final int METRIC_NAME = 1 << 2;
+
+    static final int CREDENTIAL_TYPE = 1;
+    static final int CREDENTIAL_TOKEN = 1 << 1;
+    static final int CREDENTIAL_AUTHORITY = 1 << 2;
+
+    static final int TAG_NAME = 1;
+    static final int TAG_VALUE = 1 << 1;
+
+    // ================================= payload types ========================================
+
+    static final int PAYLOAD_NULL = 0;
+    static final int PAYLOAD_STRING = 1;
+    static final int PAYLOAD_INT = 2;
+    static final int PAYLOAD_LONG = 3;
+    static final int PAYLOAD_DOUBLE = 4;
+    static final int PAYLOAD_FLOAT = 5;
+    static final int PAYLOAD_TRUE = 6;
+    static final int PAYLOAD_FALSE = 7;
+    static final int PAYLOAD_BIG_DECIMAL = 8;
+    static final int PAYLOAD_BIG_INTEGER = 9;
+    static final int PAYLOAD_MAP = 10;
+    static final int PAYLOAD_LIST = 11;
+    static final int PAYLOAD_RESOURCE = 12;
+    static final int PAYLOAD_SHORT = 13;
+    static final int PAYLOAD_BYTE = 14;
+    static final int PAYLOAD_CHARACTER = 15;
+
+    /**
+     * Type ids below are reserved for built-in payload types.
+     */
+    static final int FIRST_CUSTOM_PAYLOAD = 32;
+
+    private BinaryFormat() {
+        throw new UnsupportedOperationException("Instantiation is forbidden.");
+    }
+}
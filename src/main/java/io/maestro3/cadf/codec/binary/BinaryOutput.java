@@ -0,0 +1,184 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable byte sink with varint and UTF-8 primitives of the binary event format. Not thread-safe, meant to be
+ * reused via {@link #reset()}.
+ */
+public final class BinaryOutput {
+
+    private byte[] buffer;
+    private int size;
+
+    public BinaryOutput() {
+        this(512);
+    }
+
+    public BinaryOutput(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    public BinaryOutput writeByte(int value) {
+        ensure(1);
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    public BinaryOutput writeBytes(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Unsigned LEB128, 1 byte for values below 128.
+     */
+    public BinaryOutput writeVarInt(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    public BinaryOutput writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Signed varint, small negative values stay short.
+     */
+    public BinaryOutput writeZigZagLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public BinaryOutput writeInt(int value) {
+        ensure(4);
+        buffer[size++] = (byte) (value >>> 24);
+        buffer[size++] = (byte) (value >>> 16);
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) value;
+        return this;
+    }
+
+    public BinaryOutput writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        return writeInt((int) value);
+    }
+
+    public BinaryOutput writeDouble(double value) {
+        return writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Varint byte length followed by UTF-8 bytes.
+     */
+    public BinaryOutput writeString(String value) {
+        int length = value.length();
+        int encodedLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                encodedLength += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                encodedLength += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                encodedLength += 2;
+            }
+        }
+        writeVarInt(encodedLength);
+        ensure(encodedLength);
+        byte[] buf = buffer;
+        int position = size;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buf[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[position++] = (byte) (0xC0 | (c >> 6));
+                buf[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[position++] = '?';
+            } else {
+                buf[position++] = (byte) (0xE0 | (c >> 12));
+                buf[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        size = position;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public BinaryOutput reset() {
+        size = 0;
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    public void writeTo(ByteBuffer out) {
+        out.put(buffer, 0, size);
+    }
+
+    /**
+     * Direct access to the written bytes [0, size), valid until the next write.
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + extra));
+        }
+    }
+}
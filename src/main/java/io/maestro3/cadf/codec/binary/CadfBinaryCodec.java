@@ -0,0 +1,441 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.codec.CadfEncodedPayload;
+import io.maestro3.cadf.codec.CadfLazyAttachment;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceCache;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.model.CadfTagCache;
+import io.maestro3.cadf.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary codec of {@link CadfAuditEvent}.
+ * <p/>
+ * Taxonomy values are written as ordinals, lengths and integers as varints, eventTime as fixed 8 byte epoch nanos,
+ * and repetitive strings (resource ids and names, metric ids, tag names...) are dictionary coded per stream.
+ * Use {@link #newWriter(OutputStream)}/{@link #newReader(InputStream)} for streams, or {@link #encode}/{@link #decode}
+ * for self-contained records which do not share a dictionary.
+ * <p/>
+ * Ordinals depend on the taxonomy of this library version, so streams carry {@link #getTaxonomyFingerprint()} and
+ * readers reject streams written with a different taxonomy. Instances are thread-safe, encoders and decoders are not.
+ */
+public final class CadfBinaryCodec {
+
+    public static final int DEFAULT_DICTIONARY_SIZE = 4096;
+
+    private static final int TAXONOMY_FINGERPRINT = fingerprint();
+
+    static final Map<String, Integer> ACTION_ORDINALS = actionOrdinals();
+    static final Map<String, Integer> OUTCOME_ORDINALS = outcomeOrdinals();
+    static final Map<String, Integer> RESOURCE_TYPE_ORDINALS = resourceTypeOrdinals(false);
+    static final Map<String, Integer> FULL_RESOURCE_TYPE_ORDINALS = resourceTypeOrdinals(true);
+    static final String[] FULL_RESOURCE_TYPE_URIS = fullResourceTypeUris();
+    static final CadfEventType[] EVENT_TYPES = CadfEventType.values();
+
+    private static final Map<Class<?>, Integer> BUILT_IN_PAYLOADS = builtInPayloads();
+
+    private final int dictionarySize;
+    private final CadfResourceCache resourceCache;
+    private final CadfTagCache tagCache;
+    private final Map<Class<?>, Integer> customPayloadIds;
+    private final Map<Integer, ICadfBinaryPayloadCodec<?>> customPayloadCodecs;
+    private final ClassValue<Integer> payloadTypes = new ClassValue<>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return resolvePayloadType(type);
+        }
+    };
+    private final boolean builtInNumberPayloads;
+    private final boolean measurementBatches;
+    private final boolean lazyPayloads;
+    private final ThreadLocal<CadfBinaryEncoder> recordEncoders;
+    private final ThreadLocal<BinaryOutput> recordOutputs;
+    private final ThreadLocal<CadfBinaryDecoder> recordDecoders;
+
+    private CadfBinaryCodec(Builder builder) {
+        this.dictionarySize = builder.dictionarySize;
+        this.resourceCache = builder.resourceCache;
+        this.tagCache = builder.tagCache;
+        this.customPayloadIds = new LinkedHashMap<>(builder.customPayloadIds);
+        this.customPayloadCodecs = new HashMap<>(builder.customPayloadCodecs);
+        this.builtInNumberPayloads = payloadTypes.get(Long.class) == BinaryFormat.PAYLOAD_LONG
+            && payloadTypes.get(Double.class) == BinaryFormat.PAYLOAD_DOUBLE;
+        this.measurementBatches = builder.measurementBatches;
+        this.lazyPayloads = builder.lazyPayloads;
+        this.recordEncoders = ThreadLocal.withInitial(() -> new CadfBinaryEncoder(this, 0));
+        this.recordOutputs = ThreadLocal.withInitial(BinaryOutput::new);
+        this.recordDecoders = ThreadLocal.withInitial(() -> new CadfBinaryDecoder(this, 0));
+    }
+
+    public static CadfBinaryCodec create() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checksum of all taxonomy uris in ordinal order, identifies which ordinals an encoded event refers to.
+     */
+    public static int getTaxonomyFingerprint() {
+        return TAXONOMY_FINGERPRINT;
+    }
+
+    public int getDictionarySize() {
+        return dictionarySize;
+    }
+
+    /**
+     * @return cache decoded resources are interned into, or null
+     */
+    public CadfResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    /**
+     * @return cache decoded tags are interned into, or null
+     */
+    public CadfTagCache getTagCache() {
+        return tagCache;
+    }
+
+    /**
+     * @return whether decoded measurements are collected into a {@link CadfMeasurementBatch}
+     */
+    public boolean isMeasurementBatches() {
+        return measurementBatches;
+    }
+
+    /**
+     * @return whether attachment contents and credential tokens are decoded on first access
+     */
+    public boolean isLazyPayloads() {
+        return lazyPayloads;
+    }
+
+    // ================================= streams ========================================
+
+    /**
+     * Encoder with its own dictionary, for a single stream of events.
+     */
+    public CadfBinaryEncoder newEncoder() {
+        return new CadfBinaryEncoder(this, dictionarySize);
+    }
+
+    /**
+     * Decoder with its own dictionary, for a single stream written by {@link #newEncoder()}.
+     */
+    public CadfBinaryDecoder newDecoder() {
+        return newDecoder(dictionarySize);
+    }
+
+    CadfBinaryDecoder newDecoder(int dictionarySize) {
+        return new CadfBinaryDecoder(this, dictionarySize);
+    }
+
+    public CadfBinaryWriter newWriter(OutputStream stream) throws IOException {
+        return new CadfBinaryWriter(this, stream);
+    }
+
+    public CadfBinaryReader newReader(InputStream stream) throws IOException {
+        return new CadfBinaryReader(this, stream);
+    }
+
+    // ================================= records ========================================
+
+    /**
+     * Encodes a self-contained record which can be decoded on its own with {@link #decode(byte[], int, int)}.
+     */
+    public byte[] encode(CadfAuditEvent event) {
+        BinaryOutput out = recordOutputs.get().reset();
+        encode(event, out);
+        return out.toByteArray();
+    }
+
+    public void encode(CadfAuditEvent event, BinaryOutput out) {
+        recordEncoders.get().encode(event, out);
+    }
+
+    /**
+     * Reusable builder encoding records the way {@link #encode(CadfAuditEvent, BinaryOutput)} does, without creating
+     * the event. Not thread-safe.
+     */
+    public CadfBinaryEventBuilder newEventBuilder() {
+        return new CadfBinaryEventBuilder(this);
+    }
+
+    /**
+     * Relay splicing values into records written by {@link #encode(CadfAuditEvent)}. Stream events can not be
+     * relayed, they may refer to dictionary entries of earlier events.
+     */
+    public CadfBinaryRelay newRelay() {
+        return new CadfBinaryRelay(this);
+    }
+
+    public CadfAuditEvent decode(byte[] record) {
+        Assert.notNull(record, "record can not be null");
+        return decode(record, 0, record.length);
+    }
+
+    public CadfAuditEvent decode(byte[] record, int offset, int length) {
+        Assert.notNull(record, "record can not be null");
+        return recordDecoders.get().decode(new BinaryInput(record, offset, length));
+    }
+
+    // ================================= payloads ========================================
+
+    /**
+     * Decodes a self-contained payload kept by a {@link CadfEncodedPayload}.
+     */
+    Object decodePayload(byte[] payload) {
+        BinaryInput in = new BinaryInput(payload, 0, payload.length);
+        Object value = recordDecoders.get().readPayload(in);
+        Assert.isTrue(in.remaining() == 0, "Unexpected trailing bytes after binary payload.");
+        return value;
+    }
+
+    /**
+     * @return payload type id of the value's class, built-in or registered
+     * @throws IllegalArgumentException if no codec is registered for the class
+     */
+    int payloadType(Object payload) {
+        int type = payloadTypes.get(payload.getClass());
+        if (type < 0) {
+            throw new IllegalArgumentException("No binary payload codec registered for " + payload.getClass().getName());
+        }
+        return type;
+    }
+
+    /**
+     * Whether longs and doubles are written as built-in payloads, i.e. primitive measurements can skip boxing.
+     */
+    boolean hasBuiltInNumberPayloads() {
+        return builtInNumberPayloads;
+    }
+
+    @SuppressWarnings("unchecked")
+    ICadfBinaryPayloadCodec<Object> customCodec(int type) {
+        ICadfBinaryPayloadCodec<?> codec = customPayloadCodecs.get(type);
+        if (codec == null) {
+            throw new IllegalArgumentException("No binary payload codec registered for type id " + type);
+        }
+        return (ICadfBinaryPayloadCodec<Object>) codec;
+    }
+
+    private int resolvePayloadType(Class<?> type) {
+        Integer custom = findInHierarchy(customPayloadIds, type);
+        if (custom != null) {
+            return custom;
+        }
+        if (type.isArray() && !type.getComponentType().isPrimitive()) {
+            return BinaryFormat.PAYLOAD_LIST;
+        }
+        Integer builtIn = findInHierarchy(BUILT_IN_PAYLOADS, type);
+        return builtIn != null ? builtIn : -1;
+    }
+
+    private static Integer findInHierarchy(Map<Class<?>, Integer> ids, Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            Integer id = ids.get(current);
+            if (id != null) {
+                return id;
+            }
+        }
+        for (Map.Entry<Class<?>, Integer> entry : ids.entrySet()) {
+            if (entry.getKey().isInterface() && entry.getKey().isAssignableFrom(type)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Map<Class<?>, Integer> builtInPayloads() {
+        Map<Class<?>, Integer> payloads = new LinkedHashMap<>();
+        payloads.put(String.class, BinaryFormat.PAYLOAD_STRING);
+        payloads.put(Integer.class, BinaryFormat.PAYLOAD_INT);
+        payloads.put(Long.class, BinaryFormat.PAYLOAD_LONG);
+        payloads.put(Double.class, BinaryFormat.PAYLOAD_DOUBLE);
+        payloads.put(Float.class, BinaryFormat.PAYLOAD_FLOAT);
+        payloads.put(Boolean.class, BinaryFormat.PAYLOAD_TRUE);
+        payloads.put(BigDecimal.class, BinaryFormat.PAYLOAD_BIG_DECIMAL);
+        payloads.put(BigInteger.class, BinaryFormat.PAYLOAD_BIG_INTEGER);
+        payloads.put(Short.class, BinaryFormat.PAYLOAD_SHORT);
+        payloads.put(Byte.class, BinaryFormat.PAYLOAD_BYTE);
+        payloads.put(Character.class, BinaryFormat.PAYLOAD_CHARACTER);
+        payloads.put(CadfResource.class, BinaryFormat.PAYLOAD_RESOURCE);
+        payloads.put(Map.class, BinaryFormat.PAYLOAD_MAP);
+        payloads.put(Collection.class, BinaryFormat.PAYLOAD_LIST);
+        return payloads;
+    }
+
+    // ================================= taxonomy ========================================
+
+    private static int fingerprint() {
+        CRC32 crc = new CRC32();
+        for (ICadfAction action : CadfActions.values()) {
+            crc.update((action.getRelativeUri() + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        for (ICadfOutcome outcome : CadfOutcomes.values()) {
+            crc.update((outcome.getRelativeUri() + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            crc.update((type.getRelativeUri() + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        for (CadfEventType eventType : CadfEventType.values()) {
+            crc.update((eventType.getName() + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        return (int) crc.getValue();
+    }
+
+    private static Map<String, Integer> actionOrdinals() {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (ICadfAction action : CadfActions.values()) {
+            ordinals.put(action.getRelativeUri(), action.getOrdinal());
+        }
+        return ordinals;
+    }
+
+    private static Map<String, Integer> outcomeOrdinals() {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (ICadfOutcome outcome : CadfOutcomes.values()) {
+            ordinals.put(outcome.getRelativeUri(), outcome.getOrdinal());
+        }
+        return ordinals;
+    }
+
+    private static Map<String, Integer> resourceTypeOrdinals(boolean fullUri) {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            String uri = fullUri ? CadfResource.FULL_ROOT_URI + "/" + type.getRelativeUri() : type.getRelativeUri();
+            ordinals.put(uri, type.getOrdinal());
+        }
+        return ordinals;
+    }
+
+    private static String[] fullResourceTypeUris() {
+        String[] uris = new String[CadfResourceTypes.values().size()];
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            uris[type.getOrdinal()] = CadfResource.FULL_ROOT_URI + "/" + type.getRelativeUri();
+        }
+        return uris;
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private final Map<Class<?>, Integer> customPayloadIds = new LinkedHashMap<>();
+        private final Map<Integer, ICadfBinaryPayloadCodec<?>> customPayloadCodecs = new HashMap<>();
+        private int dictionarySize = DEFAULT_DICTIONARY_SIZE;
+        private CadfResourceCache resourceCache;
+        private CadfTagCache tagCache;
+        private boolean measurementBatches;
+        private boolean lazyPayloads;
+
+        private Builder() {
+        }
+
+        /**
+         * Registers a codec for payloads of the given class and its subclasses, overrides built-in payload types.
+         *
+         * @param typeId stable id written in front of every payload of this type, 32 or above
+         */
+        public <T> Builder withPayloadCodec(int typeId, Class<T> type, ICadfBinaryPayloadCodec<T> codec) {
+            Assert.isTrue(typeId >= BinaryFormat.FIRST_CUSTOM_PAYLOAD, "payload type ids below 32 are reserved");
+            Assert.notNull(type, "type can not be null");
+            Assert.notNull(codec, "codec can not be null");
+            Assert.isTrue(!customPayloadCodecs.containsKey(typeId), "payload type id is already registered");
+            customPayloadIds.put(type, typeId);
+            customPayloadCodecs.put(typeId, codec);
+            return this;
+        }
+
+        /**
+         * Maximum number of strings remembered per stream, 0 disables the dictionary.
+         */
+        public Builder withDictionarySize(int dictionarySize) {
+            Assert.isTrue(dictionarySize >= 0, "dictionarySize must not be negative");
+            this.dictionarySize = dictionarySize;
+            return this;
+        }
+
+        /**
+         * Cache decoded resources are interned into, e.g. {@link CadfResourceCache#getDefault()}. Not set by default,
+         * every event gets its own resources then.
+         */
+        public Builder withResourceCache(CadfResourceCache resourceCache) {
+            Assert.notNull(resourceCache, "resourceCache can not be null");
+            this.resourceCache = resourceCache;
+            return this;
+        }
+
+        /**
+         * Cache decoded tags are interned into, e.g. {@link CadfTagCache#getDefault()}. Not set by default.
+         */
+        public Builder withTagCache(CadfTagCache tagCache) {
+            Assert.notNull(tagCache, "tagCache can not be null");
+            this.tagCache = tagCache;
+            return this;
+        }
+
+        /**
+         * Decodes measurements into a {@link CadfMeasurementBatch}, keeping long and double results without a metric
+         * object unboxed. Disabled by default since elements of a batch are snapshots, see its docs.
+         */
+        public Builder withMeasurementBatches(boolean measurementBatches) {
+            this.measurementBatches = measurementBatches;
+            return this;
+        }
+
+        /**
+         * Keeps attachment contents and credential tokens encoded until first accessed, see
+         * {@link CadfLazyAttachment}. Encoders copy untouched payloads verbatim. Payloads holding resources or custom
+         * types are still decoded eagerly, since they may depend on the dictionary of the stream. Disabled by default.
+         */
+        public Builder withLazyPayloads(boolean lazyPayloads) {
+            this.lazyPayloads = lazyPayloads;
+            return this;
+        }
+
+        public CadfBinaryCodec build() {
+            return new CadfBinaryCodec(this);
+        }
+    }
+}
@@ -0,0 +1,525 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import io.maestro3.cadf.codec.CadfEncodedPayload;
+import io.maestro3.cadf.codec.CadfLazyAttachment;
+import io.maestro3.cadf.codec.CadfLazyCredential;
+import io.maestro3.cadf.codec.UnknownTaxonomyValue;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import io.maestro3.cadf.model.CadfMetric;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceCache;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.model.CadfTagCache;
+import io.maestro3.cadf.util.Assert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads events of a single stream written by a {@link CadfBinaryEncoder} with the same dictionary size. Not
+ * thread-safe.
+ *
+ * @see CadfBinaryCodec#newDecoder()
+ */
+public final class CadfBinaryDecoder {
+
+    private final CadfBinaryCodec codec;
+    private final int dictionarySize;
+    private final List<String> dictionary = new ArrayList<>();
+    private final BinaryInput probe = new BinaryInput();
+
+    CadfBinaryDecoder(CadfBinaryCodec codec, int dictionarySize) {
+        this.codec = codec;
+        this.dictionarySize = dictionarySize;
+    }
+
+    /**
+     * Reads one event record from the current position of the input.
+     *
+     * @throws IllegalArgumentException if the record is malformed or the event is incomplete
+     */
+    public CadfAuditEvent decode(BinaryInput in) {
+        Assert.notNull(in, "in can not be null");
+        int flags = in.readVarInt();
+        CadfAuditEvent.Builder builder = CadfAuditEvent.builder().withoutIdGenerator();
+        if ((flags & BinaryFormat.EVENT_ID) != 0) {
+            builder.withId(in.readString());
+        }
+        if ((flags & BinaryFormat.EVENT_TYPE) != 0) {
+            builder.withEventType(readEventType(in));
+        }
+        if ((flags & BinaryFormat.EVENT_TIME) != 0) {
+            builder.withEventTimeNanos(in.readLong());
+        }
+        if ((flags & BinaryFormat.EVENT_ACTION) != 0) {
+            int ordinal = in.readVarInt();
+            builder.withAction(ordinal != 0
+                ? CadfActions.byOrdinal(ordinal - 1)
+                : new UnknownTaxonomyValue(in.readString()));
+        }
+        if ((flags & BinaryFormat.EVENT_OUTCOME) != 0) {
+            int ordinal = in.readVarInt();
+            builder.withOutcome(ordinal != 0
+                ? CadfOutcomes.byOrdinal(ordinal - 1)
+                : new UnknownTaxonomyValue(in.readString()));
+        }
+        if ((flags & BinaryFormat.EVENT_INITIATOR) != 0) {
+            builder.withInitiator(readResource(in));
+        }
+        if ((flags & BinaryFormat.EVENT_TARGET) != 0) {
+            builder.withTarget(readResource(in));
+        }
+        if ((flags & BinaryFormat.EVENT_OBSERVER) != 0) {
+            builder.withObserver(readResource(in));
+        }
+        if ((flags & BinaryFormat.EVENT_MEASUREMENTS) != 0) {
+            builder.withMeasurements(readMeasurements(in));
+        }
+        if ((flags & BinaryFormat.EVENT_NAME) != 0) {
+            builder.withName(readDictionaryString(in));
+        }
+        if ((flags & BinaryFormat.EVENT_SEVERITY) != 0) {
+            builder.withSeverity(readDictionaryString(in));
+        }
+        if ((flags & BinaryFormat.EVENT_TAGS) != 0) {
+            builder.withTags(readTags(in));
+        }
+        if ((flags & BinaryFormat.EVENT_ATTACHMENTS) != 0) {
+            builder.withAttachments(readAttachments(in));
+        }
+        if ((flags & BinaryFormat.EVENT_SECURE_ATTACHMENTS) != 0) {
+            builder.withSecureAttachments(readAttachments(in));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Forgets all dictionary entries, see {@link CadfBinaryEncoder#reset()}.
+     */
+    public void reset() {
+        dictionary.clear();
+    }
+
+    // ================================= fields ========================================
+
+    private CadfResource readResource(BinaryInput in) {
+        int flags = in.readVarInt();
+        CadfResource resource = new CadfResource();
+        if ((flags & BinaryFormat.RESOURCE_ID) != 0) {
+            resource.setId(readDictionaryString(in));
+        }
+        if ((flags & BinaryFormat.RESOURCE_TYPE_URI) != 0) {
+            resource.setTypeURI(readResourceType(in));
+        }
+        if ((flags & BinaryFormat.RESOURCE_NAME) != 0) {
+            resource.setName(readDictionaryString(in));
+        }
+        if ((flags & BinaryFormat.RESOURCE_CREDENTIAL) != 0) {
+            resource.setCredential(readCredential(in));
+        }
+        if ((flags & BinaryFormat.RESOURCE_ATTACHMENTS) != 0) {
+            resource.setAttachments(readAttachments(in));
+        }
+        CadfResourceCache resourceCache = codec.getResourceCache();
+        return resourceCache != null ? resourceCache.intern(resource) : resource;
+    }
+
+    private CadfCredential readCredential(BinaryInput in) {
+        int flags = in.readVarInt();
+        CadfCredential<Object> credential = codec.isLazyPayloads() ? new CadfLazyCredential<>() : new CadfCredential<>();
+        if ((flags & BinaryFormat.CREDENTIAL_TYPE) != 0) {
+            credential.setType(readDictionaryString(in));
+        }
+        if ((flags & BinaryFormat.CREDENTIAL_TOKEN) != 0) {
+            CadfEncodedPayload encoded = codec.isLazyPayloads() ? readEncodedPayload(in) : null;
+            if (encoded != null) {
+                ((CadfLazyCredential<Object>) credential).setEncodedToken(encoded);
+            } else {
+                credential.setToken(readPayload(in));
+            }
+        }
+        if ((flags & BinaryFormat.CREDENTIAL_AUTHORITY) != 0) {
+            credential.setAuthority(readDictionaryString(in));
+        }
+        return credential;
+    }
+
+    private List<CadfAttachment> readAttachments(BinaryInput in) {
+        int size = readSize(in);
+        List<CadfAttachment> attachments = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int flags = in.readVarInt();
+            if (flags == BinaryFormat.NULL_ELEMENT) {
+                attachments.add(null);
+                continue;
+            }
+            CadfAttachment<Object> attachment = codec.isLazyPayloads()
+                ? new CadfLazyAttachment<>()
+                : new CadfAttachment<>();
+            if ((flags & BinaryFormat.ATTACHMENT_CONTENT_TYPE) != 0) {
+                attachment.setContentType(readDictionaryString(in));
+            }
+            if ((flags & BinaryFormat.ATTACHMENT_CONTENT) != 0) {
+                CadfEncodedPayload encoded = codec.isLazyPayloads() ? readEncodedPayload(in) : null;
+                if (encoded != null) {
+                    ((CadfLazyAttachment<Object>) attachment).setEncodedContent(encoded);
+                } else {
+                    attachment.setContent(readPayload(in));
+                }
+            }
+            if ((flags & BinaryFormat.ATTACHMENT_NAME) != 0) {
+                attachment.setName(readDictionaryString(in));
+            }
+            attachments.add(attachment);
+        }
+        return attachments;
+    }
+
+    private List<CadfMeasurement> readMeasurements(BinaryInput in) {
+        int size = readSize(in);
+        if (codec.isMeasurementBatches()) {
+            return readMeasurementBatch(in, size);
+        }
+        List<CadfMeasurement> measurements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int flags = in.readVarInt();
+            measurements.add(flags == BinaryFormat.NULL_ELEMENT ? null : readMeasurement(in, flags, -1));
+        }
+        return measurements;
+    }
+
+    private CadfMeasurementBatch readMeasurementBatch(BinaryInput in, int size) {
+        CadfMeasurementBatch batch = new CadfMeasurementBatch(size);
+        for (int i = 0; i < size; i++) {
+            int flags = in.readVarInt();
+            if (flags == BinaryFormat.NULL_ELEMENT) {
+                batch.add(null);
+                continue;
+            }
+            int payloadType = (flags & BinaryFormat.MEASUREMENT_RESULT) != 0 ? in.readVarInt() : -1;
+            boolean primitive = (flags & BinaryFormat.MEASUREMENT_METRIC_ID) != 0
+                && (flags & BinaryFormat.MEASUREMENT_METRIC) == 0
+                && (payloadType == BinaryFormat.PAYLOAD_LONG || payloadType == BinaryFormat.PAYLOAD_DOUBLE);
+            if (!primitive) {
+                batch.add(readMeasurement(in, flags, payloadType));
+                continue;
+            }
+            long value = payloadType == BinaryFormat.PAYLOAD_LONG
+                ? in.readZigZagLong()
+                : Double.doubleToRawLongBits(in.readDouble());
+            String metricId = readDictionaryString(in);
+            String calculatedById = (flags & BinaryFormat.MEASUREMENT_CALCULATED_BY_ID) != 0
+                ? readDictionaryString(in)
+                : null;
+            CadfResource calculatedBy = (flags & BinaryFormat.MEASUREMENT_CALCULATED_BY) != 0 ? readResource(in) : null;
+            if (payloadType == BinaryFormat.PAYLOAD_LONG) {
+                batch.addLong(metricId, value, calculatedById, calculatedBy);
+            } else {
+                batch.addDouble(metricId, Double.longBitsToDouble(value), calculatedById, calculatedBy);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * @param payloadType type of the result if it was already read, -1 otherwise
+     */
+    private CadfMeasurement readMeasurement(BinaryInput in, int flags, int payloadType) {
+        CadfMeasurement<Object> measurement = new CadfMeasurement<>();
+        if ((flags & BinaryFormat.MEASUREMENT_RESULT) != 0) {
+            measurement.setResult(payloadType < 0 ? readPayload(in) : readPayload(in, payloadType));
+        }
+        if ((flags & BinaryFormat.MEASUREMENT_METRIC_ID) != 0) {
+            measurement.setMetricId(readDictionaryString(in));
+        }
+        if ((flags & BinaryFormat.MEASUREMENT_METRIC) != 0) {
+            measurement.setMetric(readMetric(in));
+        }
+        if ((flags & BinaryFormat.MEASUREMENT_CALCULATED_BY_ID) != 0) {
+            measurement.setCalculatedById(readDictionaryString(in));
+        }
+        if ((flags & BinaryFormat.MEASUREMENT_CALCULATED_BY) != 0) {
+            measurement.setCalculatedBy(readResource(in));
+        }
+        return measurement;
+    }
+
+    private CadfMetric readMetric(BinaryInput in) {
+        int flags = in.readVarInt();
+        CadfMetric metric = new CadfMetric();
+        if ((flags & BinaryFormat.METRIC_ID) != 0) {
+            metric.setMetricId(readDictionaryString(in));
+        }
+        if ((flags & BinaryFormat.METRIC_UNIT) != 0) {
+            metric.setUnit(readDictionaryString(in));
+        }
+        if ((flags & BinaryFormat.METRIC_NAME) != 0) {
+            metric.setName(readDictionaryString(in));
+        }
+        return metric;
+    }
+
+    private List<CadfTag> readTags(BinaryInput in) {
+        int size = readSize(in);
+        List<CadfTag> tags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int flags = in.readVarInt();
+            if (flags == BinaryFormat.NULL_ELEMENT) {
+                tags.add(null);
+                continue;
+            }
+            String name = (flags & BinaryFormat.TAG_NAME) != 0 ? readDictionaryString(in) : null;
+            String value = (flags & BinaryFormat.TAG_VALUE) != 0 ? readDictionaryString(in) : null;
+            CadfTagCache tagCache = codec.getTagCache();
+            if (tagCache != null) {
+                tags.add(tagCache.intern(name, value));
+                continue;
+            }
+            CadfTag tag = new CadfTag();
+            tag.setName(name);
+            tag.setValue(value);
+            tags.add(tag);
+        }
+        return tags;
+    }
+
+    // ================================= payloads ========================================
+
+    Object readPayload(BinaryInput in) {
+        return readPayload(in, in.readVarInt());
+    }
+
+    /**
+     * Skips the next payload and keeps its bytes, or leaves the input untouched if the payload can not be copied
+     * as is, because it holds dictionary coded resources or custom payloads.
+     */
+    private CadfEncodedPayload readEncodedPayload(BinaryInput in) {
+        int start = in.position();
+        probe.reset(in.array(), start, in.remaining());
+        if (!skipPayload(probe)) {
+            return null;
+        }
+        int length = probe.position() - start;
+        in.skip(length);
+        byte[] bytes = Arrays.copyOfRange(in.array(), start, start + length);
+        return new CadfEncodedPayload(CadfEncodedPayload.Format.BINARY, bytes, isEmptyPayload(bytes),
+            codec::decodePayload);
+    }
+
+    /**
+     * Mirrors the emptiness the validator checks on decoded payloads, looking at as few bytes as possible.
+     */
+    private boolean isEmptyPayload(byte[] bytes) {
+        probe.reset(bytes, 0, bytes.length);
+        switch (probe.readVarInt()) {
+            case BinaryFormat.PAYLOAD_NULL:
+                return true;
+            case BinaryFormat.PAYLOAD_STRING:
+                int length = probe.readVarInt();
+                if (length == 0) {
+                    return true;
+                }
+                int first = bytes[probe.position()];
+                // a non-blank value almost always starts with an ascii non-whitespace char
+                if (first >= 0 && !Character.isWhitespace(first)) {
+                    return false;
+                }
+                String text = new String(bytes, probe.position(), length, StandardCharsets.UTF_8);
+                for (int i = 0; i < text.length(); i++) {
+                    if (!Character.isWhitespace(text.charAt(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            case BinaryFormat.PAYLOAD_MAP:
+            case BinaryFormat.PAYLOAD_LIST:
+                return probe.readVarInt() == 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return false if the payload is not self-contained, the input is left somewhere within it then
+     */
+    private static boolean skipPayload(BinaryInput in) {
+        switch (in.readVarInt()) {
+            case BinaryFormat.PAYLOAD_NULL:
+            case BinaryFormat.PAYLOAD_TRUE:
+            case BinaryFormat.PAYLOAD_FALSE:
+                return true;
+            case BinaryFormat.PAYLOAD_STRING:
+            case BinaryFormat.PAYLOAD_BIG_DECIMAL:
+            case BinaryFormat.PAYLOAD_BIG_INTEGER:
+                in.skip(in.readVarInt());
+                return true;
+            case BinaryFormat.PAYLOAD_INT:
+            case BinaryFormat.PAYLOAD_LONG:
+            case BinaryFormat.PAYLOAD_SHORT:
+            case BinaryFormat.PAYLOAD_BYTE:
+                in.readVarLong();
+                return true;
+            case BinaryFormat.PAYLOAD_CHARACTER:
+                in.readVarInt();
+                return true;
+            case BinaryFormat.PAYLOAD_DOUBLE:
+                in.skip(Long.BYTES);
+                return true;
+            case BinaryFormat.PAYLOAD_FLOAT:
+                in.skip(Integer.BYTES);
+                return true;
+            case BinaryFormat.PAYLOAD_MAP:
+                int entries = readSize(in);
+                for (int i = 0; i < entries; i++) {
+                    if (!skipPayload(in) || !skipPayload(in)) {
+                        return false;
+                    }
+                }
+                return true;
+            case BinaryFormat.PAYLOAD_LIST:
+                int elements = readSize(in);
+                for (int i = 0; i < elements; i++) {
+                    if (!skipPayload(in)) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private Object readPayload(BinaryInput in, int type) {
+        switch (type) {
+            case BinaryFormat.PAYLOAD_NULL:
+                return null;
+            case BinaryFormat.PAYLOAD_STRING:
+                return in.readString();
+            case BinaryFormat.PAYLOAD_INT:
+                return (int) in.readZigZagLong();
+            case BinaryFormat.PAYLOAD_LONG:
+                return in.readZigZagLong();
+            case BinaryFormat.PAYLOAD_SHORT:
+                return (short) in.readZigZagLong();
+            case BinaryFormat.PAYLOAD_BYTE:
+                return (byte) in.readZigZagLong();
+            case BinaryFormat.PAYLOAD_DOUBLE:
+                return in.readDouble();
+            case BinaryFormat.PAYLOAD_FLOAT:
+                return Float.intBitsToFloat(in.readInt());
+            case BinaryFormat.PAYLOAD_TRUE:
+                return Boolean.TRUE;
+            case BinaryFormat.PAYLOAD_FALSE:
+                return Boolean.FALSE;
+            case BinaryFormat.PAYLOAD_BIG_DECIMAL:
+                return new BigDecimal(in.readString());
+            case BinaryFormat.PAYLOAD_BIG_INTEGER:
+                return new BigInteger(in.readString());
+            case BinaryFormat.PAYLOAD_CHARACTER:
+                return (char) in.readVarInt();
+            case BinaryFormat.PAYLOAD_RESOURCE:
+                return readResource(in);
+            case BinaryFormat.PAYLOAD_MAP:
+                int mapSize = readSize(in);
+                Map<Object, Object> map = new LinkedHashMap<>(Math.max(16, mapSize * 4 / 3 + 1));
+                for (int i = 0; i < mapSize; i++) {
+                    Object key = readPayload(in);
+                    map.put(key, readPayload(in));
+                }
+                return map;
+            case BinaryFormat.PAYLOAD_LIST:
+                int listSize = readSize(in);
+                List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readPayload(in));
+                }
+                return list;
+            default:
+                return codec.customCodec(type).read(in);
+        }
+    }
+
+    // ================================= primitives ========================================
+
+    private String readDictionaryString(BinaryInput in) {
+        if (dictionarySize == 0) {
+            return in.readString();
+        }
+        int reference = in.readVarInt();
+        if (reference == 0) {
+            String value = in.readString();
+            if (dictionary.size() < dictionarySize) {
+                dictionary.add(value);
+            }
+            return value;
+        }
+        if (reference > dictionary.size()) {
+            throw new IllegalArgumentException("Unknown dictionary reference " + reference + " at offset " + in.position());
+        }
+        return dictionary.get(reference - 1);
+    }
+
+    private String readResourceType(BinaryInput in) {
+        int code = in.readVarInt();
+        if (code == 0) {
+            return readDictionaryString(in);
+        }
+        int ordinal = (code >>> 1) - 1;
+        if ((code & 1) != 0) {
+            if (ordinal >= CadfBinaryCodec.FULL_RESOURCE_TYPE_URIS.length) {
+                throw new IllegalArgumentException("Unknown resource type ordinal " + ordinal);
+            }
+            return CadfBinaryCodec.FULL_RESOURCE_TYPE_URIS[ordinal];
+        }
+        return CadfResourceTypes.byOrdinal(ordinal).getRelativeUri();
+    }
+
+    private static CadfEventType readEventType(BinaryInput in) {
+        int ordinal = in.readVarInt();
+        if (ordinal == 0) {
+            return CadfEventType.fromName(in.readString());
+        }
+        if (ordinal > CadfBinaryCodec.EVENT_TYPES.length) {
+            throw new IllegalArgumentException("Unknown event type ordinal " + (ordinal - 1));
+        }
+        return CadfBinaryCodec.EVENT_TYPES[ordinal - 1];
+    }
+
+    private static int readSize(BinaryInput in) {
+        int size = in.readVarInt();
+        if (size < 0 || size > in.remaining()) {
+            throw new IllegalArgumentException("Malformed size " + size + " at offset " + in.position());
+        }
+        return size;
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import io.maestro3.cadf.codec.CadfEncodedPayload;
+import io.maestro3.cadf.codec.CadfLazyAttachment;
+import io.maestro3.cadf.codec.CadfLazyCredential;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.model.CadfDoubleMeasurement;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfLongMeasurement;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import io.maestro3.cadf.model.CadfMetric;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.util.Assert;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes events of a single stream, remembering repetitive strings in its dictionary. Not thread-safe.
+ *
+ * @see CadfBinaryCodec#newEncoder()
+ */
+public final class CadfBinaryEncoder {
+
+    private final CadfBinaryCodec codec;
+    private final int dictionarySize;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    CadfBinaryEncoder(CadfBinaryCodec codec, int dictionarySize) {
+        this.codec = codec;
+        this.dictionarySize = dictionarySize;
+    }
+
+    /**
+     * Appends the event record to the output, without a length prefix.
+     */
+    public void encode(CadfAuditEvent event, BinaryOutput out) {
+        Assert.notNull(event, "event can not be null");
+        Assert.notNull(out, "out can not be null");
+        int flags = 0;
+        flags |= event.getId() != null ? BinaryFormat.EVENT_ID : 0;
+        flags |= event.getEventType() != null ? BinaryFormat.EVENT_TYPE : 0;
+        flags |= event.eventTimeNanos() != CadfAuditEvent.NO_EVENT_TIME ? BinaryFormat.EVENT_TIME : 0;
+        flags |= event.getAction() != null ? BinaryFormat.EVENT_ACTION : 0;
+        flags |= event.getOutcome() != null ? BinaryFormat.EVENT_OUTCOME : 0;
+        flags |= event.getInitiator() != null ? BinaryFormat.EVENT_INITIATOR : 0;
+        flags |= event.getTarget() != null ? BinaryFormat.EVENT_TARGET : 0;
+        flags |= event.getObserver() != null ? BinaryFormat.EVENT_OBSERVER : 0;
+        flags |= event.getMeasurements() != null ? BinaryFormat.EVENT_MEASUREMENTS : 0;
+        flags |= event.getName() != null ? BinaryFormat.EVENT_NAME : 0;
+        flags |= event.getSeverity() != null ? BinaryFormat.EVENT_SEVERITY : 0;
+        flags |= event.getTags() != null ? BinaryFormat.EVENT_TAGS : 0;
+        flags |= event.getAttachments() != null ? BinaryFormat.EVENT_ATTACHMENTS : 0;
+        flags |= event.getSecureAttachments() != null ? BinaryFormat.EVENT_SECURE_ATTACHMENTS : 0;
+        out.writeVarInt(flags);
+
+        if (event.getId() != null) {
+            out.writeString(event.getId());
+        }
+        if (event.getEventType() != null) {
+            writeEventType(event.getEventType(), out);
+        }
+        if (event.eventTimeNanos() != CadfAuditEvent.NO_EVENT_TIME) {
+            out.writeLong(event.eventTimeNanos());
+        }
+        if (event.getAction() != null) {
+            writeTaxonomy(CadfBinaryCodec.ACTION_ORDINALS.get(event.getAction()), event.getAction(), out);
+        }
+        if (event.getOutcome() != null) {
+            writeTaxonomy(CadfBinaryCodec.OUTCOME_ORDINALS.get(event.getOutcome()), event.getOutcome(), out);
+        }
+        if (event.getInitiator() != null) {
+            writeResource(event.getInitiator(), out);
+        }
+        if (event.getTarget() != null) {
+            writeResource(event.getTarget(), out);
+        }
+        if (event.getObserver() != null) {
+            writeResource(event.getObserver(), out);
+        }
+        if (event.getMeasurements() != null) {
+            writeMeasurements(event.getMeasurements(), out);
+        }
+        if (event.getName() != null) {
+            writeDictionaryString(event.getName(), out);
+        }
+        if (event.getSeverity() != null) {
+            writeDictionaryString(event.getSeverity(), out);
+        }
+        if (event.getTags() != null) {
+            writeTags(event.getTags(), out);
+        }
+        if (event.getAttachments() != null) {
+            writeAttachments(event.getAttachments(), out);
+        }
+        if (event.getSecureAttachments() != null) {
+            writeAttachments(event.getSecureAttachments(), out);
+        }
+    }
+
+    /**
+     * Forgets all dictionary entries, the paired decoder has to be reset at the same record.
+     */
+    public void reset() {
+        dictionary.clear();
+    }
+
+    // ================================= fields ========================================
+
+    void writeResource(CadfResource resource, BinaryOutput out) {
+        writeResource(resource.getId(), resource.getTypeURI(), resource.getName(), resource.getCredential(),
+            resource.getAttachments(), out);
+    }
+
+    void writeResource(String id, String typeURI, String name, CadfCredential credential,
+                       List<CadfAttachment> attachments, BinaryOutput out) {
+        int flags = 0;
+        flags |= id != null ? BinaryFormat.RESOURCE_ID : 0;
+        flags |= typeURI != null ? BinaryFormat.RESOURCE_TYPE_URI : 0;
+        flags |= name != null ? BinaryFormat.RESOURCE_NAME : 0;
+        flags |= credential != null ? BinaryFormat.RESOURCE_CREDENTIAL : 0;
+        flags |= attachments != null ? BinaryFormat.RESOURCE_ATTACHMENTS : 0;
+        out.writeVarInt(flags);
+        if (id != null) {
+            writeDictionaryString(id, out);
+        }
+        if (typeURI != null) {
+            writeResourceType(typeURI, out);
+        }
+        if (name != null) {
+            writeDictionaryString(name, out);
+        }
+        if (credential != null) {
+            writeCredential(credential, out);
+        }
+        if (attachments != null) {
+            writeAttachments(attachments, out);
+        }
+    }
+
+    private void writeCredential(CadfCredential credential, BinaryOutput out) {
+        byte[] encodedToken = encodedPayload(CadfLazyCredential.encodedToken(credential));
+        int flags = 0;
+        flags |= credential.getType() != null ? BinaryFormat.CREDENTIAL_TYPE : 0;
+        flags |= encodedToken != null || credential.getToken() != null ? BinaryFormat.CREDENTIAL_TOKEN : 0;
+        flags |= credential.getAuthority() != null ? BinaryFormat.CREDENTIAL_AUTHORITY : 0;
+        out.writeVarInt(flags);
+        if (credential.getType() != null) {
+            writeDictionaryString(credential.getType(), out);
+        }
+        if (encodedToken != null) {
+            out.writeBytes(encodedToken, 0, encodedToken.length);
+        } else if (credential.getToken() != null) {
+            writePayload(credential.getToken(), out);
+        }
+        if (credential.getAuthority() != null) {
+            writeDictionaryString(credential.getAuthority(), out);
+        }
+    }
+
+    void writeAttachments(List<CadfAttachment> attachments, BinaryOutput out) {
+        out.writeVarInt(attachments.size());
+        for (CadfAttachment attachment : attachments) {
+            if (attachment == null) {
+                out.writeVarInt(BinaryFormat.NULL_ELEMENT);
+                continue;
+            }
+            byte[] encodedContent = encodedPayload(CadfLazyAttachment.encodedContent(attachment));
+            int flags = 0;
+            flags |= attachment.getContentType() != null ? BinaryFormat.ATTACHMENT_CONTENT_TYPE : 0;
+            flags |= encodedContent != null || attachment.getContent() != null ? BinaryFormat.ATTACHMENT_CONTENT : 0;
+            flags |= attachment.getName() != null ? BinaryFormat.ATTACHMENT_NAME : 0;
+            out.writeVarInt(flags);
+            if (attachment.getContentType() != null) {
+                writeDictionaryString(attachment.getContentType(), out);
+            }
+            if (encodedContent != null) {
+                out.writeBytes(encodedContent, 0, encodedContent.length);
+            } else if (attachment.getContent() != null) {
+                writePayload(attachment.getContent(), out);
+            }
+            if (attachment.getName() != null) {
+                writeDictionaryString(attachment.getName(), out);
+            }
+        }
+    }
+
+    void writeMeasurements(List<CadfMeasurement> measurements, BinaryOutput out) {
+        if (measurements instanceof CadfMeasurementBatch && codec.hasBuiltInNumberPayloads()) {
+            writeMeasurementBatch((CadfMeasurementBatch) measurements, out);
+            return;
+        }
+        out.writeVarInt(measurements.size());
+        for (CadfMeasurement measurement : measurements) {
+            writeMeasurement(measurement, out);
+        }
+    }
+
+    private void writeMeasurementBatch(CadfMeasurementBatch batch, BinaryOutput out) {
+        int size = batch.size();
+        out.writeVarInt(size);
+        for (int i = 0; i < size; i++) {
+            if (batch.isLong(i)) {
+                writePrimitiveMeasurementHeader(batch.getMetricId(i), batch.getCalculatedById(i),
+                    batch.getCalculatedBy(i), BinaryFormat.PAYLOAD_LONG, out);
+                out.writeZigZagLong(batch.getLong(i));
+                writePrimitiveMeasurementTail(batch.getMetricId(i), batch.getCalculatedById(i),
+                    batch.getCalculatedBy(i), out);
+            } else if (batch.isDouble(i)) {
+                writePrimitiveMeasurementHeader(batch.getMetricId(i), batch.getCalculatedById(i),
+                    batch.getCalculatedBy(i), BinaryFormat.PAYLOAD_DOUBLE, out);
+                out.writeDouble(batch.getDouble(i));
+                writePrimitiveMeasurementTail(batch.getMetricId(i), batch.getCalculatedById(i),
+                    batch.getCalculatedBy(i), out);
+            } else {
+                writeMeasurement(batch.get(i), out);
+            }
+        }
+    }
+
+    private void writeMeasurement(CadfMeasurement measurement, BinaryOutput out) {
+        if (measurement == null) {
+            out.writeVarInt(BinaryFormat.NULL_ELEMENT);
+            return;
+        }
+        if (measurement.getMetric() == null && codec.hasBuiltInNumberPayloads()) {
+            // same bytes as the boxed result would produce
+            if (measurement instanceof CadfLongMeasurement) {
+                writePrimitiveMeasurementHeader(measurement.getMetricId(), measurement.getCalculatedById(),
+                    measurement.getCalculatedBy(), BinaryFormat.PAYLOAD_LONG, out);
+                out.writeZigZagLong(((CadfLongMeasurement) measurement).getValue());
+                writePrimitiveMeasurementTail(measurement.getMetricId(), measurement.getCalculatedById(),
+                    measurement.getCalculatedBy(), out);
+                return;
+            }
+            if (measurement instanceof CadfDoubleMeasurement) {
+                writePrimitiveMeasurementHeader(measurement.getMetricId(), measurement.getCalculatedById(),
+                    measurement.getCalculatedBy(), BinaryFormat.PAYLOAD_DOUBLE, out);
+                out.writeDouble(((CadfDoubleMeasurement) measurement).getValue());
+                writePrimitiveMeasurementTail(measurement.getMetricId(), measurement.getCalculatedById(),
+                    measurement.getCalculatedBy(), out);
+                return;
+            }
+        }
+        int flags = 0;
+        flags |= measurement.getResult() != null ? BinaryFormat.MEASUREMENT_RESULT : 0;
+        flags |= measurement.getMetricId() != null ? BinaryFormat.MEASUREMENT_METRIC_ID : 0;
+        flags |= measurement.getMetric() != null ? BinaryFormat.MEASUREMENT_METRIC : 0;
+        flags |= measurement.getCalculatedById() != null ? BinaryFormat.MEASUREMENT_CALCULATED_BY_ID : 0;
+        flags |= measurement.getCalculatedBy() != null ? BinaryFormat.MEASUREMENT_CALCULATED_BY : 0;
+        out.writeVarInt(flags);
+        if (measurement.getResult() != null) {
+            writePayload(measurement.getResult(), out);
+        }
+        if (measurement.getMetricId() != null) {
+            writeDictionaryString(measurement.getMetricId(), out);
+        }
+        if (measurement.getMetric() != null) {
+            writeMetric(measurement.getMetric(), out);
+        }
+        if (measurement.getCalculatedById() != null) {
+            writeDictionaryString(measurement.getCalculatedById(), out);
+        }
+        if (measurement.getCalculatedBy() != null) {
+            writeResource(measurement.getCalculatedBy(), out);
+        }
+    }
+
+    /**
+     * Flags and payload type of a measurement with a primitive result and no metric object, the value follows.
+     */
+    private static void writePrimitiveMeasurementHeader(String metricId, String calculatedById,
+                                                        CadfResource calculatedBy, int payloadType,
+                                                        BinaryOutput out) {
+        int flags = BinaryFormat.MEASUREMENT_RESULT;
+        flags |= metricId != null ? BinaryFormat.MEASUREMENT_METRIC_ID : 0;
+        flags |= calculatedById != null ? BinaryFormat.MEASUREMENT_CALCULATED_BY_ID : 0;
+        flags |= calculatedBy != null ? BinaryFormat.MEASUREMENT_CALCULATED_BY : 0;
+        out.writeVarInt(flags);
+        out.writeVarInt(payloadType);
+    }
+
+    private void writePrimitiveMeasurementTail(String metricId, String calculatedById, CadfResource calculatedBy,
+                                               BinaryOutput out) {
+        if (metricId != null) {
+            writeDictionaryString(metricId, out);
+        }
+        if (calculatedById != null) {
+            writeDictionaryString(calculatedById, out);
+        }
+        if (calculatedBy != null) {
+            writeResource(calculatedBy, out);
+        }
+    }
+
+    private void writeMetric(CadfMetric metric, BinaryOutput out) {
+        int flags = 0;
+        flags |= metric.getMetricId() != null ? BinaryFormat.METRIC_ID : 0;
+        flags |= metric.getUnit() != null ? BinaryFormat.METRIC_UNIT : 0;
+        flags |= metric.getName() != null ? BinaryFormat.METRIC_NAME : 0;
+        out.writeVarInt(flags);
+        if (metric.getMetricId() != null) {
+            writeDictionaryString(metric.getMetricId(), out);
+        }
+        if (metric.getUnit() != null) {
+            writeDictionaryString(metric.getUnit(), out);
+        }
+        if (metric.getName() != null) {
+            writeDictionaryString(metric.getName(), out);
+        }
+    }
+
+    void writeTags(List<CadfTag> tags, BinaryOutput out) {
+        out.writeVarInt(tags.size());
+        for (CadfTag tag : tags) {
+            writeTag(tag, out);
+        }
+    }
+
+    void writeTag(CadfTag tag, BinaryOutput out) {
+        if (tag == null) {
+            out.writeVarInt(BinaryFormat.NULL_ELEMENT);
+            return;
+        }
+        int flags = 0;
+        flags |= tag.getName() != null ? BinaryFormat.TAG_NAME : 0;
+        flags |= tag.getValue() != null ? BinaryFormat.TAG_VALUE : 0;
+        out.writeVarInt(flags);
+        if (tag.getName() != null) {
+            writeDictionaryString(tag.getName(), out);
+        }
+        if (tag.getValue() != null) {
+            writeDictionaryString(tag.getValue(), out);
+        }
+    }
+
+    // ================================= payloads ========================================
+
+    /**
+     * @return bytes of a payload read by a binary decoder, which can be copied as is, or null
+     */
+    private static byte[] encodedPayload(CadfEncodedPayload encoded) {
+        return encoded != null && encoded.getFormat() == CadfEncodedPayload.Format.BINARY ? encoded.getBytes() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writePayload(Object payload, BinaryOutput out) {
+        if (payload == null) {
+            out.writeVarInt(BinaryFormat.PAYLOAD_NULL);
+            return;
+        }
+        int type = codec.payloadType(payload);
+        if (type == BinaryFormat.PAYLOAD_TRUE && !((Boolean) payload)) {
+            type = BinaryFormat.PAYLOAD_FALSE;
+        }
+        out.writeVarInt(type);
+        switch (type) {
+            case BinaryFormat.PAYLOAD_STRING:
+                out.writeString((String) payload);
+                break;
+            case BinaryFormat.PAYLOAD_INT:
+            case BinaryFormat.PAYLOAD_LONG:
+            case BinaryFormat.PAYLOAD_SHORT:
+            case BinaryFormat.PAYLOAD_BYTE:
+                out.writeZigZagLong(((Number) payload).longValue());
+                break;
+            case BinaryFormat.PAYLOAD_DOUBLE:
+                out.writeDouble((Double) payload);
+                break;
+            case BinaryFormat.PAYLOAD_FLOAT:
+                out.writeInt(Float.floatToRawIntBits((Float) payload));
+                break;
+            case BinaryFormat.PAYLOAD_TRUE:
+            case BinaryFormat.PAYLOAD_FALSE:
+                break;
+            case BinaryFormat.PAYLOAD_BIG_DECIMAL:
+                out.writeString(((BigDecimal) payload).toString());
+                break;
+            case BinaryFormat.PAYLOAD_BIG_INTEGER:
+                out.writeString(((BigInteger) payload).toString());
+                break;
+            case BinaryFormat.PAYLOAD_CHARACTER:
+                out.writeVarInt((Character) payload);
+                break;
+            case BinaryFormat.PAYLOAD_RESOURCE:
+                writeResource((CadfResource) payload, out);
+                break;
+            case BinaryFormat.PAYLOAD_MAP:
+                Map<Object, Object> map = (Map<Object, Object>) payload;
+                out.writeVarInt(map.size());
+                for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                    writePayload(entry.getKey(), out);
+                    writePayload(entry.getValue(), out);
+                }
+                break;
+            case BinaryFormat.PAYLOAD_LIST:
+                if (payload instanceof Object[]) {
+                    Object[] array = (Object[]) payload;
+                    out.writeVarInt(array.length);
+                    for (Object element : array) {
+                        writePayload(element, out);
+                    }
+                } else {
+                    Collection<Object> collection = (Collection<Object>) payload;
+                    out.writeVarInt(collection.size());
+                    for (Object element : collection) {
+                        writePayload(element, out);
+                    }
+                }
+                break;
+            default:
+                codec.customCodec(type).write(payload, out);
+        }
+    }
+
+    // ================================= primitives ========================================
+
+    void writeDictionaryString(String value, BinaryOutput out) {
+        if (dictionarySize == 0) {
+            out.writeString(value);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            out.writeVarInt(index + 1);
+            return;
+        }
+        out.writeVarInt(0);
+        out.writeString(value);
+        if (dictionary.size() < dictionarySize) {
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    private void writeResourceType(String typeURI, BinaryOutput out) {
+        Integer ordinal = CadfBinaryCodec.RESOURCE_TYPE_ORDINALS.get(typeURI);
+        if (ordinal != null) {
+            out.writeVarInt((ordinal + 1) << 1);
+            return;
+        }
+        ordinal = CadfBinaryCodec.FULL_RESOURCE_TYPE_ORDINALS.get(typeURI);
+        if (ordinal != null) {
+            out.writeVarInt((ordinal + 1) << 1 | 1);
+            return;
+        }
+        out.writeVarInt(0);
+        writeDictionaryString(typeURI, out);
+    }
+
+    static void writeTaxonomy(Integer ordinal, String relativeUri, BinaryOutput out) {
+        if (ordinal != null) {
+            out.writeVarInt(ordinal + 1);
+        } else {
+            out.writeVarInt(0);
+            out.writeString(relativeUri);
+        }
+    }
+
+    static void writeEventType(String eventType, BinaryOutput out) {
+        for (CadfEventType type : CadfBinaryCodec.EVENT_TYPES) {
+            if (type.getName().equals(eventType)) {
+                out.writeVarInt(type.ordinal() + 1);
+                return;
+            }
+        }
+        out.writeVarInt(0);
+        out.writeString(eventType);
+    }
+}
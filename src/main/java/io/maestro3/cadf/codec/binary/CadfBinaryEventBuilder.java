@@ -0,0 +1,388 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.util.Assert;
+import io.maestro3.cadf.util.CadfIdGenerator;
+import io.maestro3.cadf.util.CadfTimestamps;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Builder with the fluent API of {@link CadfAuditEvent.Builder} which encodes the event straight into a
+ * {@link BinaryOutput}, as the self-contained record {@link CadfBinaryCodec#encode(CadfAuditEvent)} would write,
+ * without creating the event. Resources can be given inline by id and type, so no resource objects are needed either.
+ * <p/>
+ * The builder keeps its properties across {@link #encode(BinaryOutput)} calls, so fields shared by consecutive events,
+ * e.g. the observer, are set once; {@link #reset()} clears them. Not thread-safe, meant to be reused by one thread.
+ *
+ * @see CadfBinaryCodec#newEventBuilder()
+ */
+public final class CadfBinaryEventBuilder {
+
+    private final CadfBinaryEncoder encoder;
+    private final Resource initiator = new Resource();
+    private final Resource target = new Resource();
+    private final Resource observer = new Resource();
+    private CadfIdGenerator idGenerator = CadfIdGenerator.getDefault();
+    private String id;
+    private CadfEventType eventType;
+    private long eventTime = CadfAuditEvent.NO_EVENT_TIME;
+    private String action;
+    private String outcome;
+    private List<CadfMeasurement> measurements;
+    private List<CadfAttachment> attachments;
+    private List<CadfAttachment> secureAttachments;
+    private List<CadfTag> tags;
+    private String name;
+    private String severity;
+
+    CadfBinaryEventBuilder(CadfBinaryCodec codec) {
+        this.encoder = new CadfBinaryEncoder(codec, 0);
+    }
+
+    /**
+     * Generated by the {@link #withIdGenerator id generator} for every encoded event when not set.
+     */
+    public CadfBinaryEventBuilder withId(String id) {
+        Assert.hasText(id, "id can not be null or empty");
+        this.id = id;
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withIdGenerator(CadfIdGenerator idGenerator) {
+        Assert.notNull(idGenerator, "idGenerator can not be null");
+        this.idGenerator = idGenerator;
+        return this;
+    }
+
+    /**
+     * Required.
+     */
+    public CadfBinaryEventBuilder withEventType(CadfEventType eventType) {
+        Assert.notNull(eventType, "eventType can not be null");
+        this.eventType = eventType;
+        return this;
+    }
+
+    /**
+     * Required, see {@link CadfAuditEvent.Builder#withEventTime(String)}.
+     */
+    public CadfBinaryEventBuilder withEventTime(String date) {
+        Assert.notNull(date, "event date must not be null");
+        this.eventTime = CadfTimestamps.parse(date);
+        return this;
+    }
+
+    /**
+     * Required.
+     */
+    public CadfBinaryEventBuilder withEventTime(Instant date) {
+        Assert.notNull(date, "event date must not be null");
+        try {
+            this.eventTime = Math.addExact(Math.multiplyExact(date.getEpochSecond(), 1_000_000_000L), date.getNano());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("event date is out of the epoch nanos range: " + date);
+        }
+        return this;
+    }
+
+    /**
+     * Required.
+     */
+    public CadfBinaryEventBuilder withEventTimeMillis(long epochMillis) {
+        Assert.isTrue(Math.abs(epochMillis) <= Long.MAX_VALUE / 1_000_000L,
+            "event date is out of the epoch nanos range");
+        this.eventTime = epochMillis * 1_000_000L;
+        return this;
+    }
+
+    /**
+     * Required.
+     */
+    public CadfBinaryEventBuilder withEventTimeNanos(long epochNanos) {
+        Assert.isTrue(epochNanos != CadfAuditEvent.NO_EVENT_TIME, "event date is out of the epoch nanos range");
+        this.eventTime = epochNanos;
+        return this;
+    }
+
+    /**
+     * Required.
+     */
+    public CadfBinaryEventBuilder withAction(ICadfAction action) {
+        Assert.notNull(action, "action must not be null");
+        this.action = action.getRelativeUri();
+        return this;
+    }
+
+    /**
+     * Required.
+     */
+    public CadfBinaryEventBuilder withOutcome(ICadfOutcome outcome) {
+        Assert.notNull(outcome, "outcome must not be null");
+        this.outcome = outcome.getRelativeUri();
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withInitiator(CadfResource initiator) {
+        Assert.notNull(initiator, "initiator must not be null");
+        this.initiator.set(initiator);
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withInitiator(String id, ICadfResourceType type) {
+        return withInitiator(id, type, null);
+    }
+
+    /**
+     * @param name optional
+     */
+    public CadfBinaryEventBuilder withInitiator(String id, ICadfResourceType type, String name) {
+        this.initiator.set(id, type, name);
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withTarget(CadfResource target) {
+        Assert.notNull(target, "target must not be null");
+        this.target.set(target);
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withTarget(String id, ICadfResourceType type) {
+        return withTarget(id, type, null);
+    }
+
+    /**
+     * @param name optional
+     */
+    public CadfBinaryEventBuilder withTarget(String id, ICadfResourceType type, String name) {
+        this.target.set(id, type, name);
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withObserver(CadfResource observer) {
+        Assert.notNull(observer, "observer must not be null");
+        this.observer.set(observer);
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withObserver(String id, ICadfResourceType type) {
+        return withObserver(id, type, null);
+    }
+
+    /**
+     * @param name optional
+     */
+    public CadfBinaryEventBuilder withObserver(String id, ICadfResourceType type, String name) {
+        this.observer.set(id, type, name);
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withMeasurements(List<CadfMeasurement> measurements) {
+        Assert.notNull(measurements, "measurements should not be null");
+        this.measurements = measurements;
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withAttachments(List<CadfAttachment> attachments) {
+        Assert.notNull(attachments, "attachment list can not be null");
+        this.attachments = attachments;
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withSecureAttachments(List<CadfAttachment> secureAttachments) {
+        Assert.notNull(secureAttachments, "secureAttachments list can not be null");
+        this.secureAttachments = secureAttachments;
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withTags(List<CadfTag> tags) {
+        Assert.notNull(tags, "tags list can not be null");
+        this.tags = tags;
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public CadfBinaryEventBuilder withSeverity(String severity) {
+        this.severity = severity;
+        return this;
+    }
+
+    /**
+     * Clears all properties but the id generator.
+     */
+    public CadfBinaryEventBuilder reset() {
+        id = null;
+        eventType = null;
+        eventTime = CadfAuditEvent.NO_EVENT_TIME;
+        action = null;
+        outcome = null;
+        initiator.clear();
+        target.clear();
+        observer.clear();
+        measurements = null;
+        attachments = null;
+        secureAttachments = null;
+        tags = null;
+        name = null;
+        severity = null;
+        return this;
+    }
+
+    // ================================= encoding ========================================
+
+    /**
+     * Appends the event record to the output, with the required property checks of
+     * {@link CadfAuditEvent.Builder#build()}.
+     */
+    public void encode(BinaryOutput out) {
+        Assert.notNull(out, "out can not be null");
+        Assert.notNull(eventType, "you must set event type");
+        Assert.isTrue(eventTime != CadfAuditEvent.NO_EVENT_TIME, "you must set event time");
+        Assert.hasText(action, "you must provide not empty event action");
+        Assert.hasText(outcome, "you must provide not empty event outcome");
+        Assert.isTrue(initiator.isSet(), "you must provide event initiator");
+        Assert.isTrue(target.isSet(), "you must provide event target");
+        Assert.isTrue(observer.isSet(), "you must provide event observer");
+        int flags = BinaryFormat.EVENT_ID | BinaryFormat.EVENT_TYPE | BinaryFormat.EVENT_TIME
+            | BinaryFormat.EVENT_ACTION | BinaryFormat.EVENT_OUTCOME
+            | BinaryFormat.EVENT_INITIATOR | BinaryFormat.EVENT_TARGET | BinaryFormat.EVENT_OBSERVER;
+        flags |= measurements != null ? BinaryFormat.EVENT_MEASUREMENTS : 0;
+        flags |= name != null ? BinaryFormat.EVENT_NAME : 0;
+        flags |= severity != null ? BinaryFormat.EVENT_SEVERITY : 0;
+        flags |= tags != null ? BinaryFormat.EVENT_TAGS : 0;
+        flags |= attachments != null ? BinaryFormat.EVENT_ATTACHMENTS : 0;
+        flags |= secureAttachments != null ? BinaryFormat.EVENT_SECURE_ATTACHMENTS : 0;
+        out.writeVarInt(flags);
+        out.writeString(id != null ? id : idGenerator.nextId());
+        out.writeVarInt(eventType.ordinal() + 1);
+        out.writeLong(eventTime);
+        CadfBinaryEncoder.writeTaxonomy(CadfBinaryCodec.ACTION_ORDINALS.get(action), action, out);
+        CadfBinaryEncoder.writeTaxonomy(CadfBinaryCodec.OUTCOME_ORDINALS.get(outcome), outcome, out);
+        initiator.write(encoder, out);
+        target.write(encoder, out);
+        observer.write(encoder, out);
+        if (measurements != null) {
+            encoder.writeMeasurements(measurements, out);
+        }
+        if (name != null) {
+            encoder.writeDictionaryString(name, out);
+        }
+        if (severity != null) {
+            encoder.writeDictionaryString(severity, out);
+        }
+        if (tags != null) {
+            encoder.writeTags(tags, out);
+        }
+        if (attachments != null) {
+            encoder.writeAttachments(attachments, out);
+        }
+        if (secureAttachments != null) {
+            encoder.writeAttachments(secureAttachments, out);
+        }
+    }
+
+    // ================================= accessors for indexing sinks ========================================
+
+    /**
+     * @return event time as epoch nanos, or {@link CadfAuditEvent#NO_EVENT_TIME}
+     */
+    public long getEventTimeNanos() {
+        return eventTime;
+    }
+
+    public String getInitiatorId() {
+        return initiator.id();
+    }
+
+    public String getTargetId() {
+        return target.id();
+    }
+
+    public String getObserverId() {
+        return observer.id();
+    }
+
+    /**
+     * @return tags, null if none were set
+     */
+    public List<CadfTag> getTags() {
+        return tags;
+    }
+
+    /**
+     * Either a resource object or the inline id, type and name of a resource.
+     */
+    private static final class Resource {
+
+        private CadfResource resource;
+        private String id;
+        private String typeURI;
+        private String name;
+
+        private void set(CadfResource resource) {
+            clear();
+            this.resource = resource;
+        }
+
+        private void set(String id, ICadfResourceType type, String name) {
+            Assert.hasText(id, "resource id can not be null or empty");
+            Assert.notNull(type, "resourceType can not be null");
+            this.resource = null;
+            this.id = id;
+            this.typeURI = type.getRelativeUri();
+            this.name = name;
+        }
+
+        private void clear() {
+            resource = null;
+            id = null;
+            typeURI = null;
+            name = null;
+        }
+
+        private boolean isSet() {
+            return resource != null || id != null;
+        }
+
+        private String id() {
+            return resource != null ? resource.getId() : id;
+        }
+
+        private void write(CadfBinaryEncoder encoder, BinaryOutput out) {
+            if (resource != null) {
+                encoder.writeResource(resource, out);
+            } else {
+                encoder.writeResource(id, typeURI, name, null, null, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.util.Assert;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads a stream written by {@link CadfBinaryWriter}. Not thread-safe.
+ *
+ * @see CadfBinaryCodec#newReader(InputStream)
+ */
+public final class CadfBinaryReader implements Closeable {
+
+    private final InputStream stream;
+    private final CadfBinaryDecoder decoder;
+    private final BinaryInput input = new BinaryInput();
+    private byte[] buffer = new byte[1024];
+
+    /**
+     * @throws IllegalArgumentException if the stream is not a binary event stream, or was written with another
+     *                                  format version or taxonomy
+     */
+    CadfBinaryReader(CadfBinaryCodec codec, InputStream stream) throws IOException {
+        Assert.notNull(stream, "stream can not be null");
+        this.stream = stream;
+        byte[] magic = new byte[BinaryFormat.MAGIC.length];
+        readFully(magic, magic.length);
+        Assert.isTrue(Arrays.equals(magic, BinaryFormat.MAGIC), "not a binary cadf event stream");
+        int version = readVarInt(false);
+        Assert.isTrue(version == BinaryFormat.VERSION, "unsupported binary format version " + version);
+        readFully(buffer, 4);
+        int fingerprint = input.reset(buffer, 0, 4).readInt();
+        Assert.isTrue(fingerprint == CadfBinaryCodec.getTaxonomyFingerprint(),
+            "stream was written with a different cadf taxonomy");
+        this.decoder = codec.newDecoder(readVarInt(false));
+    }
+
+    /**
+     * @return next event or null at the end of the stream
+     * @throws EOFException if the stream ends within a record
+     */
+    public CadfAuditEvent read() throws IOException {
+        int length = readVarInt(true);
+        if (length < 0) {
+            return null;
+        }
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length << 1)];
+        }
+        readFully(buffer, length);
+        input.reset(buffer, 0, length);
+        CadfAuditEvent event = decoder.decode(input);
+        if (input.remaining() != 0) {
+            throw new IllegalArgumentException("Malformed record, " + input.remaining() + " trailing bytes");
+        }
+        return event;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    // ================================= internals ========================================
+
+    private int readVarInt(boolean endAllowed) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = stream.read();
+            if (b < 0) {
+                if (shift == 0 && endAllowed) {
+                    return -1;
+                }
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in binary cadf event stream");
+    }
+
+    private void readFully(byte[] target, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int count = stream.read(target, read, length - read);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            read += count;
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import io.maestro3.cadf.codec.CadfEventIndex;
+import io.maestro3.cadf.codec.CadfRelayPatch;
+import io.maestro3.cadf.codec.ICadfEventRelay;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relays self-contained binary records, see {@link ICadfEventRelay}. Fields are located by skipping over the record up
+ * to the tags, the attachments after them are copied without being looked at. The presence flags in front of the
+ * record are the only bytes rewritten besides the patched fields.
+ *
+ * @see CadfBinaryCodec#newRelay()
+ */
+public final class CadfBinaryRelay implements ICadfEventRelay {
+
+    private final CadfBinaryCodec codec;
+    private volatile EncodedPatch lastPatch;
+
+    CadfBinaryRelay(CadfBinaryCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public CadfEventIndex index(ByteBuffer event) {
+        Assert.notNull(event, "event can not be null");
+        // offsets of the input are shifted by base to get indexes of the buffer
+        BinaryInput in = new BinaryInput();
+        int base;
+        if (event.hasArray()) {
+            in.reset(event.array(), event.arrayOffset() + event.position(), event.remaining());
+            base = -event.arrayOffset();
+        } else {
+            byte[] copy = new byte[event.remaining()];
+            event.duplicate().get(copy);
+            in.reset(copy, 0, copy.length);
+            base = event.position();
+        }
+        CadfEventIndex.Builder index = CadfEventIndex.builder(event.position(), event.limit());
+        int flags = in.readVarInt();
+        if ((flags & BinaryFormat.EVENT_ID) != 0) {
+            skipString(in);
+        }
+        if ((flags & BinaryFormat.EVENT_TYPE) != 0) {
+            skipTaxonomy(in);
+        }
+        if ((flags & BinaryFormat.EVENT_TIME) != 0) {
+            in.skip(Long.BYTES);
+        }
+        if ((flags & BinaryFormat.EVENT_ACTION) != 0) {
+            skipTaxonomy(in);
+        }
+        if ((flags & BinaryFormat.EVENT_OUTCOME) != 0) {
+            skipTaxonomy(in);
+        }
+        if ((flags & BinaryFormat.EVENT_INITIATOR) != 0) {
+            skipResource(in);
+        }
+        if ((flags & BinaryFormat.EVENT_TARGET) != 0) {
+            skipResource(in);
+        }
+        int start = in.position();
+        if ((flags & BinaryFormat.EVENT_OBSERVER) != 0) {
+            skipResource(in);
+            index.withField(CadfEventIndex.Field.OBSERVER, start + base, in.position() + base);
+        } else {
+            index.withInsertionPoint(CadfEventIndex.Field.OBSERVER, start + base);
+        }
+        if ((flags & BinaryFormat.EVENT_MEASUREMENTS) != 0) {
+            skipMeasurements(in);
+        }
+        if ((flags & BinaryFormat.EVENT_NAME) != 0) {
+            skipString(in);
+        }
+        start = in.position();
+        if ((flags & BinaryFormat.EVENT_SEVERITY) != 0) {
+            skipString(in);
+            index.withField(CadfEventIndex.Field.SEVERITY, start + base, in.position() + base);
+        } else {
+            index.withInsertionPoint(CadfEventIndex.Field.SEVERITY, start + base);
+        }
+        start = in.position();
+        if ((flags & BinaryFormat.EVENT_TAGS) != 0) {
+            skipTags(in);
+            index.withField(CadfEventIndex.Field.TAGS, start + base, in.position() + base);
+        } else {
+            index.withInsertionPoint(CadfEventIndex.Field.TAGS, start + base);
+        }
+        return index.build();
+    }
+
+    @Override
+    public ByteBuffer[] splice(ByteBuffer event, CadfRelayPatch patch) {
+        Assert.notNull(patch, "patch can not be null");
+        CadfEventIndex index = index(event);
+        EncodedPatch encoded = encode(patch);
+        int flags = varIntAt(event, event.position());
+        flags |= encoded.observer != null ? BinaryFormat.EVENT_OBSERVER : 0;
+        flags |= encoded.severity != null ? BinaryFormat.EVENT_SEVERITY : 0;
+        flags |= encoded.tags != null ? BinaryFormat.EVENT_TAGS : 0;
+        Slices slices = new Slices(event);
+        slices.add(varInt(flags));
+        slices.skipTo(event.position() + varIntLength(event, event.position()));
+        if (encoded.observer != null) {
+            replace(slices, index, CadfEventIndex.Field.OBSERVER, encoded.observer);
+        }
+        if (encoded.severity != null) {
+            replace(slices, index, CadfEventIndex.Field.SEVERITY, encoded.severity);
+        }
+        if (encoded.tags != null) {
+            int start = index.getStart(CadfEventIndex.Field.TAGS);
+            slices.copyTo(start);
+            if (index.isPresent(CadfEventIndex.Field.TAGS)) {
+                // a new count, then the existing tags followed by the patch's ones
+                slices.add(varInt(varIntAt(event, start) + encoded.tagCount));
+                slices.skipTo(start + varIntLength(event, start));
+                slices.copyTo(index.getEnd(CadfEventIndex.Field.TAGS));
+            } else {
+                slices.add(varInt(encoded.tagCount));
+            }
+            slices.add(encoded.tags);
+        }
+        return slices.finish(event.limit());
+    }
+
+    private static void replace(Slices slices, CadfEventIndex index, CadfEventIndex.Field field, byte[] value) {
+        slices.copyTo(index.getStart(field));
+        slices.add(value);
+        slices.skipTo(index.getEnd(field));
+    }
+
+    private static int varIntAt(ByteBuffer event, int offset) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = event.get(offset++);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int varIntLength(ByteBuffer event, int offset) {
+        int length = 1;
+        while ((event.get(offset + length - 1) & 0x80) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static byte[] varInt(int value) {
+        return new BinaryOutput(5).writeVarInt(value).toByteArray();
+    }
+
+    // ================================= skipping ========================================
+
+    private void skipResource(BinaryInput in) {
+        int flags = in.readVarInt();
+        if ((flags & BinaryFormat.RESOURCE_ID) != 0) {
+            skipString(in);
+        }
+        if ((flags & BinaryFormat.RESOURCE_TYPE_URI) != 0 && in.readVarInt() == 0) {
+            skipString(in);
+        }
+        if ((flags & BinaryFormat.RESOURCE_NAME) != 0) {
+            skipString(in);
+        }
+        if ((flags & BinaryFormat.RESOURCE_CREDENTIAL) != 0) {
+            int credentialFlags = in.readVarInt();
+            if ((credentialFlags & BinaryFormat.CREDENTIAL_TYPE) != 0) {
+                skipString(in);
+            }
+            if ((credentialFlags & BinaryFormat.CREDENTIAL_TOKEN) != 0) {
+                skipPayload(in);
+            }
+            if ((credentialFlags & BinaryFormat.CREDENTIAL_AUTHORITY) != 0) {
+                skipString(in);
+            }
+        }
+        if ((flags & BinaryFormat.RESOURCE_ATTACHMENTS) != 0) {
+            int size = in.readVarInt();
+            for (int i = 0; i < size; i++) {
+                int attachmentFlags = in.readVarInt();
+                if (attachmentFlags == BinaryFormat.NULL_ELEMENT) {
+                    continue;
+                }
+                if ((attachmentFlags & BinaryFormat.ATTACHMENT_CONTENT_TYPE) != 0) {
+                    skipString(in);
+                }
+                if ((attachmentFlags & BinaryFormat.ATTACHMENT_CONTENT) != 0) {
+                    skipPayload(in);
+                }
+                if ((attachmentFlags & BinaryFormat.ATTACHMENT_NAME) != 0) {
+                    skipString(in);
+                }
+            }
+        }
+    }
+
+    private void skipMeasurements(BinaryInput in) {
+        int size = in.readVarInt();
+        for (int i = 0; i < size; i++) {
+            int flags = in.readVarInt();
+            if (flags == BinaryFormat.NULL_ELEMENT) {
+                continue;
+            }
+            if ((flags & BinaryFormat.MEASUREMENT_RESULT) != 0) {
+                skipPayload(in);
+            }
+            if ((flags & BinaryFormat.MEASUREMENT_METRIC_ID) != 0) {
+                skipString(in);
+            }
+            if ((flags & BinaryFormat.MEASUREMENT_METRIC) != 0) {
+                // id, unit and name flags are the three lowest bits
+                for (int metricFlags = in.readVarInt() & 7; metricFlags != 0; metricFlags &= metricFlags - 1) {
+                    skipString(in);
+                }
+            }
+            if ((flags & BinaryFormat.MEASUREMENT_CALCULATED_BY_ID) != 0) {
+                skipString(in);
+            }
+            if ((flags & BinaryFormat.MEASUREMENT_CALCULATED_BY) != 0) {
+                skipResource(in);
+            }
+        }
+    }
+
+    private static void skipTags(BinaryInput in) {
+        int size = in.readVarInt();
+        for (int i = 0; i < size; i++) {
+            int flags = in.readVarInt();
+            if (flags == BinaryFormat.NULL_ELEMENT) {
+                continue;
+            }
+            if ((flags & BinaryFormat.TAG_NAME) != 0) {
+                skipString(in);
+            }
+            if ((flags & BinaryFormat.TAG_VALUE) != 0) {
+                skipString(in);
+            }
+        }
+    }
+
+    private void skipPayload(BinaryInput in) {
+        int type = in.readVarInt();
+        switch (type) {
+            case BinaryFormat.PAYLOAD_NULL:
+            case BinaryFormat.PAYLOAD_TRUE:
+            case BinaryFormat.PAYLOAD_FALSE:
+                break;
+            case BinaryFormat.PAYLOAD_STRING:
+            case BinaryFormat.PAYLOAD_BIG_DECIMAL:
+            case BinaryFormat.PAYLOAD_BIG_INTEGER:
+                skipString(in);
+                break;
+            case BinaryFormat.PAYLOAD_INT:
+            case BinaryFormat.PAYLOAD_LONG:
+            case BinaryFormat.PAYLOAD_SHORT:
+            case BinaryFormat.PAYLOAD_BYTE:
+                in.readVarLong();
+                break;
+            case BinaryFormat.PAYLOAD_CHARACTER:
+                in.readVarInt();
+                break;
+            case BinaryFormat.PAYLOAD_DOUBLE:
+                in.skip(Long.BYTES);
+                break;
+            case BinaryFormat.PAYLOAD_FLOAT:
+                in.skip(Integer.BYTES);
+                break;
+            case BinaryFormat.PAYLOAD_RESOURCE:
+                skipResource(in);
+                break;
+            case BinaryFormat.PAYLOAD_MAP:
+                for (int i = 0, size = in.readVarInt(); i < size; i++) {
+                    skipPayload(in);
+                    skipPayload(in);
+                }
+                break;
+            case BinaryFormat.PAYLOAD_LIST:
+                for (int i = 0, size = in.readVarInt(); i < size; i++) {
+                    skipPayload(in);
+                }
+                break;
+            default:
+                // custom payloads have no length prefix, only their codec knows where they end
+                codec.customCodec(type).read(in);
+        }
+    }
+
+    private static void skipTaxonomy(BinaryInput in) {
+        if (in.readVarInt() == 0) {
+            skipString(in);
+        }
+    }
+
+    private static void skipString(BinaryInput in) {
+        in.skip(in.readVarInt());
+    }
+
+    // ================================= encoding ========================================
+
+    private EncodedPatch encode(CadfRelayPatch patch) {
+        EncodedPatch encoded = lastPatch;
+        if (encoded == null || encoded.patch != patch) {
+            encoded = new EncodedPatch(patch);
+            lastPatch = encoded;
+        }
+        return encoded;
+    }
+
+    private final class EncodedPatch {
+
+        private final CadfRelayPatch patch;
+        private final byte[] observer;
+        private final byte[] severity;
+        // tag elements without the count
+        private final byte[] tags;
+        private final int tagCount;
+
+        private EncodedPatch(CadfRelayPatch patch) {
+            this.patch = patch;
+            // records are self-contained, i.e. written without a dictionary
+            CadfBinaryEncoder encoder = new CadfBinaryEncoder(codec, 0);
+            BinaryOutput out = new BinaryOutput();
+            if (patch.getObserver() != null) {
+                encoder.writeResource(patch.getObserver(), out);
+                observer = out.toByteArray();
+            } else {
+                observer = null;
+            }
+            severity = patch.getSeverity() != null ? out.reset().writeString(patch.getSeverity()).toByteArray() : null;
+            tagCount = patch.getTags().size();
+            if (tagCount > 0) {
+                out.reset();
+                for (CadfTag tag : patch.getTags()) {
+                    encoder.writeTag(tag, out);
+                }
+                tags = out.toByteArray();
+            } else {
+                tags = null;
+            }
+        }
+    }
+
+    /**
+     * Output buffers: slices of the event up to a cursor, interleaved with encoded values.
+     */
+    private static final class Slices {
+
+        private final ByteBuffer event;
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private int cursor;
+
+        private Slices(ByteBuffer event) {
+            this.event = event;
+            this.cursor = event.position();
+        }
+
+        void copyTo(int offset) {
+            if (offset > cursor) {
+                buffers.add(event.duplicate().limit(offset).position(cursor));
+                cursor = offset;
+            }
+        }
+
+        void skipTo(int offset) {
+            cursor = offset;
+        }
+
+        void add(byte[] bytes) {
+            buffers.add(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+        }
+
+        ByteBuffer[] finish(int limit) {
+            copyTo(limit);
+            return buffers.toArray(new ByteBuffer[0]);
+        }
+    }
+}
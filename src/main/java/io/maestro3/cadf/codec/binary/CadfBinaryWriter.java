@@ -0,0 +1,68 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.util.Assert;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a stream of length-prefixed event records after a header with the format version, the taxonomy fingerprint
+ * and the dictionary size. Not thread-safe.
+ *
+ * @see CadfBinaryCodec#newWriter(OutputStream)
+ */
+public final class CadfBinaryWriter implements Closeable, Flushable {
+
+    private final OutputStream stream;
+    private final CadfBinaryEncoder encoder;
+    private final BinaryOutput record = new BinaryOutput();
+    private final BinaryOutput prefix = new BinaryOutput(8);
+
+    CadfBinaryWriter(CadfBinaryCodec codec, OutputStream stream) throws IOException {
+        Assert.notNull(stream, "stream can not be null");
+        this.stream = stream;
+        this.encoder = codec.newEncoder();
+        BinaryOutput header = new BinaryOutput(16);
+        header.writeBytes(BinaryFormat.MAGIC, 0, BinaryFormat.MAGIC.length)
+            .writeVarInt(BinaryFormat.VERSION)
+            .writeInt(CadfBinaryCodec.getTaxonomyFingerprint())
+            .writeVarInt(codec.getDictionarySize())
+            .writeTo(stream);
+    }
+
+    public void write(CadfAuditEvent event) throws IOException {
+        record.reset();
+        encoder.encode(event, record);
+        prefix.reset().writeVarInt(record.size()).writeTo(stream);
+        record.writeTo(stream);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        stream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
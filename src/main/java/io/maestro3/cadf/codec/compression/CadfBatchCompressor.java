@@ -0,0 +1,261 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.compression;
+
+import io.maestro3.cadf.util.Assert;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses batches of encoded events, e.g. newline separated JSON or self-contained binary records, into independent
+ * frames using Deflate with a preset {@link CadfCompressionDictionary}. The dictionary makes small batches compress
+ * well since the taxonomy values and JSON structure of the first event are already known.
+ * <p/>
+ * Frame layout: {@code [int compressed length][int batch length][int dictionary id][int crc32c of the batch]}
+ * followed by raw Deflate data. Frames do not depend on each other, so any frame of a stream can be decompressed
+ * alone, with the dictionary identified by its id. Instances are thread-safe, Deflaters and Inflaters are kept per
+ * thread.
+ *
+ * <pre>{@code
+ * CadfBatchCompressor compressor = CadfBatchCompressor.builder()
+ *     .withDictionary(CadfCompressionDictionary.train(sampleBatches, 16 * 1024))
+ *     .build();
+ * compressor.writeFrame(batch, 0, batch.length, socketStream);
+ * }</pre>
+ */
+public final class CadfBatchCompressor {
+
+    public static final int FRAME_HEADER_SIZE = 16;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64 * 1024 * 1024;
+
+    private final CadfCompressionDictionary dictionary;
+    private final int level;
+    private final int maxBatchSize;
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters;
+    private final ThreadLocal<CRC32C> checksums = ThreadLocal.withInitial(CRC32C::new);
+
+    private CadfBatchCompressor(Builder builder) {
+        this.dictionary = builder.dictionary;
+        this.level = builder.level;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+        this.inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+    }
+
+    public static CadfBatchCompressor create() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public CadfCompressionDictionary getDictionary() {
+        return dictionary;
+    }
+
+    // ================================= compression ========================================
+
+    /**
+     * @return the batch as a frame
+     */
+    public byte[] compress(byte[] batch) {
+        Assert.notNull(batch, "batch can not be null");
+        return compress(batch, 0, batch.length);
+    }
+
+    public byte[] compress(byte[] batch, int offset, int length) {
+        Assert.notNull(batch, "batch can not be null");
+        checkRange(batch.length, offset, length);
+        Assert.isTrue(length <= maxBatchSize, "batch of " + length + " bytes exceeds " + maxBatchSize + " bytes");
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setDictionary(dictionary.bytes());
+        deflater.setInput(batch, offset, length);
+        deflater.finish();
+        // stored blocks bound the output for incompressible input
+        byte[] frame = new byte[FRAME_HEADER_SIZE + length + (length >> 12) + 64];
+        int size = FRAME_HEADER_SIZE;
+        while (!deflater.finished()) {
+            if (size == frame.length) {
+                frame = Arrays.copyOf(frame, frame.length << 1);
+            }
+            size += deflater.deflate(frame, size, frame.length - size);
+        }
+        ByteBuffer.wrap(frame)
+            .putInt(size - FRAME_HEADER_SIZE)
+            .putInt(length)
+            .putInt(dictionary.getId())
+            .putInt(checksum(batch, offset, length));
+        return size == frame.length ? frame : Arrays.copyOf(frame, size);
+    }
+
+    public void writeFrame(byte[] batch, int offset, int length, OutputStream out) throws IOException {
+        Assert.notNull(out, "out can not be null");
+        out.write(compress(batch, offset, length));
+    }
+
+    // ================================= decompression ========================================
+
+    /**
+     * @return the batch of the frame
+     * @throws IllegalArgumentException if the frame is malformed, was compressed with another dictionary or does not
+     *                                  match its checksum
+     */
+    public byte[] decompress(byte[] frame) {
+        Assert.notNull(frame, "frame can not be null");
+        return decompress(frame, 0, frame.length);
+    }
+
+    public byte[] decompress(byte[] frame, int offset, int length) {
+        Assert.notNull(frame, "frame can not be null");
+        checkRange(frame.length, offset, length);
+        Assert.isTrue(length >= FRAME_HEADER_SIZE, "Malformed frame, " + length + " bytes are shorter than the header");
+        ByteBuffer header = ByteBuffer.wrap(frame, offset, FRAME_HEADER_SIZE);
+        int compressedLength = header.getInt();
+        Assert.isTrue(compressedLength == length - FRAME_HEADER_SIZE, "Malformed frame, compressed length "
+            + compressedLength + " does not match the " + (length - FRAME_HEADER_SIZE) + " bytes after the header");
+        return inflate(frame, offset + FRAME_HEADER_SIZE, header.getInt(), header.getInt(), header.getInt(),
+            compressedLength);
+    }
+
+    /**
+     * @return the batch of the next frame, or null at the end of the stream
+     * @throws EOFException if the stream ends within a frame
+     */
+    public byte[] readFrame(InputStream in) throws IOException {
+        Assert.notNull(in, "in can not be null");
+        byte[] headerBytes = new byte[FRAME_HEADER_SIZE];
+        int read = in.readNBytes(headerBytes, 0, FRAME_HEADER_SIZE);
+        if (read == 0) {
+            return null;
+        }
+        if (read < FRAME_HEADER_SIZE) {
+            throw new EOFException();
+        }
+        ByteBuffer header = ByteBuffer.wrap(headerBytes);
+        int compressedLength = header.getInt();
+        Assert.isTrue(compressedLength >= 0 && compressedLength <= maxBatchSize + (maxBatchSize >> 12) + 64,
+            "Malformed frame, compressed length " + compressedLength);
+        byte[] compressed = new byte[compressedLength];
+        if (in.readNBytes(compressed, 0, compressedLength) < compressedLength) {
+            throw new EOFException();
+        }
+        return inflate(compressed, 0, header.getInt(), header.getInt(), header.getInt(), compressedLength);
+    }
+
+    // ================================= internals ========================================
+
+    private byte[] inflate(byte[] data, int offset, int batchLength, int dictionaryId, int checksum, int length) {
+        Assert.isTrue(batchLength >= 0 && batchLength <= maxBatchSize, "Malformed frame, batch length " + batchLength);
+        Assert.isTrue(dictionaryId == dictionary.getId(), "frame was compressed with dictionary "
+            + Integer.toHexString(dictionaryId) + ", not " + Integer.toHexString(dictionary.getId()));
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setDictionary(dictionary.bytes());
+        inflater.setInput(data, offset, length);
+        byte[] batch = new byte[batchLength];
+        try {
+            int size = 0;
+            while (size < batchLength && !inflater.finished()) {
+                int inflated = inflater.inflate(batch, size, batchLength - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += inflated;
+            }
+            if (size == batchLength && !inflater.finished()) {
+                // consumes the end of the final block, or finds data beyond the batch length
+                size += inflater.inflate(new byte[1]);
+            }
+            Assert.isTrue(size == batchLength && inflater.finished() && inflater.getRemaining() == 0,
+                "Malformed frame, compressed data does not match the batch length");
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Malformed frame, " + e.getMessage(), e);
+        }
+        Assert.isTrue(checksum(batch, 0, batchLength) == checksum, "Malformed frame, checksum mismatch");
+        return batch;
+    }
+
+    private int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = checksums.get();
+        crc.reset();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void checkRange(int size, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > size - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + (offset + length) + ") out of bounds for length "
+                + size);
+        }
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private CadfCompressionDictionary dictionary = CadfCompressionDictionary.taxonomy();
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+        private Builder() {
+        }
+
+        /**
+         * The taxonomy dictionary by default. Readers have to use the same dictionary as writers.
+         */
+        public Builder withDictionary(CadfCompressionDictionary dictionary) {
+            Assert.notNull(dictionary, "dictionary can not be null");
+            this.dictionary = dictionary;
+            return this;
+        }
+
+        /**
+         * Deflate level from 1 (fastest) to 9 (smallest), {@link Deflater#DEFAULT_COMPRESSION} by default.
+         */
+        public Builder withLevel(int level) {
+            Assert.isTrue(level == Deflater.DEFAULT_COMPRESSION || (level >= 1 && level <= 9),
+                "level must be between 1 and 9");
+            this.level = level;
+            return this;
+        }
+
+        /**
+         * Largest batch accepted by compress and decompress, protects readers from allocating for corrupt lengths.
+         */
+        public Builder withMaxBatchSize(int maxBatchSize) {
+            Assert.isTrue(maxBatchSize > 0 && maxBatchSize <= 1 << 30, "maxBatchSize must be between 1 and 2^30");
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        public CadfBatchCompressor build() {
+            return new CadfBatchCompressor(this);
+        }
+    }
+}
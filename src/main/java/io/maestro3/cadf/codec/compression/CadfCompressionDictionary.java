@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.compression;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.Adler32;
+
+/**
+ * Preset dictionary of {@link CadfBatchCompressor}: byte sequences which are likely to occur in batches, so that
+ * Deflate can reference them from the first event of a batch on. Later bytes are cheaper to reference, the most
+ * frequent sequences go last.
+ * <p/>
+ * {@link #taxonomy()} covers the JSON structure of events and the canonical taxonomy values, {@link #train} adds
+ * sequences which are frequent in sample batches of the actual traffic.
+ */
+public final class CadfCompressionDictionary {
+
+    /**
+     * Deflate window, dictionary bytes before the last 32K can not be referenced.
+     */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    private static final CadfCompressionDictionary TAXONOMY = new CadfCompressionDictionary(taxonomyBytes());
+
+    private final byte[] bytes;
+    private final int id;
+
+    private CadfCompressionDictionary(byte[] bytes) {
+        this.bytes = bytes;
+        Adler32 adler = new Adler32();
+        adler.update(bytes);
+        this.id = (int) adler.getValue();
+    }
+
+    /**
+     * @return dictionary generated from the JSON field names and the action, outcome and resource type taxonomies
+     */
+    public static CadfCompressionDictionary taxonomy() {
+        return TAXONOMY;
+    }
+
+    /**
+     * Uses the bytes as they are, e.g. a dictionary trained elsewhere and shipped along with the data.
+     */
+    public static CadfCompressionDictionary of(byte[] bytes) {
+        Assert.notNull(bytes, "bytes can not be null");
+        Assert.isTrue(bytes.length > 0 && bytes.length <= MAX_SIZE, "dictionary size must be between 1 and " + MAX_SIZE);
+        return new CadfCompressionDictionary(bytes.clone());
+    }
+
+    /**
+     * Extends the taxonomy dictionary with the sequences which are most frequent in the samples, dropping taxonomy
+     * bytes from the front if the result exceeds the size.
+     *
+     * @param samples batches as they will be compressed
+     * @param size    dictionary size, at most {@link #MAX_SIZE}
+     */
+    public static CadfCompressionDictionary train(Collection<byte[]> samples, int size) {
+        Assert.notNull(samples, "samples can not be null");
+        Assert.isTrue(size > 0 && size <= MAX_SIZE, "size must be between 1 and " + MAX_SIZE);
+        byte[] trained = new DictionaryTrainer(samples).train(size);
+        byte[] base = TAXONOMY.bytes;
+        int baseLength = Math.min(base.length, size - trained.length);
+        byte[] bytes = new byte[baseLength + trained.length];
+        System.arraycopy(base, base.length - baseLength, bytes, 0, baseLength);
+        System.arraycopy(trained, 0, bytes, baseLength, trained.length);
+        return new CadfCompressionDictionary(bytes);
+    }
+
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * @return Adler-32 checksum of the bytes, which identifies the dictionary in compressed frames
+     */
+    public int getId() {
+        return id;
+    }
+
+    public int size() {
+        return bytes.length;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CadfCompressionDictionary that = (CadfCompressionDictionary) o;
+        return id == that.id && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "CadfCompressionDictionary{size=" + bytes.length + ", id=" + Integer.toHexString(id) + '}';
+    }
+
+    // ================================= taxonomy ========================================
+
+    private static byte[] taxonomyBytes() {
+        StringBuilder dictionary = new StringBuilder();
+        // rare values first, resource types are the largest and least frequent group
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            dictionary.append("\"typeURI\":\"").append(type.getRelativeUri()).append("\",");
+        }
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            dictionary.append("\"contentType\":\"").append(CadfResource.FULL_ROOT_URI).append('/')
+                .append(type.getRelativeUri()).append("\",");
+        }
+        for (ICadfAction action : CadfActions.values()) {
+            dictionary.append("\"action\":\"").append(action.getRelativeUri()).append("\",");
+        }
+        for (ICadfOutcome outcome : CadfOutcomes.values()) {
+            dictionary.append("\"outcome\":\"").append(outcome.getRelativeUri()).append("\",");
+        }
+        for (CadfEventType eventType : CadfEventType.values()) {
+            dictionary.append("\"eventType\":\"").append(eventType.getName()).append("\",");
+        }
+        dictionary.append("\"measurements\":[{\"result\":,\"metricId\":\"\"},{\"metric\":{\"metricId\":\"\",\"unit\":\"")
+            .append("\",\"name\":\"\"},\"calculatedById\":\"\",\"calculatedBy\":{\"id\":\"\",\"typeURI\":\"\"}}],")
+            .append("\"name\":\"\",\"severity\":\"\",\"tags\":[{\"name\":\"\",\"value\":\"\"}],")
+            .append("\"attachments\":[{\"contentType\":\"\",\"content\":{},\"name\":\"\"}],")
+            .append("\"secureAttachments\":[{\"contentType\":\"\",\"content\":\"\"}],")
+            .append("\"credential\":{\"type\":\"\",\"token\":\"\",\"authority\":\"\"}");
+        // the skeleton every event starts with goes last
+        dictionary.append("{\"typeURI\":\"").append(CadfAuditEvent.EVENT_TYPE_URI)
+            .append("\",\"id\":\"\",\"eventType\":\"activity\",\"eventTime\":\"T00:00:00.000+00:00\",")
+            .append("\"action\":\"\",\"outcome\":\"success\",\"initiator\":{\"id\":\"\",\"typeURI\":\"\",\"name\":\"\"},")
+            .append("\"target\":{\"id\":\"\",\"typeURI\":\"\",\"name\":\"\"},")
+            .append("\"observer\":{\"id\":\"\",\"typeURI\":\"\",\"name\":\"\"}}");
+        byte[] bytes = dictionary.toString().getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= MAX_SIZE ? bytes : Arrays.copyOfRange(bytes, bytes.length - MAX_SIZE, bytes.length);
+    }
+}
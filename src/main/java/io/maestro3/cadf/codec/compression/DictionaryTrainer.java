@@ -0,0 +1,138 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks dictionary content from sample batches: runs of 8 byte grams which occur repeatedly become candidate segments,
+ * segments are ranked by the bytes they would save over all samples.
+ */
+final class DictionaryTrainer {
+
+    private static final int GRAM = 8;
+    private static final int MAX_SEGMENT = 256;
+    private static final int MIN_OCCURRENCES = 2;
+    /**
+     * Bytes of samples looked at, beyond it more samples rarely change the ranking.
+     */
+    private static final int MAX_SAMPLE_BYTES = 8 * 1024 * 1024;
+
+    private final List<byte[]> samples = new ArrayList<>();
+
+    DictionaryTrainer(Collection<byte[]> samples) {
+        long total = 0;
+        for (byte[] sample : samples) {
+            if (sample == null || sample.length < GRAM) {
+                continue;
+            }
+            if (total + sample.length > MAX_SAMPLE_BYTES) {
+                break;
+            }
+            this.samples.add(sample);
+            total += sample.length;
+        }
+    }
+
+    /**
+     * @return at most {@code size} bytes, the most valuable segment last
+     */
+    byte[] train(int size) {
+        Map<Long, Integer> grams = countGrams();
+        Map<String, Integer> segments = countSegments(grams);
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(segments.entrySet());
+        ranked.sort((a, b) -> Long.compare(score(b), score(a)));
+        StringBuilder chosen = new StringBuilder();
+        List<String> picked = new ArrayList<>();
+        for (Map.Entry<String, Integer> segment : ranked) {
+            if (size - chosen.length() < GRAM) {
+                break;
+            }
+            String value = segment.getKey();
+            if (chosen.length() + value.length() > size) {
+                continue;
+            }
+            if (chosen.indexOf(value) < 0) {
+                chosen.append(value);
+                picked.add(value);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(chosen.length());
+        for (int i = picked.size() - 1; i >= 0; i--) {
+            byte[] bytes = picked.get(i).getBytes(StandardCharsets.ISO_8859_1);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    private Map<Long, Integer> countGrams() {
+        Map<Long, Integer> grams = new HashMap<>();
+        for (byte[] sample : samples) {
+            for (int i = 0; i + GRAM <= sample.length; i++) {
+                grams.merge(gram(sample, i), 1, Integer::sum);
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * Segments are maximal runs of frequent grams, latin-1 strings keep the bytes as they are.
+     */
+    private Map<String, Integer> countSegments(Map<Long, Integer> grams) {
+        Map<String, Integer> segments = new HashMap<>();
+        for (byte[] sample : samples) {
+            int i = 0;
+            while (i + GRAM <= sample.length) {
+                if (grams.get(gram(sample, i)) < MIN_OCCURRENCES) {
+                    i++;
+                    continue;
+                }
+                int end = i + 1;
+                while (end + GRAM <= sample.length && end - i + GRAM <= MAX_SEGMENT
+                    && grams.get(gram(sample, end)) >= MIN_OCCURRENCES) {
+                    end++;
+                }
+                int length = Math.min(end - 1 + GRAM, sample.length) - i;
+                segments.merge(new String(sample, i, length, StandardCharsets.ISO_8859_1), 1, Integer::sum);
+                i += length;
+            }
+        }
+        segments.values().removeIf(count -> count < MIN_OCCURRENCES);
+        return segments;
+    }
+
+    /**
+     * Bytes saved if every occurrence became a back reference of about 3 bytes.
+     */
+    private static long score(Map.Entry<String, Integer> segment) {
+        return (long) segment.getValue() * (segment.getKey().length() - 3);
+    }
+
+    private static long gram(byte[] bytes, int offset) {
+        long gram = 0;
+        for (int i = 0; i < GRAM; i++) {
+            gram = gram << 8 | (bytes[offset + i] & 0xFF);
+        }
+        return gram;
+    }
+}
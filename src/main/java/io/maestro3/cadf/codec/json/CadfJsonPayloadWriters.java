@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.json;
+
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.model.CadfDoubleMeasurement;
+import io.maestro3.cadf.model.CadfLongMeasurement;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfMetric;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfTag;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resolves {@link ICadfJsonPayloadWriter} by payload class. Writers registered for a class also apply to its
+ * subclasses and implementations, resolution is cached per class.
+ */
+final class CadfJsonPayloadWriters {
+
+    private final Map<Class<?>, ICadfJsonPayloadWriter<?>> writers;
+    private final boolean builtInMeasurements;
+
+    private final ClassValue<ICadfJsonPayloadWriter<Object>> resolved = new ClassValue<>() {
+        @Override
+        protected ICadfJsonPayloadWriter<Object> computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    CadfJsonPayloadWriters(CadfJsonWriter modelWriter, Map<Class<?>, ICadfJsonPayloadWriter<?>> custom) {
+        Map<Class<?>, ICadfJsonPayloadWriter<?>> all = new LinkedHashMap<>();
+        register(all, String.class, (String payload, JsonOutput out) -> out.value(payload));
+        register(all, Long.class, (Long payload, JsonOutput out) -> out.value(payload.longValue()));
+        register(all, Integer.class, (Integer payload, JsonOutput out) -> out.value(payload.longValue()));
+        register(all, Short.class, (Short payload, JsonOutput out) -> out.value(payload.longValue()));
+        register(all, Byte.class, (Byte payload, JsonOutput out) -> out.value(payload.longValue()));
+        register(all, Double.class, (Double payload, JsonOutput out) -> out.value(payload.doubleValue()));
+        register(all, Float.class, (Float payload, JsonOutput out) -> out.value(payload.floatValue()));
+        register(all, BigDecimal.class, (BigDecimal payload, JsonOutput out) -> out.numberValue(payload.toString()));
+        register(all, BigInteger.class, (BigInteger payload, JsonOutput out) -> out.numberValue(payload.toString()));
+        register(all, Boolean.class, (Boolean payload, JsonOutput out) -> out.value(payload.booleanValue()));
+        register(all, Character.class, (Character payload, JsonOutput out) -> out.value(payload.toString()));
+        register(all, CharSequence.class, (CharSequence payload, JsonOutput out) -> out.value(payload.toString()));
+        register(all, Number.class, (Number payload, JsonOutput out) -> out.numberValue(payload.toString()));
+        register(all, Enum.class, (payload, out) -> out.value(((Enum<?>) payload).name()));
+        register(all, Map.class, CadfJsonPayloadWriters::writeMap);
+        register(all, Iterable.class, CadfJsonPayloadWriters::writeIterable);
+        register(all, CadfResource.class, modelWriter::writeResource);
+        register(all, CadfAttachment.class, modelWriter::writeAttachment);
+        register(all, CadfMeasurement.class, modelWriter::writeMeasurement);
+        register(all, CadfMetric.class, modelWriter::writeMetric);
+        register(all, CadfCredential.class, modelWriter::writeCredential);
+        register(all, CadfTag.class, modelWriter::writeTag);
+        all.putAll(custom);
+        this.writers = all;
+        this.builtInMeasurements = !custom.containsKey(Long.class) && !custom.containsKey(Double.class)
+            && !custom.containsKey(CadfMeasurement.class) && !custom.containsKey(CadfLongMeasurement.class)
+            && !custom.containsKey(CadfDoubleMeasurement.class);
+    }
+
+    private static <T> void register(Map<Class<?>, ICadfJsonPayloadWriter<?>> writers, Class<T> type,
+                                     ICadfJsonPayloadWriter<? super T> writer) {
+        writers.put(type, writer);
+    }
+
+    /**
+     * Whether measurements and their long and double results are written by the built-in writers, i.e. primitive
+     * measurements can skip boxing.
+     */
+    boolean hasBuiltInMeasurements() {
+        return builtInMeasurements;
+    }
+
+    void write(Object payload, JsonOutput out) {
+        resolved.get(payload.getClass()).write(payload, out);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ICadfJsonPayloadWriter<Object> resolve(Class<?> type) {
+        if (type.isArray() && !type.getComponentType().isPrimitive()) {
+            return (payload, out) -> writeArray((Object[]) payload, out);
+        }
+        // closest superclass wins, interfaces are checked breadth first after the class hierarchy
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            ICadfJsonPayloadWriter<?> writer = writers.get(current);
+            if (writer != null) {
+                return (ICadfJsonPayloadWriter<Object>) writer;
+            }
+        }
+        Deque<Class<?>> interfaces = new ArrayDeque<>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Class<?> implemented : current.getInterfaces()) {
+                interfaces.add(implemented);
+            }
+        }
+        while (!interfaces.isEmpty()) {
+            Class<?> implemented = interfaces.poll();
+            ICadfJsonPayloadWriter<?> writer = writers.get(implemented);
+            if (writer != null) {
+                return (ICadfJsonPayloadWriter<Object>) writer;
+            }
+            for (Class<?> parent : implemented.getInterfaces()) {
+                interfaces.add(parent);
+            }
+        }
+        return (payload, out) -> {
+            throw new IllegalArgumentException("No json payload writer registered for " + type.getName());
+        };
+    }
+
+    private static void writeMap(Map<?, ?> payload, JsonOutput out) {
+        out.beginObject();
+        for (Map.Entry<?, ?> entry : payload.entrySet()) {
+            out.name(String.valueOf(entry.getKey()));
+            out.payload(entry.getValue());
+        }
+        out.endObject();
+    }
+
+    private static void writeIterable(Iterable<?> payload, JsonOutput out) {
+        out.beginArray();
+        for (Object element : payload) {
+            out.payload(element);
+        }
+        out.endArray();
+    }
+
+    private static void writeArray(Object[] payload, JsonOutput out) {
+        out.beginArray();
+        for (Object element : payload) {
+            out.payload(element);
+        }
+        out.endArray();
+    }
+}
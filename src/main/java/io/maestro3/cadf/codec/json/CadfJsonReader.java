@@ -0,0 +1,808 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.json;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.codec.CadfEncodedPayload;
+import io.maestro3.cadf.codec.CadfLazyAttachment;
+import io.maestro3.cadf.codec.CadfLazyCredential;
+import io.maestro3.cadf.codec.UnknownTaxonomyValue;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import io.maestro3.cadf.model.CadfMetric;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceCache;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.model.CadfTagCache;
+import io.maestro3.cadf.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Pull-based JSON decoder of {@link CadfAuditEvent}, builds the event graph straight from UTF-8 bytes.
+ * <p/>
+ * Member names are matched on raw bytes, unknown members are skipped without allocation. Actions, outcomes and
+ * event types resolve to their canonical taxonomy instances, resource typeURIs to shared String instances, so no
+ * duplicate strings are retained for them. Values outside of the taxonomy are kept verbatim.
+ * Instances are thread-safe and meant to be shared.
+ */
+public final class CadfJsonReader {
+
+    private static final int INITIAL_STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private enum Member {
+        TYPE_URI, ID, EVENT_TYPE, EVENT_TIME, ACTION, OUTCOME, INITIATOR, TARGET, OBSERVER, MEASUREMENTS, NAME,
+        SEVERITY, TAGS, ATTACHMENTS, SECURE_ATTACHMENTS, CREDENTIAL, CONTENT_TYPE, CONTENT, RESULT, METRIC_ID,
+        METRIC, CALCULATED_BY_ID, CALCULATED_BY, UNIT, TYPE, TOKEN, AUTHORITY, VALUE
+    }
+
+    private static final Utf8Table<Member> MEMBERS = Utf8Table.<Member>builder()
+        .put("typeURI", Member.TYPE_URI)
+        .put("id", Member.ID)
+        .put("eventType", Member.EVENT_TYPE)
+        .put("eventTime", Member.EVENT_TIME)
+        .put("action", Member.ACTION)
+        .put("outcome", Member.OUTCOME)
+        .put("initiator", Member.INITIATOR)
+        .put("target", Member.TARGET)
+        .put("observer", Member.OBSERVER)
+        .put("measurements", Member.MEASUREMENTS)
+        .put("name", Member.NAME)
+        .put("severity", Member.SEVERITY)
+        .put("tags", Member.TAGS)
+        .put("attachments", Member.ATTACHMENTS)
+        .put("secureAttachments", Member.SECURE_ATTACHMENTS)
+        .put("credential", Member.CREDENTIAL)
+        .put("contentType", Member.CONTENT_TYPE)
+        .put("content", Member.CONTENT)
+        .put("result", Member.RESULT)
+        .put("metricId", Member.METRIC_ID)
+        .put("metric", Member.METRIC)
+        .put("calculatedById", Member.CALCULATED_BY_ID)
+        .put("calculatedBy", Member.CALCULATED_BY)
+        .put("unit", Member.UNIT)
+        .put("type", Member.TYPE)
+        .put("token", Member.TOKEN)
+        .put("authority", Member.AUTHORITY)
+        .put("value", Member.VALUE)
+        .build();
+
+    private static final Utf8Table<ICadfAction> ACTIONS = actions();
+    private static final Utf8Table<ICadfOutcome> OUTCOMES = outcomes();
+    private static final Utf8Table<CadfEventType> EVENT_TYPES = eventTypes();
+    private static final Utf8Table<String> RESOURCE_TYPES = resourceTypes();
+
+    private static final ICadfJsonPayloadReader<Object> VALUE_READER = JsonInput::readValue;
+
+    private final ICadfJsonPayloadReader<?> defaultReader;
+    private final ICadfJsonPayloadReader<?> measurementReader;
+    private final Map<String, ICadfJsonPayloadReader<?>> attachmentReaders;
+    private final Map<String, ICadfJsonPayloadReader<?>> credentialReaders;
+    private final CadfResourceCache resourceCache;
+    private final CadfTagCache tagCache;
+    private final boolean measurementBatches;
+    private final boolean lazyPayloads;
+    private final ICadfJsonPayloadReader<CadfResource> resourceReader = this::readResource;
+    private final ThreadLocal<JsonInput> inputs = ThreadLocal.withInitial(JsonInput::new);
+
+    private CadfJsonReader(Builder builder) {
+        this.defaultReader = builder.defaultReader;
+        this.measurementReader = builder.measurementReader != null ? builder.measurementReader : builder.defaultReader;
+        this.attachmentReaders = new HashMap<>(builder.attachmentReaders);
+        this.credentialReaders = new HashMap<>(builder.credentialReaders);
+        this.resourceCache = builder.resourceCache;
+        this.tagCache = builder.tagCache;
+        this.measurementBatches = builder.measurementBatches;
+        this.lazyPayloads = builder.lazyPayloads;
+    }
+
+    public static CadfJsonReader create() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public CadfAuditEvent read(byte[] json) {
+        Assert.notNull(json, "json can not be null");
+        return read(json, 0, json.length);
+    }
+
+    public CadfAuditEvent read(byte[] json, int offset, int length) {
+        Assert.notNull(json, "json can not be null");
+        JsonInput in = inputs.get().reset(json, offset, length);
+        CadfAuditEvent event = readEvent(in);
+        in.expectEnd();
+        return event;
+    }
+
+    public CadfAuditEvent read(ByteBuffer json) {
+        Assert.notNull(json, "json can not be null");
+        if (json.hasArray()) {
+            return read(json.array(), json.arrayOffset() + json.position(), json.remaining());
+        }
+        byte[] copy = new byte[json.remaining()];
+        json.duplicate().get(copy);
+        return read(copy);
+    }
+
+    /**
+     * Reads newline delimited events until the end of the stream, blank lines are ignored.
+     *
+     * @return number of events passed to the consumer
+     */
+    public long readAll(InputStream stream, Consumer<? super CadfAuditEvent> consumer) throws IOException {
+        Assert.notNull(stream, "stream can not be null");
+        Assert.notNull(consumer, "consumer can not be null");
+        JsonInput in = new JsonInput();
+        byte[] buffer = new byte[INITIAL_STREAM_BUFFER_SIZE];
+        int start = 0;
+        int end = 0;
+        int scanned = 0;
+        long count = 0;
+        while (true) {
+            for (; scanned < end; scanned++) {
+                if (buffer[scanned] == '\n') {
+                    count += readLine(in, buffer, start, scanned, consumer);
+                    start = scanned + 1;
+                }
+            }
+            if (end == buffer.length) {
+                if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    scanned -= start;
+                    start = 0;
+                } else {
+                    buffer = Arrays.copyOf(buffer, buffer.length << 1);
+                }
+            }
+            int read = stream.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                return count + readLine(in, buffer, start, end, consumer);
+            }
+            end += read;
+        }
+    }
+
+    private int readLine(JsonInput in, byte[] buffer, int start, int end, Consumer<? super CadfAuditEvent> consumer) {
+        in.reset(buffer, start, end - start);
+        if (in.valueStart() == end) {
+            return 0;
+        }
+        CadfAuditEvent event = readEvent(in);
+        in.expectEnd();
+        consumer.accept(event);
+        return 1;
+    }
+
+    // ================================= model ========================================
+
+    private CadfAuditEvent readEvent(JsonInput in) {
+        CadfAuditEvent.Builder builder = CadfAuditEvent.builder().withoutIdGenerator();
+        in.beginObject();
+        while (in.nextMember()) {
+            Member member = in.readName(MEMBERS);
+            if (member == null) {
+                in.skipValue();
+                continue;
+            }
+            if (in.readNull()) {
+                continue;
+            }
+            switch (member) {
+                case ID:
+                    builder.withId(in.readString());
+                    break;
+                case EVENT_TYPE:
+                    CadfEventType eventType = in.readString(EVENT_TYPES);
+                    builder.withEventType(eventType != null ? eventType : CadfEventType.fromName(in.tokenString()));
+                    break;
+                case EVENT_TIME:
+                    builder.withEventTime(in.readString());
+                    break;
+                case ACTION:
+                    ICadfAction action = in.readString(ACTIONS);
+                    builder.withAction(action != null ? action : new UnknownTaxonomyValue(in.tokenString()));
+                    break;
+                case OUTCOME:
+                    ICadfOutcome outcome = in.readString(OUTCOMES);
+                    builder.withOutcome(outcome != null ? outcome : new UnknownTaxonomyValue(in.tokenString()));
+                    break;
+                case INITIATOR:
+                    builder.withInitiator(readResource(in));
+                    break;
+                case TARGET:
+                    builder.withTarget(readResource(in));
+                    break;
+                case OBSERVER:
+                    builder.withObserver(readResource(in));
+                    break;
+                case MEASUREMENTS:
+                    builder.withMeasurements(readMeasurements(in));
+                    break;
+                case NAME:
+                    builder.withName(in.readString());
+                    break;
+                case SEVERITY:
+                    builder.withSeverity(in.readString());
+                    break;
+                case TAGS:
+                    builder.withTags(readTags(in));
+                    break;
+                case ATTACHMENTS:
+                    builder.withAttachments(readAttachments(in));
+                    break;
+                case SECURE_ATTACHMENTS:
+                    builder.withSecureAttachments(readAttachments(in));
+                    break;
+                default:
+                    // typeURI is fixed by the model
+                    in.skipValue();
+            }
+        }
+        return builder.build();
+    }
+
+    private CadfResource readResource(JsonInput in) {
+        CadfResource resource = new CadfResource();
+        in.beginObject();
+        while (in.nextMember()) {
+            Member member = in.readName(MEMBERS);
+            if (member == null) {
+                in.skipValue();
+                continue;
+            }
+            if (in.readNull()) {
+                continue;
+            }
+            switch (member) {
+                case ID:
+                    resource.setId(in.readString());
+                    break;
+                case TYPE_URI:
+                    resource.setTypeURI(readResourceType(in));
+                    break;
+                case NAME:
+                    resource.setName(in.readString());
+                    break;
+                case CREDENTIAL:
+                    resource.setCredential(readCredential(in));
+                    break;
+                case ATTACHMENTS:
+                    resource.setAttachments(readAttachments(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return resourceCache != null ? resourceCache.intern(resource) : resource;
+    }
+
+    private List<CadfAttachment> readAttachments(JsonInput in) {
+        List<CadfAttachment> attachments = new ArrayList<>();
+        in.beginArray();
+        while (in.nextElement()) {
+            attachments.add(in.readNull() ? null : readAttachment(in));
+        }
+        return attachments;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private CadfAttachment readAttachment(JsonInput in) {
+        CadfAttachment attachment = lazyPayloads ? new CadfLazyAttachment() : new CadfAttachment();
+        // content may precede its contentType, in which case it is decoded once the object is read
+        int deferredContent = -1;
+        int contentEnd = -1;
+        in.beginObject();
+        while (in.nextMember()) {
+            Member member = in.readName(MEMBERS);
+            if (member == null) {
+                in.skipValue();
+                continue;
+            }
+            if (in.readNull()) {
+                continue;
+            }
+            switch (member) {
+                case CONTENT_TYPE:
+                    attachment.setContentType(readResourceType(in));
+                    break;
+                case CONTENT:
+                    if (attachment.getContentType() != null && !lazyPayloads) {
+                        attachment.setContent(attachmentReader(attachment.getContentType()).read(in));
+                    } else {
+                        deferredContent = in.valueStart();
+                        in.skipValue();
+                        contentEnd = in.position();
+                    }
+                    break;
+                case NAME:
+                    attachment.setName(in.readString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        if (deferredContent >= 0 && lazyPayloads) {
+            ((CadfLazyAttachment) attachment).setEncodedContent(
+                encoded(in, deferredContent, contentEnd, attachmentReader(attachment.getContentType())));
+        } else if (deferredContent >= 0) {
+            attachment.setContent(in.reread(deferredContent, attachmentReader(attachment.getContentType())));
+        }
+        return attachment;
+    }
+
+    private ICadfJsonPayloadReader<?> attachmentReader(String contentType) {
+        if (contentType != null) {
+            ICadfJsonPayloadReader<?> reader = attachmentReaders.get(contentType);
+            if (reader != null) {
+                return reader;
+            }
+            if (contentType.startsWith(CadfResource.FULL_ROOT_URI)) {
+                // see CadfAttachment.ofResource
+                return resourceReader;
+            }
+        }
+        return defaultReader;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private CadfCredential readCredential(JsonInput in) {
+        CadfCredential credential = lazyPayloads ? new CadfLazyCredential() : new CadfCredential();
+        int deferredToken = -1;
+        int tokenEnd = -1;
+        in.beginObject();
+        while (in.nextMember()) {
+            Member member = in.readName(MEMBERS);
+            if (member == null) {
+                in.skipValue();
+                continue;
+            }
+            if (in.readNull()) {
+                continue;
+            }
+            switch (member) {
+                case TYPE:
+                    credential.setType(in.readString());
+                    break;
+                case TOKEN:
+                    if (credential.getType() != null && !lazyPayloads) {
+                        credential.setToken(credentialReader(credential.getType()).read(in));
+                    } else {
+                        deferredToken = in.valueStart();
+                        in.skipValue();
+                        tokenEnd = in.position();
+                    }
+                    break;
+                case AUTHORITY:
+                    credential.setAuthority(in.readString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        if (deferredToken >= 0 && lazyPayloads) {
+            ((CadfLazyCredential) credential).setEncodedToken(
+                encoded(in, deferredToken, tokenEnd, credentialReader(credential.getType())));
+        } else if (deferredToken >= 0) {
+            credential.setToken(in.reread(deferredToken, credentialReader(credential.getType())));
+        }
+        return credential;
+    }
+
+    private ICadfJsonPayloadReader<?> credentialReader(String type) {
+        ICadfJsonPayloadReader<?> reader = type != null ? credentialReaders.get(type) : null;
+        return reader != null ? reader : defaultReader;
+    }
+
+    /**
+     * Keeps the value in [start, end) of the input for {@link CadfLazyAttachment} and {@link CadfLazyCredential}.
+     */
+    private static CadfEncodedPayload encoded(JsonInput in, int start, int end, ICadfJsonPayloadReader<?> reader) {
+        byte[] bytes = in.copy(start, end);
+        return new CadfEncodedPayload(CadfEncodedPayload.Format.JSON, bytes, isEmptyValue(bytes), json -> {
+            // a fresh input, the pooled one may be in use by the read the content is accessed from
+            JsonInput input = new JsonInput().reset(json, 0, json.length);
+            Object value = reader.read(input);
+            input.expectEnd();
+            return value;
+        });
+    }
+
+    /**
+     * Mirrors the emptiness the validator checks on decoded payloads, looking at as few bytes as possible. The value
+     * starts at the first byte, nulls are never kept encoded.
+     */
+    private static boolean isEmptyValue(byte[] json) {
+        switch (json[0]) {
+            case '"':
+                // a non-blank value almost always starts with an ascii non-whitespace char
+                if (json[1] != '"' && json[1] != '\\' && json[1] >= 0 && !Character.isWhitespace(json[1])) {
+                    return false;
+                }
+                String text = new JsonInput().reset(json, 0, json.length).readString();
+                for (int i = 0; i < text.length(); i++) {
+                    if (!Character.isWhitespace(text.charAt(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            case '[':
+            case '{':
+                for (int i = 1; i < json.length; i++) {
+                    if (!isJsonWhitespace(json[i])) {
+                        return json[i] == ']' || json[i] == '}';
+                    }
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isJsonWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private List<CadfMeasurement> readMeasurements(JsonInput in) {
+        if (measurementBatches) {
+            return readMeasurementBatch(in);
+        }
+        List<CadfMeasurement> measurements = new ArrayList<>();
+        in.beginArray();
+        while (in.nextElement()) {
+            measurements.add(in.readNull() ? null : readMeasurement(in));
+        }
+        return measurements;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private CadfMeasurement readMeasurement(JsonInput in) {
+        CadfMeasurement measurement = new CadfMeasurement();
+        in.beginObject();
+        while (in.nextMember()) {
+            Member member = in.readName(MEMBERS);
+            if (member == null) {
+                in.skipValue();
+                continue;
+            }
+            if (in.readNull()) {
+                continue;
+            }
+            switch (member) {
+                case RESULT:
+                    measurement.setResult(measurementReader.read(in));
+                    break;
+                case METRIC_ID:
+                    measurement.setMetricId(in.readString());
+                    break;
+                case METRIC:
+                    measurement.setMetric(readMetric(in));
+                    break;
+                case CALCULATED_BY_ID:
+                    measurement.setCalculatedById(in.readString());
+                    break;
+                case CALCULATED_BY:
+                    measurement.setCalculatedBy(readResource(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return measurement;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private CadfMeasurementBatch readMeasurementBatch(JsonInput in) {
+        CadfMeasurementBatch batch = new CadfMeasurementBatch();
+        in.beginArray();
+        while (in.nextElement()) {
+            if (in.readNull()) {
+                batch.add(null);
+                continue;
+            }
+            int numberKind = JsonInput.NOT_A_NUMBER;
+            long longResult = 0;
+            double doubleResult = 0;
+            Object result = null;
+            String metricId = null;
+            CadfMetric metric = null;
+            String calculatedById = null;
+            CadfResource calculatedBy = null;
+            in.beginObject();
+            while (in.nextMember()) {
+                Member member = in.readName(MEMBERS);
+                if (member == null) {
+                    in.skipValue();
+                    continue;
+                }
+                if (in.readNull()) {
+                    continue;
+                }
+                switch (member) {
+                    case RESULT:
+                        numberKind = measurementReader == VALUE_READER ? in.peekNumber() : JsonInput.NOT_A_NUMBER;
+                        if (numberKind == JsonInput.INTEGRAL_NUMBER) {
+                            longResult = in.readLong();
+                        } else if (numberKind == JsonInput.DECIMAL_NUMBER) {
+                            doubleResult = in.readDouble();
+                        } else {
+                            result = measurementReader.read(in);
+                        }
+                        break;
+                    case METRIC_ID:
+                        metricId = in.readString();
+                        break;
+                    case METRIC:
+                        metric = readMetric(in);
+                        break;
+                    case CALCULATED_BY_ID:
+                        calculatedById = in.readString();
+                        break;
+                    case CALCULATED_BY:
+                        calculatedBy = readResource(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            if (metricId != null && metric == null && numberKind == JsonInput.INTEGRAL_NUMBER) {
+                batch.addLong(metricId, longResult, calculatedById, calculatedBy);
+            } else if (metricId != null && metric == null && numberKind == JsonInput.DECIMAL_NUMBER) {
+                batch.addDouble(metricId, doubleResult, calculatedById, calculatedBy);
+            } else {
+                CadfMeasurement measurement = new CadfMeasurement();
+                if (numberKind == JsonInput.INTEGRAL_NUMBER) {
+                    result = longResult;
+                } else if (numberKind == JsonInput.DECIMAL_NUMBER) {
+                    result = doubleResult;
+                }
+                measurement.setResult(result);
+                measurement.setMetricId(metricId);
+                measurement.setMetric(metric);
+                measurement.setCalculatedById(calculatedById);
+                measurement.setCalculatedBy(calculatedBy);
+                batch.add(measurement);
+            }
+        }
+        return batch;
+    }
+
+    private CadfMetric readMetric(JsonInput in) {
+        CadfMetric metric = new CadfMetric();
+        in.beginObject();
+        while (in.nextMember()) {
+            Member member = in.readName(MEMBERS);
+            if (member == null) {
+                in.skipValue();
+                continue;
+            }
+            if (in.readNull()) {
+                continue;
+            }
+            switch (member) {
+                case METRIC_ID:
+                    metric.setMetricId(in.readString());
+                    break;
+                case UNIT:
+                    metric.setUnit(in.readString());
+                    break;
+                case NAME:
+                    metric.setName(in.readString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return metric;
+    }
+
+    private List<CadfTag> readTags(JsonInput in) {
+        List<CadfTag> tags = new ArrayList<>();
+        in.beginArray();
+        while (in.nextElement()) {
+            tags.add(in.readNull() ? null : readTag(in));
+        }
+        return tags;
+    }
+
+    private CadfTag readTag(JsonInput in) {
+        CadfTag tag = new CadfTag();
+        in.beginObject();
+        while (in.nextMember()) {
+            Member member = in.readName(MEMBERS);
+            if (member == null) {
+                in.skipValue();
+                continue;
+            }
+            if (in.readNull()) {
+                continue;
+            }
+            switch (member) {
+                case NAME:
+                    tag.setName(in.readString());
+                    break;
+                case VALUE:
+                    tag.setValue(in.readString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        return tagCache != null ? tagCache.intern(tag) : tag;
+    }
+
+    private static String readResourceType(JsonInput in) {
+        String type = in.readString(RESOURCE_TYPES);
+        return type != null ? type : in.tokenString();
+    }
+
+    // ================================= taxonomy ========================================
+
+    private static Utf8Table<ICadfAction> actions() {
+        Utf8Table.Builder<ICadfAction> table = Utf8Table.builder();
+        for (ICadfAction action : CadfActions.values()) {
+            table.put(action.getRelativeUri(), action);
+        }
+        return table.build();
+    }
+
+    private static Utf8Table<ICadfOutcome> outcomes() {
+        Utf8Table.Builder<ICadfOutcome> table = Utf8Table.builder();
+        for (ICadfOutcome outcome : CadfOutcomes.values()) {
+            table.put(outcome.getRelativeUri(), outcome);
+        }
+        return table.build();
+    }
+
+    private static Utf8Table<CadfEventType> eventTypes() {
+        Utf8Table.Builder<CadfEventType> table = Utf8Table.builder();
+        for (CadfEventType eventType : CadfEventType.values()) {
+            table.put(eventType.getName(), eventType);
+        }
+        return table.build();
+    }
+
+    private static Utf8Table<String> resourceTypes() {
+        Utf8Table.Builder<String> table = Utf8Table.builder();
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            table.put(type.getRelativeUri(), type.getRelativeUri());
+            String fullUri = CadfResource.FULL_ROOT_URI + "/" + type.getRelativeUri();
+            table.put(fullUri, fullUri);
+        }
+        return table.build();
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private final Map<String, ICadfJsonPayloadReader<?>> attachmentReaders = new HashMap<>();
+        private final Map<String, ICadfJsonPayloadReader<?>> credentialReaders = new HashMap<>();
+        private ICadfJsonPayloadReader<?> defaultReader = VALUE_READER;
+        private ICadfJsonPayloadReader<?> measurementReader;
+        private CadfResourceCache resourceCache;
+        private CadfTagCache tagCache;
+        private boolean measurementBatches;
+        private boolean lazyPayloads;
+
+        private Builder() {
+        }
+
+        /**
+         * Reader for content of attachments with the given contentType.
+         */
+        public Builder withAttachmentReader(String contentType, ICadfJsonPayloadReader<?> reader) {
+            Assert.hasText(contentType, "contentType can not be null or empty");
+            Assert.notNull(reader, "reader can not be null");
+            attachmentReaders.put(contentType, reader);
+            return this;
+        }
+
+        /**
+         * Reader for tokens of credentials with the given type.
+         */
+        public Builder withCredentialReader(String type, ICadfJsonPayloadReader<?> reader) {
+            Assert.hasText(type, "type can not be null or empty");
+            Assert.notNull(reader, "reader can not be null");
+            credentialReaders.put(type, reader);
+            return this;
+        }
+
+        /**
+         * Reader for measurement results, the default reader is used if not set.
+         */
+        public Builder withMeasurementReader(ICadfJsonPayloadReader<?> reader) {
+            Assert.notNull(reader, "reader can not be null");
+            measurementReader = reader;
+            return this;
+        }
+
+        /**
+         * Reader for payloads without a more specific reader, by default values are read as generic
+         * maps, lists, strings, numbers and booleans.
+         */
+        public Builder withDefaultReader(ICadfJsonPayloadReader<?> reader) {
+            Assert.notNull(reader, "reader can not be null");
+            defaultReader = reader;
+            return this;
+        }
+
+        /**
+         * Cache the read resources are interned into, e.g. {@link CadfResourceCache#getDefault()}. Not set by default,
+         * every event gets its own resources then.
+         */
+        public Builder withResourceCache(CadfResourceCache resourceCache) {
+            Assert.notNull(resourceCache, "resourceCache can not be null");
+            this.resourceCache = resourceCache;
+            return this;
+        }
+
+        /**
+         * Cache the read tags are interned into, e.g. {@link CadfTagCache#getDefault()}. Not set by default.
+         */
+        public Builder withTagCache(CadfTagCache tagCache) {
+            Assert.notNull(tagCache, "tagCache can not be null");
+            this.tagCache = tagCache;
+            return this;
+        }
+
+        /**
+         * Reads measurements into a {@link CadfMeasurementBatch}, keeping numeric results of measurements without a
+         * metric object unboxed: integers up to 18 digits as long, other numbers as double. Applies to the default
+         * measurement reader only. Disabled by default since elements of a batch are snapshots and small integers
+         * are not narrowed to {@code Integer}.
+         */
+        public Builder withMeasurementBatches(boolean measurementBatches) {
+            this.measurementBatches = measurementBatches;
+            return this;
+        }
+
+        /**
+         * Keeps attachment contents and credential tokens as raw JSON until first accessed, see
+         * {@link CadfLazyAttachment}. Their readers then run on first access, and writers copy untouched payloads
+         * verbatim. Disabled by default.
+         */
+        public Builder withLazyPayloads(boolean lazyPayloads) {
+            this.lazyPayloads = lazyPayloads;
+            return this;
+        }
+
+        public CadfJsonReader build() {
+            return new CadfJsonReader(this);
+        }
+    }
+}
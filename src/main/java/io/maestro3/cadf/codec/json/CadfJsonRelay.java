@@ -0,0 +1,257 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.json;
+
+import io.maestro3.cadf.codec.CadfEventIndex;
+import io.maestro3.cadf.codec.CadfRelayPatch;
+import io.maestro3.cadf.codec.ICadfEventRelay;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Relays JSON events, see {@link ICadfEventRelay}. Replaced members keep their position, missing ones are appended
+ * before the closing brace of the event and tags are appended to the existing array. Values are encoded with the
+ * payload writers of the {@link CadfJsonWriter} the relay was created by.
+ *
+ * @see CadfJsonWriter#newRelay()
+ */
+public final class CadfJsonRelay implements ICadfEventRelay {
+
+    private static final Utf8Table<CadfEventIndex.Field> FIELDS = Utf8Table.<CadfEventIndex.Field>builder()
+        .put("observer", CadfEventIndex.Field.OBSERVER)
+        .put("severity", CadfEventIndex.Field.SEVERITY)
+        .put("tags", CadfEventIndex.Field.TAGS)
+        .build();
+
+    private static final byte[] OBSERVER = JsonOutput.encodeName("observer");
+    private static final byte[] SEVERITY = JsonOutput.encodeName("severity");
+    private static final byte[] TAGS = JsonOutput.encodeName("tags");
+    private static final byte[] COMMA = {','};
+    private static final byte[] OPEN_ARRAY = {'['};
+    private static final byte[] CLOSE_ARRAY = {']'};
+
+    private final CadfJsonWriter writer;
+    private volatile EncodedPatch lastPatch;
+
+    CadfJsonRelay(CadfJsonWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public CadfEventIndex index(ByteBuffer event) {
+        Assert.notNull(event, "event can not be null");
+        // offsets of the input are shifted by base to get indexes of the buffer
+        JsonInput in = new JsonInput();
+        int base;
+        if (event.hasArray()) {
+            in.reset(event.array(), event.arrayOffset() + event.position(), event.remaining());
+            base = -event.arrayOffset();
+        } else {
+            byte[] copy = new byte[event.remaining()];
+            event.duplicate().get(copy);
+            in.reset(copy, 0, copy.length);
+            base = event.position();
+        }
+        int start = in.valueStart();
+        int[] ranges = new int[CadfEventIndex.Field.values().length * 2];
+        Arrays.fill(ranges, -1);
+        in.beginObject();
+        while (in.nextMember()) {
+            CadfEventIndex.Field field = in.readName(FIELDS);
+            int valueStart = in.valueStart();
+            in.skipValue();
+            if (field != null) {
+                ranges[field.ordinal() * 2] = valueStart + base;
+                ranges[field.ordinal() * 2 + 1] = in.position() + base;
+            }
+        }
+        int end = in.position();
+        in.expectEnd();
+        // missing members go right before the closing brace
+        CadfEventIndex.Builder index = CadfEventIndex.builder(start + base, end + base);
+        for (CadfEventIndex.Field field : CadfEventIndex.Field.values()) {
+            if (ranges[field.ordinal() * 2] >= 0) {
+                index.withField(field, ranges[field.ordinal() * 2], ranges[field.ordinal() * 2 + 1]);
+            } else {
+                index.withInsertionPoint(field, end + base - 1);
+            }
+        }
+        return index.build();
+    }
+
+    @Override
+    public ByteBuffer[] splice(ByteBuffer event, CadfRelayPatch patch) {
+        Assert.notNull(patch, "patch can not be null");
+        CadfEventIndex index = index(event);
+        EncodedPatch encoded = encode(patch);
+        Slices slices = new Slices(event);
+        for (CadfEventIndex.Field field : fieldsInOrder(index)) {
+            int start = index.getStart(field);
+            int end = index.getEnd(field);
+            switch (field) {
+                case OBSERVER:
+                    if (encoded.observer != null) {
+                        splice(slices, event, index, field, OBSERVER, encoded.observer);
+                    }
+                    break;
+                case SEVERITY:
+                    if (encoded.severity != null) {
+                        splice(slices, event, index, field, SEVERITY, encoded.severity);
+                    }
+                    break;
+                case TAGS:
+                    if (encoded.tags == null) {
+                        break;
+                    }
+                    if (!index.isPresent(field) || event.get(start) == 'n') {
+                        // missing or null, a new array replaces it
+                        splice(slices, event, index, field, TAGS, OPEN_ARRAY, encoded.tags, CLOSE_ARRAY);
+                    } else {
+                        slices.copyTo(end - 1);
+                        if (lastNonWhitespace(event, end - 1) != '[') {
+                            slices.add(COMMA);
+                        }
+                        slices.add(encoded.tags);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected field " + field);
+            }
+        }
+        return slices.finish(event.limit());
+    }
+
+    /**
+     * Replaces the value of a present member, or inserts the member if it is missing.
+     */
+    private static void splice(Slices slices, ByteBuffer event, CadfEventIndex index, CadfEventIndex.Field field,
+                               byte[] member, byte[]... value) {
+        int start = index.getStart(field);
+        slices.copyTo(start);
+        if (!index.isPresent(field)) {
+            if (lastNonWhitespace(event, start) != '{') {
+                slices.add(COMMA);
+            }
+            slices.add(member);
+        }
+        for (byte[] part : value) {
+            slices.add(part);
+        }
+        slices.skipTo(index.getEnd(field));
+    }
+
+    private static CadfEventIndex.Field[] fieldsInOrder(CadfEventIndex index) {
+        CadfEventIndex.Field[] fields = CadfEventIndex.Field.values();
+        // stable, so missing members sharing the insertion point keep the declaration order
+        Arrays.sort(fields, (left, right) -> Integer.compare(index.getStart(left), index.getStart(right)));
+        return fields;
+    }
+
+    private static int lastNonWhitespace(ByteBuffer event, int before) {
+        for (int i = before - 1; i >= event.position(); i--) {
+            byte c = event.get(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    // ================================= encoding ========================================
+
+    private EncodedPatch encode(CadfRelayPatch patch) {
+        EncodedPatch encoded = lastPatch;
+        if (encoded == null || encoded.patch != patch) {
+            encoded = new EncodedPatch(patch);
+            lastPatch = encoded;
+        }
+        return encoded;
+    }
+
+    private final class EncodedPatch {
+
+        private final CadfRelayPatch patch;
+        private final byte[] observer;
+        private final byte[] severity;
+        // comma separated tag objects, without brackets
+        private final byte[] tags;
+
+        private EncodedPatch(CadfRelayPatch patch) {
+            this.patch = patch;
+            JsonOutput out = writer.newOutput();
+            if (patch.getObserver() != null) {
+                writer.writeResource(patch.getObserver(), out);
+                observer = out.toByteArray();
+            } else {
+                observer = null;
+            }
+            severity = patch.getSeverity() != null ? JsonOutput.encodeValue(patch.getSeverity()) : null;
+            if (!patch.getTags().isEmpty()) {
+                out.reset();
+                out.beginArray();
+                for (CadfTag tag : patch.getTags()) {
+                    writer.writeTag(tag, out);
+                }
+                out.endArray();
+                byte[] array = out.toByteArray();
+                tags = Arrays.copyOfRange(array, 1, array.length - 1);
+            } else {
+                tags = null;
+            }
+        }
+    }
+
+    /**
+     * Output buffers: slices of the event up to a cursor, interleaved with encoded values.
+     */
+    private static final class Slices {
+
+        private final ByteBuffer event;
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        private int cursor;
+
+        private Slices(ByteBuffer event) {
+            this.event = event;
+            this.cursor = event.position();
+        }
+
+        void copyTo(int offset) {
+            if (offset > cursor) {
+                buffers.add(event.duplicate().limit(offset).position(cursor));
+                cursor = offset;
+            }
+        }
+
+        void skipTo(int offset) {
+            cursor = offset;
+        }
+
+        void add(byte[] bytes) {
+            buffers.add(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+        }
+
+        ByteBuffer[] finish(int limit) {
+            copyTo(limit);
+            return buffers.toArray(new ByteBuffer[0]);
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.json;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.codec.CadfEncodedPayload;
+import io.maestro3.cadf.codec.CadfLazyAttachment;
+import io.maestro3.cadf.codec.CadfLazyCredential;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.model.CadfDoubleMeasurement;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfLongMeasurement;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import io.maestro3.cadf.model.CadfMetric;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.util.Assert;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming JSON encoder of {@link CadfAuditEvent}, writes UTF-8 bytes without reflection or intermediate tree.
+ * <p/>
+ * Members are written in the declaration order of the model fields, same as the generic mapper did. Member names,
+ * the event typeURI and taxonomy values (actions, outcomes, event and resource types) are encoded once up front.
+ * Encoding goes through a reusable per-thread buffer, so instances are thread-safe and meant to be shared.
+ */
+public final class CadfJsonWriter {
+
+    private static final int INITIAL_BUFFER_SIZE = 2048;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    static final byte[] TYPE_URI = JsonOutput.encodeName("typeURI");
+    static final byte[] TYPE_URI_EVENT = concat(TYPE_URI, JsonOutput.encodeValue(CadfAuditEvent.EVENT_TYPE_URI));
+    static final byte[] ID = JsonOutput.encodeName("id");
+    static final byte[] EVENT_TYPE = JsonOutput.encodeName("eventType");
+    static final byte[] EVENT_TIME = JsonOutput.encodeName("eventTime");
+    static final byte[] ACTION = JsonOutput.encodeName("action");
+    static final byte[] OUTCOME = JsonOutput.encodeName("outcome");
+    static final byte[] INITIATOR = JsonOutput.encodeName("initiator");
+    static final byte[] TARGET = JsonOutput.encodeName("target");
+    static final byte[] OBSERVER = JsonOutput.encodeName("observer");
+    static final byte[] MEASUREMENTS = JsonOutput.encodeName("measurements");
+    static final byte[] NAME = JsonOutput.encodeName("name");
+    static final byte[] SEVERITY = JsonOutput.encodeName("severity");
+    static final byte[] TAGS = JsonOutput.encodeName("tags");
+    static final byte[] ATTACHMENTS = JsonOutput.encodeName("attachments");
+    static final byte[] SECURE_ATTACHMENTS = JsonOutput.encodeName("secureAttachments");
+    static final byte[] CREDENTIAL = JsonOutput.encodeName("credential");
+    static final byte[] CONTENT_TYPE = JsonOutput.encodeName("contentType");
+    static final byte[] CONTENT = JsonOutput.encodeName("content");
+    static final byte[] RESULT = JsonOutput.encodeName("result");
+    static final byte[] METRIC_ID = JsonOutput.encodeName("metricId");
+    static final byte[] METRIC = JsonOutput.encodeName("metric");
+    static final byte[] CALCULATED_BY_ID = JsonOutput.encodeName("calculatedById");
+    static final byte[] CALCULATED_BY = JsonOutput.encodeName("calculatedBy");
+    static final byte[] UNIT = JsonOutput.encodeName("unit");
+    static final byte[] TYPE = JsonOutput.encodeName("type");
+    static final byte[] TOKEN = JsonOutput.encodeName("token");
+    static final byte[] AUTHORITY = JsonOutput.encodeName("authority");
+    static final byte[] VALUE = JsonOutput.encodeName("value");
+
+    private static final Map<String, byte[]> TAXONOMY_VALUES = encodeTaxonomy();
+
+    private final boolean nullFields;
+    private final CadfJsonPayloadWriters payloadWriters;
+    private final ThreadLocal<JsonOutput> outputs;
+
+    private CadfJsonWriter(Builder builder) {
+        this.nullFields = builder.nullFields;
+        this.payloadWriters = new CadfJsonPayloadWriters(this, builder.payloadWriters);
+        this.outputs = ThreadLocal.withInitial(this::newOutput);
+    }
+
+    public static CadfJsonWriter create() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a buffer bound to this writer's payload writers, for callers which manage buffers themselves.
+     */
+    public JsonOutput newOutput() {
+        return new JsonOutput(payloadWriters, INITIAL_BUFFER_SIZE);
+    }
+
+    /**
+     * Relay splicing values encoded by this writer into JSON events.
+     */
+    public CadfJsonRelay newRelay() {
+        return new CadfJsonRelay(this);
+    }
+
+    public byte[] toBytes(CadfAuditEvent event) {
+        JsonOutput out = acquire();
+        try {
+            write(event, out);
+            return out.toByteArray();
+        } finally {
+            release(out);
+        }
+    }
+
+    public void write(CadfAuditEvent event, OutputStream stream) throws IOException {
+        Assert.notNull(stream, "stream can not be null");
+        JsonOutput out = acquire();
+        try {
+            write(event, out);
+            out.writeTo(stream);
+        } finally {
+            release(out);
+        }
+    }
+
+    /**
+     * @throws java.nio.BufferOverflowException if the encoded event does not fit into the remaining buffer
+     */
+    public void write(CadfAuditEvent event, ByteBuffer buffer) {
+        Assert.notNull(buffer, "buffer can not be null");
+        JsonOutput out = acquire();
+        try {
+            write(event, out);
+            out.writeTo(buffer);
+        } finally {
+            release(out);
+        }
+    }
+
+    public void write(CadfAuditEvent event, JsonOutput out) {
+        Assert.notNull(event, "event can not be null");
+        out.beginObject();
+        if (CadfAuditEvent.EVENT_TYPE_URI.equals(event.getTypeURI())) {
+            out.rawValue(TYPE_URI_EVENT);
+        } else {
+            string(out, TYPE_URI, event.getTypeURI());
+        }
+        string(out, ID, event.getId());
+        taxonomy(out, EVENT_TYPE, event.getEventType());
+        timestamp(out, EVENT_TIME, event.eventTimeNanos());
+        taxonomy(out, ACTION, event.getAction());
+        taxonomy(out, OUTCOME, event.getOutcome());
+        resource(out, INITIATOR, event.getInitiator());
+        resource(out, TARGET, event.getTarget());
+        resource(out, OBSERVER, event.getObserver());
+        measurements(out, event.getMeasurements());
+        string(out, NAME, event.getName());
+        string(out, SEVERITY, event.getSeverity());
+        list(out, TAGS, event.getTags());
+        list(out, ATTACHMENTS, event.getAttachments());
+        list(out, SECURE_ATTACHMENTS, event.getSecureAttachments());
+        out.endObject();
+    }
+
+    // ================================= model ========================================
+
+    void writeResource(CadfResource resource, JsonOutput out) {
+        out.beginObject();
+        string(out, ID, resource.getId());
+        taxonomy(out, TYPE_URI, resource.getTypeURI());
+        string(out, NAME, resource.getName());
+        payload(out, CREDENTIAL, resource.getCredential());
+        list(out, ATTACHMENTS, resource.getAttachments());
+        out.endObject();
+    }
+
+    void writeAttachment(CadfAttachment<?> attachment, JsonOutput out) {
+        out.beginObject();
+        taxonomy(out, CONTENT_TYPE, attachment.getContentType());
+        CadfEncodedPayload encodedContent = CadfLazyAttachment.encodedContent(attachment);
+        if (encodedContent != null && encodedContent.getFormat() == CadfEncodedPayload.Format.JSON) {
+            out.name(CONTENT).rawValue(encodedContent.getBytes());
+        } else {
+            payload(out, CONTENT, attachment.getContent());
+        }
+        string(out, NAME, attachment.getName());
+        out.endObject();
+    }
+
+    void writeMeasurement(CadfMeasurement<?> measurement, JsonOutput out) {
+        out.beginObject();
+        if (measurement instanceof CadfLongMeasurement && payloadWriters.hasBuiltInMeasurements()) {
+            out.name(RESULT).value(((CadfLongMeasurement) measurement).getValue());
+        } else if (measurement instanceof CadfDoubleMeasurement && payloadWriters.hasBuiltInMeasurements()) {
+            out.name(RESULT).value(((CadfDoubleMeasurement) measurement).getValue());
+        } else {
+            payload(out, RESULT, measurement.getResult());
+        }
+        string(out, METRIC_ID, measurement.getMetricId());
+        payload(out, METRIC, measurement.getMetric());
+        string(out, CALCULATED_BY_ID, measurement.getCalculatedById());
+        payload(out, CALCULATED_BY, measurement.getCalculatedBy());
+        out.endObject();
+    }
+
+    void writeMetric(CadfMetric metric, JsonOutput out) {
+        out.beginObject();
+        string(out, METRIC_ID, metric.getMetricId());
+        string(out, UNIT, metric.getUnit());
+        string(out, NAME, metric.getName());
+        out.endObject();
+    }
+
+    void writeCredential(CadfCredential<?> credential, JsonOutput out) {
+        out.beginObject();
+        string(out, TYPE, credential.getType());
+        CadfEncodedPayload encodedToken = CadfLazyCredential.encodedToken(credential);
+        if (encodedToken != null && encodedToken.getFormat() == CadfEncodedPayload.Format.JSON) {
+            out.name(TOKEN).rawValue(encodedToken.getBytes());
+        } else {
+            payload(out, TOKEN, credential.getToken());
+        }
+        string(out, AUTHORITY, credential.getAuthority());
+        out.endObject();
+    }
+
+    void writeTag(CadfTag tag, JsonOutput out) {
+        out.beginObject();
+        string(out, NAME, tag.getName());
+        string(out, VALUE, tag.getValue());
+        out.endObject();
+    }
+
+    // ================================= members ========================================
+
+    private void string(JsonOutput out, byte[] name, String value) {
+        if (value != null) {
+            out.name(name).value(value);
+        } else if (nullFields) {
+            out.name(name).nullValue();
+        }
+    }
+
+    private void timestamp(JsonOutput out, byte[] name, long epochNanos) {
+        if (epochNanos != CadfAuditEvent.NO_EVENT_TIME) {
+            out.name(name).timestampValue(epochNanos);
+        } else if (nullFields) {
+            out.name(name).nullValue();
+        }
+    }
+
+    private void taxonomy(JsonOutput out, byte[] name, String value) {
+        byte[] encoded = value != null ? TAXONOMY_VALUES.get(value) : null;
+        if (encoded != null) {
+            out.name(name).rawValue(encoded);
+        } else {
+            string(out, name, value);
+        }
+    }
+
+    private void resource(JsonOutput out, byte[] name, CadfResource resource) {
+        if (resource != null) {
+            out.name(name);
+            writeResource(resource, out);
+        } else if (nullFields) {
+            out.name(name).nullValue();
+        }
+    }
+
+    private void payload(JsonOutput out, byte[] name, Object payload) {
+        if (payload != null) {
+            out.name(name).payload(payload);
+        } else if (nullFields) {
+            out.name(name).nullValue();
+        }
+    }
+
+    private void measurements(JsonOutput out, List<CadfMeasurement> measurements) {
+        if (!(measurements instanceof CadfMeasurementBatch) || !payloadWriters.hasBuiltInMeasurements()) {
+            list(out, MEASUREMENTS, measurements);
+            return;
+        }
+        CadfMeasurementBatch batch = (CadfMeasurementBatch) measurements;
+        out.name(MEASUREMENTS).beginArray();
+        for (int i = 0, size = batch.size(); i < size; i++) {
+            if (batch.isLong(i)) {
+                out.beginObject().name(RESULT).value(batch.getLong(i));
+            } else if (batch.isDouble(i)) {
+                out.beginObject().name(RESULT).value(batch.getDouble(i));
+            } else {
+                out.payload(batch.get(i));
+                continue;
+            }
+            string(out, METRIC_ID, batch.getMetricId(i));
+            if (nullFields) {
+                out.name(METRIC).nullValue();
+            }
+            string(out, CALCULATED_BY_ID, batch.getCalculatedById(i));
+            payload(out, CALCULATED_BY, batch.getCalculatedBy(i));
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    private void list(JsonOutput out, byte[] name, List<?> elements) {
+        if (elements != null) {
+            out.name(name).beginArray();
+            for (int i = 0, size = elements.size(); i < size; i++) {
+                out.payload(elements.get(i));
+            }
+            out.endArray();
+        } else if (nullFields) {
+            out.name(name).nullValue();
+        }
+    }
+
+    // ================================= buffers ========================================
+
+    private JsonOutput acquire() {
+        JsonOutput out = outputs.get();
+        out.reset();
+        return out;
+    }
+
+    private static void release(JsonOutput out) {
+        if (out.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            out.shrink(INITIAL_BUFFER_SIZE);
+        }
+    }
+
+    // ================================= constants ========================================
+
+    private static Map<String, byte[]> encodeTaxonomy() {
+        Map<String, byte[]> values = new HashMap<>();
+        for (ICadfAction action : CadfActions.values()) {
+            values.put(action.getRelativeUri(), JsonOutput.encodeValue(action.getRelativeUri()));
+        }
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            values.put(type.getRelativeUri(), JsonOutput.encodeValue(type.getRelativeUri()));
+            String fullUri = CadfResource.FULL_ROOT_URI + "/" + type.getRelativeUri();
+            values.put(fullUri, JsonOutput.encodeValue(fullUri));
+        }
+        for (ICadfOutcome outcome : CadfOutcomes.values()) {
+            values.put(outcome.getRelativeUri(), JsonOutput.encodeValue(outcome.getRelativeUri()));
+        }
+        for (CadfEventType eventType : CadfEventType.values()) {
+            values.put(eventType.getName(), JsonOutput.encodeValue(eventType.getName()));
+        }
+        return values;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = new byte[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private final Map<Class<?>, ICadfJsonPayloadWriter<?>> payloadWriters = new LinkedHashMap<>();
+        private boolean nullFields;
+
+        private Builder() {
+        }
+
+        /**
+         * Registers a writer for payloads of the given class and its subclasses, overrides the built-in writers.
+         */
+        public <T> Builder withPayloadWriter(Class<T> type, ICadfJsonPayloadWriter<? super T> writer) {
+            Assert.notNull(type, "type can not be null");
+            Assert.notNull(writer, "writer can not be null");
+            payloadWriters.put(type, writer);
+            return this;
+        }
+
+        /**
+         * Whether null members are written as {@code null} or omitted (default).
+         */
+        public Builder withNullFields(boolean nullFields) {
+            this.nullFields = nullFields;
+            return this;
+        }
+
+        public CadfJsonWriter build() {
+            return new CadfJsonWriter(this);
+        }
+    }
+}
@@ -0,0 +1,586 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.json;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull parser over a UTF-8 byte range. Values are read in document order, members and elements are iterated with
+ * {@link #nextMember()} / {@link #nextElement()}. Skipping values and resolving strings through a lookup table does
+ * not allocate. Instances are not thread-safe.
+ */
+public final class JsonInput {
+
+    static final int NOT_A_NUMBER = 0;
+    static final int INTEGRAL_NUMBER = 1;
+    static final int DECIMAL_NUMBER = 2;
+
+    // exactly representable powers of ten, dividing an exact mantissa by them rounds correctly
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+
+    // bounds of the last string token read by readStringToken, quotes excluded
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean tokenEscaped;
+
+    JsonInput() {
+    }
+
+    JsonInput reset(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+        return this;
+    }
+
+    // ================================= structure ========================================
+
+    public void beginObject() {
+        expect('{');
+    }
+
+    /**
+     * Advances to the next member name of the current object.
+     *
+     * @return false once the closing brace was consumed
+     */
+    public boolean nextMember() {
+        return next('}');
+    }
+
+    public void beginArray() {
+        expect('[');
+    }
+
+    /**
+     * Advances to the next element of the current array.
+     *
+     * @return false once the closing bracket was consumed
+     */
+    public boolean nextElement() {
+        return next(']');
+    }
+
+    /**
+     * Reads a member name and the following colon.
+     */
+    public String readName() {
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    <V> V readName(Utf8Table<V> names) {
+        readStringToken();
+        V value = tokenEscaped ? null : names.get(buffer, tokenStart, tokenEnd - tokenStart);
+        expect(':');
+        return value;
+    }
+
+    // ================================= values ========================================
+
+    /**
+     * Consumes a null literal if it is the next value.
+     */
+    public boolean readNull() {
+        skipWhitespace();
+        if (position + 4 <= limit && buffer[position] == 'n' && buffer[position + 1] == 'u'
+            && buffer[position + 2] == 'l' && buffer[position + 3] == 'l') {
+            position += 4;
+            return true;
+        }
+        return false;
+    }
+
+    public String readString() {
+        readStringToken();
+        return tokenString();
+    }
+
+    /**
+     * Reads a string and resolves it through the table, without creating a String when it is found.
+     */
+    <V> V readString(Utf8Table<V> table) {
+        readStringToken();
+        return tokenEscaped ? null : table.get(buffer, tokenStart, tokenEnd - tokenStart);
+    }
+
+    /**
+     * @return the last string read by {@link #readString(Utf8Table)}, decoded into a new String
+     */
+    String tokenString() {
+        if (!tokenEscaped) {
+            return new String(buffer, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8);
+        }
+        return unescape(tokenStart, tokenEnd);
+    }
+
+    public boolean readBoolean() {
+        skipWhitespace();
+        if (matches("true")) {
+            position += 4;
+            return true;
+        }
+        if (matches("false")) {
+            position += 5;
+            return false;
+        }
+        throw error("boolean expected");
+    }
+
+    public long readLong() {
+        skipWhitespace();
+        int start = position;
+        boolean negative = false;
+        if (position < limit && buffer[position] == '-') {
+            negative = true;
+            position++;
+        }
+        long value = 0;
+        int digitsStart = position;
+        while (position < limit) {
+            int digit = buffer[position] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw error("number out of long range");
+            }
+            value = value * 10 - digit;
+            position++;
+        }
+        if (position == digitsStart || (position < limit && isFractionOrExponent(buffer[position]))) {
+            position = start;
+            throw error("integer expected");
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw error("number out of long range");
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    public double readDouble() {
+        skipWhitespace();
+        int start = position;
+        skipNumber();
+        double value = parseSimpleDouble(start, position);
+        if (!Double.isNaN(value)) {
+            return value;
+        }
+        return Double.parseDouble(new String(buffer, start, position - start, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Reads any value as its natural Java type: {@code Map}, {@code List}, {@code String}, {@code Boolean},
+     * {@code Integer}/{@code Long}/{@code BigInteger} for integral numbers, {@code Double} otherwise, or null.
+     */
+    public Object readValue() {
+        skipWhitespace();
+        if (position >= limit) {
+            throw error("value expected");
+        }
+        switch (buffer[position]) {
+            case '{':
+                Map<String, Object> object = new LinkedHashMap<>();
+                beginObject();
+                while (nextMember()) {
+                    String name = readName();
+                    object.put(name, readValue());
+                }
+                return object;
+            case '[':
+                List<Object> array = new ArrayList<>();
+                beginArray();
+                while (nextElement()) {
+                    array.add(readValue());
+                }
+                return array;
+            case '"':
+                return readString();
+            case 't':
+            case 'f':
+                return readBoolean();
+            case 'n':
+                if (readNull()) {
+                    return null;
+                }
+                throw error("null expected");
+            default:
+                return readNumber();
+        }
+    }
+
+    /**
+     * Skips the next value of any type, including nested objects and arrays, without allocating.
+     */
+    public void skipValue() {
+        skipWhitespace();
+        if (position >= limit) {
+            throw error("value expected");
+        }
+        byte c = buffer[position];
+        if (c == '"') {
+            readStringToken();
+        } else if (c == '{' || c == '[') {
+            skipNested();
+        } else if (c == 't') {
+            expectLiteral("true");
+        } else if (c == 'f') {
+            expectLiteral("false");
+        } else if (c == 'n') {
+            expectLiteral("null");
+        } else {
+            skipNumber();
+        }
+    }
+
+    /**
+     * Classifies the next value without consuming it: {@link #INTEGRAL_NUMBER} for integers {@link #readLong()} reads
+     * without overflow, i.e. up to 18 digits, {@link #DECIMAL_NUMBER} for any other number, {@link #NOT_A_NUMBER}
+     * otherwise.
+     */
+    int peekNumber() {
+        skipWhitespace();
+        int current = position < limit && buffer[position] == '-' ? position + 1 : position;
+        int digitsStart = current;
+        while (current < limit && buffer[current] >= '0' && buffer[current] <= '9') {
+            current++;
+        }
+        if (current == digitsStart) {
+            return NOT_A_NUMBER;
+        }
+        if ((current < limit && isFractionOrExponent(buffer[current])) || current - digitsStart > 18) {
+            return DECIMAL_NUMBER;
+        }
+        return INTEGRAL_NUMBER;
+    }
+
+    /**
+     * @return offset of the next value, after insignificant whitespace
+     */
+    int valueStart() {
+        skipWhitespace();
+        return position;
+    }
+
+    int position() {
+        return position;
+    }
+
+    byte[] copy(int start, int end) {
+        return Arrays.copyOfRange(buffer, start, end);
+    }
+
+    /**
+     * Reads a value that starts at an earlier offset, then restores the current position.
+     */
+    <T> T reread(int offset, ICadfJsonPayloadReader<T> reader) {
+        int saved = position;
+        position = offset;
+        try {
+            return reader.read(this);
+        } finally {
+            position = saved;
+        }
+    }
+
+    /**
+     * Ensures nothing but whitespace is left in the input.
+     */
+    void expectEnd() {
+        skipWhitespace();
+        if (position < limit) {
+            throw error("end of input expected");
+        }
+    }
+
+    // ================================= internals ========================================
+
+    private boolean next(char close) {
+        skipWhitespace();
+        if (position >= limit) {
+            throw error("'" + close + "' expected");
+        }
+        byte c = buffer[position];
+        if (c == close) {
+            position++;
+            return false;
+        }
+        if (c == ',') {
+            position++;
+        }
+        return true;
+    }
+
+    private void readStringToken() {
+        expect('"');
+        int start = position;
+        boolean escaped = false;
+        while (true) {
+            if (position >= limit) {
+                throw error("unterminated string");
+            }
+            byte c = buffer[position];
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\') {
+                escaped = true;
+                position++;
+            }
+            position++;
+        }
+        tokenStart = start;
+        tokenEnd = position;
+        tokenEscaped = escaped;
+        position++;
+    }
+
+    private String unescape(int start, int end) {
+        byte[] decoded = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte c = buffer[i];
+            if (c != '\\') {
+                decoded[length++] = c;
+                continue;
+            }
+            byte escaped = buffer[++i];
+            switch (escaped) {
+                case 'n':
+                    decoded[length++] = '\n';
+                    break;
+                case 'r':
+                    decoded[length++] = '\r';
+                    break;
+                case 't':
+                    decoded[length++] = '\t';
+                    break;
+                case 'b':
+                    decoded[length++] = '\b';
+                    break;
+                case 'f':
+                    decoded[length++] = '\f';
+                    break;
+                case 'u':
+                    if (i + 4 >= end) {
+                        throw error("malformed unicode escape");
+                    }
+                    int codeUnit = Integer.parseInt(new String(buffer, i + 1, 4, StandardCharsets.US_ASCII), 16);
+                    i += 4;
+                    if (Character.isHighSurrogate((char) codeUnit) && i + 6 < end && buffer[i + 1] == '\\'
+                        && buffer[i + 2] == 'u') {
+                        int low = Integer.parseInt(new String(buffer, i + 3, 4, StandardCharsets.US_ASCII), 16);
+                        if (Character.isLowSurrogate((char) low)) {
+                            i += 6;
+                            length = appendUtf8(decoded, length, Character.toCodePoint((char) codeUnit, (char) low));
+                            break;
+                        }
+                    }
+                    length = appendUtf8(decoded, length, codeUnit);
+                    break;
+                default:
+                    // \" \\ \/ stand for themselves
+                    decoded[length++] = escaped;
+            }
+        }
+        return new String(decoded, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int appendUtf8(byte[] target, int length, int codePoint) {
+        // an escape is at least 6 bytes long, so the encoded form always fits into the space it occupied
+        if (codePoint < 0x80) {
+            target[length++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            target[length++] = (byte) (0xC0 | (codePoint >> 6));
+            target[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            target[length++] = (byte) (0xE0 | (codePoint >> 12));
+            target[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            target[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            target[length++] = (byte) (0xF0 | (codePoint >> 18));
+            target[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            target[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            target[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return length;
+    }
+
+    private Number readNumber() {
+        int start = position;
+        boolean integral = true;
+        skipNumber();
+        for (int i = start; i < position; i++) {
+            if (isFractionOrExponent(buffer[i])) {
+                integral = false;
+                break;
+            }
+        }
+        String text = new String(buffer, start, position - start, StandardCharsets.US_ASCII);
+        if (!integral) {
+            return Double.parseDouble(text);
+        }
+        // same widening as generic JSON mappers: the narrowest of Integer, Long, BigInteger
+        int digits = position - start - (buffer[start] == '-' ? 1 : 0);
+        if (digits <= 9) {
+            return Integer.parseInt(text);
+        }
+        if (digits <= 18) {
+            return narrow(Long.parseLong(text));
+        }
+        BigInteger value = new BigInteger(text);
+        return value.bitLength() < 64 ? narrow(value.longValue()) : value;
+    }
+
+    /**
+     * Parses numbers without exponent whose digits fit into an exact mantissa, e.g. {@code -12.375}.
+     *
+     * @return the value, or NaN if the number needs the general algorithm
+     */
+    private double parseSimpleDouble(int start, int end) {
+        int current = start;
+        boolean negative = buffer[current] == '-';
+        if (negative) {
+            current++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; current < end; current++) {
+            byte c = buffer[current];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (c < '0' || c > '9' || mantissa >= MAX_EXACT_MANTISSA / 10) {
+                return Double.NaN;
+            }
+            mantissa = mantissa * 10 + (c - '0');
+            digits++;
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+        }
+        if (digits == 0 || fractionDigits == 0 || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.NaN;
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private static Number narrow(long value) {
+        return value == (int) value ? Integer.valueOf((int) value) : Long.valueOf(value);
+    }
+
+    private static boolean isFractionOrExponent(byte c) {
+        return c == '.' || c == 'e' || c == 'E';
+    }
+
+    private void skipNumber() {
+        int start = position;
+        while (position < limit) {
+            byte c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || isFractionOrExponent(c)) {
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (position == start) {
+            throw error("value expected");
+        }
+    }
+
+    private void skipNested() {
+        int depth = 0;
+        while (position < limit) {
+            byte c = buffer[position];
+            if (c == '"') {
+                readStringToken();
+                continue;
+            }
+            position++;
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw error("unterminated object or array");
+    }
+
+    private void expect(char expected) {
+        skipWhitespace();
+        if (position >= limit || buffer[position] != expected) {
+            throw error("'" + expected + "' expected");
+        }
+        position++;
+    }
+
+    private void expectLiteral(String literal) {
+        if (!matches(literal)) {
+            throw error(literal + " expected");
+        }
+        position += literal.length();
+    }
+
+    private boolean matches(String literal) {
+        if (position + literal.length() > limit) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer[position + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (position < limit) {
+            byte c = buffer[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Malformed json at offset " + position + ": " + message);
+    }
+}
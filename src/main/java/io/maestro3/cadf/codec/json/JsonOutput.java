@@ -0,0 +1,396 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.json;
+
+import io.maestro3.cadf.util.CadfTimestamps;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable UTF-8 byte sink with just enough JSON structure to write events: separators between members and array
+ * elements are inserted automatically. Instances are not thread-safe and are meant to be reused via {@link #reset()}.
+ */
+public final class JsonOutput {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] LONG_MIN = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final CadfJsonPayloadWriters payloadWriters;
+    private byte[] buffer;
+    private int size;
+    private boolean pendingSeparator;
+
+    JsonOutput(CadfJsonPayloadWriters payloadWriters, int initialCapacity) {
+        this.payloadWriters = payloadWriters;
+        this.buffer = new byte[initialCapacity];
+    }
+
+    // ================================= structure ========================================
+
+    public JsonOutput beginObject() {
+        separate();
+        ensure(1);
+        buffer[size++] = '{';
+        pendingSeparator = false;
+        return this;
+    }
+
+    public JsonOutput endObject() {
+        ensure(1);
+        buffer[size++] = '}';
+        pendingSeparator = true;
+        return this;
+    }
+
+    public JsonOutput beginArray() {
+        separate();
+        ensure(1);
+        buffer[size++] = '[';
+        pendingSeparator = false;
+        return this;
+    }
+
+    public JsonOutput endArray() {
+        ensure(1);
+        buffer[size++] = ']';
+        pendingSeparator = true;
+        return this;
+    }
+
+    public JsonOutput name(String name) {
+        separate();
+        writeQuoted(name);
+        ensure(1);
+        buffer[size++] = ':';
+        pendingSeparator = false;
+        return this;
+    }
+
+    /**
+     * Writes a member name encoded with {@link #encodeName(String)}.
+     */
+    public JsonOutput name(byte[] encodedName) {
+        separate();
+        writeRaw(encodedName);
+        pendingSeparator = false;
+        return this;
+    }
+
+    // ================================= values ========================================
+
+    public JsonOutput value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        separate();
+        writeQuoted(value);
+        pendingSeparator = true;
+        return this;
+    }
+
+    public JsonOutput value(long value) {
+        separate();
+        writeLong(value);
+        pendingSeparator = true;
+        return this;
+    }
+
+    /**
+     * NaN and the infinities are no JSON numbers, they are written as the strings {@code "NaN"}, {@code "Infinity"}
+     * and {@code "-Infinity"}, as Jackson does by default.
+     */
+    public JsonOutput value(double value) {
+        separate();
+        if (!Double.isFinite(value)) {
+            writeQuoted(Double.toString(value));
+        } else if (value == (long) value && Math.abs(value) < 1.0E7 && (value != 0 || 1 / value > 0)) {
+            // same digits Double.toString would produce, without the intermediate String
+            writeLong((long) value);
+            ensure(2);
+            buffer[size++] = '.';
+            buffer[size++] = '0';
+        } else {
+            writeAscii(Double.toString(value));
+        }
+        pendingSeparator = true;
+        return this;
+    }
+
+    /**
+     * Non-finite values are written as strings, see {@link #value(double)}.
+     */
+    public JsonOutput value(float value) {
+        separate();
+        if (Float.isFinite(value)) {
+            writeAscii(Float.toString(value));
+        } else {
+            writeQuoted(Float.toString(value));
+        }
+        pendingSeparator = true;
+        return this;
+    }
+
+    /**
+     * Writes an arbitrary precision number from its plain string representation, e.g. {@code BigDecimal.toString()}.
+     */
+    public JsonOutput numberValue(String number) {
+        separate();
+        writeAscii(number);
+        pendingSeparator = true;
+        return this;
+    }
+
+    /**
+     * Writes epoch nanos as a quoted CADF timestamp, see {@link CadfTimestamps}.
+     */
+    public JsonOutput timestampValue(long epochNanos) {
+        separate();
+        ensure(CadfTimestamps.MAX_LENGTH + 2);
+        buffer[size++] = '"';
+        size = CadfTimestamps.format(epochNanos, buffer, size);
+        buffer[size++] = '"';
+        pendingSeparator = true;
+        return this;
+    }
+
+    public JsonOutput value(boolean value) {
+        separate();
+        writeRaw(value ? TRUE : FALSE);
+        pendingSeparator = true;
+        return this;
+    }
+
+    public JsonOutput nullValue() {
+        separate();
+        writeRaw(NULL);
+        pendingSeparator = true;
+        return this;
+    }
+
+    /**
+     * Writes a value which is already valid JSON, e.g. a pre-encoded taxonomy constant from {@link #encodeValue}.
+     */
+    public JsonOutput rawValue(byte[] json) {
+        return rawValue(json, 0, json.length);
+    }
+
+    public JsonOutput rawValue(byte[] json, int offset, int length) {
+        separate();
+        ensure(length);
+        System.arraycopy(json, offset, buffer, size, length);
+        size += length;
+        pendingSeparator = true;
+        return this;
+    }
+
+    /**
+     * Writes a generic payload (attachment content, measurement result, credential token) through the registered
+     * {@link ICadfJsonPayloadWriter}s.
+     */
+    public JsonOutput payload(Object payload) {
+        if (payload == null) {
+            return nullValue();
+        }
+        payloadWriters.write(payload, this);
+        return this;
+    }
+
+    // ================================= buffer ========================================
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+        pendingSeparator = false;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    public void writeTo(ByteBuffer out) {
+        out.put(buffer, 0, size);
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    void shrink(int capacity) {
+        if (buffer.length > capacity) {
+            buffer = new byte[capacity];
+        }
+        reset();
+    }
+
+    // ================================= pre-encoding ========================================
+
+    /**
+     * @return {@code "name":} as UTF-8 bytes, to be passed to {@link #name(byte[])}
+     */
+    public static byte[] encodeName(String name) {
+        JsonOutput out = new JsonOutput(null, name.length() + 8);
+        out.writeQuoted(name);
+        out.ensure(1);
+        out.buffer[out.size++] = ':';
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the quoted and escaped string as UTF-8 bytes, to be passed to {@link #rawValue(byte[])}
+     */
+    public static byte[] encodeValue(String value) {
+        JsonOutput out = new JsonOutput(null, value.length() + 8);
+        out.writeQuoted(value);
+        return out.toByteArray();
+    }
+
+    // ================================= internals ========================================
+
+    private void separate() {
+        if (pendingSeparator) {
+            ensure(1);
+            buffer[size++] = ',';
+        }
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + extra));
+        }
+    }
+
+    private void writeRaw(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeAscii(String ascii) {
+        int length = ascii.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(LONG_MIN);
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+            digits++;
+        }
+        int position = size + digits;
+        size = position;
+        do {
+            buffer[--position] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+    }
+
+    private void writeQuoted(String value) {
+        int length = value.length();
+        // worst case is 6 bytes per char for escaped control chars
+        ensure(length * 6 + 2);
+        byte[] buf = buffer;
+        int position = size;
+        buf[position++] = '"';
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    buf[position++] = (byte) c;
+                } else {
+                    position = escape(buf, position, c);
+                }
+            } else if (c < 0x800) {
+                buf[position++] = (byte) (0xC0 | (c >> 6));
+                buf[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[position++] = '?';
+            } else {
+                buf[position++] = (byte) (0xE0 | (c >> 12));
+                buf[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        buf[position++] = '"';
+        size = position;
+    }
+
+    private static int escape(byte[] buf, int position, char c) {
+        buf[position++] = '\\';
+        switch (c) {
+            case '"':
+                buf[position++] = '"';
+                break;
+            case '\\':
+                buf[position++] = '\\';
+                break;
+            case '\n':
+                buf[position++] = 'n';
+                break;
+            case '\r':
+                buf[position++] = 'r';
+                break;
+            case '\t':
+                buf[position++] = 't';
+                break;
+            case '\b':
+                buf[position++] = 'b';
+                break;
+            case '\f':
+                buf[position++] = 'f';
+                break;
+            default:
+                buf[position++] = 'u';
+                buf[position++] = '0';
+                buf[position++] = '0';
+                buf[position++] = HEX[c >> 4];
+                buf[position++] = HEX[c & 0xF];
+        }
+        return position;
+    }
+}
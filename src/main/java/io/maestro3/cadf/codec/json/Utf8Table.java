@@ -0,0 +1,103 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable open addressing table keyed by UTF-8 bytes, used to resolve member names and taxonomy values straight
+ * from the input buffer without materializing a String.
+ */
+final class Utf8Table<V> {
+
+    private final byte[][] keys;
+    private final Object[] values;
+    private final int mask;
+
+    private Utf8Table(byte[][] keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+        this.mask = keys.length - 1;
+    }
+
+    static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(byte[] buffer, int offset, int length) {
+        int slot = hash(buffer, offset, length) & mask;
+        while (true) {
+            byte[] key = keys[slot];
+            if (key == null) {
+                return null;
+            }
+            if (key.length == length && Arrays.equals(key, 0, length, buffer, offset, offset + length)) {
+                return (V) values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(byte[] buffer, int offset, int length) {
+        int hash = length;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    static final class Builder<V> {
+
+        private byte[][] keys = new byte[0][];
+        private Object[] values = new Object[0];
+
+        /**
+         * Adds the key unless it is already present, the first registration wins.
+         */
+        Builder<V> put(String key, V value) {
+            byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+            for (byte[] existing : keys) {
+                if (Arrays.equals(existing, encoded)) {
+                    return this;
+                }
+            }
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            values = Arrays.copyOf(values, values.length + 1);
+            keys[keys.length - 1] = encoded;
+            values[values.length - 1] = value;
+            return this;
+        }
+
+        Utf8Table<V> build() {
+            // keep the load factor at or below 1/4 to make probe chains short
+            int capacity = Integer.highestOneBit(Math.max(keys.length, 1) * 4 - 1) << 1;
+            byte[][] tableKeys = new byte[capacity][];
+            Object[] tableValues = new Object[capacity];
+            for (int i = 0; i < keys.length; i++) {
+                int slot = hash(keys[i], 0, keys[i].length) & (capacity - 1);
+                while (tableKeys[slot] != null) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                tableKeys[slot] = keys[i];
+                tableValues[slot] = values[i];
+            }
+            return new Utf8Table<>(tableKeys, tableValues);
+        }
+    }
+}
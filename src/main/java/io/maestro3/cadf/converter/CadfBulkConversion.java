@@ -0,0 +1,187 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.converter;
+
+import io.maestro3.cadf.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Engine of the {@link ICadfConverter} bulk operations.
+ * <p/>
+ * The source is always consumed on the calling thread and sliced into batches. With a pool, at most twice its
+ * parallelism batches are converted or waiting for delivery at a time, which bounds memory for unbounded sources.
+ * Batches are delivered to the consumer on the calling thread as well, so consumers need not be thread-safe.
+ */
+final class CadfBulkConversion {
+
+    private CadfBulkConversion() {
+        throw new UnsupportedOperationException("Instantiation is forbidden.");
+    }
+
+    static <S, R> void run(Spliterator<? extends S> source, Function<? super S, ? extends R> function,
+                           CadfConversionOptions options, Consumer<? super CadfConversionBatch<S, R>> consumer) {
+        Assert.notNull(source, "source can not be null");
+        Assert.notNull(options, "options can not be null");
+        Assert.notNull(consumer, "consumer can not be null");
+        if (options.getPool() == null) {
+            runSequential(source, function, options.getBatchSize(), consumer);
+        } else {
+            runParallel(source, function, options, consumer);
+        }
+    }
+
+    private static <S, R> void runSequential(Spliterator<? extends S> source, Function<? super S, ? extends R> function,
+                                             int batchSize, Consumer<? super CadfConversionBatch<S, R>> consumer) {
+        long index = 0;
+        long position = 0;
+        List<S> items;
+        while (!(items = nextSlice(source, batchSize)).isEmpty()) {
+            consumer.accept(convert(index++, position, items, function));
+            position += items.size();
+        }
+    }
+
+    private static <S, R> void runParallel(Spliterator<? extends S> source, Function<? super S, ? extends R> function,
+                                           CadfConversionOptions options,
+                                           Consumer<? super CadfConversionBatch<S, R>> consumer) {
+        ForkJoinPool pool = options.getPool();
+        int maxInFlight = Math.max(2, pool.getParallelism() * 2);
+        BlockingQueue<Slice<S, R>> completed = new LinkedBlockingQueue<>();
+        Map<Long, CadfConversionBatch<S, R>> reorderBuffer = new HashMap<>();
+        long submitted = 0;
+        long delivered = 0;
+        long position = 0;
+        boolean exhausted = false;
+        while (true) {
+            while (!exhausted && submitted - delivered < maxInFlight) {
+                List<S> items = nextSlice(source, options.getBatchSize());
+                if (items.isEmpty()) {
+                    exhausted = true;
+                } else {
+                    pool.execute(new Slice<>(submitted++, position, items, function, completed));
+                    position += items.size();
+                }
+            }
+            if (submitted == delivered) {
+                return;
+            }
+            Slice<S, R> slice = take(completed);
+            if (slice.failure != null) {
+                throw rethrow(slice.failure);
+            }
+            if (!options.isOrdered()) {
+                consumer.accept(slice.batch);
+                delivered++;
+                continue;
+            }
+            reorderBuffer.put(slice.index, slice.batch);
+            CadfConversionBatch<S, R> next;
+            while ((next = reorderBuffer.remove(delivered)) != null) {
+                consumer.accept(next);
+                delivered++;
+            }
+        }
+    }
+
+    private static <S> List<S> nextSlice(Spliterator<? extends S> source, int batchSize) {
+        List<S> items = new ArrayList<>(batchSize);
+        while (items.size() < batchSize && source.tryAdvance(items::add)) {
+            // keep reading
+        }
+        return items;
+    }
+
+    private static <S, R> CadfConversionBatch<S, R> convert(long index, long firstPosition, List<S> items,
+                                                           Function<? super S, ? extends R> function) {
+        List<R> results = new ArrayList<>(items.size());
+        List<CadfConversionError<S>> errors = Collections.emptyList();
+        long position = firstPosition;
+        for (S item : items) {
+            try {
+                results.add(function.apply(item));
+            } catch (RuntimeException e) {
+                if (errors.isEmpty()) {
+                    errors = new ArrayList<>();
+                }
+                errors.add(new CadfConversionError<>(position, item, e));
+            }
+            position++;
+        }
+        return new CadfConversionBatch<>(index, firstPosition, items.size(), results, errors);
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for converted batches", e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable failure) {
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            return (RuntimeException) failure;
+        }
+        return new IllegalStateException(failure);
+    }
+
+    private static final class Slice<S, R> implements Runnable {
+
+        private final long index;
+        private final long firstPosition;
+        private final List<S> items;
+        private final Function<? super S, ? extends R> function;
+        private final BlockingQueue<Slice<S, R>> completed;
+        private CadfConversionBatch<S, R> batch;
+        private Throwable failure;
+
+        private Slice(long index, long firstPosition, List<S> items, Function<? super S, ? extends R> function,
+                      BlockingQueue<Slice<S, R>> completed) {
+            this.index = index;
+            this.firstPosition = firstPosition;
+            this.items = items;
+            this.function = function;
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            try {
+                batch = convert(index, firstPosition, items, function);
+            } catch (Throwable e) {
+                failure = e;
+            }
+            // the queue hand-off publishes batch and failure to the delivering thread
+            completed.add(this);
+        }
+    }
+}
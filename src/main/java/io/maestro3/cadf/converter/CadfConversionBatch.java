@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.converter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of converting one slice of a bulk source: the converted items in source order and the items which failed.
+ *
+ * @param <S> source type
+ * @param <R> result type
+ */
+public final class CadfConversionBatch<S, R> {
+
+    private final long index;
+    private final long firstPosition;
+    private final int size;
+    private final List<R> results;
+    private final List<CadfConversionError<S>> errors;
+
+    CadfConversionBatch(long index, long firstPosition, int size, List<R> results, List<CadfConversionError<S>> errors) {
+        this.index = index;
+        this.firstPosition = firstPosition;
+        this.size = size;
+        this.results = Collections.unmodifiableList(results);
+        this.errors = errors.isEmpty()
+            ? Collections.<CadfConversionError<S>>emptyList()
+            : Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return zero based number of the batch in the source
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return position of the first source item of the batch
+     */
+    public long getFirstPosition() {
+        return firstPosition;
+    }
+
+    /**
+     * @return number of source items in the batch, converted or not
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return successfully converted items, in source order
+     */
+    public List<R> getResults() {
+        return results;
+    }
+
+    public List<CadfConversionError<S>> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "CadfConversionBatch{" +
+            "index=" + index +
+            ", firstPosition=" + firstPosition +
+            ", size=" + size +
+            ", errors=" + errors.size() +
+            '}';
+    }
+}
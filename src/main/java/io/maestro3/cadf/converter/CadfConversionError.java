@@ -0,0 +1,58 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.converter;
+
+/**
+ * Source item which failed to convert, collected into its {@link CadfConversionBatch} instead of being thrown.
+ *
+ * @param <S> source type
+ */
+public final class CadfConversionError<S> {
+
+    private final long position;
+    private final S source;
+    private final RuntimeException cause;
+
+    CadfConversionError(long position, S source, RuntimeException cause) {
+        this.position = position;
+        this.source = source;
+        this.cause = cause;
+    }
+
+    /**
+     * @return zero based position of the item in the whole source
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public S getSource() {
+        return source;
+    }
+
+    public RuntimeException getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return "CadfConversionError{" +
+            "position=" + position +
+            ", cause=" + cause +
+            '}';
+    }
+}
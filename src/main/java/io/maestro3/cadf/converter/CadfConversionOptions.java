@@ -0,0 +1,111 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.converter;
+
+import io.maestro3.cadf.util.Assert;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * How {@link ICadfConverter} bulk operations slice and schedule the source. By default items are converted in batches
+ * of {@value #DEFAULT_BATCH_SIZE} on the calling thread.
+ */
+public final class CadfConversionOptions {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final CadfConversionOptions SEQUENTIAL = builder().build();
+
+    private final int batchSize;
+    private final ForkJoinPool pool;
+    private final boolean ordered;
+
+    private CadfConversionOptions(Builder builder) {
+        this.batchSize = builder.batchSize;
+        this.pool = builder.pool;
+        this.ordered = builder.ordered;
+    }
+
+    public static CadfConversionOptions sequential() {
+        return SEQUENTIAL;
+    }
+
+    /**
+     * Batches converted in parallel on the common pool, delivered in source order.
+     */
+    public static CadfConversionOptions parallel() {
+        return builder().withPool(ForkJoinPool.commonPool()).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return pool batches are converted on, or null to convert on the calling thread
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private ForkJoinPool pool;
+        private boolean ordered = true;
+
+        private Builder() {
+        }
+
+        public Builder withBatchSize(int batchSize) {
+            Assert.isTrue(batchSize > 0, "batchSize must be positive");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Converts batches in parallel on the pool, null converts on the calling thread. Batches are always delivered
+         * on the calling thread, which must not be a worker of the same pool.
+         */
+        public Builder withPool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Whether parallel batches are delivered in source order (default) or as soon as they are converted.
+         */
+        public Builder withOrdered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        public CadfConversionOptions build() {
+            return new CadfConversionOptions(this);
+        }
+    }
+}
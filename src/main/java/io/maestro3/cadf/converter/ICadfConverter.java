@@ -17,10 +17,61 @@
 package io.maestro3.cadf.converter;
 
 import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.util.Assert;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface ICadfConverter<T> {
 
     CadfAuditEvent convert(T eventData);
 
     T unconvert(CadfAuditEvent eventData);
-}
\ No newline at end of file
+
+    // ================================= bulk ========================================
+
+    /**
+     * Converts the source in batches, see {@link CadfConversionOptions}. Items failing with a runtime exception are
+     * reported in {@link CadfConversionBatch#getErrors()} of their batch instead of interrupting the conversion.
+     *
+     * @param consumer receives every batch on the calling thread
+     */
+    default void convertAll(Iterable<? extends T> eventData, CadfConversionOptions options,
+                            Consumer<? super CadfConversionBatch<T, CadfAuditEvent>> consumer) {
+        Assert.notNull(eventData, "eventData can not be null");
+        convertAll(eventData.spliterator(), options, consumer);
+    }
+
+    default void convertAll(Stream<? extends T> eventData, CadfConversionOptions options,
+                            Consumer<? super CadfConversionBatch<T, CadfAuditEvent>> consumer) {
+        Assert.notNull(eventData, "eventData can not be null");
+        convertAll(eventData.spliterator(), options, consumer);
+    }
+
+    default void convertAll(Spliterator<? extends T> eventData, CadfConversionOptions options,
+                            Consumer<? super CadfConversionBatch<T, CadfAuditEvent>> consumer) {
+        CadfBulkConversion.run(eventData, this::convert, options, consumer);
+    }
+
+    /**
+     * Bulk counterpart of {@link #unconvert(CadfAuditEvent)}, see {@link #convertAll(Iterable, CadfConversionOptions,
+     * Consumer)}.
+     */
+    default void unconvertAll(Iterable<? extends CadfAuditEvent> eventData, CadfConversionOptions options,
+                              Consumer<? super CadfConversionBatch<CadfAuditEvent, T>> consumer) {
+        Assert.notNull(eventData, "eventData can not be null");
+        unconvertAll(eventData.spliterator(), options, consumer);
+    }
+
+    default void unconvertAll(Stream<? extends CadfAuditEvent> eventData, CadfConversionOptions options,
+                              Consumer<? super CadfConversionBatch<CadfAuditEvent, T>> consumer) {
+        Assert.notNull(eventData, "eventData can not be null");
+        unconvertAll(eventData.spliterator(), options, consumer);
+    }
+
+    default void unconvertAll(Spliterator<? extends CadfAuditEvent> eventData, CadfConversionOptions options,
+                              Consumer<? super CadfConversionBatch<CadfAuditEvent, T>> consumer) {
+        CadfBulkConversion.run(eventData, this::unconvert, options, consumer);
+    }
+}
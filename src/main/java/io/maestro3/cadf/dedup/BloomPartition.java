@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.dedup;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Off-heap blocked Bloom filter: every id sets its bits in a single 512 bit block, so a lookup touches one cache
+ * line. Bits are set with atomic ORs, concurrent inserts of the same id may both report it as new.
+ */
+final class BloomPartition {
+
+    static final int BLOCK_BITS = 512;
+    private static final int BLOCK_BYTES = BLOCK_BITS / 8;
+
+    private static final byte[] ZEROS = new byte[4096];
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer bits;
+    private final long blocks;
+    private final int hashes;
+
+    BloomPartition(long blocks, int hashes) {
+        // atomic access needs aligned longs, plain reads the same byte order
+        this.bits = ByteBuffer.allocateDirect(Math.toIntExact(blocks * BLOCK_BYTES + Long.BYTES))
+            .alignedSlice(Long.BYTES).order(ByteOrder.nativeOrder());
+        this.blocks = blocks;
+        this.hashes = hashes;
+    }
+
+    /**
+     * @return true if all bits of the hash were set before
+     */
+    boolean put(long hash) {
+        if (mightContain(hash)) {
+            return true;
+        }
+        int block = block(hash);
+        // bits are ORed once per word, and only into words which miss some of them
+        long seed = hash & 0xFFFFFFFFL;
+        boolean present = true;
+        for (int word = 0; word < BLOCK_BITS / 64; word++) {
+            long mask = mask(seed, word);
+            if (mask != 0) {
+                int offset = block + (word << 3);
+                long previous = bits.getLong(offset);
+                if ((previous & mask) != mask) {
+                    previous = (long) LONGS.getAndBitwiseOr(bits, offset, mask);
+                }
+                present &= (previous & mask) == mask;
+            }
+        }
+        return present;
+    }
+
+    boolean mightContain(long hash) {
+        int block = block(hash);
+        long probe = hash & 0xFFFFFFFFL;
+        for (int i = 0; i < hashes; i++) {
+            probe = next(probe);
+            int bit = bit(probe);
+            long word = bits.getLong(block + ((bit >>> 6) << 3));
+            if ((word & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Not atomic, stale readers may still see set bits.
+     */
+    void clear() {
+        for (int offset = 0, capacity = bits.capacity(); offset < capacity; offset += ZEROS.length) {
+            bits.put(offset, ZEROS, 0, Math.min(ZEROS.length, capacity - offset));
+        }
+    }
+
+    /**
+     * False positive rate of a full blocked filter: ids per block follow a Poisson distribution, a lookup fails like
+     * in a plain Bloom filter of the block size at the load of its block.
+     */
+    static double falsePositiveRate(double bitsPerId, int hashes) {
+        double idsPerBlock = BLOCK_BITS / bitsPerId;
+        double probability = Math.exp(-idsPerBlock);
+        double rate = 0;
+        int limit = (int) (idsPerBlock + 12 * Math.sqrt(idsPerBlock) + 20);
+        for (int ids = 0; ids <= limit; ids++) {
+            if (ids > 0) {
+                probability *= idsPerBlock / ids;
+            }
+            rate += probability * Math.pow(1 - Math.pow(1 - 1.0 / BLOCK_BITS, (double) ids * hashes), hashes);
+        }
+        return rate;
+    }
+
+    long sizeInBytes() {
+        return bits.capacity();
+    }
+
+    /**
+     * Bits of the probe sequence which fall into the word, replaying the few probes is cheaper than allocating masks
+     * of all words on every insert.
+     */
+    private long mask(long seed, int word) {
+        long mask = 0;
+        long probe = seed;
+        for (int i = 0; i < hashes; i++) {
+            probe = next(probe);
+            int bit = bit(probe);
+            if (bit >>> 6 == word) {
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Bits within the block come from an LCG seeded with the low half of the hash, double hashing would leave too
+     * few distinct bit patterns for 512 bits.
+     */
+    private static long next(long probe) {
+        return probe * 0x5851F42D4C957F2DL + 0x14057B7EF767814FL;
+    }
+
+    private static int bit(long probe) {
+        return (int) (probe >>> 55);
+    }
+
+    /**
+     * @return byte offset of the block, chosen by the high half of the hash while the low half picks the bits
+     */
+    private int block(long hash) {
+        return (int) (((hash >>> 32) * blocks) >>> 32) * BLOCK_BYTES;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.dedup;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.publisher.ICadfEventSink;
+import io.maestro3.cadf.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Suppresses redelivered events by id with a bounded amount of off-heap memory instead of a set of all ids.
+ * <p/>
+ * Ids are remembered in a ring of Bloom filter partitions: new ids go to the current partition, lookups check all of
+ * them, and every {@code window / (partitions - 1)} the oldest partition is cleared and becomes the current one. So an
+ * id is remembered for at least the window and at most {@code window * partitions / (partitions - 1)}. The rotation is
+ * done by the caller which notices it is due while the others keep using the previous partitions, nobody waits for
+ * it.
+ * <p/>
+ * Being probabilistic, a new id is reported as a duplicate with about the configured false positive rate as long as
+ * no more than the expected number of ids arrives per window; it never misses a duplicate within the window, except
+ * for the same id checked by two threads at once.
+ *
+ * <pre>{@code
+ * CadfEventDeduplicator deduplicator = CadfEventDeduplicator.builder()
+ *     .withWindow(Duration.ofMinutes(10))
+ *     .withExpectedEvents(5_000_000)
+ *     .withFalsePositiveRate(0.0001)
+ *     .build();
+ * publisher = CadfEventPublisher.builder().withSink(deduplicator.filtering(store)).build();
+ * }</pre>
+ */
+public final class CadfEventDeduplicator {
+
+    public static final int DEFAULT_PARTITIONS = 4;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.001;
+
+    private static final int MAX_HASHES = 16;
+
+    private final long rotationNanos;
+    private final ReentrantLock rotationLock = new ReentrantLock();
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    // current partition first, oldest last
+    private volatile BloomPartition[] partitions;
+    private volatile long nextRotation;
+    // cleared partition which becomes current on rotation, guarded by rotationLock
+    private BloomPartition spare;
+
+    private CadfEventDeduplicator(Builder builder) {
+        int count = builder.partitions;
+        this.rotationNanos = Math.max(1, builder.window.toNanos() / (count - 1));
+        // a lookup checks every partition, so each one gets a share of the false positive rate
+        double partitionRate = builder.falsePositiveRate / count;
+        // blocking costs accuracy, so start at the plain Bloom filter size and grow until the blocked one is enough
+        double bitsPerId = -Math.log(partitionRate) / (Math.log(2) * Math.log(2));
+        int hashes = bestHashes(bitsPerId);
+        while (BloomPartition.falsePositiveRate(bitsPerId, hashes) > partitionRate) {
+            bitsPerId *= 1.05;
+            hashes = bestHashes(bitsPerId);
+        }
+        long idsPerPartition = Math.max(1, (builder.expectedEvents + count - 2) / (count - 1));
+        long blocks = Math.max(1, (long) Math.ceil(idsPerPartition * bitsPerId / BloomPartition.BLOCK_BITS));
+        Assert.isTrue(blocks <= (Integer.MAX_VALUE - Long.BYTES) / (BloomPartition.BLOCK_BITS / 8),
+            "expectedEvents and falsePositiveRate need more than 2GB per partition");
+        BloomPartition[] initial = new BloomPartition[count];
+        for (int i = 0; i < count; i++) {
+            initial[i] = new BloomPartition(blocks, hashes);
+        }
+        this.partitions = initial;
+        this.spare = new BloomPartition(blocks, hashes);
+        this.nextRotation = System.nanoTime() + rotationNanos;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Remembers the event id.
+     *
+     * @return true if the id was probably seen within the window
+     */
+    public boolean isDuplicate(CadfAuditEvent event) {
+        Assert.notNull(event, "event can not be null");
+        return isDuplicate(event.getId());
+    }
+
+    /**
+     * Remembers the id.
+     *
+     * @return true if the id was probably seen within the window
+     */
+    public boolean isDuplicate(String id) {
+        Assert.notNull(id, "id can not be null");
+        long now = System.nanoTime();
+        if (now - nextRotation >= 0) {
+            rotate(now);
+        }
+        long hash = hash(id);
+        BloomPartition[] current = partitions;
+        boolean duplicate = current[0].put(hash);
+        for (int i = 1; i < current.length && !duplicate; i++) {
+            duplicate = current[i].mightContain(hash);
+        }
+        checked.increment();
+        if (duplicate) {
+            suppressed.increment();
+        }
+        return duplicate;
+    }
+
+    /**
+     * @return sink which passes the events of a batch to the given sink unless they are duplicates, empty batches are
+     * not passed on
+     */
+    public ICadfEventSink filtering(ICadfEventSink sink) {
+        Assert.notNull(sink, "sink can not be null");
+        return events -> {
+            List<CadfAuditEvent> unique = null;
+            for (int i = 0; i < events.size(); i++) {
+                CadfAuditEvent event = events.get(i);
+                if (isDuplicate(event)) {
+                    if (unique == null) {
+                        unique = new ArrayList<>(events.subList(0, i));
+                    }
+                } else if (unique != null) {
+                    unique.add(event);
+                }
+            }
+            List<CadfAuditEvent> batch = unique != null ? unique : events;
+            if (!batch.isEmpty()) {
+                sink.publish(batch);
+            }
+        };
+    }
+
+    // ================================= counters ========================================
+
+    /**
+     * @return ids checked so far
+     */
+    public long getCheckedCount() {
+        return checked.sum();
+    }
+
+    /**
+     * @return ids reported as duplicates, including false positives
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    public long getRotationCount() {
+        return rotations.sum();
+    }
+
+    /**
+     * @return off-heap bytes of all partitions
+     */
+    public long getMemoryBytes() {
+        return (partitions.length + 1) * spare.sizeInBytes();
+    }
+
+    // ================================= internals ========================================
+
+    private void rotate(long now) {
+        if (!rotationLock.tryLock()) {
+            return;
+        }
+        try {
+            // after a long pause every partition is stale, clearing each of them once is enough
+            for (int i = 0; i <= partitions.length && now - nextRotation >= 0; i++) {
+                BloomPartition[] current = partitions;
+                BloomPartition[] next = new BloomPartition[current.length];
+                next[0] = spare;
+                System.arraycopy(current, 0, next, 1, current.length - 1);
+                partitions = next;
+                spare = current[current.length - 1];
+                spare.clear();
+                nextRotation += rotationNanos;
+                rotations.increment();
+            }
+            if (now - nextRotation >= 0) {
+                nextRotation = now + rotationNanos;
+            }
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    private static int bestHashes(double bitsPerId) {
+        int best = 1;
+        for (int hashes = 2; hashes <= MAX_HASHES; hashes++) {
+            if (BloomPartition.falsePositiveRate(bitsPerId, hashes) < BloomPartition.falsePositiveRate(bitsPerId, best)) {
+                best = hashes;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Mixes four chars per step, finished with the MurmurHash3 mixer so that both halves of the hash are usable.
+     */
+    static long hash(String id) {
+        int length = id.length();
+        long hash = length * 0x9E3779B97F4A7C15L;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            long chunk = id.charAt(i) | (long) id.charAt(i + 1) << 16 | (long) id.charAt(i + 2) << 32
+                | (long) id.charAt(i + 3) << 48;
+            hash = Long.rotateLeft(hash ^ chunk * 0x87C37B91114253D5L, 31) * 0x4CF5AD432745937FL;
+        }
+        for (; i < length; i++) {
+            hash = (hash ^ id.charAt(i)) * 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private Duration window;
+        private long expectedEvents;
+        private double falsePositiveRate = DEFAULT_FALSE_POSITIVE_RATE;
+        private int partitions = DEFAULT_PARTITIONS;
+
+        private Builder() {
+        }
+
+        /**
+         * Required. How long an id is remembered at least, should cover the redelivery delay of the transport.
+         */
+        public Builder withWindow(Duration window) {
+            Assert.notNull(window, "window can not be null");
+            Assert.isTrue(!window.isNegative() && !window.isZero(), "window must be positive");
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Required. Distinct ids expected per window, the filters are sized for it.
+         */
+        public Builder withExpectedEvents(long expectedEvents) {
+            Assert.isTrue(expectedEvents > 0, "expectedEvents must be positive");
+            this.expectedEvents = expectedEvents;
+            return this;
+        }
+
+        public Builder withFalsePositiveRate(double falsePositiveRate) {
+            Assert.isTrue(falsePositiveRate > 0 && falsePositiveRate < 1, "falsePositiveRate must be between 0 and 1");
+            this.falsePositiveRate = falsePositiveRate;
+            return this;
+        }
+
+        /**
+         * Number of Bloom filters the window is split into, more partitions forget ids closer to the window at the
+         * price of slower lookups.
+         */
+        public Builder withPartitions(int partitions) {
+            Assert.isTrue(partitions >= 2 && partitions <= 64, "partitions must be between 2 and 64");
+            this.partitions = partitions;
+            return this;
+        }
+
+        public CadfEventDeduplicator build() {
+            Assert.notNull(window, "window can not be null");
+            Assert.isTrue(expectedEvents > 0, "expectedEvents must be provided");
+            return new CadfEventDeduplicator(this);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.filter;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.util.Assert;
+import io.maestro3.cadf.util.CadfTimestamps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Compiled event filter, built programmatically or parsed from an expression like
+ * <pre>
+ * action under monitor AND outcome = failure AND target.type under data/security
+ *     AND time in [2023-05-01T00:00:00.000+00:00, 2023-05-02T00:00:00.000+00:00)
+ * </pre>
+ * Taxonomy values are resolved at compile time: actions and outcomes are matched through a table indexed by their
+ * ordinal, resource types by the pre-order ordinal range of their subtree. Values outside of the taxonomy fall back
+ * to uri comparison.
+ * <p/>
+ * Besides single events, filters evaluate {@link ICadfEventColumns} batches into bitmasks, comparing ordinals and
+ * dictionary codes column by column. Filters are immutable and thread-safe.
+ *
+ * @see #parse(String) for the expression syntax
+ */
+public final class CadfEventFilter implements Predicate<CadfAuditEvent> {
+
+    private static final CadfEventFilter ALL = new CadfEventFilter(new FilterNode.Constant(true), "true");
+
+    private final FilterNode root;
+    private final String expression;
+    private final ThreadLocal<MaskPool> masks = ThreadLocal.withInitial(MaskPool::new);
+
+    private CadfEventFilter(FilterNode root, String expression) {
+        this.root = root;
+        this.expression = expression;
+    }
+
+    /**
+     * Compiles a filter expression. Terms, keywords are case insensitive:
+     * <ul>
+     * <li>{@code eventType = monitor}</li>
+     * <li>{@code action = <uri>}, {@code action under <uri>}, same for {@code outcome}</li>
+     * <li>{@code <role>.type = <uri>}, {@code <role>.type under <uri>}, {@code <role>.id = <value>},
+     * {@code <role>.name = <value>} where role is initiator, target or observer</li>
+     * <li>{@code name = <value>}, {@code severity = <value>}</li>
+     * <li>{@code time in [<from>, <to>)}, square brackets include the bound, round ones exclude it; bounds are CADF
+     * timestamps or epoch millis</li>
+     * </ul>
+     * Every {@code =} may be negated as {@code !=}, {@code true} and {@code false} match every or no event. Terms are
+     * combined with {@code AND}, {@code OR}, {@code NOT} and parentheses, values with spaces or special characters
+     * are written in double quotes.
+     *
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    public static CadfEventFilter parse(String expression) {
+        Assert.hasText(expression, "expression can not be null or empty");
+        return new CadfEventFilter(new FilterParser(expression).parse(), expression.trim());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return filter matching every event
+     */
+    public static CadfEventFilter all() {
+        return ALL;
+    }
+
+    public static CadfEventFilter allOf(CadfEventFilter... filters) {
+        return combine(filters, true);
+    }
+
+    public static CadfEventFilter anyOf(CadfEventFilter... filters) {
+        return combine(filters, false);
+    }
+
+    public static CadfEventFilter not(CadfEventFilter filter) {
+        Assert.notNull(filter, "filter can not be null");
+        return new CadfEventFilter(new FilterNode.Not(filter.root), "NOT (" + filter.expression + ")");
+    }
+
+    // ================================= evaluation ========================================
+
+    @Override
+    public boolean test(CadfAuditEvent event) {
+        Assert.notNull(event, "event can not be null");
+        return root.test(event);
+    }
+
+    /**
+     * Evaluates the filter over a batch: bit {@code i % 64} of {@code mask[i / 64]} is set if row {@code i} matches,
+     * bits past the last row are cleared.
+     *
+     * @param mask at least {@code (columns.size() + 63) / 64} words
+     * @return number of matching rows
+     */
+    public int select(ICadfEventColumns columns, long[] mask) {
+        Assert.notNull(columns, "columns can not be null");
+        Assert.notNull(mask, "mask can not be null");
+        int size = columns.size();
+        int words = FilterNode.words(size);
+        Assert.isTrue(mask.length >= words, "mask is too short for " + size + " rows");
+        root.select(columns, mask, masks.get());
+        int count = 0;
+        for (int i = 0; i < words; i++) {
+            count += Long.bitCount(mask[i]);
+        }
+        return count;
+    }
+
+    /**
+     * @return the expression, generated for filters which were not parsed
+     */
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private static CadfEventFilter combine(CadfEventFilter[] filters, boolean all) {
+        Assert.notNull(filters, "filters can not be null");
+        Assert.isTrue(filters.length > 0, "filters can not be empty");
+        List<FilterNode> nodes = new ArrayList<>();
+        StringBuilder expression = new StringBuilder();
+        for (CadfEventFilter filter : filters) {
+            Assert.notNull(filter, "filter can not be null");
+            nodes.add(filter.root);
+            expression.append(expression.length() > 0 ? (all ? " AND " : " OR ") : "")
+                .append('(').append(filter.expression).append(')');
+        }
+        FilterNode root = nodes.size() == 1 ? nodes.get(0) : all ? new FilterNode.And(nodes) : new FilterNode.Or(nodes);
+        return new CadfEventFilter(root, expression.toString());
+    }
+
+    // ================================= builder ========================================
+
+    /**
+     * Collects terms which all have to match.
+     */
+    public static final class Builder {
+
+        private final List<FilterNode> nodes = new ArrayList<>();
+        private final List<String> terms = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder withEventType(CadfEventType eventType) {
+            Assert.notNull(eventType, "eventType can not be null");
+            return add(new FilterNode.EventType(eventType), "eventType = " + eventType.getName());
+        }
+
+        public Builder withAction(ICadfAction action) {
+            Assert.notNull(action, "action can not be null");
+            return add(FilterNode.Taxonomy.action(action, null, false), "action = " + quote(action.getRelativeUri()));
+        }
+
+        /**
+         * Matches the action and all actions below it, e.g. {@code capture/start} under {@code capture}.
+         */
+        public Builder withActionUnder(ICadfAction action) {
+            Assert.notNull(action, "action can not be null");
+            return add(FilterNode.Taxonomy.action(action, null, true), "action under " + quote(action.getRelativeUri()));
+        }
+
+        public Builder withOutcome(ICadfOutcome outcome) {
+            Assert.notNull(outcome, "outcome can not be null");
+            return add(FilterNode.Taxonomy.outcome(outcome, false), "outcome = " + quote(outcome.getRelativeUri()));
+        }
+
+        public Builder withOutcomeUnder(ICadfOutcome outcome) {
+            Assert.notNull(outcome, "outcome can not be null");
+            return add(FilterNode.Taxonomy.outcome(outcome, true), "outcome under " + quote(outcome.getRelativeUri()));
+        }
+
+        public Builder withResourceType(CadfResourceRole role, ICadfResourceType type) {
+            Assert.notNull(role, "role can not be null");
+            Assert.notNull(type, "type can not be null");
+            return add(new FilterNode.ResourceType(role, type, false),
+                role.getName() + ".type = " + quote(type.getRelativeUri()));
+        }
+
+        /**
+         * Matches resources of the type and of all types in its subtree.
+         */
+        public Builder withResourceTypeUnder(CadfResourceRole role, ICadfResourceType type) {
+            Assert.notNull(role, "role can not be null");
+            Assert.notNull(type, "type can not be null");
+            return add(new FilterNode.ResourceType(role, type, true),
+                role.getName() + ".type under " + quote(type.getRelativeUri()));
+        }
+
+        public Builder withResourceId(CadfResourceRole role, String id) {
+            Assert.notNull(role, "role can not be null");
+            Assert.notNull(id, "id can not be null");
+            return add(new FilterNode.Text(FilterNode.Text.Field.RESOURCE_ID, role, id),
+                role.getName() + ".id = " + quote(id));
+        }
+
+        public Builder withResourceName(CadfResourceRole role, String name) {
+            Assert.notNull(role, "role can not be null");
+            Assert.notNull(name, "name can not be null");
+            return add(new FilterNode.Text(FilterNode.Text.Field.RESOURCE_NAME, role, name),
+                role.getName() + ".name = " + quote(name));
+        }
+
+        public Builder withName(String name) {
+            Assert.notNull(name, "name can not be null");
+            return add(new FilterNode.Text(FilterNode.Text.Field.NAME, null, name), "name = " + quote(name));
+        }
+
+        public Builder withSeverity(String severity) {
+            Assert.notNull(severity, "severity can not be null");
+            return add(new FilterNode.Text(FilterNode.Text.Field.SEVERITY, null, severity),
+                "severity = " + quote(severity));
+        }
+
+        /**
+         * Event time in {@code [fromNanos, toNanos)}, epoch nanos.
+         */
+        public Builder withTimeBetween(long fromNanos, long toNanos) {
+            Assert.isTrue(fromNanos < toNanos, "fromNanos must be before toNanos");
+            return add(new FilterNode.Time(fromNanos, toNanos - 1),
+                "time in [" + CadfTimestamps.format(fromNanos) + ", " + CadfTimestamps.format(toNanos) + ")");
+        }
+
+        /**
+         * Adds another filter as a term, e.g. one combined with {@link CadfEventFilter#anyOf}.
+         */
+        public Builder withFilter(CadfEventFilter filter) {
+            Assert.notNull(filter, "filter can not be null");
+            return add(filter.root, "(" + filter.expression + ")");
+        }
+
+        public CadfEventFilter build() {
+            if (nodes.isEmpty()) {
+                return ALL;
+            }
+            FilterNode root = nodes.size() == 1 ? nodes.get(0) : new FilterNode.And(new ArrayList<>(nodes));
+            return new CadfEventFilter(root, String.join(" AND ", terms));
+        }
+
+        private Builder add(FilterNode node, String term) {
+            nodes.add(node);
+            terms.add(term);
+            return this;
+        }
+
+        private static String quote(String value) {
+            return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.filter;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceType;
+import io.maestro3.cadf.model.CadfResourceTypes;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled filter expression. Every node evaluates one event, or a whole {@link ICadfEventColumns} batch into a
+ * bitmask with bit {@code i % 64} of word {@code i / 64} set for matching row {@code i}.
+ */
+abstract class FilterNode {
+
+    static final Map<String, Integer> ACTION_ORDINALS = actionOrdinals();
+    static final Map<String, Integer> OUTCOME_ORDINALS = outcomeOrdinals();
+    static final Map<String, Integer> RESOURCE_TYPE_ORDINALS = resourceTypeOrdinals();
+
+    abstract boolean test(CadfAuditEvent event);
+
+    /**
+     * Overwrites the first {@code words(columns.size())} words of the mask, bits past the last row are clear.
+     */
+    abstract void select(ICadfEventColumns columns, long[] mask, MaskPool pool);
+
+    static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * Bits of the last word which correspond to rows.
+     */
+    static long tailMask(int size) {
+        return (size & 63) == 0 ? -1L : (1L << size) - 1;
+    }
+
+    // ================================= logic ========================================
+
+    static final class Constant extends FilterNode {
+
+        private final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean test(CadfAuditEvent event) {
+            return value;
+        }
+
+        @Override
+        void select(ICadfEventColumns columns, long[] mask, MaskPool pool) {
+            int size = columns.size();
+            int words = words(size);
+            for (int i = 0; i < words; i++) {
+                mask[i] = value ? -1L : 0;
+            }
+            if (value && words > 0) {
+                mask[words - 1] &= tailMask(size);
+            }
+        }
+    }
+
+    static final class And extends FilterNode {
+
+        private final FilterNode[] children;
+
+        And(List<FilterNode> children) {
+            this.children = children.toArray(new FilterNode[0]);
+        }
+
+        @Override
+        boolean test(CadfAuditEvent event) {
+            for (FilterNode child : children) {
+                if (!child.test(event)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void select(ICadfEventColumns columns, long[] mask, MaskPool pool) {
+            int words = words(columns.size());
+            children[0].select(columns, mask, pool);
+            long[] other = pool.acquire(words);
+            for (int c = 1; c < children.length && any(mask, words); c++) {
+                children[c].select(columns, other, pool);
+                for (int i = 0; i < words; i++) {
+                    mask[i] &= other[i];
+                }
+            }
+            pool.release(other);
+        }
+
+        private static boolean any(long[] mask, int words) {
+            for (int i = 0; i < words; i++) {
+                if (mask[i] != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Or extends FilterNode {
+
+        private final FilterNode[] children;
+
+        Or(List<FilterNode> children) {
+            this.children = children.toArray(new FilterNode[0]);
+        }
+
+        @Override
+        boolean test(CadfAuditEvent event) {
+            for (FilterNode child : children) {
+                if (child.test(event)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void select(ICadfEventColumns columns, long[] mask, MaskPool pool) {
+            int words = words(columns.size());
+            children[0].select(columns, mask, pool);
+            long[] other = pool.acquire(words);
+            for (int c = 1; c < children.length; c++) {
+                children[c].select(columns, other, pool);
+                for (int i = 0; i < words; i++) {
+                    mask[i] |= other[i];
+                }
+            }
+            pool.release(other);
+        }
+    }
+
+    static final class Not extends FilterNode {
+
+        private final FilterNode child;
+
+        Not(FilterNode child) {
+            this.child = child;
+        }
+
+        @Override
+        boolean test(CadfAuditEvent event) {
+            return !child.test(event);
+        }
+
+        @Override
+        void select(ICadfEventColumns columns, long[] mask, MaskPool pool) {
+            int size = columns.size();
+            int words = words(size);
+            child.select(columns, mask, pool);
+            for (int i = 0; i < words; i++) {
+                mask[i] = ~mask[i];
+            }
+            if (words > 0) {
+                mask[words - 1] &= tailMask(size);
+            }
+        }
+    }
+
+    // ================================= predicates ========================================
+
+    /**
+     * Event time in the inclusive range of epoch nanos.
+     */
+    static final class Time extends FilterNode {
+
+        private final long fromNanos;
+        private final long toNanos;
+
+        Time(long fromNanos, long toNanos) {
+            this.fromNanos = fromNanos;
+            this.toNanos = toNanos;
+        }
+
+        @Override
+        boolean test(CadfAuditEvent event) {
+            long eventTime = event.eventTimeNanos();
+            return eventTime != CadfAuditEvent.NO_EVENT_TIME && eventTime >= fromNanos && eventTime <= toNanos;
+        }
+
+        @Override
+        void select(ICadfEventColumns columns, long[] mask, MaskPool pool) {
+            int size = columns.size();
+            int words = words(size);
+            if (size == 0 || columns.getMaxEventTimeNanos() < fromNanos
+                || columns.getMinEventTimeNanos() > toNanos) {
+                fill(mask, words, 0);
+                return;
+            }
+            if (columns.getMinEventTimeNanos() >= fromNanos && columns.getMaxEventTimeNanos() <= toNanos) {
+                fill(mask, words, -1L);
+                mask[words - 1] &= tailMask(size);
+                return;
+            }
+            for (int word = 0; word < words; word++) {
+                int base = word << 6;
+                int end = Math.min(64, size - base);
+                long bits = 0;
+                for (int j = 0; j < end; j++) {
+                    long eventTime = columns.getEventTimeNanos(base + j);
+                    if (eventTime >= fromNanos && eventTime <= toNanos) {
+                        bits |= 1L << j;
+                    }
+                }
+                mask[word] = bits;
+            }
+        }
+
+        private static void fill(long[] mask, int words, long value) {
+            for (int i = 0; i < words; i++) {
+                mask[i] = value;
+            }
+        }
+    }
+
+    static final class EventType extends FilterNode {
+
+        private final String name;
+        private final int ordinal;
+
+        EventType(CadfEventType eventType) {
+            this.name = eventType.getName();
+            this.ordinal = eventType.ordinal();
+        }
+
+        @Override
+        boolean test(CadfAuditEvent event) {
+            return name.equals(event.getEventType());
+        }
+
+        @Override
+        void select(ICadfEventColumns columns, long[] mask, MaskPool pool) {
+            int size = columns.size();
+            for (int word = 0, words = words(size); word < words; word++) {
+                int base = word << 6;
+                int end = Math.min(64, size - base);
+                long bits = 0;
+                for (int j = 0; j < end; j++) {
+                    if (columns.getEventTypeOrdinal(base + j) == ordinal) {
+                        bits |= 1L << j;
+                    }
+                }
+                mask[word] = bits;
+            }
+        }
+    }
+
+    /**
+     * Action or outcome equal to or under a taxonomy value: canonical values are looked up in a table by ordinal,
+     * values outside of the taxonomy are compared by uri.
+     */
+    static final class Taxonomy extends FilterNode {
+
+        private final boolean action;
+        private final boolean[] matchingOrdinals;
+        private final String[] uris;
+        private final boolean under;
+
+        /**
+         * @param uris uris values outside of the taxonomy are compared with, e.g. the canonical one and its alias
+         */
+        Taxonomy(boolean action, boolean[] matchingOrdinals, String[] uris, boolean under) {
+            this.action = action;
+            this.matchingOrdinals = matchingOrdinals;
+            this.uris = uris;
+            this.under = under;
+        }
+
+        static Taxonomy action(ICadfAction value, String alias, boolean under) {
+            List<ICadfAction> actions = CadfActions.values();
+            boolean[] ordinals = new boolean[actions.size()];
+            for (ICadfAction candidate : actions) {
+                ordinals[candidate.getOrdinal()] = matches(candidate.getRelativeUri(), value.getRelativeUri(), under);
+            }
+            return new Taxonomy(true, ordinals, uris(value.getRelativeUri(), alias), under);
+        }
+
+        static Taxonomy outcome(ICadfOutcome value, boolean under) {
+            List<ICadfOutcome> outcomes = CadfOutcomes.values();
+            boolean[] ordinals = new boolean[outcomes.size()];
+            for (ICadfOutcome candidate : outcomes) {
+                ordinals[candidate.getOrdinal()] = matches(candidate.getRelativeUri(), value.getRelativeUri(), under);
+            }
+            return new Taxonomy(false, ordinals, uris(value.getRelativeUri(), null), under);
+        }
+
+        @Override
+        boolean test(CadfAuditEvent event) {
+            String value = action ? event.getAction() : event.getOutcome();
+            if (value == null) {
+                return false;
+            }
+            Integer ordinal = (action ? ACTION_ORDINALS : OUTCOME_ORDINALS).get(value);
+            return ordinal != null ? matchingOrdinals[ordinal] : matchesUri(value);
+        }
+
+        @Override
+        void select(ICadfEventColumns columns, long[] mask, MaskPool pool) {
+            int size = columns.size();
+            for (int word = 0, words = words(size); word < words; word++) {
+                int base = word << 6;
+                int end = Math.min(64, size - base);
+                long bits = 0;
+                for (int j = 0; j < end; j++) {
+                    int index = base + j;
+                    int ordinal = action ? columns.getActionOrdinal(index) : columns.getOutcomeOrdinal(index);
+                    boolean match = ordinal >= 0
+                        ? matchingOrdinals[ordinal]
+                        : matchesUri(action ? columns.getAction(index) : columns.getOutcome(index));
+                    if (match) {
+                        bits |= 1L << j;
+                    }
+                }
+                mask[word] = bits;
+            }
+        }
+
+        private boolean matchesUri(String value) {
+            if (value == null) {
+                return false;
+            }
+            for (String uri : uris) {
+                if (matches(value, uri, under)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Resource type equal to or under a taxonomy type: canonical types are compared by their pre-order ordinal
+     * range, types outside of the taxonomy by uri.
+     */
+    static final class ResourceType extends FilterNode {
+
+        private final CadfResourceRole role;
+        private final int fromOrdinal;
+        private final int toOrdinal;
+        private final String uri;
+        private final boolean under;
+
+        ResourceType(CadfResourceRole role, ICadfResourceType type, boolean under) {
+            this.role = role;
+            this.uri = type.getRelativeUri();
+            this.under = under;
+            int ordinal = type.getOrdinal();
+            this.fromOrdinal = ordinal;
+            this.toOrdinal = ordinal < 0 || !under
+                ? ordinal
+                : ((CadfResourceType) CadfResourceTypes.byOrdinal(ordinal)).getLastDescendantOrdinal();
+        }
+
+        @Override
+        boolean test(CadfAuditEvent event) {
+            CadfResource resource = resource(event, role);
+            String typeURI = resource != null ? resource.getTypeURI() : null;
+            if (typeURI == null) {
+                return false;
+            }
+            Integer ordinal = RESOURCE_TYPE_ORDINALS.get(typeURI);
+            return ordinal != null ? inRange(ordinal) : matchesUri(typeURI);
+        }
+
+        @Override
+        void select(ICadfEventColumns columns, long[] mask, MaskPool pool) {
+            int size = columns.size();
+            for (int word = 0, words = words(size); word < words; word++) {
+                int base = word << 6;
+                int end = Math.min(64, size - base);
+                long bits = 0;
+                for (int j = 0; j < end; j++) {
+                    int ordinal = columns.getResourceTypeOrdinal(base + j, role);
+                    if (ordinal >= 0 ? inRange(ordinal) : matchesUri(columns.getResourceTypeURI(base + j, role))) {
+                        bits |= 1L << j;
+                    }
+                }
+                mask[word] = bits;
+            }
+        }
+
+        private boolean inRange(int ordinal) {
+            return ordinal >= fromOrdinal && ordinal <= toOrdinal && fromOrdinal >= 0;
+        }
+
+        private boolean matchesUri(String typeURI) {
+            if (typeURI == null) {
+                return false;
+            }
+            String relative = typeURI;
+            if (typeURI.startsWith(CadfResource.FULL_ROOT_URI + "/")) {
+                relative = typeURI.substring(CadfResource.FULL_ROOT_URI.length() + 1);
+            }
+            return matches(relative, uri, under);
+        }
+    }
+
+    /**
+     * Event name, severity, resource id or resource name equal to a string. Batches compare dictionary codes.
+     */
+    static final class Text extends FilterNode {
+
+        enum Field {
+            NAME,
+            SEVERITY,
+            RESOURCE_ID,
+            RESOURCE_NAME
+        }
+
+        private final Field field;
+        private final CadfResourceRole role;
+        private final String value;
+
+        Text(Field field, CadfResourceRole role, String value) {
+            this.field = field;
+            this.role = role;
+            this.value = value;
+        }
+
+        @Override
+        boolean test(CadfAuditEvent event) {
+            switch (field) {
+                case NAME:
+                    return value.equals(event.getName());
+                case SEVERITY:
+                    return value.equals(event.getSeverity());
+                default:
+                    CadfResource resource = resource(event, role);
+                    return resource != null
+                        && value.equals(field == Field.RESOURCE_ID ? resource.getId() : resource.getName());
+            }
+        }
+
+        @Override
+        void select(ICadfEventColumns columns, long[] mask, MaskPool pool) {
+            int size = columns.size();
+            // -1 if no row refers to the value by code, only rows without a code can match then
+            int code = columns.getStringCode(value);
+            for (int word = 0, words = words(size); word < words; word++) {
+                int base = word << 6;
+                int end = Math.min(64, size - base);
+                long bits = 0;
+                for (int j = 0; j < end; j++) {
+                    if (matches(columns, base + j, code)) {
+                        bits |= 1L << j;
+                    }
+                }
+                mask[word] = bits;
+            }
+        }
+
+        private boolean matches(ICadfEventColumns columns, int index, int code) {
+            switch (field) {
+                case NAME:
+                    return code > 0 && columns.getNameCode(index) == code;
+                case SEVERITY:
+                    return code > 0 && columns.getSeverityCode(index) == code;
+                case RESOURCE_ID:
+                    int idCode = columns.getResourceIdCode(index, role);
+                    return idCode >= 0 ? code > 0 && idCode == code : value.equals(columns.getResourceId(index, role));
+                default:
+                    int nameCode = columns.getResourceNameCode(index, role);
+                    return nameCode >= 0
+                        ? code > 0 && nameCode == code
+                        : value.equals(columns.getResourceName(index, role));
+            }
+        }
+    }
+
+    // ================================= helpers ========================================
+
+    static CadfResource resource(CadfAuditEvent event, CadfResourceRole role) {
+        switch (role) {
+            case INITIATOR:
+                return event.getInitiator();
+            case TARGET:
+                return event.getTarget();
+            default:
+                return event.getObserver();
+        }
+    }
+
+    /**
+     * @param under whether descendants of the uri match as well
+     */
+    static boolean matches(String value, String uri, boolean under) {
+        if (!under) {
+            return value.equals(uri);
+        }
+        return value.startsWith(uri) && (value.length() == uri.length() || value.charAt(uri.length()) == '/');
+    }
+
+    private static String[] uris(String canonical, String alias) {
+        return alias != null && !alias.equals(canonical) ? new String[]{canonical, alias} : new String[]{canonical};
+    }
+
+    private static Map<String, Integer> actionOrdinals() {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (ICadfAction action : CadfActions.values()) {
+            ordinals.put(action.getRelativeUri(), action.getOrdinal());
+        }
+        return ordinals;
+    }
+
+    private static Map<String, Integer> outcomeOrdinals() {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (ICadfOutcome outcome : CadfOutcomes.values()) {
+            ordinals.put(outcome.getRelativeUri(), outcome.getOrdinal());
+        }
+        return ordinals;
+    }
+
+    private static Map<String, Integer> resourceTypeOrdinals() {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            ordinals.put(type.getRelativeUri(), type.getOrdinal());
+            ordinals.put(CadfResource.FULL_ROOT_URI + "/" + type.getRelativeUri(), type.getOrdinal());
+        }
+        return ordinals;
+    }
+}
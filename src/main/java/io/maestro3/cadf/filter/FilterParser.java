@@ -0,0 +1,305 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.filter;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.util.CadfTimestamps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive descent parser of {@link CadfEventFilter#parse(String)} expressions, OR binds weaker than AND.
+ */
+final class FilterParser {
+
+    private final String text;
+    private int position;
+
+    FilterParser(String text) {
+        this.text = text;
+    }
+
+    FilterNode parse() {
+        FilterNode node = or();
+        skipWhitespace();
+        if (position < text.length()) {
+            throw error("unexpected '" + text.charAt(position) + "'");
+        }
+        return node;
+    }
+
+    // ================================= expressions ========================================
+
+    private FilterNode or() {
+        List<FilterNode> nodes = new ArrayList<>();
+        nodes.add(and());
+        while (keyword("or")) {
+            nodes.add(and());
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new FilterNode.Or(nodes);
+    }
+
+    private FilterNode and() {
+        List<FilterNode> nodes = new ArrayList<>();
+        nodes.add(unary());
+        while (keyword("and")) {
+            nodes.add(unary());
+        }
+        return nodes.size() == 1 ? nodes.get(0) : new FilterNode.And(nodes);
+    }
+
+    private FilterNode unary() {
+        if (keyword("not")) {
+            return new FilterNode.Not(unary());
+        }
+        if (symbol('(')) {
+            FilterNode node = or();
+            expect(')');
+            return node;
+        }
+        return term();
+    }
+
+    private FilterNode term() {
+        int start = position;
+        String field = word();
+        if (field.equalsIgnoreCase("true") || field.equalsIgnoreCase("false")) {
+            return new FilterNode.Constant(field.equalsIgnoreCase("true"));
+        }
+        if (field.equalsIgnoreCase("time")) {
+            if (!keyword("in")) {
+                throw error("'in' expected");
+            }
+            return timeRange();
+        }
+        boolean under = keyword("under");
+        boolean negated = false;
+        if (!under) {
+            negated = symbol('!');
+            expect('=');
+        }
+        FilterNode node = comparison(field, value(), under, start);
+        return negated ? new FilterNode.Not(node) : node;
+    }
+
+    private FilterNode comparison(String field, String value, boolean under, int fieldStart) {
+        int dot = field.indexOf('.');
+        String name = (dot < 0 ? field : field.substring(dot + 1)).toLowerCase();
+        if (dot >= 0) {
+            CadfResourceRole role = role(field.substring(0, dot), fieldStart);
+            switch (name) {
+                case "type":
+                    return new FilterNode.ResourceType(role, resourceType(value), under);
+                case "id":
+                    requireEquality(under, field, fieldStart);
+                    return new FilterNode.Text(FilterNode.Text.Field.RESOURCE_ID, role, value);
+                case "name":
+                    requireEquality(under, field, fieldStart);
+                    return new FilterNode.Text(FilterNode.Text.Field.RESOURCE_NAME, role, value);
+                default:
+                    throw error("unknown resource field '" + field + "'", fieldStart);
+            }
+        }
+        switch (name) {
+            case "eventtype":
+                requireEquality(under, field, fieldStart);
+                return new FilterNode.EventType(CadfEventType.fromName(value));
+            case "action":
+                return action(value, under);
+            case "outcome":
+                return FilterNode.Taxonomy.outcome(outcome(value), under);
+            case "name":
+                requireEquality(under, field, fieldStart);
+                return new FilterNode.Text(FilterNode.Text.Field.NAME, null, value);
+            case "severity":
+                requireEquality(under, field, fieldStart);
+                return new FilterNode.Text(FilterNode.Text.Field.SEVERITY, null, value);
+            default:
+                throw error("unknown field '" + field + "'", fieldStart);
+        }
+    }
+
+    /**
+     * {@code [from, to)}, square brackets include the bound, round ones exclude it.
+     */
+    private FilterNode timeRange() {
+        skipWhitespace();
+        boolean fromInclusive = symbol('[');
+        if (!fromInclusive) {
+            expect('(');
+        }
+        long from = time(value());
+        expect(',');
+        long to = time(value());
+        boolean toInclusive = symbol(']');
+        if (!toInclusive) {
+            expect(')');
+        }
+        long fromNanos = fromInclusive ? from : from + 1;
+        long toNanos = toInclusive ? to : to - 1;
+        if (fromNanos > toNanos) {
+            throw error("empty time range");
+        }
+        return new FilterNode.Time(fromNanos, toNanos);
+    }
+
+    // ================================= values ========================================
+
+    private static FilterNode action(String uri, boolean under) {
+        ICadfAction action;
+        try {
+            action = CadfActions.byRelativeURI(uri);
+        } catch (UnsupportedOperationException e) {
+            action = () -> uri;
+        }
+        return FilterNode.Taxonomy.action(action, uri, under);
+    }
+
+    private static ICadfOutcome outcome(String uri) {
+        for (ICadfOutcome outcome : CadfOutcomes.values()) {
+            if (outcome.getRelativeUri().equals(uri)) {
+                return outcome;
+            }
+        }
+        return () -> uri;
+    }
+
+    private static ICadfResourceType resourceType(String uri) {
+        ICadfResourceType type = CadfResourceTypes.findByRelativeURI(uri);
+        return type != null ? type : () -> uri;
+    }
+
+    private long time(String value) {
+        boolean millis = !value.isEmpty();
+        for (int i = 0; i < value.length() && millis; i++) {
+            char c = value.charAt(i);
+            millis = (c >= '0' && c <= '9') || (i == 0 && c == '-' && value.length() > 1);
+        }
+        try {
+            return millis ? Math.multiplyExact(Long.parseLong(value), 1_000_000L) : CadfTimestamps.parse(value);
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw error("time out of range: " + value);
+        }
+    }
+
+    private CadfResourceRole role(String name, int start) {
+        for (CadfResourceRole role : CadfResourceRole.values()) {
+            if (role.getName().equalsIgnoreCase(name)) {
+                return role;
+            }
+        }
+        throw error("unknown resource role '" + name + "'", start);
+    }
+
+    private void requireEquality(boolean under, String field, int start) {
+        if (under) {
+            throw error("'under' is not supported by '" + field + "'", start);
+        }
+    }
+
+    // ================================= tokens ========================================
+
+    /**
+     * Bare word or double quoted string.
+     */
+    private String value() {
+        skipWhitespace();
+        if (position < text.length() && text.charAt(position) == '"') {
+            StringBuilder value = new StringBuilder();
+            position++;
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c == '\\' && position < text.length()) {
+                    c = text.charAt(position++);
+                }
+                value.append(c);
+            }
+            throw error("unterminated string");
+        }
+        return word();
+    }
+
+    private String word() {
+        skipWhitespace();
+        int start = position;
+        while (position < text.length() && isWordChar(text.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            throw error(position < text.length() ? "unexpected '" + text.charAt(position) + "'" : "unexpected end");
+        }
+        return text.substring(start, position);
+    }
+
+    /**
+     * Consumes the keyword if it is the next word.
+     */
+    private boolean keyword(String keyword) {
+        skipWhitespace();
+        int end = position + keyword.length();
+        if (end <= text.length() && text.regionMatches(true, position, keyword, 0, keyword.length())
+            && (end == text.length() || !isWordChar(text.charAt(end)))) {
+            position = end;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean symbol(char symbol) {
+        skipWhitespace();
+        if (position < text.length() && text.charAt(position) == symbol) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char symbol) {
+        if (!symbol(symbol)) {
+            throw error("'" + symbol + "' expected");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return !Character.isWhitespace(c) && c != '(' && c != ')' && c != '[' && c != ']' && c != ','
+            && c != '=' && c != '!' && c != '"';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return error(message, position);
+    }
+
+    private IllegalArgumentException error(String message, int offset) {
+        return new IllegalArgumentException("Malformed filter at offset " + offset + ": " + message);
+    }
+}
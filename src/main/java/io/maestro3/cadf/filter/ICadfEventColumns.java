@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.filter;
+
+/**
+ * Batch of events stored in columns, as evaluated by {@link CadfEventFilter#select(ICadfEventColumns, long[])}.
+ * Taxonomy values are exposed as ordinals of {@link io.maestro3.cadf.model.CadfActions},
+ * {@link io.maestro3.cadf.model.CadfOutcomes} and {@link io.maestro3.cadf.model.CadfResourceTypes}, other strings as
+ * codes of the batch dictionary, so filters compare numbers in their loops and fall back to strings for the values
+ * which are not encoded.
+ */
+public interface ICadfEventColumns {
+
+    int size();
+
+    /**
+     * Lower bound of the event times in the batch, lets filters skip or accept it as a whole.
+     */
+    long getMinEventTimeNanos();
+
+    long getMaxEventTimeNanos();
+
+    long getEventTimeNanos(int index);
+
+    /**
+     * @return ordinal of {@link io.maestro3.cadf.model.CadfEventType}
+     */
+    int getEventTypeOrdinal(int index);
+
+    /**
+     * @return action ordinal, -1 if the action is not part of the taxonomy
+     */
+    int getActionOrdinal(int index);
+
+    String getAction(int index);
+
+    /**
+     * @return outcome ordinal, -1 if the outcome is not part of the taxonomy
+     */
+    int getOutcomeOrdinal(int index);
+
+    String getOutcome(int index);
+
+    /**
+     * @return resource type ordinal, -1 if the type is not part of the taxonomy or the resource has no type
+     */
+    int getResourceTypeOrdinal(int index, CadfResourceRole role);
+
+    String getResourceTypeURI(int index, CadfResourceRole role);
+
+    // ================================= dictionary ========================================
+
+    /**
+     * @return code of the string in this batch, -1 if no row refers to it through a code
+     */
+    int getStringCode(String value);
+
+    /**
+     * @return code of the resource id, 0 for null, -1 if it is not encoded and {@link #getResourceId} must be used
+     */
+    int getResourceIdCode(int index, CadfResourceRole role);
+
+    String getResourceId(int index, CadfResourceRole role);
+
+    /**
+     * @return code of the resource name, 0 for null, -1 if it is not encoded and {@link #getResourceName} must be
+     * used
+     */
+    int getResourceNameCode(int index, CadfResourceRole role);
+
+    String getResourceName(int index, CadfResourceRole role);
+
+    /**
+     * @return code of the event name, 0 for null
+     */
+    int getNameCode(int index);
+
+    /**
+     * @return code of the event severity, 0 for null
+     */
+    int getSeverityCode(int index);
+}
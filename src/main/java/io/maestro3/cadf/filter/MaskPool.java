@@ -0,0 +1,37 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.filter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Masks reused by the nodes of one evaluation, so evaluating batch after batch does not allocate. Not thread-safe.
+ */
+final class MaskPool {
+
+    private final Deque<long[]> free = new ArrayDeque<>();
+
+    long[] acquire(int words) {
+        long[] mask = free.poll();
+        return mask != null && mask.length >= words ? mask : new long[Math.max(words, 1)];
+    }
+
+    void release(long[] mask) {
+        free.push(mask);
+    }
+}
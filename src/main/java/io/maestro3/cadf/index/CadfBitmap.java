@@ -0,0 +1,536 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.index;
+
+import io.maestro3.cadf.codec.binary.BinaryInput;
+import io.maestro3.cadf.codec.binary.BinaryOutput;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, laid out the way roaring bitmaps are: values are grouped by their upper 16 bits
+ * into containers of the lower 16 bits, a sorted {@code char[]} for up to {@link #ARRAY_MAX} values and a 65536 bit
+ * {@code long[]} beyond. Sparse sets take 2 bytes per value, dense ones 1 bit, and {@link #and}, {@link #or} and
+ * {@link #andNot} work container by container with merges or word operations.
+ * <p/>
+ * Adding values in ascending order appends without searching. Not thread-safe, the set operations do not modify their
+ * operands.
+ */
+public final class CadfBitmap {
+
+    static final int ARRAY_MAX = 4096;
+
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys;
+    // char[] of sorted values or long[] of BITMAP_WORDS words
+    private Object[] containers;
+    private int[] cardinalities;
+    private int size;
+
+    public CadfBitmap() {
+        this(4);
+    }
+
+    private CadfBitmap(int capacity) {
+        keys = new char[capacity];
+        containers = new Object[capacity];
+        cardinalities = new int[capacity];
+    }
+
+    public static CadfBitmap of(int... values) {
+        CadfBitmap bitmap = new CadfBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    public CadfBitmap copy() {
+        CadfBitmap copy = new CadfBitmap(Math.max(1, size));
+        for (int i = 0; i < size; i++) {
+            copy.append(keys[i], copy(containers[i]), cardinalities[i]);
+        }
+        return copy;
+    }
+
+    // ================================= updates ========================================
+
+    /**
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative");
+        }
+        char key = (char) (value >>> 16);
+        int index;
+        if (size > 0 && keys[size - 1] == key) {
+            index = size - 1;
+        } else {
+            index = find(key);
+            if (index < 0) {
+                index = -index - 1;
+                insert(index, key, new char[4], 0);
+            }
+        }
+        addLow(index, (char) value);
+    }
+
+    private void addLow(int index, char low) {
+        Object container = containers[index];
+        int cardinality = cardinalities[index];
+        if (container instanceof long[]) {
+            long[] words = (long[]) container;
+            long before = words[low >>> 6];
+            words[low >>> 6] = before | 1L << low;
+            if (words[low >>> 6] != before) {
+                cardinalities[index] = cardinality + 1;
+            }
+            return;
+        }
+        char[] values = (char[]) container;
+        int position;
+        if (cardinality == 0 || values[cardinality - 1] < low) {
+            position = cardinality;
+        } else {
+            position = Arrays.binarySearch(values, 0, cardinality, low);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+        }
+        if (cardinality == ARRAY_MAX) {
+            long[] words = toWords(values, cardinality);
+            words[low >>> 6] |= 1L << low;
+            containers[index] = words;
+            cardinalities[index] = cardinality + 1;
+            return;
+        }
+        if (cardinality == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality << 1));
+            containers[index] = values;
+        }
+        System.arraycopy(values, position, values, position + 1, cardinality - position);
+        values[position] = low;
+        cardinalities[index] = cardinality + 1;
+    }
+
+    // ================================= queries ========================================
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = find((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & 1L << low) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += cardinalities[i];
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visits the values in ascending order.
+     */
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof long[]) {
+                long[] words = (long[]) container;
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                        consumer.accept(high | word << 6 | Long.numberOfTrailingZeros(bits));
+                    }
+                }
+            } else {
+                char[] values = (char[]) container;
+                for (int j = 0, cardinality = cardinalities[i]; j < cardinality; j++) {
+                    consumer.accept(high | values[j]);
+                }
+            }
+        }
+    }
+
+    public int[] toArray() {
+        int[] values = new int[Math.toIntExact(cardinality())];
+        int[] position = {0};
+        forEach(value -> values[position[0]++] = value);
+        return values;
+    }
+
+    /**
+     * @return approximate heap footprint of the containers
+     */
+    public long getSizeInBytes() {
+        long bytes = 16 + size * 16L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i] instanceof long[] ? BITMAP_WORDS * 8 : ((char[]) containers[i]).length * 2;
+        }
+        return bytes;
+    }
+
+    // ================================= set operations ========================================
+
+    public static CadfBitmap and(CadfBitmap left, CadfBitmap right) {
+        CadfBitmap result = new CadfBitmap(Math.max(1, Math.min(left.size, right.size)));
+        for (int i = 0, j = 0; i < left.size && j < right.size; ) {
+            if (left.keys[i] < right.keys[j]) {
+                i++;
+            } else if (left.keys[i] > right.keys[j]) {
+                j++;
+            } else {
+                result.appendAnd(left.keys[i], left.containers[i], left.cardinalities[i], right.containers[j],
+                    right.cardinalities[j]);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static CadfBitmap or(CadfBitmap left, CadfBitmap right) {
+        CadfBitmap result = new CadfBitmap(Math.max(1, left.size + right.size));
+        int i = 0;
+        int j = 0;
+        while (i < left.size || j < right.size) {
+            if (j == right.size || (i < left.size && left.keys[i] < right.keys[j])) {
+                result.append(left.keys[i], copy(left.containers[i]), left.cardinalities[i]);
+                i++;
+            } else if (i == left.size || left.keys[i] > right.keys[j]) {
+                result.append(right.keys[j], copy(right.containers[j]), right.cardinalities[j]);
+                j++;
+            } else {
+                result.appendOr(left.keys[i], left.containers[i], left.cardinalities[i], right.containers[j],
+                    right.cardinalities[j]);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return values of the left bitmap which are not in the right one
+     */
+    public static CadfBitmap andNot(CadfBitmap left, CadfBitmap right) {
+        CadfBitmap result = new CadfBitmap(Math.max(1, left.size));
+        int j = 0;
+        for (int i = 0; i < left.size; i++) {
+            while (j < right.size && right.keys[j] < left.keys[i]) {
+                j++;
+            }
+            if (j < right.size && right.keys[j] == left.keys[i]) {
+                result.appendAndNot(left.keys[i], left.containers[i], left.cardinalities[i], right.containers[j],
+                    right.cardinalities[j]);
+            } else {
+                result.append(left.keys[i], copy(left.containers[i]), left.cardinalities[i]);
+            }
+        }
+        return result;
+    }
+
+    private void appendAnd(char key, Object left, int leftCardinality, Object right, int rightCardinality) {
+        if (left instanceof long[] && right instanceof long[]) {
+            long[] words = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = ((long[]) left)[w] & ((long[]) right)[w];
+                cardinality += Long.bitCount(words[w]);
+            }
+            appendWords(key, words, cardinality);
+        } else if (left instanceof long[]) {
+            appendFiltered(key, (char[]) right, rightCardinality, (long[]) left, true);
+        } else if (right instanceof long[]) {
+            appendFiltered(key, (char[]) left, leftCardinality, (long[]) right, true);
+        } else {
+            char[] a = (char[]) left;
+            char[] b = (char[]) right;
+            char[] values = new char[Math.min(leftCardinality, rightCardinality)];
+            int cardinality = 0;
+            for (int i = 0, j = 0; i < leftCardinality && j < rightCardinality; ) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    values[cardinality++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            append(key, values, cardinality);
+        }
+    }
+
+    private void appendOr(char key, Object left, int leftCardinality, Object right, int rightCardinality) {
+        if (left instanceof long[] || right instanceof long[]) {
+            long[] words = left instanceof long[]
+                ? ((long[]) left).clone()
+                : toWords((char[]) left, leftCardinality);
+            if (right instanceof long[]) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] |= ((long[]) right)[w];
+                }
+            } else {
+                char[] values = (char[]) right;
+                for (int j = 0; j < rightCardinality; j++) {
+                    words[values[j] >>> 6] |= 1L << values[j];
+                }
+            }
+            appendWords(key, words, bitCount(words));
+            return;
+        }
+        char[] a = (char[]) left;
+        char[] b = (char[]) right;
+        char[] values = new char[leftCardinality + rightCardinality];
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < leftCardinality && j < rightCardinality) {
+            if (a[i] < b[j]) {
+                values[cardinality++] = a[i++];
+            } else if (a[i] > b[j]) {
+                values[cardinality++] = b[j++];
+            } else {
+                values[cardinality++] = a[i++];
+                j++;
+            }
+        }
+        while (i < leftCardinality) {
+            values[cardinality++] = a[i++];
+        }
+        while (j < rightCardinality) {
+            values[cardinality++] = b[j++];
+        }
+        if (cardinality > ARRAY_MAX) {
+            append(key, toWords(values, cardinality), cardinality);
+        } else {
+            append(key, values, cardinality);
+        }
+    }
+
+    private void appendAndNot(char key, Object left, int leftCardinality, Object right, int rightCardinality) {
+        if (left instanceof long[]) {
+            long[] words = ((long[]) left).clone();
+            if (right instanceof long[]) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] &= ~((long[]) right)[w];
+                }
+            } else {
+                char[] values = (char[]) right;
+                for (int j = 0; j < rightCardinality; j++) {
+                    words[values[j] >>> 6] &= ~(1L << values[j]);
+                }
+            }
+            appendWords(key, words, bitCount(words));
+        } else if (right instanceof long[]) {
+            appendFiltered(key, (char[]) left, leftCardinality, (long[]) right, false);
+        } else {
+            char[] a = (char[]) left;
+            char[] b = (char[]) right;
+            char[] values = new char[leftCardinality];
+            int cardinality = 0;
+            int j = 0;
+            for (int i = 0; i < leftCardinality; i++) {
+                while (j < rightCardinality && b[j] < a[i]) {
+                    j++;
+                }
+                if (j == rightCardinality || b[j] != a[i]) {
+                    values[cardinality++] = a[i];
+                }
+            }
+            append(key, values, cardinality);
+        }
+    }
+
+    /**
+     * Appends the values whose bit is set ({@code keep}) or clear ({@code !keep}) in the words.
+     */
+    private void appendFiltered(char key, char[] values, int count, long[] words, boolean keep) {
+        char[] kept = new char[count];
+        int cardinality = 0;
+        for (int i = 0; i < count; i++) {
+            char value = values[i];
+            if (((words[value >>> 6] & 1L << value) != 0) == keep) {
+                kept[cardinality++] = value;
+            }
+        }
+        append(key, kept, cardinality);
+    }
+
+    private void appendWords(char key, long[] words, int cardinality) {
+        if (cardinality > ARRAY_MAX) {
+            append(key, words, cardinality);
+            return;
+        }
+        char[] values = new char[cardinality];
+        int position = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                values[position++] = (char) (w << 6 | Long.numberOfTrailingZeros(bits));
+            }
+        }
+        append(key, values, cardinality);
+    }
+
+    private void append(char key, Object container, int cardinality) {
+        if (cardinality > 0) {
+            insert(size, key, container, cardinality);
+        }
+    }
+
+    // ================================= persistence ========================================
+
+    /**
+     * Writes the containers: array ones as deltas, bitmap ones as their words.
+     */
+    public void write(BinaryOutput out) {
+        out.writeVarInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeVarInt(keys[i]).writeVarInt(cardinalities[i]);
+            if (containers[i] instanceof long[]) {
+                for (long word : (long[]) containers[i]) {
+                    out.writeLong(word);
+                }
+            } else {
+                char[] values = (char[]) containers[i];
+                int previous = 0;
+                for (int j = 0; j < cardinalities[i]; j++) {
+                    out.writeVarInt(values[j] - previous);
+                    previous = values[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the input is malformed
+     */
+    public static CadfBitmap read(BinaryInput in) {
+        int size = in.readVarInt();
+        if (size < 0 || size > 1 << 15) {
+            throw new IllegalArgumentException("Malformed bitmap of " + size + " containers");
+        }
+        CadfBitmap bitmap = new CadfBitmap(Math.max(1, size));
+        int previousKey = -1;
+        for (int i = 0; i < size; i++) {
+            int key = in.readVarInt();
+            int cardinality = in.readVarInt();
+            if (key <= previousKey || key > Character.MAX_VALUE || cardinality <= 0 || cardinality > 1 << 16) {
+                throw new IllegalArgumentException("Malformed bitmap container " + key);
+            }
+            previousKey = key;
+            if (cardinality > ARRAY_MAX) {
+                long[] words = new long[BITMAP_WORDS];
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] = in.readLong();
+                }
+                bitmap.append((char) key, words, cardinality);
+            } else {
+                char[] values = new char[cardinality];
+                int value = 0;
+                for (int j = 0; j < cardinality; j++) {
+                    value += in.readVarInt();
+                    values[j] = (char) value;
+                }
+                bitmap.append((char) key, values, cardinality);
+            }
+        }
+        return bitmap;
+    }
+
+    // ================================= internals ========================================
+
+    private int find(char key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else if (keys[middle] > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insert(int index, char key, Object container, int cardinality) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size << 1);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        cardinalities[index] = cardinality;
+        size++;
+    }
+
+    private static long[] toWords(char[] values, int cardinality) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < cardinality; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static int bitCount(long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    private static Object copy(Object container) {
+        return container instanceof long[] ? ((long[]) container).clone() : ((char[]) container).clone();
+    }
+
+    @Override
+    public String toString() {
+        return "CadfBitmap{" +
+            "cardinality=" + cardinality() +
+            ", containers=" + size +
+            '}';
+    }
+}
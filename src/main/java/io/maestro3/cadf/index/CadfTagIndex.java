@@ -0,0 +1,152 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.index;
+
+import io.maestro3.cadf.codec.binary.BinaryInput;
+import io.maestro3.cadf.codec.binary.BinaryOutput;
+import io.maestro3.cadf.model.CadfTag;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from tag name and from name and value to the positions of the events carrying the tag, each a
+ * {@link CadfBitmap}. What a position is belongs to the owner: a row of an in-memory store chunk, the offset of a
+ * record in a journal segment. Queries over the index are bitmap operations, see {@link CadfTagQuery}.
+ * <p/>
+ * Positions are best added in ascending order. Not thread-safe, returned bitmaps are live and must not be modified.
+ */
+public final class CadfTagIndex {
+
+    private static final CadfBitmap EMPTY = new CadfBitmap();
+
+    private final Map<String, Postings> byName = new HashMap<>();
+
+    // ================================= building ========================================
+
+    /**
+     * Indexes the tags of the event at the position, tags without a name are skipped.
+     */
+    public void add(int position, List<CadfTag> tags) {
+        if (tags == null) {
+            return;
+        }
+        for (int i = 0, size = tags.size(); i < size; i++) {
+            CadfTag tag = tags.get(i);
+            if (tag != null && tag.getName() != null) {
+                add(position, tag.getName(), tag.getValue());
+            }
+        }
+    }
+
+    /**
+     * @param value may be null, the position is then found by the name only
+     */
+    public void add(int position, String name, String value) {
+        Postings postings = byName.get(name);
+        if (postings == null) {
+            postings = new Postings();
+            byName.put(name, postings);
+        }
+        postings.all.add(position);
+        if (value != null) {
+            CadfBitmap values = postings.byValue.get(value);
+            if (values == null) {
+                values = new CadfBitmap();
+                postings.byValue.put(value, values);
+            }
+            values.add(position);
+        }
+    }
+
+    // ================================= lookups ========================================
+
+    /**
+     * @return positions of events with a tag of the name, whatever its value
+     */
+    public CadfBitmap getByName(String name) {
+        Postings postings = byName.get(name);
+        return postings != null ? postings.all : EMPTY;
+    }
+
+    /**
+     * @return positions of events with the tag {@code name?value=value}
+     */
+    public CadfBitmap getByTag(String name, String value) {
+        Postings postings = byName.get(name);
+        CadfBitmap values = postings != null ? postings.byValue.get(value) : null;
+        return values != null ? values : EMPTY;
+    }
+
+    public int getNameCount() {
+        return byName.size();
+    }
+
+    public boolean isEmpty() {
+        return byName.isEmpty();
+    }
+
+    // ================================= persistence ========================================
+
+    public void write(BinaryOutput out) {
+        out.writeVarInt(byName.size());
+        for (Map.Entry<String, Postings> entry : byName.entrySet()) {
+            Postings postings = entry.getValue();
+            out.writeString(entry.getKey());
+            postings.all.write(out);
+            out.writeVarInt(postings.byValue.size());
+            for (Map.Entry<String, CadfBitmap> value : postings.byValue.entrySet()) {
+                out.writeString(value.getKey());
+                value.getValue().write(out);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the input is malformed
+     */
+    public static CadfTagIndex read(BinaryInput in) {
+        CadfTagIndex index = new CadfTagIndex();
+        int nameCount = in.readVarInt();
+        for (int i = 0; i < nameCount; i++) {
+            String name = in.readString();
+            Postings postings = new Postings(CadfBitmap.read(in));
+            int valueCount = in.readVarInt();
+            for (int j = 0; j < valueCount; j++) {
+                String value = in.readString();
+                postings.byValue.put(value, CadfBitmap.read(in));
+            }
+            index.byName.put(name, postings);
+        }
+        return index;
+    }
+
+    private static final class Postings {
+
+        private final CadfBitmap all;
+        private final Map<String, CadfBitmap> byValue = new HashMap<>();
+
+        private Postings() {
+            this(new CadfBitmap());
+        }
+
+        private Postings(CadfBitmap all) {
+            this.all = all;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.index;
+
+import io.maestro3.cadf.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Boolean query over tags, evaluated against a {@link CadfTagIndex} into the bitmap of matching positions:
+ * <pre>
+ *  CadfTagQuery.allOf(CadfTagQuery.hasTag("tenant", "t1"),
+ *      CadfTagQuery.anyOf(CadfTagQuery.hasName("pci"), CadfTagQuery.hasTag("region", "eu")))
+ * </pre>
+ * Conjunctions start from their smallest operand and stop at the first empty intermediate result. Immutable.
+ */
+public final class CadfTagQuery {
+
+    private enum Kind {
+        NAME, TAG, AND, OR
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final String value;
+    private final List<CadfTagQuery> operands;
+
+    private CadfTagQuery(Kind kind, String name, String value, List<CadfTagQuery> operands) {
+        this.kind = kind;
+        this.name = name;
+        this.value = value;
+        this.operands = operands;
+    }
+
+    /**
+     * Matches events with a tag of the name, whatever its value.
+     */
+    public static CadfTagQuery hasName(String name) {
+        Assert.hasText(name, "name can not be null or empty");
+        return new CadfTagQuery(Kind.NAME, name, null, Collections.emptyList());
+    }
+
+    /**
+     * Matches events with the tag {@code name?value=value}.
+     */
+    public static CadfTagQuery hasTag(String name, String value) {
+        Assert.hasText(name, "name can not be null or empty");
+        Assert.notNull(value, "value can not be null");
+        return new CadfTagQuery(Kind.TAG, name, value, Collections.emptyList());
+    }
+
+    public static CadfTagQuery allOf(CadfTagQuery... queries) {
+        return combine(Kind.AND, queries);
+    }
+
+    public static CadfTagQuery anyOf(CadfTagQuery... queries) {
+        return combine(Kind.OR, queries);
+    }
+
+    public CadfTagQuery and(CadfTagQuery other) {
+        return allOf(this, other);
+    }
+
+    public CadfTagQuery or(CadfTagQuery other) {
+        return anyOf(this, other);
+    }
+
+    private static CadfTagQuery combine(Kind kind, CadfTagQuery[] queries) {
+        Assert.notNull(queries, "queries can not be null");
+        Assert.isTrue(queries.length > 0, "at least one query is required");
+        List<CadfTagQuery> operands = new ArrayList<>(queries.length);
+        for (CadfTagQuery query : queries) {
+            Assert.notNull(query, "query can not be null");
+            // flattens nested queries of the same kind
+            if (query.kind == kind) {
+                operands.addAll(query.operands);
+            } else {
+                operands.add(query);
+            }
+        }
+        return operands.size() == 1 ? operands.get(0)
+            : new CadfTagQuery(kind, null, null, Collections.unmodifiableList(operands));
+    }
+
+    // ================================= evaluation ========================================
+
+    /**
+     * @return positions of matching events, a new bitmap or one of the index which must not be modified
+     */
+    public CadfBitmap evaluate(CadfTagIndex index) {
+        Assert.notNull(index, "index can not be null");
+        switch (kind) {
+            case NAME:
+                return index.getByName(name);
+            case TAG:
+                return index.getByTag(name, value);
+            case AND:
+                return evaluateAnd(index);
+            default:
+                CadfBitmap result = operands.get(0).evaluate(index);
+                for (int i = 1; i < operands.size(); i++) {
+                    result = CadfBitmap.or(result, operands.get(i).evaluate(index));
+                }
+                return result;
+        }
+    }
+
+    private CadfBitmap evaluateAnd(CadfTagIndex index) {
+        CadfBitmap[] bitmaps = new CadfBitmap[operands.size()];
+        for (int i = 0; i < bitmaps.length; i++) {
+            bitmaps[i] = operands.get(i).evaluate(index);
+            if (bitmaps[i].isEmpty()) {
+                return bitmaps[i];
+            }
+        }
+        Arrays.sort(bitmaps, (left, right) -> Long.compare(left.cardinality(), right.cardinality()));
+        CadfBitmap result = bitmaps[0];
+        for (int i = 1; i < bitmaps.length && !result.isEmpty(); i++) {
+            result = CadfBitmap.and(result, bitmaps[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case NAME:
+                return name;
+            case TAG:
+                return name + "?value=" + value;
+            default:
+                StringBuilder builder = new StringBuilder("(");
+                for (int i = 0; i < operands.size(); i++) {
+                    if (i > 0) {
+                        builder.append(kind == Kind.AND ? " AND " : " OR ");
+                    }
+                    builder.append(operands.get(i));
+                }
+                return builder.append(')').toString();
+        }
+    }
+}
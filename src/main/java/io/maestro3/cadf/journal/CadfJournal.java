@@ -0,0 +1,362 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.journal;
+
+import io.maestro3.cadf.codec.binary.BinaryOutput;
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+import io.maestro3.cadf.codec.binary.CadfBinaryEventBuilder;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.publisher.ICadfEventSink;
+import io.maestro3.cadf.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable local buffer of events: an append-only sequence of memory-mapped segment files in one directory.
+ * <p/>
+ * Records are encoded with the stateless binary codec, so each of them can be decoded on its own, and framed with
+ * their length and CRC32C. Appending is a memory copy into the mapped segment, the OS writes pages back on its own
+ * and {@link #sync()} (explicit, or every {@code syncEveryRecords} records / {@code syncInterval}) forces them to
+ * disk. Segments roll over when the next record does not fit or the segment is older than {@code maxSegmentAge}.
+ * <p/>
+ * Positions returned by {@link #append} are journal-wide: the base position of the segment, which is also its file
+ * name, plus the record offset within it. Opening an existing directory continues after its last valid record and
+ * clears a record torn by a crash. Appending is thread-safe, encoding happens outside of the journal lock.
+ * <p/>
+ * Each segment gets a sparse time and resource id index and a tag index, built on append and persisted next to the
+ * segment when it rolls over or the journal is closed. After a crash the index of the last segment is extended from
+ * its last persisted state, see {@link CadfJournalSearch} for lookups.
+ */
+public final class CadfJournal implements ICadfEventSink, Closeable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final Duration DEFAULT_MAX_SEGMENT_AGE = Duration.ofHours(1);
+
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxSegmentAgeMillis;
+    private final int syncEveryRecords;
+    private final long syncIntervalNanos;
+    private final CadfBinaryCodec codec;
+    private final int indexBlockSize;
+    private final ThreadLocal<Encoded> encoded = ThreadLocal.withInitial(Encoded::new);
+    private final Object lock = new Object();
+
+    private JournalSegment segment;
+    private JournalIndex index;
+    private int writeOffset;
+    private int syncedOffset;
+    private int unsyncedRecords;
+    private long lastSyncNanos = System.nanoTime();
+    private boolean closed;
+
+    private CadfJournal(Builder builder) throws IOException {
+        this.directory = builder.directory;
+        this.segmentSize = builder.segmentSize;
+        this.maxSegmentAgeMillis = builder.maxSegmentAge.toMillis();
+        this.syncEveryRecords = builder.syncEveryRecords;
+        this.syncIntervalNanos = builder.syncInterval.toNanos();
+        this.codec = builder.codec;
+        this.indexBlockSize = builder.indexBlockSize;
+        Files.createDirectories(directory);
+        List<Path> segments = JournalSegment.list(directory);
+        if (segments.isEmpty()) {
+            roll(0);
+        } else {
+            segment = JournalSegment.open(segments.get(segments.size() - 1), true);
+            writeOffset = segment.scanEnd();
+            segment.clearTorn(writeOffset);
+            syncedOffset = writeOffset;
+            index = JournalIndex.read(JournalIndex.path(segment.path()));
+            if (index == null || index.blockSize() != indexBlockSize || index.coveredEnd() > writeOffset) {
+                index = new JournalIndex(indexBlockSize);
+            }
+            index.extend(segment, codec);
+        }
+    }
+
+    public static Builder builder(Path directory) {
+        return new Builder(directory);
+    }
+
+    // ================================= append ========================================
+
+    /**
+     * @return journal position of the record
+     * @throws IllegalArgumentException if the encoded event does not fit into an empty segment
+     * @throws IllegalStateException    if the journal is closed
+     */
+    public long append(CadfAuditEvent event) throws IOException {
+        Assert.notNull(event, "event can not be null");
+        Encoded record = encode(event);
+        synchronized (lock) {
+            return appendLocked(record, event.eventTimeNanos(), id(event.getInitiator()), id(event.getTarget()),
+                id(event.getObserver()), event.getTags());
+        }
+    }
+
+    /**
+     * Appends the event of the builder, encoded without creating it, see {@link CadfBinaryCodec#newEventBuilder()}.
+     * The builder keeps its properties.
+     *
+     * @return journal position of the record
+     * @throws IllegalArgumentException if a required property is missing or the encoded event does not fit into an
+     *                                  empty segment
+     * @throws IllegalStateException    if the journal is closed
+     */
+    public long append(CadfBinaryEventBuilder event) throws IOException {
+        Assert.notNull(event, "event can not be null");
+        Encoded record = encoded.get();
+        record.output.reset();
+        event.encode(record.output);
+        frame(record);
+        synchronized (lock) {
+            return appendLocked(record, event.getEventTimeNanos(), event.getInitiatorId(), event.getTargetId(),
+                event.getObserverId(), event.getTags());
+        }
+    }
+
+    /**
+     * Appends the events and syncs the journal once for the whole batch, regardless of the sync settings.
+     */
+    @Override
+    public void publish(List<CadfAuditEvent> events) {
+        Assert.notNull(events, "events can not be null");
+        try {
+            for (CadfAuditEvent event : events) {
+                Encoded record = encode(event);
+                synchronized (lock) {
+                    appendLocked(record, event.eventTimeNanos(), id(event.getInitiator()), id(event.getTarget()),
+                        id(event.getObserver()), event.getTags());
+                }
+            }
+            sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces all appended records to disk.
+     */
+    public void sync() {
+        synchronized (lock) {
+            if (!closed) {
+                syncLocked();
+            }
+        }
+    }
+
+    /**
+     * @return position the next record will be appended at, if it fits into the current segment
+     */
+    public long getEndPosition() {
+        synchronized (lock) {
+            return segment.basePosition() + writeOffset;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public CadfJournalReader newReader() throws IOException {
+        return CadfJournalReader.open(directory, codec);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            syncLocked();
+            index.write(JournalIndex.path(segment.path()));
+            segment.close();
+        }
+    }
+
+    // ================================= internals ========================================
+
+    private Encoded encode(CadfAuditEvent event) {
+        Encoded record = encoded.get();
+        record.output.reset();
+        codec.encode(event, record.output);
+        frame(record);
+        return record;
+    }
+
+    private void frame(Encoded record) {
+        int length = record.output.size();
+        Assert.isTrue(length <= segmentSize - JournalSegment.HEADER_SIZE - JournalSegment.RECORD_HEADER_SIZE,
+            "encoded event of " + length + " bytes does not fit into a journal segment");
+        record.crc.reset();
+        record.crc.update(record.output.array(), 0, length);
+        record.crcValue = (int) record.crc.getValue();
+    }
+
+    private long appendLocked(Encoded record, long eventTime, String initiatorId, String targetId, String observerId,
+                              List<CadfTag> tags) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("journal is closed");
+        }
+        int length = record.output.size();
+        int recordSize = JournalSegment.RECORD_HEADER_SIZE + length;
+        boolean full = writeOffset + recordSize > segment.capacity();
+        boolean expired = maxSegmentAgeMillis > 0 && writeOffset > JournalSegment.HEADER_SIZE
+            && System.currentTimeMillis() - segment.createdMillis() >= maxSegmentAgeMillis;
+        if (full || expired) {
+            roll(segment.basePosition() + segment.capacity());
+        }
+        int offset = writeOffset;
+        segment.write(offset, record.output.array(), length, record.crcValue);
+        writeOffset = offset + recordSize;
+        index.add(offset, recordSize, eventTime, initiatorId, targetId, observerId, tags);
+        unsyncedRecords++;
+        if ((syncEveryRecords > 0 && unsyncedRecords >= syncEveryRecords)
+            || (syncIntervalNanos > 0 && System.nanoTime() - lastSyncNanos >= syncIntervalNanos)) {
+            syncLocked();
+        }
+        return segment.basePosition() + offset;
+    }
+
+    private void roll(long basePosition) throws IOException {
+        JournalSegment previous = segment;
+        if (previous != null) {
+            syncLocked();
+            index.write(JournalIndex.path(previous.path()));
+        }
+        segment = JournalSegment.create(directory, basePosition, segmentSize, System.currentTimeMillis());
+        writeOffset = JournalSegment.HEADER_SIZE;
+        index = new JournalIndex(indexBlockSize);
+        syncedOffset = writeOffset;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    private void syncLocked() {
+        segment.force(syncedOffset, writeOffset);
+        syncedOffset = writeOffset;
+        unsyncedRecords = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    private static String id(CadfResource resource) {
+        return resource != null ? resource.getId() : null;
+    }
+
+    private static final class Encoded {
+
+        private final BinaryOutput output = new BinaryOutput();
+        private final CRC32C crc = new CRC32C();
+        private int crcValue;
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private final Path directory;
+        private int segmentSize = DEFAULT_SEGMENT_SIZE;
+        private Duration maxSegmentAge = DEFAULT_MAX_SEGMENT_AGE;
+        private int syncEveryRecords;
+        private Duration syncInterval = Duration.ZERO;
+        private CadfBinaryCodec codec = CadfBinaryCodec.create();
+        private int indexBlockSize = JournalIndex.DEFAULT_BLOCK_SIZE;
+
+        private Builder(Path directory) {
+            Assert.notNull(directory, "directory can not be null");
+            this.directory = directory;
+        }
+
+        public Builder withSegmentSize(int segmentSize) {
+            Assert.isTrue(segmentSize >= MIN_SEGMENT_SIZE, "segmentSize must be at least 64KB");
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Age after which the next append starts a new segment, zero disables time based roll-over.
+         */
+        public Builder withMaxSegmentAge(Duration maxSegmentAge) {
+            Assert.notNull(maxSegmentAge, "maxSegmentAge can not be null");
+            Assert.isTrue(!maxSegmentAge.isNegative(), "maxSegmentAge must not be negative");
+            this.maxSegmentAge = maxSegmentAge;
+            return this;
+        }
+
+        /**
+         * Syncs after every given number of appended records, zero (default) leaves it to the other settings.
+         */
+        public Builder withSyncEveryRecords(int syncEveryRecords) {
+            Assert.isTrue(syncEveryRecords >= 0, "syncEveryRecords must not be negative");
+            this.syncEveryRecords = syncEveryRecords;
+            return this;
+        }
+
+        /**
+         * Syncs on the first append after the interval passed since the last sync, zero (default) leaves it to the
+         * other settings. Without any sync setting records reach the disk when the OS writes the pages back, or on
+         * {@link CadfJournal#sync()} and {@link CadfJournal#close()}.
+         */
+        public Builder withSyncInterval(Duration syncInterval) {
+            Assert.notNull(syncInterval, "syncInterval can not be null");
+            Assert.isTrue(!syncInterval.isNegative(), "syncInterval must not be negative");
+            this.syncInterval = syncInterval;
+            return this;
+        }
+
+        /**
+         * Approximate number of record bytes per sparse index entry, smaller blocks make lookups read less and the
+         * index grow larger. Default is one page, 4KB.
+         */
+        public Builder withIndexBlockSize(int indexBlockSize) {
+            Assert.isTrue(indexBlockSize > 0, "indexBlockSize must be positive");
+            this.indexBlockSize = indexBlockSize;
+            return this;
+        }
+
+        /**
+         * Codec with the payload codecs of custom attachment contents, its dictionary is not used.
+         */
+        public Builder withCodec(CadfBinaryCodec codec) {
+            Assert.notNull(codec, "codec can not be null");
+            this.codec = codec;
+            return this;
+        }
+
+        /**
+         * Opens the journal, continuing after the last valid record of an existing one.
+         */
+        public CadfJournal build() throws IOException {
+            return new CadfJournal(this);
+        }
+    }
+}
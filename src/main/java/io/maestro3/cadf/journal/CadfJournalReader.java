@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.journal;
+
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Sequential replay of a journal directory, segment by segment in position order. Within a segment reading stops at
+ * the first invalid record, which is either the end of written records or a record torn by a crash. Not thread-safe.
+ */
+public final class CadfJournalReader implements Closeable {
+
+    private final Path directory;
+    private final CadfBinaryCodec codec;
+    private List<Path> segments;
+    private int segmentIndex = -1;
+    private JournalSegment segment;
+    private int offset;
+    private long position = -1;
+    private byte[] buffer = new byte[4096];
+
+    private CadfJournalReader(Path directory, CadfBinaryCodec codec) {
+        this.directory = directory;
+        this.codec = codec;
+    }
+
+    public static CadfJournalReader open(Path directory) throws IOException {
+        return open(directory, CadfBinaryCodec.create());
+    }
+
+    /**
+     * @param codec codec with the payload codecs the journal was written with
+     */
+    public static CadfJournalReader open(Path directory, CadfBinaryCodec codec) throws IOException {
+        Assert.notNull(directory, "directory can not be null");
+        Assert.notNull(codec, "codec can not be null");
+        CadfJournalReader reader = new CadfJournalReader(directory, codec);
+        reader.segments = JournalSegment.list(directory);
+        return reader;
+    }
+
+    /**
+     * @return next event, or null once the last written record was read
+     */
+    public CadfAuditEvent next() throws IOException {
+        while (true) {
+            if (segment == null && !nextSegment()) {
+                return null;
+            }
+            int length = segment.recordLength(offset);
+            if (length >= 0) {
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length << 1)];
+                }
+                segment.read(offset, buffer, length);
+                position = segment.basePosition() + offset;
+                offset += JournalSegment.RECORD_HEADER_SIZE + length;
+                return codec.decode(buffer, 0, length);
+            }
+            if (segmentIndex == segments.size() - 1) {
+                segments = JournalSegment.list(directory);
+                if (segmentIndex == segments.size() - 1) {
+                    // the writer may still append to the last segment, stay on it
+                    return null;
+                }
+            }
+            closeSegment();
+        }
+    }
+
+    /**
+     * @return journal position of the event last returned by {@link #next()}, or -1
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Continues reading at the record with the given journal position, as returned by {@link CadfJournal#append} or
+     * {@link #position()}. Segments created since the reader was opened are picked up.
+     *
+     * @throws IllegalArgumentException if no segment of the journal contains the position
+     */
+    public void seek(long position) throws IOException {
+        closeSegment();
+        segments = JournalSegment.list(directory);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            if (JournalSegment.basePosition(segments.get(i)) <= position) {
+                openSegment(i);
+                long segmentOffset = position - segment.basePosition();
+                if (segmentOffset < JournalSegment.HEADER_SIZE || segmentOffset > segment.capacity()) {
+                    break;
+                }
+                offset = (int) segmentOffset;
+                this.position = -1;
+                return;
+            }
+        }
+        closeSegment();
+        segmentIndex = -1;
+        throw new IllegalArgumentException("Position " + position + " is not in the journal " + directory);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeSegment();
+    }
+
+    private boolean nextSegment() throws IOException {
+        if (segmentIndex + 1 >= segments.size()) {
+            segments = JournalSegment.list(directory);
+        }
+        return openSegment(segmentIndex + 1);
+    }
+
+    private boolean openSegment(int index) throws IOException {
+        if (index >= segments.size()) {
+            return false;
+        }
+        segment = JournalSegment.open(segments.get(index), false);
+        segmentIndex = index;
+        offset = JournalSegment.HEADER_SIZE;
+        return true;
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+}
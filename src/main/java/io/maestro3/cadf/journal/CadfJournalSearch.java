@@ -0,0 +1,231 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.journal;
+
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+import io.maestro3.cadf.index.CadfTagQuery;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.util.Assert;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Lookups over a journal directory through the sparse segment indexes written by {@link CadfJournal}: by event time
+ * range, by the id of the initiator, target or observer resource, and by tags. Only the index blocks which may
+ * contain matches are decoded, tag lookups decode only the matching records, so only their pages are read; matches
+ * are delivered in journal order.
+ * <p/>
+ * Indexes are cached per instance and extended with records appended since, a segment whose index is missing or
+ * damaged is indexed by one scan in memory. Not thread-safe.
+ */
+public final class CadfJournalSearch {
+
+    private final Path directory;
+    private final CadfBinaryCodec codec;
+    private final Map<Path, JournalIndex> indexes = new HashMap<>();
+    private byte[] buffer = new byte[4096];
+
+    private CadfJournalSearch(Path directory, CadfBinaryCodec codec) {
+        this.directory = directory;
+        this.codec = codec;
+    }
+
+    public static CadfJournalSearch open(Path directory) {
+        return open(directory, CadfBinaryCodec.create());
+    }
+
+    /**
+     * @param codec codec with the payload codecs the journal was written with
+     */
+    public static CadfJournalSearch open(Path directory, CadfBinaryCodec codec) {
+        Assert.notNull(directory, "directory can not be null");
+        Assert.notNull(codec, "codec can not be null");
+        return new CadfJournalSearch(directory, codec);
+    }
+
+    /**
+     * Delivers events with the event time in the inclusive range of epoch nanos.
+     *
+     * @return number of delivered events
+     */
+    public int findByTime(long fromNanos, long toNanos, Consumer<? super CadfAuditEvent> consumer) throws IOException {
+        return find(null, fromNanos, toNanos, consumer);
+    }
+
+    /**
+     * Delivers events with the resource id as initiator, target or observer.
+     *
+     * @return number of delivered events
+     */
+    public int findByResourceId(String resourceId, Consumer<? super CadfAuditEvent> consumer) throws IOException {
+        return findByResourceId(resourceId, Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Delivers events with the resource id as initiator, target or observer and the event time in the inclusive
+     * range of epoch nanos.
+     *
+     * @return number of delivered events
+     */
+    public int findByResourceId(String resourceId, long fromNanos, long toNanos,
+                                Consumer<? super CadfAuditEvent> consumer) throws IOException {
+        Assert.notNull(resourceId, "resourceId can not be null");
+        return find(resourceId, fromNanos, toNanos, consumer);
+    }
+
+    /**
+     * Delivers events matching the tag query, read by the record offsets of the segment tag indexes.
+     *
+     * @return number of delivered events
+     */
+    public int findByTags(CadfTagQuery query, Consumer<? super CadfAuditEvent> consumer) throws IOException {
+        return findByTags(query, Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Delivers events matching the tag query with the event time in the inclusive range of epoch nanos.
+     *
+     * @return number of delivered events
+     */
+    public int findByTags(CadfTagQuery query, long fromNanos, long toNanos,
+                          Consumer<? super CadfAuditEvent> consumer) throws IOException {
+        Assert.notNull(query, "query can not be null");
+        Assert.notNull(consumer, "consumer can not be null");
+        int found = 0;
+        List<Path> segments = JournalSegment.list(directory);
+        indexes.keySet().retainAll(segments);
+        for (Path path : segments) {
+            JournalSegment segment = JournalSegment.open(path, false);
+            try {
+                JournalIndex index = index(path, segment);
+                if (!index.overlaps(fromNanos, toNanos)) {
+                    continue;
+                }
+                for (int offset : query.evaluate(index.tagIndex()).toArray()) {
+                    CadfAuditEvent event = read(segment, offset);
+                    long time = event.eventTimeNanos();
+                    if (time >= fromNanos && time <= toNanos) {
+                        consumer.accept(event);
+                        found++;
+                    }
+                }
+            } finally {
+                segment.close();
+            }
+        }
+        return found;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // ================================= internals ========================================
+
+    private int find(String resourceId, long fromNanos, long toNanos,
+                     Consumer<? super CadfAuditEvent> consumer) throws IOException {
+        Assert.notNull(consumer, "consumer can not be null");
+        int found = 0;
+        List<Path> segments = JournalSegment.list(directory);
+        indexes.keySet().retainAll(segments);
+        for (Path path : segments) {
+            JournalSegment segment = JournalSegment.open(path, false);
+            try {
+                JournalIndex index = index(path, segment);
+                if (resourceId == null) {
+                    for (int block = 0; block < index.blockCount(); block++) {
+                        if (index.overlaps(block, fromNanos, toNanos)) {
+                            found += scan(segment, index, block, null, fromNanos, toNanos, consumer);
+                        }
+                    }
+                } else {
+                    for (int block : index.blocksOf(resourceId)) {
+                        if (index.overlaps(block, fromNanos, toNanos)) {
+                            found += scan(segment, index, block, resourceId, fromNanos, toNanos, consumer);
+                        }
+                    }
+                }
+            } finally {
+                segment.close();
+            }
+        }
+        return found;
+    }
+
+    private JournalIndex index(Path path, JournalSegment segment) throws IOException {
+        JournalIndex index = indexes.get(path);
+        if (index == null) {
+            index = JournalIndex.read(JournalIndex.path(path));
+            if (index == null) {
+                index = new JournalIndex(JournalIndex.DEFAULT_BLOCK_SIZE);
+            }
+            indexes.put(path, index);
+        }
+        // picks up records appended since the index was persisted or last extended
+        index.extend(segment, codec);
+        return index;
+    }
+
+    private int scan(JournalSegment segment, JournalIndex index, int block, String resourceId,
+                     long fromNanos, long toNanos, Consumer<? super CadfAuditEvent> consumer) {
+        int found = 0;
+        int end = index.blockEnd(block);
+        for (int offset = index.blockStart(block); offset < end; ) {
+            int length = segment.recordLength(offset);
+            if (length < 0) {
+                break;
+            }
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length << 1)];
+            }
+            segment.read(offset, buffer, length);
+            offset += JournalSegment.RECORD_HEADER_SIZE + length;
+            CadfAuditEvent event = codec.decode(buffer, 0, length);
+            long time = event.eventTimeNanos();
+            if (time >= fromNanos && time <= toNanos && (resourceId == null || references(event, resourceId))) {
+                consumer.accept(event);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private CadfAuditEvent read(JournalSegment segment, int offset) {
+        int length = segment.recordLength(offset);
+        Assert.isTrue(length >= 0, "no valid record at indexed offset " + offset);
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length << 1)];
+        }
+        segment.read(offset, buffer, length);
+        return codec.decode(buffer, 0, length);
+    }
+
+    private static boolean references(CadfAuditEvent event, String resourceId) {
+        return hasId(event.getInitiator(), resourceId) || hasId(event.getTarget(), resourceId)
+            || hasId(event.getObserver(), resourceId);
+    }
+
+    private static boolean hasId(CadfResource resource, String resourceId) {
+        return resource != null && resourceId.equals(resource.getId());
+    }
+}
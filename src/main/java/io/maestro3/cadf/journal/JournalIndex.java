@@ -0,0 +1,305 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.journal;
+
+import io.maestro3.cadf.codec.binary.BinaryInput;
+import io.maestro3.cadf.codec.binary.BinaryOutput;
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+import io.maestro3.cadf.index.CadfTagIndex;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfTag;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Sparse index of one journal segment, persisted next to it as {@code <base position>.index}.
+ * <p/>
+ * Records are grouped into blocks of about {@code blockSize} bytes, a new block starts with the first record beyond
+ * that size. Per block the index keeps the offset of its first record and the min/max event time, and per resource
+ * id (initiator, target, observer) the blocks containing it. A lookup yields the few blocks worth scanning, so only
+ * their pages are touched. Tags go into a {@link CadfTagIndex} of exact record offsets instead, so tag queries read
+ * only matching records. The index covers the records up to {@link #coveredEnd()} and is extended from there.
+ */
+final class JournalIndex {
+
+    static final String SUFFIX = ".index";
+    static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private static final byte[] MAGIC = {'C', 'A', 'D', 'I'};
+    // version 1 had no tag index, such files are rebuilt
+    private static final int VERSION = 2;
+
+    private final int blockSize;
+    private int blockCount;
+    private int[] blockOffsets = new int[64];
+    private long[] minTimes = new long[64];
+    private long[] maxTimes = new long[64];
+    private final Map<String, Blocks> resourceBlocks = new HashMap<>();
+    private CadfTagIndex tagIndex = new CadfTagIndex();
+    private int coveredEnd = JournalSegment.HEADER_SIZE;
+
+    JournalIndex(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    static Path path(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - JournalSegment.SUFFIX.length()) + SUFFIX);
+    }
+
+    // ================================= building ========================================
+
+    /**
+     * Adds the record which starts at the offset, records have to be added in offset order.
+     */
+    void add(int offset, int recordSize, CadfAuditEvent event) {
+        add(offset, recordSize, event.eventTimeNanos(), id(event.getInitiator()), id(event.getTarget()),
+            id(event.getObserver()), event.getTags());
+    }
+
+    /**
+     * Resource ids and tags may be null.
+     */
+    void add(int offset, int recordSize, long eventTime, String initiatorId, String targetId, String observerId,
+             List<CadfTag> tags) {
+        if (blockCount == 0 || offset >= blockOffsets[blockCount - 1] + blockSize) {
+            startBlock(offset);
+        }
+        int block = blockCount - 1;
+        if (eventTime != CadfAuditEvent.NO_EVENT_TIME) {
+            minTimes[block] = Math.min(minTimes[block], eventTime);
+            maxTimes[block] = Math.max(maxTimes[block], eventTime);
+        }
+        addResource(initiatorId, block);
+        addResource(targetId, block);
+        addResource(observerId, block);
+        tagIndex.add(offset, tags);
+        coveredEnd = offset + recordSize;
+    }
+
+    /**
+     * Indexes the records of the segment beyond {@link #coveredEnd()}.
+     */
+    void extend(JournalSegment segment, CadfBinaryCodec codec) {
+        byte[] buffer = new byte[4096];
+        int offset = coveredEnd;
+        int length;
+        while ((length = segment.recordLength(offset)) >= 0) {
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length << 1)];
+            }
+            segment.read(offset, buffer, length);
+            add(offset, JournalSegment.RECORD_HEADER_SIZE + length, codec.decode(buffer, 0, length));
+            offset += JournalSegment.RECORD_HEADER_SIZE + length;
+        }
+    }
+
+    private void startBlock(int offset) {
+        if (blockCount == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, blockCount << 1);
+            minTimes = Arrays.copyOf(minTimes, blockCount << 1);
+            maxTimes = Arrays.copyOf(maxTimes, blockCount << 1);
+        }
+        blockOffsets[blockCount] = offset;
+        minTimes[blockCount] = Long.MAX_VALUE;
+        maxTimes[blockCount] = Long.MIN_VALUE;
+        blockCount++;
+    }
+
+    private void addResource(String resourceId, int block) {
+        if (resourceId != null) {
+            resourceBlocks.computeIfAbsent(resourceId, id -> new Blocks()).add(block);
+        }
+    }
+
+    private static String id(CadfResource resource) {
+        return resource != null ? resource.getId() : null;
+    }
+
+    // ================================= lookups ========================================
+
+    int blockSize() {
+        return blockSize;
+    }
+
+    int coveredEnd() {
+        return coveredEnd;
+    }
+
+    int blockCount() {
+        return blockCount;
+    }
+
+    int blockStart(int block) {
+        return blockOffsets[block];
+    }
+
+    /**
+     * @return offset after the last record of the block
+     */
+    int blockEnd(int block) {
+        return block + 1 < blockCount ? blockOffsets[block + 1] : coveredEnd;
+    }
+
+    /**
+     * @return whether any event of the segment may fall into the inclusive time range
+     */
+    boolean overlaps(long fromNanos, long toNanos) {
+        for (int block = 0; block < blockCount; block++) {
+            if (overlaps(block, fromNanos, toNanos)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean overlaps(int block, long fromNanos, long toNanos) {
+        return minTimes[block] <= toNanos && maxTimes[block] >= fromNanos;
+    }
+
+    /**
+     * @return ascending blocks containing the resource id, empty if there are none
+     */
+    int[] blocksOf(String resourceId) {
+        Blocks blocks = resourceBlocks.get(resourceId);
+        return blocks != null ? Arrays.copyOf(blocks.values, blocks.size) : new int[0];
+    }
+
+    /**
+     * @return index from tags to record offsets
+     */
+    CadfTagIndex tagIndex() {
+        return tagIndex;
+    }
+
+    // ================================= persistence ========================================
+
+    /**
+     * Writes the index through a temporary file, so a crash leaves either the old or the new index.
+     */
+    void write(Path file) throws IOException {
+        BinaryOutput out = new BinaryOutput(blockCount * 20 + resourceBlocks.size() * 32 + 64);
+        out.writeBytes(MAGIC, 0, MAGIC.length)
+            .writeVarInt(VERSION)
+            .writeVarInt(blockSize)
+            .writeVarInt(coveredEnd)
+            .writeVarInt(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            out.writeVarInt(blockOffsets[block])
+                .writeZigZagLong(minTimes[block])
+                .writeZigZagLong(maxTimes[block]);
+        }
+        out.writeVarInt(resourceBlocks.size());
+        for (Map.Entry<String, Blocks> entry : resourceBlocks.entrySet()) {
+            Blocks blocks = entry.getValue();
+            out.writeString(entry.getKey()).writeVarInt(blocks.size);
+            int previous = 0;
+            for (int i = 0; i < blocks.size; i++) {
+                out.writeVarInt(blocks.values[i] - previous);
+                previous = blocks.values[i];
+            }
+        }
+        tagIndex.write(out);
+        CRC32C crc = new CRC32C();
+        crc.update(out.array(), 0, out.size());
+        out.writeInt((int) crc.getValue());
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, out.toByteArray());
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return persisted index, or null if there is none or it is damaged, then the segment has to be reindexed
+     */
+    static JournalIndex read(Path file) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (bytes.length < MAGIC.length + 4 || !Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC)) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length - 4);
+        BinaryInput in = new BinaryInput(bytes, bytes.length - 4, 4);
+        if (in.readInt() != (int) crc.getValue()) {
+            return null;
+        }
+        try {
+            in.reset(bytes, MAGIC.length, bytes.length - 4 - MAGIC.length);
+            if (in.readVarInt() != VERSION) {
+                return null;
+            }
+            JournalIndex index = new JournalIndex(in.readVarInt());
+            index.coveredEnd = in.readVarInt();
+            int blockCount = in.readVarInt();
+            for (int block = 0; block < blockCount; block++) {
+                index.startBlock(in.readVarInt());
+                index.minTimes[block] = in.readZigZagLong();
+                index.maxTimes[block] = in.readZigZagLong();
+            }
+            int resourceCount = in.readVarInt();
+            for (int i = 0; i < resourceCount; i++) {
+                String id = in.readString();
+                int size = in.readVarInt();
+                Blocks blocks = new Blocks();
+                int block = 0;
+                for (int j = 0; j < size; j++) {
+                    block += in.readVarInt();
+                    blocks.add(block);
+                }
+                index.resourceBlocks.put(id, blocks);
+            }
+            index.tagIndex = CadfTagIndex.read(in);
+            return index;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Ascending distinct block numbers.
+     */
+    private static final class Blocks {
+
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int block) {
+            if (size > 0 && values[size - 1] == block) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = block;
+        }
+    }
+}
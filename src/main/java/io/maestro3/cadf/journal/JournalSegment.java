@@ -0,0 +1,236 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.journal;
+
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Memory-mapped segment file of the journal, named after its base position: the journal position of its first byte.
+ * <p/>
+ * Layout: a {@value #HEADER_SIZE} byte header (magic, version, taxonomy fingerprint, base position, creation time)
+ * followed by records of {@code [int length][int crc32c][length bytes of binary encoded event]}. The file is
+ * preallocated, a zero length marks the end of written records. Instances are confined to one reader or writer.
+ */
+final class JournalSegment implements Closeable {
+
+    static final String SUFFIX = ".segment";
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte[] MAGIC = {'C', 'A', 'D', 'J'};
+    private static final int VERSION = 1;
+    private static final int FINGERPRINT_OFFSET = 8;
+    private static final int BASE_POSITION_OFFSET = 16;
+    private static final int CREATED_OFFSET = 24;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long basePosition;
+    private final long createdMillis;
+    private final CRC32C crc = new CRC32C();
+
+    private JournalSegment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.basePosition = buffer.getLong(BASE_POSITION_OFFSET);
+        this.createdMillis = buffer.getLong(CREATED_OFFSET);
+    }
+
+    static JournalSegment create(Path directory, long basePosition, int size, long createdMillis) throws IOException {
+        Path path = directory.resolve(fileName(basePosition));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.put(0, MAGIC);
+            buffer.putInt(MAGIC.length, VERSION);
+            buffer.putInt(FINGERPRINT_OFFSET, CadfBinaryCodec.getTaxonomyFingerprint());
+            buffer.putLong(BASE_POSITION_OFFSET, basePosition);
+            buffer.putLong(CREATED_OFFSET, createdMillis);
+            buffer.force(0, HEADER_SIZE);
+            return new JournalSegment(path, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the file is not a journal segment of this format and taxonomy
+     */
+    static JournalSegment open(Path path, boolean writable) throws IOException {
+        FileChannel channel = writable
+            ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            : FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Not a journal segment: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                0, size);
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(0, magic);
+            if (!Arrays.equals(magic, MAGIC) || buffer.getInt(MAGIC.length) != VERSION) {
+                throw new IllegalArgumentException("Not a journal segment of version " + VERSION + ": " + path);
+            }
+            if (buffer.getInt(FINGERPRINT_OFFSET) != CadfBinaryCodec.getTaxonomyFingerprint()) {
+                throw new IllegalArgumentException("Journal segment was written with a different cadf taxonomy: " + path);
+            }
+            return new JournalSegment(path, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return segment files of the directory ordered by base position
+     */
+    static List<Path> list(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).forEach(segments::add);
+        }
+        segments.sort((left, right) -> Long.compare(basePosition(left), basePosition(right)));
+        return segments;
+    }
+
+    static String fileName(long basePosition) {
+        return String.format("%020d%s", basePosition, SUFFIX);
+    }
+
+    static long basePosition(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a journal segment name: " + file, e);
+        }
+    }
+
+    // ================================= records ========================================
+
+    /**
+     * @return length of the valid record at the offset, or -1 if there is none: end of written records, or a record
+     * torn by a crash
+     */
+    int recordLength(int offset) {
+        if (offset < HEADER_SIZE || offset > buffer.capacity() - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > buffer.capacity() - offset - RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        int expectedCrc = buffer.getInt(offset + 4);
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(offset + RECORD_HEADER_SIZE + length).position(offset + RECORD_HEADER_SIZE);
+        crc.reset();
+        crc.update(payload);
+        return (int) crc.getValue() == expectedCrc ? length : -1;
+    }
+
+    /**
+     * @return offset after the last valid record
+     */
+    int scanEnd() {
+        int offset = HEADER_SIZE;
+        int length;
+        while ((length = recordLength(offset)) >= 0) {
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Writes the payload before the length, so a concurrent reader never sees a length without its record.
+     */
+    void write(int offset, byte[] payload, int length, int payloadCrc) {
+        buffer.put(offset + RECORD_HEADER_SIZE, payload, 0, length);
+        buffer.putInt(offset + 4, payloadCrc);
+        buffer.putInt(offset, length);
+    }
+
+    void read(int offset, byte[] target, int length) {
+        buffer.get(offset + RECORD_HEADER_SIZE, target, 0, length);
+    }
+
+    /**
+     * Clears the remains of a record torn by a crash at the offset after the last valid record: its header and the
+     * payload its length claims, instead of the whole preallocated rest of the file. A payload left without a length
+     * is overwritten by the next append, stale bytes after it fail the CRC check like any torn record.
+     */
+    void clearTorn(int offset) {
+        int end = Math.min(offset + RECORD_HEADER_SIZE, buffer.capacity());
+        if (end - offset == RECORD_HEADER_SIZE) {
+            int length = buffer.getInt(offset);
+            if (length > 0) {
+                end = (int) Math.min((long) end + length, buffer.capacity());
+            }
+        }
+        byte[] zeros = new byte[Math.min(8192, end - offset)];
+        for (int position = offset; position < end; position += zeros.length) {
+            buffer.put(position, zeros, 0, Math.min(zeros.length, end - position));
+        }
+    }
+
+    void force(int fromOffset, int toOffset) {
+        if (toOffset > fromOffset) {
+            buffer.force(fromOffset, toOffset - fromOffset);
+        }
+    }
+
+    // ================================= properties ========================================
+
+    Path path() {
+        return path;
+    }
+
+    long basePosition() {
+        return basePosition;
+    }
+
+    long createdMillis() {
+        return createdMillis;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -19,18 +19,32 @@ package io.maestro3.cadf.model;
 import io.maestro3.cadf.ICadfAction;
 import io.maestro3.cadf.util.Assert;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public final class CadfActions {
 
+    /*
+     * Every action below is a canonical singleton: the fluent methods hand out the same instances, so actions can be
+     * compared with == or by ordinal. Ordinals are assigned in declaration order while the class is initialized.
+     */
+    private static final List<CadfAction> REGISTRY = new ArrayList<>();
+
     private CadfActions() {
         throw new UnsupportedOperationException("Instantiation is forbidden.");
     }
 
     // ======================= Onboarding ==========================================
 
+    private static final CadfOnboardAction ONBOARD = new CadfOnboardAction("");
+    private static final CadfOnboardAction ONBOARD_AZURE = new CadfOnboardAction("/azure");
+
     public static CadfOnboardAction onboard() {
-        return new CadfOnboardAction("");
+        return ONBOARD;
     }
 
     public static final class CadfOnboardAction extends CadfAction {
@@ -39,14 +53,22 @@ public final class CadfActions {
         }
 
         public ICadfAction azure() {
-            return new CadfOnboardAction("/azure");
+            return ONBOARD_AZURE;
         }
     }
 
     // ======================= Security ============================================
 
+    private static final CadfSecurityAction SECURITY = new CadfSecurityAction("");
+    private static final CadfSecurityAction.CadfUnauthorizedAction SECURITY_UNAUTHORIZED =
+        new CadfSecurityAction.CadfUnauthorizedAction("");
+    private static final CadfSecurityAction.CadfUnauthorizedAction SECURITY_UNAUTHORIZED_PERMISSION_CHANGE =
+        new CadfSecurityAction.CadfUnauthorizedAction("/permissionChange");
+    private static final CadfSecurityAction.CadfUnauthorizedAction SECURITY_UNAUTHORIZED_NETWORK_CHANGE =
+        new CadfSecurityAction.CadfUnauthorizedAction("/networkChange");
+
     public static CadfSecurityAction security() {
-        return new CadfSecurityAction("");
+        return SECURITY;
     }
 
     public static class CadfSecurityAction extends CadfAction {
@@ -55,7 +77,7 @@ public final class CadfActions {
         }
 
         public CadfUnauthorizedAction unauthorized() {
-            return new CadfUnauthorizedAction("");
+            return SECURITY_UNAUTHORIZED;
         }
 
         public static final class CadfUnauthorizedAction extends CadfSecurityAction {
@@ -64,39 +86,66 @@ public final class CadfActions {
             }
 
             public ICadfAction permissionChange() {
-                return new CadfUnauthorizedAction("/permissionChange");
+                return SECURITY_UNAUTHORIZED_PERMISSION_CHANGE;
             }
 
             public ICadfAction networkChange() {
-                return new CadfUnauthorizedAction("/networkChange");
+                return SECURITY_UNAUTHORIZED_NETWORK_CHANGE;
             }
         }
     }
 
     // ======================= general resource management =========================
 
+    private static final CadfAction CREATE = new CadfAction("create");
+    private static final CadfAction READ = new CadfAction("read");
+    private static final CadfAction RENEW = new CadfAction("renew");
+    private static final CadfAction ENABLE = new CadfAction("enable");
+    private static final CadfAction SEND = new CadfAction("send");
+    private static final CadfUpdateAction UPDATE = new CadfUpdateAction("");
+    private static final CadfUpdateAction UPDATE_SIZE = new CadfUpdateAction("/size");
+    private static final CadfTerminatedAction TERMINATED = new CadfTerminatedAction("");
+    private static final CadfAction TERMINATED_INSTANCE = new CadfAction("/instance");
+    private static final CadfAction TERMINATED_HARDWARE = new CadfAction("/hardware");
+    private static final CadfAction DELETE = new CadfAction("delete");
+    private static final CadfAction ERROR = new CadfAction("error");
+    private static final CadfAction LOSE = new CadfAction("lose");
+    private static final CadfAction DISCOVER = new CadfAction("discover");
+    private static final CadfAction ATTACH = new CadfAction("attach");
+    private static final CadfAction DETACH = new CadfAction("detach");
+    private static final CadfAction TAG = new CadfAction("tag");
+    private static final CadfAction UNTAG = new CadfAction("untag");
+    private static final CadfAction LOCK = new CadfAction("lock");
+    private static final CadfAction UNLOCK = new CadfAction("unlock");
+    private static final CadfAction PROLONG_LOCK = new CadfAction("prolongLock");
+    private static final CadfAction INSTALL_CW = new CadfAction("installCW");
+    private static final CadfAction UNINSTALL_CW = new CadfAction("uninstallCW");
+    private static final CadfMoveAction MOVE = new CadfMoveAction("");
+    private static final CadfAction MOVE_TO = new CadfAction(MOVE.getRelativeUri() + "/to");
+    private static final CadfAction MOVE_FROM = new CadfAction(MOVE.getRelativeUri() + "/from");
+
     public static ICadfAction create() {
-        return new CadfAction("create");
+        return CREATE;
     }
 
     public static ICadfAction read() {
-        return new CadfAction("read");
+        return READ;
     }
 
     public static ICadfAction renew() {
-        return new CadfAction("renew");
+        return RENEW;
     }
 
     public static ICadfAction enable() {
-        return new CadfAction("enable");
+        return ENABLE;
     }
 
     public static ICadfAction send() {
-        return new CadfAction("send");
+        return SEND;
     }
 
     public static CadfUpdateAction update() {
-        return new CadfUpdateAction("");
+        return UPDATE;
     }
 
     public static final class CadfUpdateAction extends CadfAction {
@@ -105,12 +154,12 @@ public final class CadfActions {
         }
 
         public ICadfAction size() {
-            return new CadfUpdateAction("/size");
+            return UPDATE_SIZE;
         }
     }
 
     public static CadfTerminatedAction terminated() {
-        return new CadfTerminatedAction("");
+        return TERMINATED;
     }
 
     public static final class CadfTerminatedAction extends CadfAction {
@@ -119,68 +168,68 @@ public final class CadfActions {
         }
 
         public ICadfAction instance() {
-            return new CadfAction("/instance");
+            return TERMINATED_INSTANCE;
         }
 
         public ICadfAction hardware() {
-            return new CadfAction("/hardware");
+            return TERMINATED_HARDWARE;
         }
     }
 
     public static ICadfAction delete() {
-        return new CadfAction("delete");
+        return DELETE;
     }
 
     public static ICadfAction error() {
-        return new CadfAction("error");
+        return ERROR;
     }
 
     public static ICadfAction lose() {
-        return new CadfAction("lose");
+        return LOSE;
     }
 
     public static ICadfAction discover() {
-        return new CadfAction("discover");
+        return DISCOVER;
     }
 
     public static ICadfAction attach() {
-        return new CadfAction("attach");
+        return ATTACH;
     }
 
     public static ICadfAction detach() {
-        return new CadfAction("detach");
+        return DETACH;
     }
 
     public static ICadfAction tag() {
-        return new CadfAction("tag");
+        return TAG;
     }
 
     public static ICadfAction untag() {
-        return new CadfAction("untag");
+        return UNTAG;
     }
 
     public static ICadfAction lock() {
-        return new CadfAction("lock");
+        return LOCK;
     }
 
     public static ICadfAction unlock() {
-        return new CadfAction("unlock");
+        return UNLOCK;
     }
 
     public static ICadfAction prolongLock() {
-        return new CadfAction("prolongLock");
+        return PROLONG_LOCK;
     }
 
     public static ICadfAction installCW() {
-        return new CadfAction("installCW");
+        return INSTALL_CW;
     }
 
     public static ICadfAction uninstallCW() {
-        return new CadfAction("uninstallCW");
+        return UNINSTALL_CW;
     }
 
     public static CadfMoveAction move() {
-        return new CadfMoveAction("");
+        return MOVE;
     }
 
     public static final class CadfMoveAction extends CadfAction {
@@ -190,18 +239,27 @@ public final class CadfActions {
         }
 
         public ICadfAction to() {
-            return new CadfAction(getRelativeUri() + "/to");
+            return MOVE_TO;
         }
 
         public ICadfAction from() {
-            return new CadfAction(getRelativeUri() + "/from");
+            return MOVE_FROM;
         }
     }
 
     // ============================= monitoring ====================================
 
+    private static final CadfCaptureAction CAPTURE = new CadfCaptureAction("");
+    private static final CadfCaptureAction CAPTURE_START = new CadfCaptureAction("/start");
+    private static final CadfCaptureAction CAPTURE_STOP = new CadfCaptureAction("/stop");
+    private static final CadfCaptureAction CAPTURE_UPDATE = new CadfCaptureAction("/update");
+    private static final CadfCaptureAction CAPTURE_INSTANCE = new CadfCaptureAction("/instance");
+    private static final CadfCaptureAction CAPTURE_HARDWARE = new CadfCaptureAction("/hardware");
+    private static final CadfCaptureAction CAPTURE_VOLUME = new CadfCaptureAction("/volume");
+    private static final CadfCaptureAction CAPTURE_CHECKPOINT = new CadfCaptureAction("/checkpoint");
+
     public static CadfCaptureAction monitor() {
-        return new CadfCaptureAction("");
+        return CAPTURE;
     }
 
     public static final class CadfCaptureAction extends CadfAction {
@@ -211,38 +269,47 @@ public final class CadfActions {
         }
 
         public CadfCaptureAction start() {
-            return new CadfCaptureAction("/start");
+            return CAPTURE_START;
         }
 
         public CadfCaptureAction stop() {
-            return new CadfCaptureAction("/stop");
+            return CAPTURE_STOP;
         }
 
         public CadfCaptureAction update() {
-            return new CadfCaptureAction("/update");
+            return CAPTURE_UPDATE;
         }
 
         public CadfCaptureAction instance() {
-            return new CadfCaptureAction("/instance");
+            return CAPTURE_INSTANCE;
         }
 
         public CadfCaptureAction hardware() {
-            return new CadfCaptureAction("/hardware");
+            return CAPTURE_HARDWARE;
         }
 
         public CadfCaptureAction volume() {
-            return new CadfCaptureAction("/volume");
+            return CAPTURE_VOLUME;
         }
 
         public CadfCaptureAction checkpoint() {
-            return new CadfCaptureAction("/checkpoint");
+            return CAPTURE_CHECKPOINT;
         }
 
     }
 
     // ============================= commands ====================================
+
+    private static final CadfCommandAction COMMAND = new CadfCommandAction("");
+    private static final CadfCommandAction COMMAND_START = new CadfCommandAction("/start");
+    private static final CadfCommandAction COMMAND_CREATE = new CadfCommandAction("/create");
+    private static final CadfCommandAction COMMAND_STOP = new CadfCommandAction("/stop");
+    private static final CadfCommandAction COMMAND_REBOOT = new CadfCommandAction("/reboot");
+    private static final CadfCommandAction COMMAND_RESIZE = new CadfCommandAction("/resize");
+    private static final CadfCommandAction COMMAND_DELETE = new CadfCommandAction("/delete");
+
     public static CadfCommandAction command() {
-        return new CadfCommandAction("");
+        return COMMAND;
     }
 
     public static final class CadfCommandAction extends CadfAction {
@@ -251,90 +318,106 @@ public final class CadfActions {
         }
 
         public CadfCommandAction start() {
-            return new CadfCommandAction("/start");
+            return COMMAND_START;
         }
 
         public CadfCommandAction create() {
-            return new CadfCommandAction("/create");
+            return COMMAND_CREATE;
         }
 
         public CadfCommandAction stop() {
-            return new CadfCommandAction("/stop");
+            return COMMAND_STOP;
         }
 
         public CadfCommandAction reboot() {
-            return new CadfCommandAction("/reboot");
+            return COMMAND_REBOOT;
         }
         public CadfCommandAction resize() {
-            return new CadfCommandAction("/resize");
+            return COMMAND_RESIZE;
         }
 
         public CadfCommandAction delete() {
-            return new CadfCommandAction("/delete");
+            return COMMAND_DELETE;
         }
 
     }
 
     // ===================== workload and data management ==========================
 
+    private static final CadfAction START = new CadfAction("start");
+    private static final CadfAction STOP = new CadfAction("stop");
+    private static final CadfAction PLAN = new CadfAction("plan");
+    private static final CadfAction SUSPEND = new CadfAction("suspend");
+    private static final CadfAction PAUSED = new CadfAction("paused");
+    private static final CadfAction RESCUE = new CadfAction("rescue");
+    private static final CadfAction CONFIGURE = new CadfAction("configure");
+    private static final CadfAction ALLOW = new CadfAction("allow");
+    private static final CadfAction DENY = new CadfAction("deny");
+    private static final CadfAction RESTORE = new CadfAction("restore");
+    private static final CadfAction DEPLOY = new CadfAction("deploy");
+    private static final CadfAction UNDEPLOY = new CadfAction("undeploy");
+    private static final CadfAction DISABLE = new CadfAction("disable");
+    private static final CadfAction NOTIFY = new CadfAction("notify");
+    private static final CadfAction SCAN = new CadfAction("scan");
+
     public static ICadfAction start() {
-        return new CadfAction("start");
+        return START;
     }
 
     public static ICadfAction stop() {
-        return new CadfAction("stop");
+        return STOP;
     }
 
     public static ICadfAction plan() {
-        return new CadfAction("plan");
+        return PLAN;
     }
 
     public static ICadfAction suspend() {
-        return new CadfAction("suspend");
+        return SUSPEND;
     }
 
     public static ICadfAction paused() {
-        return new CadfAction("paused");
+        return PAUSED;
     }
 
     public static ICadfAction rescue() {
-        return new CadfAction("rescue");
+        return RESCUE;
     }
 
     public static ICadfAction configure() {
-        return new CadfAction("configure");
+        return CONFIGURE;
     }
 
     public static ICadfAction allow() {
-        return new CadfAction("allow");
+        return ALLOW;
     }
 
     public static ICadfAction deny() {
-        return new CadfAction("deny");
+        return DENY;
     }
 
     public static ICadfAction restore() {
-        return new CadfAction("restore");
+        return RESTORE;
     }
 
     public static ICadfAction deploy() {
-        return new CadfAction("deploy");
+        return DEPLOY;
     }
 
     public static ICadfAction undeploy() {
-        return new CadfAction("undeploy");
+        return UNDEPLOY;
     }
 
     public static ICadfAction disable() {
-        return new CadfAction("disable");
+        return DISABLE;
     }
 
     public static ICadfAction cadfNotify() {
-        return new CadfAction("notify");
+        return NOTIFY;
     }
 
     public static ICadfAction scan() {
-        return new CadfAction("scan");
+        return SCAN;
     }
 
 //    backup
@@ -354,9 +437,12 @@ public final class CadfActions {
     private static class CadfAction implements ICadfAction {
 
         private final String relativeUri;
+        private final int ordinal;
 
         CadfAction(String relativeUri) {
             this.relativeUri = relativeUri;
+            this.ordinal = REGISTRY.size();
+            REGISTRY.add(this);
         }
 
         @Override
@@ -364,6 +450,11 @@ public final class CadfActions {
             return relativeUri;
         }
 
+        @Override
+        public int getOrdinal() {
+            return ordinal;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -378,124 +469,53 @@ public final class CadfActions {
         }
     }
 
+    // ============================= registry ====================================
+
+    private static final List<ICadfAction> VALUES = Collections.unmodifiableList(new ArrayList<>(REGISTRY));
+
+    private static final Map<String, ICadfAction> BY_RELATIVE_URI = indexByRelativeUri();
+
+    private static Map<String, ICadfAction> indexByRelativeUri() {
+        Map<String, ICadfAction> index = new HashMap<>(REGISTRY.size() * 2);
+        for (CadfAction action : REGISTRY) {
+            index.put(action.getRelativeUri(), action);
+        }
+        // aliases historically accepted by byRelativeURI, kept for already persisted events
+        index.put("monitor", CAPTURE);
+        index.put("monitor/start", CAPTURE_START);
+        index.put("monitor/stop", CAPTURE_STOP);
+        index.put("monitor/update", CAPTURE_UPDATE);
+        index.put("monitor/instance", CAPTURE_INSTANCE);
+        index.put("monitor/hardware", CAPTURE_HARDWARE);
+        index.put("monitor/volume", CAPTURE_VOLUME);
+        index.put("monitor/checkpoint", CAPTURE_CHECKPOINT);
+        index.put("terminated", TERMINATED);
+        index.put("terminated/instance", TERMINATED_INSTANCE);
+        index.put("terminated/hardware", TERMINATED_HARDWARE);
+        return index;
+    }
+
+    /**
+     * @return all canonical actions, indexed by their ordinal
+     */
+    public static List<ICadfAction> values() {
+        return VALUES;
+    }
+
+    public static ICadfAction byOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.size()) {
+            throw new IllegalArgumentException("Action ordinal " + ordinal + " is out of range.");
+        }
+        return VALUES.get(ordinal);
+    }
+
     public static ICadfAction byRelativeURI(String uri) {
         Assert.notNull(uri, "uri");
-        switch (uri) {
-            case "configure":
-                return configure();
-            case "suspend":
-                return suspend();
-            case "stop":
-                return stop();
-            case "plan":
-                return plan();
-            case "start":
-                return start();
-            case "monitor":
-                return monitor();
-            case "monitor/start":
-                return monitor().start();
-            case "monitor/stop":
-                return monitor().stop();
-            case "monitor/update":
-                return monitor().update();
-            case "monitor/instance":
-                return monitor().instance();
-            case "monitor/hardware":
-                return monitor().hardware();
-            case "monitor/volume":
-                return monitor().volume();
-            case "monitor/checkpoint":
-                return monitor().checkpoint();
-            case "command":
-                return command();
-            case "command/create":
-                return command().create();
-            case "command/start":
-                return command().start();
-            case "command/stop":
-                return command().stop();
-            case "command/reboot":
-                return command().reboot();
-            case "command/resize":
-                return command().resize();
-            case "command/delete":
-                return command().delete();
-            case "move":
-                return move();
-            case "move/to":
-                return move().to();
-            case "move/from":
-                return move().from();
-            case "detach":
-                return detach();
-            case "attach":
-                return attach();
-            case "discover":
-                return discover();
-            case "lose":
-                return lose();
-            case "delete":
-                return delete();
-            case "update":
-                return update();
-            case "update/size":
-                return update().size();
-            case "read":
-                return read();
-            case "create":
-                return create();
-            case "renew":
-                return renew();
-            case "enable":
-                return enable();
-            case "send":
-                return send();
-            case "terminated":
-                return terminated();
-            case "terminated/instance":
-                return terminated().instance();
-            case "terminated/hardware":
-                return terminated().hardware();
-            case "tag":
-                return tag();
-            case "untag":
-                return untag();
-            case "allow":
-                return allow();
-            case "deny":
-                return deny();
-            case "restore":
-                return restore();
-            case "deploy":
-                return deploy();
-            case "undeploy":
-                return undeploy();
-            case "disable":
-                return disable();
-            case "notify":
-                return cadfNotify();
-            case "lock":
-                return lock();
-            case "unlock":
-                return unlock();
-            case "prolongLock":
-                return prolongLock();
-            case "installCW":
-                return installCW();
-            case "scan":
-                return scan();
-            case "uninstallCW":
-                return uninstallCW();
-            case "onboard/azure":
-                return onboard().azure();
-            case "security/unauthorized/permissionChange":
-                return security().unauthorized().permissionChange();
-            case "security/unauthorized/networkChange":
-                return security().unauthorized().networkChange();
-            default:
-                throw new UnsupportedOperationException("Action with uri: '" + uri + "' is unsupported.");
+        ICadfAction action = BY_RELATIVE_URI.get(uri);
+        if (action == null) {
+            throw new UnsupportedOperationException("Action with uri: '" + uri + "' is unsupported.");
         }
+        return action;
     }
 
 }
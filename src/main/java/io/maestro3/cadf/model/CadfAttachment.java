@@ -21,6 +21,7 @@ import io.maestro3.cadf.util.Assert;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import java.util.Objects;
 
 // type - cadf:attachment (http://schemas.dmtf.org/cloud/audit/1.0/attachment)
 public class CadfAttachment<T> {
@@ -119,11 +120,46 @@ public class CadfAttachment<T> {
         }
     }
 
+    /**
+     * Hook for subclasses holding the content in an encoded form until it is accessed, toString prints the pending
+     * content instead of decoding it.
+     *
+     * @return content not decoded yet, or null if the content is held as is
+     */
+    protected Object pendingContent() {
+        return null;
+    }
+
+    /**
+     * Contents are compared deeply, so array contents compare by their elements. The hash code leaves the content
+     * out, to keep hashing cheap for large contents. Subclasses compare equal to plain attachments with the same
+     * values, they only differ in how the content is held.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CadfAttachment)) {
+            return false;
+        }
+        CadfAttachment<?> that = (CadfAttachment<?>) o;
+        return Objects.equals(contentType, that.contentType)
+            && Objects.equals(name, that.name)
+            && Objects.deepEquals(getContent(), that.getContent());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(contentType) + Objects.hashCode(name);
+    }
+
     @Override
     public String toString() {
+        Object pending = pendingContent();
         return "CadfAttachment{" +
             "contentType='" + contentType + '\'' +
-            ", content=" + content +
+            ", content=" + (pending != null ? pending : content) +
             ", name='" + name + '\'' +
             '}';
     }
@@ -19,18 +19,29 @@ package io.maestro3.cadf.model;
 import io.maestro3.cadf.ICadfAction;
 import io.maestro3.cadf.ICadfOutcome;
 import io.maestro3.cadf.util.Assert;
+import io.maestro3.cadf.util.CadfIdGenerator;
+import io.maestro3.cadf.util.CadfTimestamps;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 public class CadfAuditEvent {
 
+    public static final String EVENT_TYPE_URI = "http://schemas.dmtf.org/cloud/audit/1.0/event";
+
+    /**
+     * {@link #eventTimeNanos()} of an event without event time.
+     */
+    public static final long NO_EVENT_TIME = Long.MIN_VALUE;
+
     // =============================== all of the following are required ======================================
 
     @NotBlank
     // type - cadf:path
-    private String typeURI = "http://schemas.dmtf.org/cloud/audit/1.0/event";
+    private String typeURI = EVENT_TYPE_URI;
 
     @NotBlank
     // type - cadf:identifier
@@ -39,10 +50,13 @@ public class CadfAuditEvent {
     @NotBlank
     protected String eventType; // monitor or activity or control
 
-    @NotBlank
     // type - cadf:timestamp
+    // set by mappers and subclasses, events built by the builder render it from eventTimeNanos on first use
     protected String eventTime; // "yyyy-mm-ddThh:mm:ss(.s+)+00:00"
 
+    // eventTime as epoch nanos, parsed on first use if only the string was set
+    private transient long eventTimeNanos = NO_EVENT_TIME;
+
     /*
      * Within the context of the CADF Event Record, specifically when used as value for the "action" property
      * of the CADF Event data type, the CADF Action Taxonomy URI (http://schemas.dmtf.org/cloud/audit/1.0/taxonomy/action/)
@@ -131,8 +145,35 @@ public class CadfAuditEvent {
         return eventType;
     }
 
+    /**
+     * Rendered on first call for events of the builder, which keeps the instant only. Any offset given to
+     * {@link Builder#withEventTime(String)} is normalized to UTC, {@code 2001-07-04T12:08:56.235-07:00} is returned
+     * as {@code 2001-07-04T19:08:56.235+00:00}.
+     *
+     * @return event time in the {@code yyyy-mm-ddThh:mm:ss.sss+00:00} form, or null if not set
+     */
+    @NotBlank
     public String getEventTime() {
-        return eventTime;
+        String time = eventTime;
+        if (time == null && eventTimeNanos != NO_EVENT_TIME) {
+            time = CadfTimestamps.format(eventTimeNanos);
+            eventTime = time;
+        }
+        return time;
+    }
+
+    /**
+     * Not a bean property, so reflective mappers keep serializing {@link #getEventTime()} only.
+     *
+     * @return event time as epoch nanos, or {@link #NO_EVENT_TIME}
+     */
+    public long eventTimeNanos() {
+        long nanos = eventTimeNanos;
+        if (nanos == NO_EVENT_TIME && eventTime != null) {
+            nanos = CadfTimestamps.parse(eventTime);
+            eventTimeNanos = nanos;
+        }
+        return nanos;
     }
 
     public String getAction() {
@@ -179,6 +220,19 @@ public class CadfAuditEvent {
         return tags;
     }
 
+    /**
+     * Appends the tag to a copy of the tag list, lists passed to the builder may be shared or unmodifiable.
+     */
+    public void addTag(CadfTag tag) {
+        Assert.notNull(tag, "tag can not be null");
+        List<CadfTag> copy = tags != null ? new ArrayList<>(tags.size() + 1) : new ArrayList<>(1);
+        if (tags != null) {
+            copy.addAll(tags);
+        }
+        copy.add(tag);
+        tags = copy;
+    }
+
     public List<CadfAttachment> getAttachments() {
         return attachments;
     }
@@ -196,8 +250,9 @@ public class CadfAuditEvent {
     public static class Builder {
 
         private String id;
+        private CadfIdGenerator idGenerator = CadfIdGenerator.getDefault();
         private String eventType;
-        private String eventTime;
+        private long eventTime = NO_EVENT_TIME;
         private String action;
         private String outcome;
         private CadfResource initiator;
@@ -214,7 +269,8 @@ public class CadfAuditEvent {
         }
 
         /**
-         * Required.
+         * Generated by the {@link #withIdGenerator id generator} when not set, required {@link #withoutIdGenerator
+         * without} one.
          */
         public Builder withId(String id) {
             Assert.hasText(id, "id can not be null or empty");
@@ -222,6 +278,24 @@ public class CadfAuditEvent {
             return this;
         }
 
+        /**
+         * Generator of the id if none is set, {@link CadfIdGenerator#getDefault()} by default.
+         */
+        public Builder withIdGenerator(CadfIdGenerator idGenerator) {
+            Assert.notNull(idGenerator, "idGenerator can not be null");
+            this.idGenerator = idGenerator;
+            return this;
+        }
+
+        /**
+         * Makes the id required: {@link #build()} rejects a builder without {@link #withId id} instead of generating
+         * one. Decoders use it, so a record without an id is rejected instead of getting a made up one.
+         */
+        public Builder withoutIdGenerator() {
+            this.idGenerator = null;
+            return this;
+        }
+
         /**
          * Required.
          */
@@ -233,24 +307,48 @@ public class CadfAuditEvent {
 
         /**
          * Required.<br/>
-         * You do not have to do anything to the date before passing it here. It will be serialized with its time zone
-         * and deserialized the same way.
+         * Parses an ISO-8601 date time with any offset, e.g. {@code 2001-07-04T12:08:56.235-07:00}. The event
+         * keeps the instant only and renders it in UTC with 3, 6 or 9 fraction digits,
+         * {@code 2001-07-04T19:08:56.235+00:00}, so only a time already in that form is returned as given.
          *
          * @param date
          */
         public Builder withEventTime(String date) {
             Assert.notNull(date, "event date must not be null");
+            this.eventTime = CadfTimestamps.parse(date);
+            return this;
+        }
 
-           /* SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX", Locale.US);
-
-            String formattedDate = dateFormat.format(date);
-            if (formattedDate.endsWith("Z")) { // have to change zulu time to +00:00
-                formattedDate = formattedDate.substring(0, formattedDate.length() - 1) + "+00:00";
+        /**
+         * Required.
+         */
+        public Builder withEventTime(Instant date) {
+            Assert.notNull(date, "event date must not be null");
+            try {
+                long epochNanos = Math.multiplyExact(date.getEpochSecond(), 1_000_000_000L);
+                this.eventTime = Math.addExact(epochNanos, date.getNano());
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("event date is out of the epoch nanos range: " + date);
             }
-            // 2001-07-04T12:08:56.235-07:00
-            // 2001-07-04T12:08:56.235+03:00
-            // 2001-07-04T12:08:56.235+00:00  <--- here it is, no zulu time, no Z.*/
-            this.eventTime = date;
+            return this;
+        }
+
+        /**
+         * Required.
+         */
+        public Builder withEventTimeMillis(long epochMillis) {
+            Assert.isTrue(Math.abs(epochMillis) <= Long.MAX_VALUE / 1_000_000L,
+                "event date is out of the epoch nanos range");
+            this.eventTime = epochMillis * 1_000_000L;
+            return this;
+        }
+
+        /**
+         * Required.
+         */
+        public Builder withEventTimeNanos(long epochNanos) {
+            Assert.isTrue(epochNanos != NO_EVENT_TIME, "event date is out of the epoch nanos range");
+            this.eventTime = epochNanos;
             return this;
         }
 
@@ -327,19 +425,43 @@ public class CadfAuditEvent {
             return this;
         }
 
+        /**
+         * Clears all properties but the id generator, as if the builder was new, so one builder can build any number
+         * of events.
+         */
+        public Builder reset() {
+            id = null;
+            eventType = null;
+            eventTime = NO_EVENT_TIME;
+            action = null;
+            outcome = null;
+            initiator = null;
+            target = null;
+            observer = null;
+            measurements = null;
+            attachments = null;
+            secureAttachments = null;
+            tags = null;
+            name = null;
+            severity = null;
+            return this;
+        }
+
         public CadfAuditEvent build() {
-            Assert.hasText(this.id, "you must set not empty event id");
+            if (idGenerator == null) {
+                Assert.hasText(this.id, "you must set not empty event id");
+            }
             Assert.hasText(this.eventType, "you must set event type");
-            Assert.hasText(this.eventTime, "you must set event time");
+            Assert.isTrue(this.eventTime != NO_EVENT_TIME, "you must set event time");
             Assert.hasText(this.action, "you must provide not empty event action");
             Assert.hasText(this.outcome, "you must provide not empty event outcome");
             Assert.notNull(this.initiator, "you must provide event initiator");
             Assert.notNull(this.target, "you must provide event target");
             Assert.notNull(this.observer, "you must provide event observer");
             CadfAuditEvent cadfAuditEvent = new CadfAuditEvent();
-            cadfAuditEvent.id = this.id;
+            cadfAuditEvent.id = this.id != null ? this.id : idGenerator.nextId();
             cadfAuditEvent.eventType = this.eventType;
-            cadfAuditEvent.eventTime = this.eventTime;
+            cadfAuditEvent.eventTimeNanos = this.eventTime;
             cadfAuditEvent.action = this.action;
             cadfAuditEvent.outcome = this.outcome;
             cadfAuditEvent.initiator = this.initiator;
@@ -362,7 +484,7 @@ public class CadfAuditEvent {
             "typeURI='" + typeURI + '\'' +
             ", id='" + id + '\'' +
             ", eventType='" + eventType + '\'' +
-            ", eventTime='" + eventTime + '\'' +
+            ", eventTime='" + getEventTime() + '\'' +
             ", action='" + action + '\'' +
             ", outcome='" + outcome + '\'' +
             ", initiator=" + initiator +
@@ -19,6 +19,7 @@ package io.maestro3.cadf.model;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
+import java.util.Objects;
 
 /**
  * Valid Credential typed data SHALL contain at least one valid identify token.
@@ -73,4 +74,51 @@ public class CadfCredential<T> {
     public void setAuthority(String authority) {
         this.authority = authority;
     }
+
+    /**
+     * Hook for subclasses holding the token in an encoded form until it is accessed, toString prints the pending
+     * token instead of decoding it.
+     *
+     * @return token not decoded yet, or null if the token is held as is
+     */
+    protected Object pendingToken() {
+        return null;
+    }
+
+    /**
+     * Tokens are compared deeply, so array tokens compare by their elements. The hash code leaves the token out.
+     * Subclasses compare equal to plain credentials with the same values.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CadfCredential)) {
+            return false;
+        }
+        CadfCredential<?> that = (CadfCredential<?>) o;
+        return Objects.equals(type, that.type)
+            && Objects.equals(authority, that.authority)
+            && Objects.deepEquals(getToken(), that.getToken());
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(type) + Objects.hashCode(authority);
+    }
+
+    /**
+     * The token is a secret and is never printed, only whether it is present. A pending token is printed as its
+     * encoding description, which does not reveal the token either.
+     */
+    @Override
+    public String toString() {
+        Object pending = pendingToken();
+        return "CadfCredential{" +
+            "type='" + type + '\'' +
+            ", token=" + (pending != null ? pending : token != null ? "<hidden>" : null) +
+            ", authority='" + authority + '\'' +
+            '}';
+    }
 }
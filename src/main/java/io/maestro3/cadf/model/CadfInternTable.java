@@ -0,0 +1,106 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import io.maestro3.cadf.util.Assert;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free table of canonical instances behind {@link CadfResourceCache} and {@link CadfTagCache}.
+ * <p/>
+ * Every instance has two candidate slots derived from its hash: a lookup either finds a matching instance in one of
+ * them and gets that one, or publishes a new instance in an empty or a randomly chosen slot. Colliding instances evict
+ * each other instead of growing the table, and with two choices a few hot ones hardly ever do. A lookup costs two
+ * array reads and at most two matches. Lookups are described by up to two keys and static matcher and factory
+ * functions, so a hit allocates nothing.
+ *
+ * @param <T> type of the canonical instances
+ */
+final class CadfInternTable<T> {
+
+    /**
+     * @param <T> type of the canonical instances
+     * @param <A> type of the first key
+     * @param <B> type of the second key
+     */
+    interface IMatcher<T, A, B> {
+
+        boolean matches(T cached, A first, B second);
+    }
+
+    /**
+     * Creates the instance published on a miss, it must not be modified once published.
+     */
+    interface IFactory<T, A, B> {
+
+        T create(A first, B second);
+    }
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    // the second slot comes from the top bits of the multiplied hash, which depend on all bits of the hash
+    private final int shift;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    CadfInternTable(int capacity) {
+        Assert.isTrue(capacity >= 2 && capacity <= 1 << 30, "capacity must be between 2 and 2^30");
+        this.slots = new AtomicReferenceArray<>(Integer.highestOneBit(capacity - 1) << 1);
+        this.mask = slots.length() - 1;
+        this.shift = Integer.numberOfLeadingZeros(mask);
+    }
+
+    /**
+     * @return the cached instance matching the keys, or the one created by the factory after caching it
+     */
+    <A, B> T intern(int hash, A first, B second, IMatcher<? super T, ? super A, ? super B> matcher,
+                    IFactory<? extends T, ? super A, ? super B> factory) {
+        int firstSlot = (hash ^ (hash >>> 16)) & mask;
+        int secondSlot = (hash * 0x9E3779B9) >>> shift;
+        if (secondSlot == firstSlot) {
+            secondSlot = firstSlot ^ 1;
+        }
+        T cached = slots.get(firstSlot);
+        if (cached != null && matcher.matches(cached, first, second)) {
+            return cached;
+        }
+        T other = slots.get(secondSlot);
+        if (other != null && matcher.matches(other, first, second)) {
+            return other;
+        }
+        T created = factory.create(first, second);
+        // a racing thread may take the slot over in between, which costs a cache miss but no correctness
+        int slot = cached == null ? firstSlot
+            : other == null ? secondSlot
+            : ThreadLocalRandom.current().nextBoolean() ? firstSlot : secondSlot;
+        slots.lazySet(slot, created);
+        return created;
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import io.maestro3.cadf.util.Assert;
+
+/**
+ * Measurement with a primitive long result, the boxed {@link #getResult()} is created on demand only. Codecs read
+ * and write the value without boxing.
+ */
+public class CadfLongMeasurement extends CadfMeasurement<Long> {
+
+    private long value;
+
+    public CadfLongMeasurement() {
+        //json
+    }
+
+    public CadfLongMeasurement(String metricId, long value) {
+        super(metricId);
+        this.value = value;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public void setValue(long value) {
+        this.value = value;
+    }
+
+    @Override
+    public Long getResult() {
+        return value;
+    }
+
+    @Override
+    public void setResult(Long result) {
+        Assert.notNull(result, "measurement result can not be null");
+        this.value = result;
+    }
+}
@@ -59,6 +59,14 @@ public class CadfMeasurement<T> {
         //json
     }
 
+    /**
+     * For subclasses, sets the metric id without calling the overridable {@link #setMetricId(String)}.
+     */
+    protected CadfMeasurement(String metricId) {
+        Assert.hasText(metricId, "metricId can not be null or empty");
+        this.metricId = metricId;
+    }
+
     public T getResult() {
         return result;
     }
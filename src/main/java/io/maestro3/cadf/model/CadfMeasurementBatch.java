@@ -0,0 +1,295 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import io.maestro3.cadf.util.Assert;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Measurements of one event in parallel arrays: metric ids, primitive long or double values and calculatedBy
+ * references, so dozens of samples cost a few arrays instead of a measurement and a boxed result each. Measurements
+ * which do not fit, e.g. with a {@link CadfMetric} object or a non-numeric result, are kept as they are.
+ * <p/>
+ * The batch is a regular list of measurements; {@link #get(int)} of a primitive entry creates a
+ * {@link CadfLongMeasurement} or {@link CadfDoubleMeasurement} snapshot, changes to it are not written back, use
+ * {@link #set(int, CadfMeasurement)} instead. Codecs and the validator read the arrays directly. Not thread-safe.
+ */
+public final class CadfMeasurementBatch extends AbstractList<CadfMeasurement> implements RandomAccess {
+
+    private static final byte GENERIC = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+
+    private byte[] kinds;
+    private long[] values;
+    private String[] metricIds;
+    private String[] calculatedByIds;
+    private CadfResource[] calculatedBy;
+    private CadfMeasurement[] generic;
+    private int size;
+
+    public CadfMeasurementBatch() {
+        this(8);
+    }
+
+    public CadfMeasurementBatch(int initialCapacity) {
+        Assert.isTrue(initialCapacity >= 0, "initialCapacity must not be negative");
+        kinds = new byte[initialCapacity];
+        values = new long[initialCapacity];
+        metricIds = new String[initialCapacity];
+        calculatedByIds = new String[initialCapacity];
+        calculatedBy = new CadfResource[initialCapacity];
+        generic = new CadfMeasurement[initialCapacity];
+    }
+
+    // ================================= primitive entries ========================================
+
+    public CadfMeasurementBatch addLong(String metricId, long value) {
+        return addLong(metricId, value, null, null);
+    }
+
+    /**
+     * @param calculatedById optional
+     * @param calculatedBy   optional
+     */
+    public CadfMeasurementBatch addLong(String metricId, long value, String calculatedById, CadfResource calculatedBy) {
+        return addPrimitive(LONG, metricId, value, calculatedById, calculatedBy);
+    }
+
+    public CadfMeasurementBatch addDouble(String metricId, double value) {
+        return addDouble(metricId, value, null, null);
+    }
+
+    /**
+     * @param calculatedById optional
+     * @param calculatedBy   optional
+     */
+    public CadfMeasurementBatch addDouble(String metricId, double value, String calculatedById,
+                                          CadfResource calculatedBy) {
+        return addPrimitive(DOUBLE, metricId, Double.doubleToRawLongBits(value), calculatedById, calculatedBy);
+    }
+
+    public boolean isLong(int index) {
+        return kind(index) == LONG;
+    }
+
+    public boolean isDouble(int index) {
+        return kind(index) == DOUBLE;
+    }
+
+    /**
+     * @throws IllegalStateException if the entry is not a {@link #isLong(int) long} entry
+     */
+    public long getLong(int index) {
+        if (kind(index) != LONG) {
+            throw new IllegalStateException("Measurement " + index + " is not a long measurement.");
+        }
+        return values[index];
+    }
+
+    /**
+     * @throws IllegalStateException if the entry is not a {@link #isDouble(int) double} entry
+     */
+    public double getDouble(int index) {
+        if (kind(index) != DOUBLE) {
+            throw new IllegalStateException("Measurement " + index + " is not a double measurement.");
+        }
+        return Double.longBitsToDouble(values[index]);
+    }
+
+    /**
+     * Metric id, calculatedById and calculatedBy are available for every entry without creating it.
+     */
+    public String getMetricId(int index) {
+        return kind(index) != GENERIC ? metricIds[index] : genericOrNull(index, Property.METRIC_ID);
+    }
+
+    public String getCalculatedById(int index) {
+        return kind(index) != GENERIC ? calculatedByIds[index] : genericOrNull(index, Property.CALCULATED_BY_ID);
+    }
+
+    public CadfResource getCalculatedBy(int index) {
+        if (kind(index) != GENERIC) {
+            return calculatedBy[index];
+        }
+        return generic[index] != null ? generic[index].getCalculatedBy() : null;
+    }
+
+    // ================================= list ========================================
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public CadfMeasurement get(int index) {
+        switch (kind(index)) {
+            case LONG:
+                CadfLongMeasurement longMeasurement = new CadfLongMeasurement(metricIds[index], values[index]);
+                longMeasurement.setCalculatedById(calculatedByIds[index]);
+                longMeasurement.setCalculatedBy(calculatedBy[index]);
+                return longMeasurement;
+            case DOUBLE:
+                CadfDoubleMeasurement doubleMeasurement =
+                    new CadfDoubleMeasurement(metricIds[index], Double.longBitsToDouble(values[index]));
+                doubleMeasurement.setCalculatedById(calculatedByIds[index]);
+                doubleMeasurement.setCalculatedBy(calculatedBy[index]);
+                return doubleMeasurement;
+            default:
+                return generic[index];
+        }
+    }
+
+    /**
+     * Measurements with a metric id and a long or double result are stored as primitive entries, anything else as it
+     * is.
+     */
+    @Override
+    public CadfMeasurement set(int index, CadfMeasurement measurement) {
+        CadfMeasurement previous = get(index);
+        store(index, measurement);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, CadfMeasurement measurement) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        ensureCapacity(size + 1);
+        shift(index, index + 1, size - index);
+        size++;
+        store(index, measurement);
+        modCount++;
+    }
+
+    @Override
+    public CadfMeasurement remove(int index) {
+        CadfMeasurement previous = get(index);
+        shift(index + 1, index, size - index - 1);
+        size--;
+        clearEntry(size);
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            clearEntry(i);
+        }
+        size = 0;
+        modCount++;
+    }
+
+    // ================================= internals ========================================
+
+    private CadfMeasurementBatch addPrimitive(byte kind, String metricId, long value, String calculatedById,
+                                              CadfResource calculatedBy) {
+        Assert.hasText(metricId, "metricId can not be null or empty");
+        ensureCapacity(size + 1);
+        setPrimitive(size++, kind, metricId, value, calculatedById, calculatedBy);
+        modCount++;
+        return this;
+    }
+
+    private void setPrimitive(int index, byte kind, String metricId, long value, String calculatedById,
+                              CadfResource calculatedBy) {
+        kinds[index] = kind;
+        values[index] = value;
+        metricIds[index] = metricId;
+        calculatedByIds[index] = calculatedById;
+        this.calculatedBy[index] = calculatedBy;
+        generic[index] = null;
+    }
+
+    private void store(int index, CadfMeasurement measurement) {
+        if (measurement != null && measurement.getMetric() == null && measurement.getMetricId() != null) {
+            Object result = measurement instanceof CadfLongMeasurement || measurement instanceof CadfDoubleMeasurement
+                ? null
+                : measurement.getResult();
+            if (measurement instanceof CadfLongMeasurement || result instanceof Long) {
+                long value = result != null ? (Long) result : ((CadfLongMeasurement) measurement).getValue();
+                setPrimitive(index, LONG, measurement.getMetricId(), value,
+                    measurement.getCalculatedById(), measurement.getCalculatedBy());
+                return;
+            }
+            if (measurement instanceof CadfDoubleMeasurement || result instanceof Double) {
+                double value = result != null ? (Double) result : ((CadfDoubleMeasurement) measurement).getValue();
+                setPrimitive(index, DOUBLE, measurement.getMetricId(), Double.doubleToRawLongBits(value),
+                    measurement.getCalculatedById(), measurement.getCalculatedBy());
+                return;
+            }
+        }
+        clearEntry(index);
+        generic[index] = measurement;
+    }
+
+    private void clearEntry(int index) {
+        kinds[index] = GENERIC;
+        values[index] = 0;
+        metricIds[index] = null;
+        calculatedByIds[index] = null;
+        calculatedBy[index] = null;
+        generic[index] = null;
+    }
+
+    private byte kind(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return kinds[index];
+    }
+
+    private String genericOrNull(int index, Property property) {
+        CadfMeasurement measurement = generic[index];
+        if (measurement == null) {
+            return null;
+        }
+        return property == Property.METRIC_ID ? measurement.getMetricId() : measurement.getCalculatedById();
+    }
+
+    private void shift(int from, int to, int length) {
+        System.arraycopy(kinds, from, kinds, to, length);
+        System.arraycopy(values, from, values, to, length);
+        System.arraycopy(metricIds, from, metricIds, to, length);
+        System.arraycopy(calculatedByIds, from, calculatedByIds, to, length);
+        System.arraycopy(calculatedBy, from, calculatedBy, to, length);
+        System.arraycopy(generic, from, generic, to, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > kinds.length) {
+            int grown = Math.max(capacity, kinds.length + (kinds.length >> 1) + 1);
+            kinds = Arrays.copyOf(kinds, grown);
+            values = Arrays.copyOf(values, grown);
+            metricIds = Arrays.copyOf(metricIds, grown);
+            calculatedByIds = Arrays.copyOf(calculatedByIds, grown);
+            calculatedBy = Arrays.copyOf(calculatedBy, grown);
+            generic = Arrays.copyOf(generic, grown);
+        }
+    }
+
+    private enum Property {
+        METRIC_ID,
+        CALCULATED_BY_ID
+    }
+}
@@ -18,39 +18,69 @@ package io.maestro3.cadf.model;
 
 import io.maestro3.cadf.ICadfOutcome;
 
+import java.util.List;
+
 public final class CadfOutcomes {
 
     // this is the final list of top level outcomes! do not add any! you may only add children
 
+    private static final CadfOutcome SUCCESS = new CadfOutcome("success", 0);
+    private static final CadfOutcome FAILURE = new CadfOutcome("failure", 1);
+    private static final CadfOutcome UNKNOWN = new CadfOutcome("unknown", 2);
+    private static final CadfOutcome PENDING = new CadfOutcome("pending", 3);
+
+    private static final List<ICadfOutcome> VALUES = List.of(SUCCESS, FAILURE, UNKNOWN, PENDING);
+
     public static ICadfOutcome success() {
-        return new CadfOutcome("success");
+        return SUCCESS;
     }
 
     public static ICadfOutcome failure() {
-        return new CadfOutcome("failure");
+        return FAILURE;
     }
 
     public static ICadfOutcome unknown() {
-        return new CadfOutcome("unknown");
+        return UNKNOWN;
     }
 
     public static ICadfOutcome pending() {
-        return new CadfOutcome("pending");
+        return PENDING;
     }
 
     // =======================================================================
 
     private static class CadfOutcome implements ICadfOutcome {
         final String relativeUri;
+        final int ordinal;
 
-        private CadfOutcome(String relativeUri) {
+        private CadfOutcome(String relativeUri, int ordinal) {
             this.relativeUri = relativeUri;
+            this.ordinal = ordinal;
         }
 
         @Override
         public String getRelativeUri() {
             return relativeUri;
         }
+
+        @Override
+        public int getOrdinal() {
+            return ordinal;
+        }
+    }
+
+    /**
+     * @return all canonical outcomes, indexed by their ordinal
+     */
+    public static List<ICadfOutcome> values() {
+        return VALUES;
+    }
+
+    public static ICadfOutcome byOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.size()) {
+            throw new IllegalArgumentException("Outcome ordinal " + ordinal + " is out of range.");
+        }
+        return VALUES.get(ordinal);
     }
 
     public static ICadfOutcome fromRelativeUri(String uri) {
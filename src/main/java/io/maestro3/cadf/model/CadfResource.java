@@ -21,11 +21,13 @@ import io.maestro3.cadf.util.Assert;
 
 import jakarta.validation.constraints.NotBlank;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 // type - cadf:resource (http://schemas.dmtf.org/cloud/audit/1.0/resource)
 public class CadfResource {
-    private static final String FULL_ROOT_URI = "http://schemas.dmtf.org/cloud/audit/1.0/resource";
+    public static final String FULL_ROOT_URI = "http://schemas.dmtf.org/cloud/audit/1.0/resource";
 
     // =============================== all of the following are REQUIRED ======================================
 
@@ -60,6 +62,9 @@ public class CadfResource {
      */
     private List<CadfAttachment> attachments;
 
+    // set by the resource cache, an interned resource is shared between events
+    private transient boolean interned;
+
     public String getId() {
         return id;
     }
@@ -81,35 +86,69 @@ public class CadfResource {
     }
 
     public void setId(String id) {
+        checkNotInterned();
         this.id = id;
     }
 
     public void setTypeURI(String typeURI) {
+        checkNotInterned();
         this.typeURI = typeURI;
     }
 
     public void setName(String name) {
+        checkNotInterned();
         this.name = name;
     }
 
     public void setCredential(CadfCredential credential) {
+        checkNotInterned();
         this.credential = credential;
     }
 
     public void setAttachments(List<CadfAttachment> attachments) {
+        checkNotInterned();
         this.attachments = attachments;
     }
+
+    /**
+     * @return whether the resource is the canonical instance of a {@link CadfResourceCache}, which can not be modified
+     */
+    public boolean isInterned() {
+        return interned;
+    }
+
+    /**
+     * Called by the cache before the resource is published, so the setters of a shared instance fail instead of
+     * changing every event referring to it. Credential and attachments are shared as they are.
+     */
+    void markInterned() {
+        if (attachments != null) {
+            attachments = Collections.unmodifiableList(attachments);
+        }
+        interned = true;
+    }
+
+    private void checkNotInterned() {
+        if (interned) {
+            throw new UnsupportedOperationException("Interned resource is shared and can not be modified.");
+        }
+    }
     // ================================= builder ========================================
 
     public static Builder builder() {
         return new Builder();
     }
 
+    /**
+     * Every {@link #build()} creates a new resource, so a builder can be reused, also after {@link #reset()}.
+     */
     public static final class Builder {
-        private final CadfResource resource;
+        private String id;
+        private String typeURI;
+        private String name;
+        private List<CadfAttachment> attachments;
 
         public Builder() {
-            resource = new CadfResource();
         }
 
         /**
@@ -117,7 +156,7 @@ public class CadfResource {
          */
         public Builder withId(String id) {
             Assert.hasText(id, "resource id can not be null or empty");
-            resource.id = id;
+            this.id = id;
             return this;
         }
 
@@ -126,34 +165,63 @@ public class CadfResource {
          */
         public Builder ofType(ICadfResourceType resourceType) {
             Assert.notNull(resourceType, "resourceType can not be null");
-            resource.typeURI = resourceType.getRelativeUri();
+            this.typeURI = resourceType.getRelativeUri();
             return this;
         }
 
         public Builder withName(String name) {
             Assert.hasText(name, "name must not be null or empty");
-            resource.name = name;
+            this.name = name;
             return this;
         }
 
         public Builder withAttachments(CadfAttachment... attachments) {
             Assert.notNull(attachments, "attachments must not be null");
-            resource.attachments = Arrays.asList(attachments);
+            this.attachments = Arrays.asList(attachments);
             return this;
         }
 
         public Builder withAttachments(List<CadfAttachment> attachments) {
             Assert.notNull(attachments, "attachments must not be null");
-            resource.attachments = attachments;
+            this.attachments = attachments;
+            return this;
+        }
+
+        /**
+         * Clears all properties, as if the builder was new.
+         */
+        public Builder reset() {
+            id = null;
+            typeURI = null;
+            name = null;
+            attachments = null;
             return this;
         }
 
         public CadfResource build() {
-            Assert.hasText(resource.id, "id can not be null or empty");
-            Assert.notNull(resource.typeURI, "resource type can not be null");
+            Assert.hasText(id, "id can not be null or empty");
+            Assert.notNull(typeURI, "resource type can not be null");
+            CadfResource resource = new CadfResource();
+            resource.id = id;
+            resource.typeURI = typeURI;
+            resource.name = name;
+            resource.attachments = attachments;
             return resource;
         }
 
+        /**
+         * Builds the resource and returns the equal instance of the default {@link CadfResourceCache} if there is one.
+         * Interned resources are shared between events, their setters throw {@link UnsupportedOperationException}.
+         */
+        public CadfResource buildInterned() {
+            return buildInterned(CadfResourceCache.getDefault());
+        }
+
+        public CadfResource buildInterned(CadfResourceCache cache) {
+            Assert.notNull(cache, "cache can not be null");
+            return cache.intern(build());
+        }
+
     }
 
     public static String getFullTypeUri(CadfResource resource) {
@@ -164,6 +232,34 @@ public class CadfResource {
         }
     }
 
+    /**
+     * Resources are equal by all their properties. The hash code is computed from id, typeURI, name and credential
+     * type only, which tell resources apart well enough and are cheap to hash.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CadfResource that = (CadfResource) o;
+        return Objects.equals(id, that.id)
+            && Objects.equals(typeURI, that.typeURI)
+            && Objects.equals(name, that.name)
+            && Objects.equals(credential, that.credential)
+            && Objects.equals(attachments, that.attachments);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = Objects.hashCode(id);
+        hash = 31 * hash + Objects.hashCode(typeURI);
+        hash = 31 * hash + Objects.hashCode(name);
+        return 31 * hash + (credential != null ? Objects.hashCode(credential.getType()) : 0);
+    }
+
     @Override
     public String toString() {
         return "CadfResource{" +
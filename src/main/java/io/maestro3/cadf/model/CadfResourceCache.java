@@ -0,0 +1,83 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+/**
+ * Bounded, lock-free cache of canonical {@link CadfResource} instances, so events referring to the same initiator,
+ * observer or target share one instance instead of carrying copies.
+ * <p/>
+ * Every resource has two candidate slots derived from {@link CadfResource#hashCode()}, see {@link CadfInternTable}: a
+ * resource either finds an equal resource in one of them and gets that one, or takes a slot over. A lookup costs two
+ * array reads and at most two {@code equals}. Interned resources are shared, their setters throw
+ * {@link UnsupportedOperationException}; the credential and attachments they refer to must not be modified either.
+ *
+ * @see CadfResource.Builder#buildInterned()
+ */
+public final class CadfResourceCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final CadfInternTable.IMatcher<CadfResource, CadfResource, Void> EQUAL =
+        (cached, resource, unused) -> cached.equals(resource);
+    private static final CadfInternTable.IFactory<CadfResource, CadfResource, Void> INTERNED = (resource, unused) -> {
+        if (!resource.isInterned()) {
+            resource.markInterned();
+        }
+        return resource;
+    };
+
+    private static final CadfResourceCache DEFAULT = create(DEFAULT_CAPACITY);
+
+    private final CadfInternTable<CadfResource> table;
+
+    private CadfResourceCache(int capacity) {
+        this.table = new CadfInternTable<>(capacity);
+    }
+
+    /**
+     * @return cache of {@link #DEFAULT_CAPACITY} shared by all users of {@link CadfResource.Builder#buildInterned()}
+     */
+    public static CadfResourceCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public static CadfResourceCache create(int capacity) {
+        return new CadfResourceCache(capacity);
+    }
+
+    /**
+     * @return the cached resource equal to the given one, or the given one after caching it, which makes it
+     * {@link CadfResource#isInterned() interned}
+     */
+    public CadfResource intern(CadfResource resource) {
+        if (resource == null) {
+            return null;
+        }
+        return table.intern(resource.hashCode(), resource, null, EQUAL, INTERNED);
+    }
+
+    public int capacity() {
+        return table.capacity();
+    }
+
+    public void clear() {
+        table.clear();
+    }
+}
@@ -18,10 +18,22 @@ package io.maestro3.cadf.model;
 
 import io.maestro3.cadf.ICadfResourceType;
 
+import java.util.Arrays;
+import java.util.function.Function;
+
 public class CadfResourceType implements ICadfResourceType {
 
+    private static final CadfResourceType[] NO_CHILDREN = new CadfResourceType[0];
+
     protected final String relativeUri;
 
+    // =============== position in the CadfResourceTypes tree, left unset for ad-hoc instances ===============
+
+    String segment;
+    CadfResourceType[] children = NO_CHILDREN;
+    int ordinal = -1;
+    int lastDescendantOrdinal = -1;
+
     public CadfResourceType(String relativeUri) {
         this.relativeUri = relativeUri;
     }
@@ -30,4 +42,40 @@ public class CadfResourceType implements ICadfResourceType {
     public String getRelativeUri() {
         return relativeUri;
     }
+
+    /**
+     * Pre-order position of this type in the taxonomy tree, or -1 if the type is not canonical.
+     */
+    @Override
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    /**
+     * Ordinal of the last type in this type's subtree: the subtree occupies [ordinal, lastDescendantOrdinal].
+     */
+    public int getLastDescendantOrdinal() {
+        return lastDescendantOrdinal;
+    }
+
+    /**
+     * Returns the canonical child registered under the given path segment. Children which are not part of the
+     * taxonomy (i.e. deeper recursive paths) are created on every call, same as before the tree was interned.
+     */
+    @SuppressWarnings("unchecked")
+    final <T extends CadfResourceType> T child(String segment, Function<String, T> factory) {
+        for (CadfResourceType child : children) {
+            if (child.segment.equals(segment)) {
+                return (T) child;
+            }
+        }
+        T created = factory.apply(relativeUri + "/" + segment);
+        if (this.segment != null && CadfResourceTypes.isPopulating()) {
+            created.segment = segment;
+            CadfResourceType[] extended = Arrays.copyOf(children, children.length + 1);
+            extended[children.length] = created;
+            children = extended;
+        }
+        return created;
+    }
 }
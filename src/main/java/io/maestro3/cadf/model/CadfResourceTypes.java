@@ -17,6 +17,11 @@
 package io.maestro3.cadf.model;
 
 import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Tree of constants.
@@ -26,34 +31,47 @@ import io.maestro3.cadf.ICadfResourceType;
  * String relativeUri = CadfResourceTree.compute().machine().vm().getRelativeUri();<br/>
  * ICadfResourceType resourceType = CadfResourceTree.compute().machine().vm();
  * <p/>
+ * Every type reachable below is a canonical instance kept in a trie, numbered in pre-order, so types can be resolved
+ * back from their uri with {@link #byRelativeURI(String)} and compared by subtree with {@link #isDescendantOf}.
  */
 public final class CadfResourceTypes {
 
+    private static final List<CadfResourceType> ROOTS = new ArrayList<>();
+    private static boolean populating = true;
+
     private CadfResourceTypes() {
     }
 
     // ====================================== "unknown" ======================================
 
+    private static final CadfResourceType UNKNOWN = root(new CadfResourceType("unknown"));
+
     public static ICadfResourceType unknown() {
-        return new CadfResourceType("unknown");
+        return UNKNOWN;
     }
 
     // ====================================== "system" ======================================
 
+    private static final CadfResourceType SYSTEM = root(new CadfResourceType("system"));
+
     public static ICadfResourceType system() {
-        return new CadfResourceType("system");
+        return SYSTEM;
     }
 
     // ====================================== "private agent" ======================================
 
+    private static final CadfResourceType PRIVATE_AGENT = root(new CadfResourceType("private_agent"));
+
     public static ICadfResourceType privateAgent() {
-        return new CadfResourceType("private_agent");
+        return PRIVATE_AGENT;
     }
 
     // ====================================== "compute" ======================================
 
+    private static final CadfResourceCompute COMPUTE = root(new CadfResourceCompute("compute"));
+
     public static CadfResourceCompute compute() {
-        return new CadfResourceCompute("compute");
+        return COMPUTE;
     }
 
     public static final class CadfResourceCompute extends CadfResourceType {
@@ -63,7 +81,7 @@ public final class CadfResourceTypes {
 
         // +++++++++++ "compute/machine" +++++++++++++
         public CadfResourceComputeMachine machine() {
-            return new CadfResourceComputeMachine(relativeUri + "/machine");
+            return child("machine", CadfResourceComputeMachine::new);
         }
 
         public static final class CadfResourceComputeMachine extends CadfResourceType {
@@ -73,20 +91,22 @@ public final class CadfResourceTypes {
 
             // +++++++++++ "compute/machine/vm" +++++++++++++
             public ICadfResourceType vm() {
-                return new CadfResourceType(relativeUri + "/vm");
+                return child("vm", CadfResourceType::new);
             }
 
             // +++++++++++ "compute/machine/hw" +++++++++++++
             public ICadfResourceType hw() {
-                return new CadfResourceType(relativeUri + "/hw");
+                return child("hw", CadfResourceType::new);
             }
         }
     }
 
     // ====================================== "storage" ======================================
 
+    private static final CadfResourceStorage STORAGE = root(new CadfResourceStorage("storage"));
+
     public static CadfResourceStorage storage() {
-        return new CadfResourceStorage("storage");
+        return STORAGE;
     }
 
     public static final class CadfResourceStorage extends CadfResourceType {
@@ -96,23 +116,25 @@ public final class CadfResourceTypes {
 
         // +++++++++++ "storage/checkpoint" +++++++++++++
         public ICadfResourceType checkpoint() {
-            return new CadfResourceType(relativeUri + "/checkpoint");
+            return child("checkpoint", CadfResourceType::new);
         }
 
         // +++++++++++ "storage/volume" +++++++++++++
         public ICadfResourceType volume() {
-            return new CadfResourceType(relativeUri + "/volume");
+            return child("volume", CadfResourceType::new);
         }
 
         public ICadfResourceType database() {
-            return new CadfResourceType(relativeUri + "/database");
+            return child("database", CadfResourceType::new);
         }
     }
 
     // ====================================== "data" ======================================
 
+    private static final CadfResourceData DATA = root(new CadfResourceData("data"));
+
     public static CadfResourceData data() {
-        return new CadfResourceData("data");
+        return DATA;
     }
 
     public static class CadfResourceData extends CadfResourceType {
@@ -122,16 +144,16 @@ public final class CadfResourceTypes {
 
         // +++++++++++ "data/zone" +++++++++++++
         public final ICadfResourceType zone() {
-            return new CadfResourceType(relativeUri + "/zone");
+            return child("zone", CadfResourceType::new);
         }
 
         // +++++++++++ "data/image" +++++++++++++
         public final ICadfResourceType image() {
-            return new CadfResourceType(relativeUri + "/image");
+            return child("image", CadfResourceType::new);
         }
 
         public final CadfTemplateData template() {
-            return new CadfTemplateData(relativeUri + "/template");
+            return child("template", CadfTemplateData::new);
         }
 
         public static class CadfTemplateData extends CadfResourceData {
@@ -141,13 +163,13 @@ public final class CadfResourceTypes {
             }
 
             public final CadfTemplateData stack() {
-                return new CadfTemplateData(relativeUri + "/stack");
+                return child("stack", CadfTemplateData::new);
             }
         }
 
         // +++++++++++ "data/security" +++++++++++++
         public final CadfResourceDataSecurity security() {
-            return new CadfResourceDataSecurity(relativeUri + "/security");
+            return child("security", CadfResourceDataSecurity::new);
         }
 
         public static final class CadfResourceDataSecurity extends CadfResourceType {
@@ -157,7 +179,7 @@ public final class CadfResourceTypes {
 
             // +++++++++++ "data/security/account" +++++++++++++
             public final CadfResourceDataSecurityAccount account() {
-                return new CadfResourceDataSecurityAccount(relativeUri + "/account");
+                return child("account", CadfResourceDataSecurityAccount::new);
             }
 
             public static final class CadfResourceDataSecurityAccount extends CadfResourceType {
@@ -167,23 +189,23 @@ public final class CadfResourceTypes {
 
                 // +++++++++++ "data/security/account/user" +++++++++++++
                 public ICadfResourceType user() {
-                    return new CadfResourceType(relativeUri + "/user");
+                    return child("user", CadfResourceType::new);
                 }
 
                 // +++++++++++ "data/security/account/admin" +++++++++++++
                 public ICadfResourceType admin() {
-                    return new CadfResourceType(relativeUri + "/admin");
+                    return child("admin", CadfResourceType::new);
                 }
 
                 // +++++++++++ "data/security/account/access" +++++++++++++
                 public ICadfResourceType access() {
-                    return new CadfResourceType(relativeUri + "/access");
+                    return child("access", CadfResourceType::new);
                 }
             }
 
             // +++++++++++ "data/security/iam" +++++++++++++
             public CadfResourceDataSecurityIam iam() {
-                return new CadfResourceDataSecurityIam(relativeUri + "/iam");
+                return child("iam", CadfResourceDataSecurityIam::new);
             }
 
             public static final class CadfResourceDataSecurityIam extends CadfResourceType {
@@ -193,28 +215,28 @@ public final class CadfResourceTypes {
 
                 // +++++++++++ "data/security/iam/user" +++++++++++++
                 public ICadfResourceType user() {
-                    return new CadfResourceType(relativeUri + "/user");
+                    return child("user", CadfResourceType::new);
                 }
 
                 // +++++++++++ "data/security/iam/group" +++++++++++++
                 public ICadfResourceType group() {
-                    return new CadfResourceType(relativeUri + "/group");
+                    return child("group", CadfResourceType::new);
                 }
 
                 // +++++++++++ "data/security/iam/role" +++++++++++++
                 public ICadfResourceType role() {
-                    return new CadfResourceType(relativeUri + "/role");
+                    return child("role", CadfResourceType::new);
                 }
 
                 // +++++++++++ "data/security/iam/policy" +++++++++++++
                 public ICadfResourceType policy() {
-                    return new CadfResourceType(relativeUri + "/policy");
+                    return child("policy", CadfResourceType::new);
                 }
             }
 
             // +++++++++++ "data/security/network" +++++++++++++
             public CadfResourceDataSecurityNetwork network() {
-                return new CadfResourceDataSecurityNetwork(relativeUri + "/network");
+                return child("network", CadfResourceDataSecurityNetwork::new);
             }
 
             public static final class CadfResourceDataSecurityNetwork extends CadfResourceType {
@@ -224,12 +246,12 @@ public final class CadfResourceTypes {
 
                 // +++++++++++ "data/security/network/securityGroup" +++++++++++++
                 public ICadfResourceType securityGroup() {
-                    return new CadfResourceType(relativeUri + "/securityGroup");
+                    return child("securityGroup", CadfResourceType::new);
                 }
 
                 // +++++++++++ "data/security/network/prefixList" +++++++++++++
                 public ICadfResourceType prefixList() {
-                    return new CadfResourceType(relativeUri + "/prefixList");
+                    return child("prefixList", CadfResourceType::new);
                 }
             }
         }
@@ -237,8 +259,10 @@ public final class CadfResourceTypes {
 
     // ====================================== "service" ======================================
 
+    private static final CadfResourceService SERVICE = root(new CadfResourceService("service"));
+
     public static CadfResourceService service() {
-        return new CadfResourceService("service");
+        return SERVICE;
     }
 
     public static final class CadfResourceService extends CadfResourceType {
@@ -248,7 +272,7 @@ public final class CadfResourceTypes {
 
         // +++++++++++ "service/platform" +++++++++++++
         public final CadfResourceServicePlatform platform() {
-            return new CadfResourceServicePlatform(relativeUri + "/platform");
+            return child("platform", CadfResourceServicePlatform::new);
         }
 
         public static final class CadfResourceServicePlatform extends CadfResourceType {
@@ -259,7 +283,7 @@ public final class CadfResourceTypes {
         }
 
         public CadfResourceServiceOss oss() {
-            return new CadfResourceServiceOss(relativeUri + "/oss");
+            return child("oss", CadfResourceServiceOss::new);
         }
 
         public static final class CadfResourceServiceOss extends CadfResourceType {
@@ -269,13 +293,13 @@ public final class CadfResourceTypes {
             }
 
             public ICadfResourceType stack() {
-                return new CadfResourceType(relativeUri + "/stack");
+                return child("stack", CadfResourceType::new);
             }
         }
 
         // +++++++++++ "service/composition" +++++++++++++
         public final CadfResourceServiceComposition composition() {
-            return new CadfResourceServiceComposition(relativeUri + "/composition");
+            return child("composition", CadfResourceServiceComposition::new);
         }
 
         public static final class CadfResourceServiceComposition extends CadfResourceType {
@@ -285,7 +309,7 @@ public final class CadfResourceTypes {
 
             // +++++++++++ "service/composition/orchestration" +++++++++++++
             public final CadfResourceServiceCompositionOrchestration orchestration() {
-                return new CadfResourceServiceCompositionOrchestration(relativeUri + "/orchestration");
+                return child("orchestration", CadfResourceServiceCompositionOrchestration::new);
             }
 
             public static final class CadfResourceServiceCompositionOrchestration extends CadfResourceType {
@@ -295,7 +319,7 @@ public final class CadfResourceTypes {
 
                 // +++++++++++ "service/composition/orchestration/schedule" +++++++++++++
                 public ICadfResourceType schedule() {
-                    return new CadfResourceType(relativeUri + "/schedule");
+                    return child("schedule", CadfResourceType::new);
                 }
             }
         }
@@ -305,7 +329,7 @@ public final class CadfResourceTypes {
             /*
              * The logical classification grouping for services that are identified to support business activities.
              */
-            return new CadfResourceServiceBss(relativeUri + "/bss");
+            return child("bss", CadfResourceServiceBss::new);
         }
 
         public static final class CadfResourceServiceBss extends CadfResourceType {
@@ -318,11 +342,11 @@ public final class CadfResourceTypes {
                 /*
                  * Business services to manage the location, physical or virtual, of cloud-based resources as well as clients (e.g., mobile devices)
                  */
-                return new CadfResourceType(relativeUri + "/location");
+                return child("location", CadfResourceType::new);
             }
 
             public final CadfServiceBssScope scope() {
-                return new CadfServiceBssScope(relativeUri + "/scope");
+                return child("scope", CadfServiceBssScope::new);
             }
 
             public static final class CadfServiceBssScope extends CadfResourceType {
@@ -331,7 +355,7 @@ public final class CadfResourceTypes {
                 }
 
                 public final ICadfResourceType project() {
-                    return new CadfResourceType(relativeUri + "/project");
+                    return child("project", CadfResourceType::new);
                 }
 
             }
@@ -339,6 +363,144 @@ public final class CadfResourceTypes {
         }
     }
 
-}
+    // ====================================== registry ======================================
+
+    private static final CadfResourceType[] ROOT_ARRAY;
+    private static final List<ICadfResourceType> VALUES;
+
+    static {
+        // walk every published path once, so the nodes get linked into the tree while it is still open
+        COMPUTE.machine().vm();
+        COMPUTE.machine().hw();
+        STORAGE.checkpoint();
+        STORAGE.volume();
+        STORAGE.database();
+        DATA.zone();
+        DATA.image();
+        DATA.template().stack();
+        DATA.security().account().user();
+        DATA.security().account().admin();
+        DATA.security().account().access();
+        DATA.security().iam().user();
+        DATA.security().iam().group();
+        DATA.security().iam().role();
+        DATA.security().iam().policy();
+        DATA.security().network().securityGroup();
+        DATA.security().network().prefixList();
+        SERVICE.platform();
+        SERVICE.oss().stack();
+        SERVICE.composition().orchestration().schedule();
+        SERVICE.bss().location();
+        SERVICE.bss().scope().project();
+        populating = false;
+        ROOT_ARRAY = ROOTS.toArray(new CadfResourceType[0]);
+
+        List<ICadfResourceType> values = new ArrayList<>();
+        for (CadfResourceType root : ROOTS) {
+            number(root, values);
+        }
+        VALUES = Collections.unmodifiableList(values);
+    }
+
+    private static <T extends CadfResourceType> T root(T type) {
+        type.segment = type.getRelativeUri();
+        ROOTS.add(type);
+        return type;
+    }
+
+    private static void number(CadfResourceType type, List<ICadfResourceType> values) {
+        type.ordinal = values.size();
+        values.add(type);
+        for (CadfResourceType child : type.children) {
+            number(child, values);
+        }
+        type.lastDescendantOrdinal = values.size() - 1;
+    }
+
+    static boolean isPopulating() {
+        return populating;
+    }
+
+    /**
+     * @return all canonical resource types in pre-order, indexed by their ordinal
+     */
+    public static List<ICadfResourceType> values() {
+        return VALUES;
+    }
+
+    public static ICadfResourceType byOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.size()) {
+            throw new IllegalArgumentException("Resource type ordinal " + ordinal + " is out of range.");
+        }
+        return VALUES.get(ordinal);
+    }
+
+    /**
+     * Resolves the canonical resource type by its relative uri, {@link CadfResource#FULL_ROOT_URI} followed by '/' is
+     * allowed as a prefix.
+     *
+     * @throws UnsupportedOperationException if the uri is not part of the taxonomy
+     */
+    public static ICadfResourceType byRelativeURI(String uri) {
+        ICadfResourceType type = findByRelativeURI(uri);
+        if (type == null) {
+            throw new UnsupportedOperationException("Resource type with uri: '" + uri + "' is unsupported.");
+        }
+        return type;
+    }
+
+    /**
+     * Same as {@link #byRelativeURI(String)}, but returns null for uris which are not part of the taxonomy.
+     */
+    public static ICadfResourceType findByRelativeURI(String uri) {
+        Assert.notNull(uri, "uri");
+        int position = 0;
+        int rootLength = CadfResource.FULL_ROOT_URI.length();
+        // the prefix counts only as a whole path segment, ".../resourcecompute" is not compute
+        if (uri.length() > rootLength && uri.charAt(rootLength) == '/' && uri.startsWith(CadfResource.FULL_ROOT_URI)) {
+            position = rootLength + 1;
+        }
+        CadfResourceType[] candidates = ROOT_ARRAY;
+        CadfResourceType found = null;
+        while (position < uri.length()) {
+            int end = uri.indexOf('/', position);
+            if (end < 0) {
+                end = uri.length();
+            }
+            found = findSegment(candidates, uri, position, end - position);
+            if (found == null) {
+                return null;
+            }
+            candidates = found.children;
+            position = end + 1;
+        }
+        return found;
+    }
+
+    private static CadfResourceType findSegment(CadfResourceType[] candidates, String uri, int offset, int length) {
+        for (CadfResourceType candidate : candidates) {
+            if (candidate.segment.length() == length && uri.regionMatches(offset, candidate.segment, 0, length)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
 
+    /**
+     * Checks whether the type lies in the subtree of the ancestor, a type is considered to be a descendant of itself.
+     * Canonical types are compared by their pre-order ranges, any other types fall back to uri prefix matching.
+     */
+    public static boolean isDescendantOf(ICadfResourceType type, ICadfResourceType ancestor) {
+        Assert.notNull(type, "type can not be null");
+        Assert.notNull(ancestor, "ancestor can not be null");
+        int ordinal = type.getOrdinal();
+        if (ordinal >= 0 && ancestor instanceof CadfResourceType && ancestor.getOrdinal() >= 0) {
+            return ancestor.getOrdinal() <= ordinal && ordinal <= ((CadfResourceType) ancestor).lastDescendantOrdinal;
+        }
+        String uri = type.getRelativeUri();
+        String ancestorUri = ancestor.getRelativeUri();
+        return uri.startsWith(ancestorUri)
+            && (uri.length() == ancestorUri.length() || uri.charAt(ancestorUri.length()) == '/');
+    }
 
+}
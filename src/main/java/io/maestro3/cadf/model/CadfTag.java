@@ -27,12 +27,20 @@ public class CadfTag {
 
     private String value;
 
+    // get() result, computed on first use and dropped by the setters
+    private String encoded;
+
+    // set by the tag cache, an interned tag is shared between events
+    private transient boolean interned;
+
     public String getName() {
         return name;
     }
 
     public void setName(String name) {
+        checkNotInterned();
         this.name = name;
+        this.encoded = null;
     }
 
     public String getValue() {
@@ -40,14 +48,43 @@ public class CadfTag {
     }
 
     public void setValue(String value) {
+        checkNotInterned();
         this.value = value;
+        this.encoded = null;
     }
 
+    /**
+     * @return the tag as one uri, {@code name?value=value}, or the name alone if there is no value. Computed once and
+     * kept until the tag changes.
+     */
     public final String get() {
-        if (value != null && !value.isEmpty()) {
-            return name + "?value=" + value;
-        } else {
-            return name;
+        String result = encoded;
+        if (result == null) {
+            result = value != null && !value.isEmpty() ? name + "?value=" + value : name;
+            encoded = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return whether the tag is the canonical instance of a {@link CadfTagCache}, which can not be modified
+     */
+    public boolean isInterned() {
+        return interned;
+    }
+
+    /**
+     * Called by the cache before the tag is published, so the setters of a shared instance fail instead of changing
+     * every event referring to it. The encoded form is computed here, readers of the shared tag never race on it.
+     */
+    void markInterned() {
+        get();
+        interned = true;
+    }
+
+    private void checkNotInterned() {
+        if (interned) {
+            throw new UnsupportedOperationException("Interned tag is shared and can not be modified.");
         }
     }
 
@@ -73,6 +110,19 @@ public class CadfTag {
             Assert.notNull(tag.value, "Value cannot be null");
             return tag;
         }
+
+        /**
+         * Builds the tag and returns the equal instance of the default {@link CadfTagCache} if there is one.
+         * Interned tags are shared between events, their setters throw {@link UnsupportedOperationException}.
+         */
+        public CadfTag buildInterned() {
+            return buildInterned(CadfTagCache.getDefault());
+        }
+
+        public CadfTag buildInterned(CadfTagCache cache) {
+            Assert.notNull(cache, "cache can not be null");
+            return cache.intern(build());
+        }
     }
 
     @Override
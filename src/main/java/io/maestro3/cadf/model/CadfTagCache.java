@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import java.util.Objects;
+
+/**
+ * Bounded, lock-free dictionary of canonical {@link CadfTag} instances, so events tagged with the same tenant or route
+ * share one tag, and its {@link CadfTag#get() encoded form} is computed once instead of per call.
+ * <p/>
+ * Works like {@link CadfResourceCache}: every tag has two candidate slots derived from the hash of its name and value,
+ * see {@link CadfInternTable}. Lookups by name and value do not allocate on a hit, which lets decoders intern tags
+ * without creating them first. Interned tags are shared, their setters throw {@link UnsupportedOperationException}.
+ *
+ * @see CadfTag.Builder#buildInterned()
+ */
+public final class CadfTagCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final CadfInternTable.IMatcher<CadfTag, String, String> SAME_NAME_AND_VALUE =
+        (cached, name, value) -> Objects.equals(cached.getName(), name) && Objects.equals(cached.getValue(), value);
+    private static final CadfInternTable.IMatcher<CadfTag, CadfTag, Void> SAME_TAG =
+        (cached, tag, unused) -> SAME_NAME_AND_VALUE.matches(cached, tag.getName(), tag.getValue());
+    private static final CadfInternTable.IFactory<CadfTag, String, String> NEW_TAG = (name, value) -> {
+        CadfTag tag = new CadfTag();
+        tag.setName(name);
+        tag.setValue(value);
+        tag.markInterned();
+        return tag;
+    };
+    private static final CadfInternTable.IFactory<CadfTag, CadfTag, Void> INTERNED = (tag, unused) -> {
+        if (!tag.isInterned()) {
+            tag.markInterned();
+        }
+        return tag;
+    };
+
+    private static final CadfTagCache DEFAULT = create(DEFAULT_CAPACITY);
+
+    private final CadfInternTable<CadfTag> table;
+
+    private CadfTagCache(int capacity) {
+        this.table = new CadfInternTable<>(capacity);
+    }
+
+    /**
+     * @return cache of {@link #DEFAULT_CAPACITY} shared by all users of {@link CadfTag.Builder#buildInterned()}
+     */
+    public static CadfTagCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public static CadfTagCache create(int capacity) {
+        return new CadfTagCache(capacity);
+    }
+
+    /**
+     * @return the cached tag with the same name and value, or the given one after caching it, which makes it
+     * {@link CadfTag#isInterned() interned}
+     */
+    public CadfTag intern(CadfTag tag) {
+        if (tag == null) {
+            return null;
+        }
+        return table.intern(hash(tag.getName(), tag.getValue()), tag, null, SAME_TAG, INTERNED);
+    }
+
+    /**
+     * @return the cached tag with the name and value, or a new one after caching it
+     */
+    public CadfTag intern(String name, String value) {
+        return table.intern(hash(name, value), name, value, SAME_NAME_AND_VALUE, NEW_TAG);
+    }
+
+    private static int hash(String name, String value) {
+        return 31 * Objects.hashCode(name) + Objects.hashCode(value);
+    }
+
+    public int capacity() {
+        return table.capacity();
+    }
+
+    public void clear() {
+        table.clear();
+    }
+}
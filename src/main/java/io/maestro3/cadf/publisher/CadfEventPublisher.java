@@ -0,0 +1,396 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.publisher;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.util.Assert;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Asynchronous publisher of built events: producers put events into a bounded lock-free ring, a dedicated drain
+ * thread flushes them to the {@link ICadfEventSink}s in batches once {@code batchSize} events are collected or the
+ * oldest event of the batch waited for {@code linger}.
+ * <p/>
+ * A full ring is handled according to the {@link CadfOverflowPolicy}. A sink failure does not stop the drain, the
+ * batch is passed to the error handler and counted as failed. {@link #close()} flushes everything published before.
+ * <p/>
+ * Sinks are never called concurrently: batches delivered on producer threads, by
+ * {@link CadfOverflowPolicy#CALLER_RUNS} or after {@link #close()}, wait until the drain's batch is delivered.
+ *
+ * <pre>{@code
+ * CadfEventPublisher publisher = CadfEventPublisher.builder()
+ *     .withSink(events -> producer.send(events))
+ *     .withOverflowPolicy(CadfOverflowPolicy.DROP_OLDEST)
+ *     .build();
+ * publisher.publish(event);
+ * }</pre>
+ */
+public final class CadfEventPublisher implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final Duration DEFAULT_LINGER = Duration.ofMillis(50);
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private static final int NO_WAKE = Integer.MAX_VALUE;
+
+    private final CadfEventRing ring;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final CadfOverflowPolicy overflowPolicy;
+    private final List<ICadfEventSink> sinks;
+    private final BiConsumer<? super List<CadfAuditEvent>, ? super RuntimeException> errorHandler;
+    private final Thread drainThread;
+    // serializes deliveries of the drain and of producer threads, see ICadfEventSink
+    private final Object deliveryLock = new Object();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * Number of pending events worth waking the parked drain for, {@link #NO_WAKE} while it is running.
+     */
+    private volatile int wakeThreshold = NO_WAKE;
+    private volatile boolean closed;
+
+    private CadfEventPublisher(Builder builder) {
+        this.ring = new CadfEventRing(builder.capacity);
+        this.batchSize = builder.batchSize;
+        this.lingerNanos = builder.linger.toNanos();
+        this.overflowPolicy = builder.overflowPolicy;
+        this.sinks = Collections.unmodifiableList(new ArrayList<>(builder.sinks));
+        this.errorHandler = builder.errorHandler;
+        this.drainThread = builder.threadFactory.newThread(this::drain);
+        this.drainThread.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return true if the event was buffered or, with {@link CadfOverflowPolicy#CALLER_RUNS}, published; false if it
+     * was dropped because the ring is full or the publisher is closed
+     */
+    public boolean publish(CadfAuditEvent event) {
+        Assert.notNull(event, "event can not be null");
+        if (closed) {
+            dropped.increment();
+            return false;
+        }
+        if (!ring.offer(event)) {
+            switch (overflowPolicy) {
+                case CALLER_RUNS:
+                    deliver(Collections.singletonList(event));
+                    return true;
+                case DROP_NEWEST:
+                    dropped.increment();
+                    return false;
+                case DROP_OLDEST:
+                    offerDroppingOldest(event);
+                    break;
+                default:
+                    if (!offerBlocking(event)) {
+                        dropped.increment();
+                        return false;
+                    }
+            }
+        }
+        enqueued.increment();
+        int threshold = wakeThreshold;
+        if (threshold != NO_WAKE && ring.size() >= threshold) {
+            LockSupport.unpark(drainThread);
+        }
+        if (closed) {
+            // close() might have swept the ring before this event arrived, nobody else would flush it
+            flushRemaining();
+        }
+        return true;
+    }
+
+    private void offerDroppingOldest(CadfAuditEvent event) {
+        while (!ring.offer(event)) {
+            if (ring.poll() != null) {
+                dropped.increment();
+            }
+        }
+    }
+
+    /**
+     * @return false if the publisher was closed while waiting
+     */
+    private boolean offerBlocking(CadfAuditEvent event) {
+        while (!ring.offer(event)) {
+            if (closed) {
+                return false;
+            }
+            LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+        }
+        return true;
+    }
+
+    // ================================= counters ========================================
+
+    /**
+     * @return events currently waiting in the ring
+     */
+    public int getPendingCount() {
+        return ring.size();
+    }
+
+    /**
+     * @return events accepted into the ring, including ones dropped later by {@link CadfOverflowPolicy#DROP_OLDEST}
+     */
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return events successfully published to all sinks
+     */
+    public long getFlushedCount() {
+        return flushed.sum();
+    }
+
+    /**
+     * @return events of batches at least one sink failed to publish
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Stops accepting events, flushes the buffered ones and waits for the drain thread to finish.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(drainThread);
+        if (Thread.currentThread() == drainThread) {
+            // closed from a sink, the drain flushes the rest on its way out
+            return;
+        }
+        boolean interrupted = false;
+        while (drainThread.isAlive()) {
+            try {
+                drainThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        flushRemaining();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ================================= drain ========================================
+
+    private void drain() {
+        List<CadfAuditEvent> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        while (true) {
+            CadfAuditEvent event = ring.poll();
+            if (event != null) {
+                if (batch.isEmpty()) {
+                    deadline = System.nanoTime() + lingerNanos;
+                }
+                batch.add(event);
+                if (batch.size() >= batchSize) {
+                    deliver(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+                continue;
+            }
+            boolean stopping = closed;
+            if (!batch.isEmpty() && (stopping || System.nanoTime() - deadline >= 0)) {
+                deliver(batch);
+                batch = new ArrayList<>(batchSize);
+                continue;
+            }
+            if (ring.size() > 0) {
+                // a producer claimed a slot and is about to fill it
+                Thread.onSpinWait();
+                continue;
+            }
+            if (stopping) {
+                return;
+            }
+            // an idle drain wakes up for the first event, a lingering one only for enough events to fill the batch
+            int threshold = batch.isEmpty() ? 1 : batchSize - batch.size();
+            wakeThreshold = threshold;
+            if (ring.size() < threshold && !closed) {
+                if (batch.isEmpty()) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, deadline - System.nanoTime());
+                }
+            }
+            wakeThreshold = NO_WAKE;
+        }
+    }
+
+    private void flushRemaining() {
+        List<CadfAuditEvent> batch = new ArrayList<>();
+        CadfAuditEvent event;
+        while ((event = ring.poll()) != null) {
+            batch.add(event);
+            if (batch.size() >= batchSize) {
+                deliver(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            deliver(batch);
+        }
+    }
+
+    private void deliver(List<CadfAuditEvent> batch) {
+        boolean delivered = true;
+        synchronized (deliveryLock) {
+            for (ICadfEventSink sink : sinks) {
+                try {
+                    sink.publish(batch);
+                } catch (RuntimeException e) {
+                    delivered = false;
+                    try {
+                        errorHandler.accept(batch, e);
+                    } catch (RuntimeException ignored) {
+                        // the drain must survive a failing error handler
+                    }
+                }
+            }
+        }
+        batches.increment();
+        (delivered ? flushed : failed).add(batch.size());
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private final List<ICadfEventSink> sinks = new ArrayList<>();
+        private int capacity = DEFAULT_CAPACITY;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private Duration linger = DEFAULT_LINGER;
+        private CadfOverflowPolicy overflowPolicy = CadfOverflowPolicy.BLOCK;
+        private BiConsumer<? super List<CadfAuditEvent>, ? super RuntimeException> errorHandler = (events, e) -> {
+        };
+        private ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "cadf-publisher-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        private Builder() {
+        }
+
+        /**
+         * Required, at least one. Every batch is published to all sinks in registration order.
+         */
+        public Builder withSink(ICadfEventSink sink) {
+            Assert.notNull(sink, "sink can not be null");
+            sinks.add(sink);
+            return this;
+        }
+
+        /**
+         * Ring capacity, rounded up to a power of two and to at least 2, the smallest ring which works.
+         */
+        public Builder withCapacity(int capacity) {
+            Assert.isTrue(capacity > 0 && capacity <= 1 << 30, "capacity must be between 1 and 2^30");
+            this.capacity = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+            return this;
+        }
+
+        public Builder withBatchSize(int batchSize) {
+            Assert.isTrue(batchSize > 0, "batchSize must be positive");
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Longest time an event waits for its batch to fill up.
+         */
+        public Builder withLinger(Duration linger) {
+            Assert.notNull(linger, "linger can not be null");
+            Assert.isTrue(!linger.isNegative(), "linger must not be negative");
+            this.linger = linger;
+            return this;
+        }
+
+        public Builder withOverflowPolicy(CadfOverflowPolicy overflowPolicy) {
+            Assert.notNull(overflowPolicy, "overflowPolicy can not be null");
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Receives batches a sink failed to publish, by default they are only counted.
+         */
+        public Builder withErrorHandler(
+            BiConsumer<? super List<CadfAuditEvent>, ? super RuntimeException> errorHandler) {
+            Assert.notNull(errorHandler, "errorHandler can not be null");
+            this.errorHandler = errorHandler;
+            return this;
+        }
+
+        /**
+         * Factory of the drain thread, by default a daemon thread named {@code cadf-publisher-N}.
+         */
+        public Builder withThreadFactory(ThreadFactory threadFactory) {
+            Assert.notNull(threadFactory, "threadFactory can not be null");
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        /**
+         * Starts the drain thread.
+         */
+        public CadfEventPublisher build() {
+            Assert.isTrue(!sinks.isEmpty(), "you must provide at least one sink");
+            return new CadfEventPublisher(this);
+        }
+    }
+}
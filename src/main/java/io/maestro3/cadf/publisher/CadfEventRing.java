@@ -0,0 +1,108 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.publisher;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue after Dmitry Vyukov's design: every slot carries a sequence
+ * number telling producers and consumers whether it is their turn, so a successful offer or poll costs one CAS on
+ * the shared position. Consumers are the drain and, with {@link CadfOverflowPolicy#DROP_OLDEST}, producers.
+ */
+final class CadfEventRing {
+
+    private final int mask;
+    private final AtomicReferenceArray<CadfAuditEvent> events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    /**
+     * @param capacity power of two, at least 2: with a single slot the sequence a consumer waits for equals the one
+     *                 the next producer waits for, and a second offer overwrites the first event
+     */
+    CadfEventRing(int capacity) {
+        Assert.isTrue(capacity >= 2 && Integer.bitCount(capacity) == 1, "capacity must be a power of two, at least 2");
+        this.mask = capacity - 1;
+        this.events = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return false if the ring is full
+     */
+    boolean offer(CadfAuditEvent event) {
+        long position = enqueuePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    events.lazySet(index, event);
+                    // publishes the event to the consumer which observes the new sequence
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            position = enqueuePosition.get();
+        }
+    }
+
+    /**
+     * @return oldest event or null if the ring is empty, or the next slot is still being written
+     */
+    CadfAuditEvent poll() {
+        long position = dequeuePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    CadfAuditEvent event = events.get(index);
+                    events.lazySet(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return event;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+            position = dequeuePosition.get();
+        }
+    }
+
+    /**
+     * @return number of claimed slots not yet polled, including ones still being written
+     */
+    int size() {
+        long dequeued = dequeuePosition.get();
+        return (int) Math.max(0, enqueuePosition.get() - dequeued);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
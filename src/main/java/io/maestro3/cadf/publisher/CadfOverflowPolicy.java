@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.publisher;
+
+/**
+ * What {@link CadfEventPublisher#publish} does when its buffer is full.
+ */
+public enum CadfOverflowPolicy {
+
+    /**
+     * Waits until the drain makes room, the producer is slowed down to the sink's pace.
+     */
+    BLOCK,
+
+    /**
+     * Discards the oldest buffered event to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discards the new event.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Publishes the new event to the sinks on the producer's thread.
+     */
+    CALLER_RUNS
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.publisher;
+
+import io.maestro3.cadf.model.CadfAuditEvent;
+
+import java.util.List;
+
+/**
+ * Destination of the batches flushed by {@link CadfEventPublisher}, e.g. a message broker or a journal.
+ * <p/>
+ * Batches are normally published from the publisher's drain thread. With {@link CadfOverflowPolicy#CALLER_RUNS}, and
+ * for events which race with {@link CadfEventPublisher#close()}, producer threads publish as well, but never at the
+ * same time as the drain or each other: a sink is called by one thread at a time, though not always the same one.
+ */
+public interface ICadfEventSink {
+
+    /**
+     * @param events non-empty batch in publishing order, owned by the sink after the call
+     */
+    void publish(List<CadfAuditEvent> events);
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.sampling;
+
+import io.maestro3.cadf.filter.CadfEventFilter;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import io.maestro3.cadf.model.CadfTag;
+import io.maestro3.cadf.publisher.ICadfEventSink;
+import io.maestro3.cadf.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thins out high volume events, by default monitor events, while keeping counts recoverable: every kept event which
+ * stands for more than itself gets a {@link #SAMPLE_RATE_TAG} tag with the fraction of events it represents, so
+ * downstream weighs it with {@code 1 / rate}.
+ * <p/>
+ * Events in scope are first kept with the configured probability, then limited per (metric id, target id) key by a
+ * token bucket held in a lock-free {@link RateLimiterTable}. Events matching the always-keep filter, by default
+ * failures and security actions, bypass both. Events out of scope pass untouched.
+ *
+ * <pre>{@code
+ * CadfEventSampler sampler = CadfEventSampler.builder()
+ *     .withProbability(0.5)
+ *     .withTokenBucket(10, 20)
+ *     .build();
+ * publisher = CadfEventPublisher.builder().withSink(sampler.filtering(sink)).build();
+ * }</pre>
+ */
+public final class CadfEventSampler {
+
+    public static final String SAMPLE_RATE_TAG = "sampleRate";
+    public static final int DEFAULT_MAX_KEYS = 65536;
+
+    private static final CadfEventFilter MONITOR_EVENTS = CadfEventFilter.parse(
+        "eventType = monitor OR action under monitor");
+    private static final CadfEventFilter FAILURES_AND_SECURITY = CadfEventFilter.parse(
+        "outcome under failure OR action under security");
+
+    private final CadfEventFilter scope;
+    private final CadfEventFilter alwaysKeep;
+    private final double probability;
+    private final RateLimiterTable limiters;
+
+    private final LongAdder kept = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder forced = new LongAdder();
+
+    private CadfEventSampler(Builder builder) {
+        this.scope = builder.scope;
+        this.alwaysKeep = builder.alwaysKeep;
+        this.probability = builder.probability;
+        this.limiters = builder.eventsPerSecond > 0
+            ? new RateLimiterTable(builder.eventsPerSecond, builder.burst, builder.maxKeys, builder.stripes)
+            : null;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Decides whether to keep the event and tags kept events which were sampled.
+     *
+     * @return false if the event should be dropped
+     */
+    public boolean sample(CadfAuditEvent event) {
+        Assert.notNull(event, "event can not be null");
+        if (!scope.test(event)) {
+            return true;
+        }
+        if (alwaysKeep.test(event)) {
+            forced.increment();
+            return true;
+        }
+        double rate = 1;
+        if (probability < 1) {
+            if (ThreadLocalRandom.current().nextDouble() >= probability) {
+                dropped.increment();
+                return false;
+            }
+            rate = probability;
+        }
+        if (limiters != null) {
+            long rejectedBefore = limiters.acquire(metricId(event),
+                event.getTarget() != null ? event.getTarget().getId() : null, System.nanoTime());
+            if (rejectedBefore == RateLimiterTable.REJECTED) {
+                dropped.increment();
+                return false;
+            }
+            rate /= rejectedBefore + 1;
+        }
+        if (rate < 1) {
+            event.addTag(CadfTag.builder().withName(SAMPLE_RATE_TAG).withValue(Double.toString(rate)).build());
+        }
+        kept.increment();
+        return true;
+    }
+
+    /**
+     * @return sink which passes the kept events of a batch to the given sink, empty batches are not passed on
+     */
+    public ICadfEventSink filtering(ICadfEventSink sink) {
+        Assert.notNull(sink, "sink can not be null");
+        return events -> {
+            List<CadfAuditEvent> sampled = null;
+            for (int i = 0; i < events.size(); i++) {
+                CadfAuditEvent event = events.get(i);
+                if (!sample(event)) {
+                    if (sampled == null) {
+                        sampled = new ArrayList<>(events.subList(0, i));
+                    }
+                } else if (sampled != null) {
+                    sampled.add(event);
+                }
+            }
+            List<CadfAuditEvent> batch = sampled != null ? sampled : events;
+            if (!batch.isEmpty()) {
+                sink.publish(batch);
+            }
+        };
+    }
+
+    // ================================= counters ========================================
+
+    /**
+     * @return events in scope which were kept, with or without a sample rate tag
+     */
+    public long getKeptCount() {
+        return kept.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return events in scope which were kept because they matched the always-keep filter
+     */
+    public long getAlwaysKeptCount() {
+        return forced.sum();
+    }
+
+    // ================================= internals ========================================
+
+    /**
+     * @return metric id of the first measurement, which identifies the series of a monitor event
+     */
+    private static String metricId(CadfAuditEvent event) {
+        List<CadfMeasurement> measurements = event.getMeasurements();
+        if (measurements == null || measurements.isEmpty()) {
+            return null;
+        }
+        if (measurements instanceof CadfMeasurementBatch) {
+            return ((CadfMeasurementBatch) measurements).getMetricId(0);
+        }
+        CadfMeasurement measurement = measurements.get(0);
+        if (measurement.getMetricId() != null || measurement.getMetric() == null) {
+            return measurement.getMetricId();
+        }
+        return measurement.getMetric().getMetricId();
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private CadfEventFilter scope = MONITOR_EVENTS;
+        private CadfEventFilter alwaysKeep = FAILURES_AND_SECURITY;
+        private double probability = 1;
+        private double eventsPerSecond;
+        private int burst;
+        private int maxKeys = DEFAULT_MAX_KEYS;
+        private int stripes = Runtime.getRuntime().availableProcessors() * 2;
+
+        private Builder() {
+        }
+
+        /**
+         * Events which are sampled, monitor events by type or action by default.
+         */
+        public Builder withScope(CadfEventFilter scope) {
+            Assert.notNull(scope, "scope can not be null");
+            this.scope = scope;
+            return this;
+        }
+
+        /**
+         * Events in scope which are never dropped, failures and security actions by default.
+         */
+        public Builder withAlwaysKeep(CadfEventFilter alwaysKeep) {
+            Assert.notNull(alwaysKeep, "alwaysKeep can not be null");
+            this.alwaysKeep = alwaysKeep;
+            return this;
+        }
+
+        /**
+         * Probability to keep an event in scope, 1 by default.
+         */
+        public Builder withProbability(double probability) {
+            Assert.isTrue(probability > 0 && probability <= 1, "probability must be greater than 0 and at most 1");
+            this.probability = probability;
+            return this;
+        }
+
+        /**
+         * Limits events in scope per (metric id, target id) to the rate, allowing bursts of the given size. None by
+         * default.
+         */
+        public Builder withTokenBucket(double eventsPerSecond, int burst) {
+            Assert.isTrue(eventsPerSecond > 0, "eventsPerSecond must be positive");
+            Assert.isTrue(burst > 0, "burst must be positive");
+            this.eventsPerSecond = eventsPerSecond;
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * Keys tracked by the token buckets, keys beyond it share a bucket per stripe.
+         */
+        public Builder withMaxKeys(int maxKeys) {
+            Assert.isTrue(maxKeys > 0 && maxKeys <= 1 << 26, "maxKeys must be between 1 and 2^26");
+            this.maxKeys = maxKeys;
+            return this;
+        }
+
+        /**
+         * Number of independent token bucket tables, twice the number of processors by default.
+         */
+        public Builder withStripes(int stripes) {
+            Assert.isTrue(stripes > 0 && stripes <= 1024, "stripes must be between 1 and 1024");
+            this.stripes = stripes;
+            return this;
+        }
+
+        public CadfEventSampler build() {
+            return new CadfEventSampler(this);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.sampling;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free table of per-key rate limiters using the generic cell rate algorithm: a key's state is the theoretical
+ * arrival time of its next event, an event is admitted by a CAS which moves it one emission interval further, and is
+ * rejected while that time is more than the burst tolerance ahead.
+ * <p/>
+ * Keys are hashed to stripes of fixed size open addressing tables. A key which does not find a slot within a few
+ * probes reuses the slot of an idle key, or shares the overflow limiter of its stripe. Reusing slots races with late
+ * updates of the previous key, which only makes limits approximate under key churn.
+ */
+final class RateLimiterTable {
+
+    static final long REJECTED = -1;
+
+    private static final int MAX_PROBES = 8;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final Stripe[] stripes;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final long idleNanos;
+
+    RateLimiterTable(double eventsPerSecond, int burst, int maxKeys, int stripeCount) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / eventsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        // a key whose bucket is full again has no state worth keeping
+        this.idleNanos = toleranceNanos + intervalNanos;
+        int capacity = Integer.highestOneBit(Math.max(MAX_PROBES, (maxKeys + stripeCount - 1) / stripeCount) - 1) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    /**
+     * @return {@link #REJECTED}, or the number of events of the key rejected since the previous admitted one
+     */
+    long acquire(String metricId, String targetId, long nowNanos) {
+        int hash = 31 * Objects.hashCode(metricId) + Objects.hashCode(targetId);
+        hash ^= hash >>> 16;
+        Stripe stripe = stripes[(int) (((hash * 0x9E3779B9) & 0xFFFFFFFFL) * stripes.length >>> 32)];
+        int slot = stripe.slot(metricId, targetId, hash, nowNanos, idleNanos);
+        AtomicLongArray arrivals = stripe.arrivals;
+        while (true) {
+            long stored = arrivals.get(slot);
+            long arrival = Math.max(stored, nowNanos);
+            if (arrival - nowNanos > toleranceNanos) {
+                stripe.rejected.incrementAndGet(slot);
+                return REJECTED;
+            }
+            if (arrivals.compareAndSet(slot, stored, arrival + intervalNanos)) {
+                return stripe.rejected.getAndSet(slot, 0);
+            }
+        }
+    }
+
+    private static final class Stripe {
+
+        private final int mask;
+        private final AtomicReferenceArray<Key> keys;
+        // theoretical arrival times, the last slot is the overflow limiter
+        private final AtomicLongArray arrivals;
+        private final AtomicLongArray rejected;
+
+        Stripe(int capacity) {
+            this.mask = capacity - 1;
+            this.keys = new AtomicReferenceArray<>(capacity);
+            this.arrivals = new AtomicLongArray(capacity + 1);
+            this.rejected = new AtomicLongArray(capacity + 1);
+            for (int i = 0; i <= capacity; i++) {
+                arrivals.set(i, EMPTY);
+            }
+        }
+
+        int slot(String metricId, String targetId, int hash, long nowNanos, long idleNanos) {
+            Key created = null;
+            for (int probe = 0, slot = hash & mask; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+                Key key = keys.get(slot);
+                if (key != null && key.matches(metricId, targetId, hash)) {
+                    return slot;
+                }
+                if (key == null || isIdle(arrivals.get(slot), nowNanos, idleNanos)) {
+                    if (created == null) {
+                        created = new Key(metricId, targetId, hash);
+                    }
+                    if (keys.compareAndSet(slot, key, created)) {
+                        if (key != null) {
+                            arrivals.set(slot, EMPTY);
+                            rejected.set(slot, 0);
+                        }
+                        return slot;
+                    }
+                    key = keys.get(slot);
+                    if (key.matches(metricId, targetId, hash)) {
+                        return slot;
+                    }
+                }
+            }
+            return mask + 1;
+        }
+
+        /**
+         * Keys which were just inserted are not idle, they are about to be updated.
+         */
+        private static boolean isIdle(long arrival, long nowNanos, long idleNanos) {
+            return arrival != EMPTY && nowNanos - arrival > idleNanos;
+        }
+    }
+
+    private static final class Key {
+
+        private final String metricId;
+        private final String targetId;
+        private final int hash;
+
+        Key(String metricId, String targetId, int hash) {
+            this.metricId = metricId;
+            this.targetId = targetId;
+            this.hash = hash;
+        }
+
+        boolean matches(String metricId, String targetId, int hash) {
+            return this.hash == hash && Objects.equals(this.metricId, metricId) && Objects.equals(this.targetId, targetId);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.store;
+
+import io.maestro3.cadf.filter.CadfEventFilter;
+import io.maestro3.cadf.index.CadfBitmap;
+import io.maestro3.cadf.index.CadfTagQuery;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.util.Assert;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * In-memory event store in columns, for keeping recent events around at a fraction of the heap their object graphs
+ * take. Events are appended into chunks of {@link Builder#withChunkSize(int) chunkSize} rows: event time as long,
+ * event type, action, outcome and resource types as ordinals, resource ids, names and other strings as codes of a
+ * per chunk dictionary. A full chunk is sealed and never changes again, old chunks are dropped by
+ * {@link #evictBefore(long)}.
+ * <p/>
+ * Scans skip chunks by their time range and read columns through a {@link CadfStoredEvent} cursor, events are only
+ * created on demand. Appends and evictions are synchronized, reads run concurrently with them and see every event
+ * appended before they started.
+ * <p/>
+ * With {@link Builder#withTagIndex(boolean) tag indexing} on, each chunk keeps an inverted index from tags to its rows
+ * and {@link #scan(CadfTagQuery, Consumer)} answers tag queries with bitmap operations instead of a scan.
+ */
+public final class CadfEventStore {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final int chunkSize;
+    private final boolean tagIndex;
+    // sealed chunks in row order, the last one accepts appends
+    private volatile EventChunk[] chunks;
+
+    private CadfEventStore(Builder builder) {
+        this.chunkSize = builder.chunkSize;
+        this.tagIndex = builder.tagIndex;
+        this.chunks = new EventChunk[]{new EventChunk(0, chunkSize, tagIndex)};
+    }
+
+    public static CadfEventStore create() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ================================= writing ========================================
+
+    /**
+     * @return row of the event, rows are assigned in append order and stay valid until evicted
+     * @throws IllegalArgumentException if the event lacks a field required by {@link CadfAuditEvent.Builder}
+     */
+    public synchronized long append(CadfAuditEvent event) {
+        Assert.notNull(event, "event can not be null");
+        Assert.hasText(event.getEventType(), "event type can not be null or empty");
+        Assert.isTrue(event.eventTimeNanos() != CadfAuditEvent.NO_EVENT_TIME, "event time must be set");
+        Assert.hasText(event.getAction(), "action can not be null or empty");
+        Assert.hasText(event.getOutcome(), "outcome can not be null or empty");
+        Assert.notNull(event.getInitiator(), "initiator can not be null");
+        Assert.notNull(event.getTarget(), "target can not be null");
+        Assert.notNull(event.getObserver(), "observer can not be null");
+        EventChunk[] current = chunks;
+        EventChunk active = current[current.length - 1];
+        if (!active.append(event)) {
+            active.seal();
+            active = new EventChunk(active.firstRow + active.size(), chunkSize, tagIndex);
+            EventChunk[] extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = active;
+            chunks = extended;
+            active.append(event);
+        }
+        return active.firstRow + active.size() - 1;
+    }
+
+    /**
+     * Drops sealed chunks whose events are all older than the given time. The chunk being appended to is kept.
+     *
+     * @return number of dropped events
+     */
+    public synchronized int evictBefore(long epochNanos) {
+        EventChunk[] current = chunks;
+        int dropped = 0;
+        int evicted = 0;
+        while (evicted < current.length - 1 && current[evicted].getMaxEventTimeNanos() < epochNanos) {
+            dropped += current[evicted].size();
+            evicted++;
+        }
+        if (evicted > 0) {
+            chunks = Arrays.copyOfRange(current, evicted, current.length);
+        }
+        return dropped;
+    }
+
+    // ================================= reading ========================================
+
+    /**
+     * @return row of the oldest event held
+     */
+    public long getFirstRow() {
+        return chunks[0].firstRow;
+    }
+
+    /**
+     * @return row the next appended event gets
+     */
+    public long getNextRow() {
+        EventChunk[] current = chunks;
+        EventChunk last = current[current.length - 1];
+        return last.firstRow + last.size();
+    }
+
+    /**
+     * @return number of events held
+     */
+    public long size() {
+        EventChunk[] current = chunks;
+        EventChunk last = current[current.length - 1];
+        return last.firstRow + last.size() - current[0].firstRow;
+    }
+
+    /**
+     * Creates the event at the row.
+     *
+     * @throws IllegalArgumentException if the row is evicted or not appended yet
+     */
+    public CadfAuditEvent get(long row) {
+        EventChunk[] current = chunks;
+        int low = 0;
+        int high = current.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (current[middle].firstRow <= row) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        EventChunk chunk = current[low];
+        Assert.isTrue(row >= chunk.firstRow && row < chunk.firstRow + chunk.size(), "row " + row + " is not held");
+        return chunk.toEvent((int) (row - chunk.firstRow));
+    }
+
+    /**
+     * Visits all events in row order.
+     *
+     * @return number of visited events
+     */
+    public long scan(Consumer<? super CadfStoredEvent> visitor) {
+        return scan(Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Visits events with the event time in the inclusive range of epoch nanos, in row order.
+     *
+     * @return number of visited events
+     */
+    public long scan(long fromNanos, long toNanos, Consumer<? super CadfStoredEvent> visitor) {
+        Assert.notNull(visitor, "visitor can not be null");
+        CadfStoredEvent cursor = new CadfStoredEvent();
+        long visited = 0;
+        for (EventChunk chunk : chunks) {
+            int size = chunk.size();
+            if (size == 0 || chunk.getMaxEventTimeNanos() < fromNanos || chunk.getMinEventTimeNanos() > toNanos) {
+                continue;
+            }
+            boolean contained = chunk.getMinEventTimeNanos() >= fromNanos && chunk.getMaxEventTimeNanos() <= toNanos;
+            for (int i = 0; i < size; i++) {
+                if (contained || inRange(chunk.getEventTimeNanos(i), fromNanos, toNanos)) {
+                    visitor.accept(cursor.moveTo(chunk, i));
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @return number of events with the event time in the inclusive range of epoch nanos, counted on the time column
+     */
+    public long count(long fromNanos, long toNanos) {
+        long count = 0;
+        for (EventChunk chunk : chunks) {
+            int size = chunk.size();
+            if (size == 0 || chunk.getMaxEventTimeNanos() < fromNanos || chunk.getMinEventTimeNanos() > toNanos) {
+                continue;
+            }
+            if (chunk.getMinEventTimeNanos() >= fromNanos && chunk.getMaxEventTimeNanos() <= toNanos) {
+                count += size;
+                continue;
+            }
+            for (int i = 0; i < size; i++) {
+                if (inRange(chunk.getEventTimeNanos(i), fromNanos, toNanos)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Visits events matching the filter in row order. The filter is evaluated column-wise per chunk, the cursor is
+     * only positioned on matching rows.
+     *
+     * @return number of visited events
+     */
+    public long scan(CadfEventFilter filter, Consumer<? super CadfStoredEvent> visitor) {
+        Assert.notNull(filter, "filter can not be null");
+        Assert.notNull(visitor, "visitor can not be null");
+        CadfStoredEvent cursor = new CadfStoredEvent();
+        long[] mask = new long[(chunkSize + 63) >>> 6];
+        long visited = 0;
+        EventChunk[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            EventChunk chunk = current[c];
+            int remaining = select(filter, chunk, c == current.length - 1, mask);
+            // words past the selected rows are stale, the match count bounds the walk instead
+            for (int word = 0; remaining > 0; word++) {
+                long bits = mask[word];
+                while (bits != 0) {
+                    visitor.accept(cursor.moveTo(chunk, (word << 6) + Long.numberOfTrailingZeros(bits)));
+                    bits &= bits - 1;
+                    remaining--;
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @return number of events matching the filter, counted on the columns
+     */
+    public long count(CadfEventFilter filter) {
+        Assert.notNull(filter, "filter can not be null");
+        long[] mask = new long[(chunkSize + 63) >>> 6];
+        long count = 0;
+        EventChunk[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            count += select(filter, current[c], c == current.length - 1, mask);
+        }
+        return count;
+    }
+
+    /**
+     * Fills the mask for the chunk, the open chunk is evaluated under the append lock so that all filter nodes see
+     * the same number of rows.
+     *
+     * @return number of matching rows
+     */
+    private int select(CadfEventFilter filter, EventChunk chunk, boolean open, long[] mask) {
+        if (!open) {
+            return filter.select(chunk, mask);
+        }
+        synchronized (this) {
+            return filter.select(chunk, mask);
+        }
+    }
+
+    /**
+     * Visits events matching the tag query in row order, rows are taken from the chunk tag indexes.
+     *
+     * @return number of visited events
+     * @throws IllegalStateException if the store does not index tags
+     */
+    public long scan(CadfTagQuery query, Consumer<? super CadfStoredEvent> visitor) {
+        Assert.notNull(visitor, "visitor can not be null");
+        CadfStoredEvent cursor = new CadfStoredEvent();
+        long visited = 0;
+        EventChunk[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            EventChunk chunk = current[c];
+            int[] rows = select(query, chunk, c == current.length - 1).toArray();
+            for (int row : rows) {
+                visitor.accept(cursor.moveTo(chunk, row));
+            }
+            visited += rows.length;
+        }
+        return visited;
+    }
+
+    /**
+     * @return number of events matching the tag query, counted on the chunk tag indexes
+     * @throws IllegalStateException if the store does not index tags
+     */
+    public long count(CadfTagQuery query) {
+        long count = 0;
+        EventChunk[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            count += select(query, current[c], c == current.length - 1).cardinality();
+        }
+        return count;
+    }
+
+    /**
+     * Evaluates the query on the tag index of the chunk, the one of the open chunk changes with appends and is read
+     * under the append lock.
+     */
+    private CadfBitmap select(CadfTagQuery query, EventChunk chunk, boolean open) {
+        Assert.notNull(query, "query can not be null");
+        if (!tagIndex) {
+            throw new IllegalStateException("Tags are not indexed, see Builder.withTagIndex");
+        }
+        if (!open) {
+            return query.evaluate(chunk.tagIndex());
+        }
+        synchronized (this) {
+            // the result may be a bitmap of the index, it is copied before appends resume
+            return query.evaluate(chunk.tagIndex()).copy();
+        }
+    }
+
+    private static boolean inRange(long eventTime, long fromNanos, long toNanos) {
+        return eventTime >= fromNanos && eventTime <= toNanos;
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private boolean tagIndex;
+
+        private Builder() {
+        }
+
+        /**
+         * Rows per chunk, memory is allocated and released in chunks. A chunk may be sealed earlier when its
+         * dictionary fills up.
+         */
+        public Builder withChunkSize(int chunkSize) {
+            Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Keeps an inverted index from tag name and from name and value to rows per chunk, required by
+         * {@link CadfEventStore#scan(CadfTagQuery, Consumer)}. Off by default.
+         */
+        public Builder withTagIndex(boolean tagIndex) {
+            this.tagIndex = tagIndex;
+            return this;
+        }
+
+        public CadfEventStore build() {
+            return new CadfEventStore(this);
+        }
+    }
+}
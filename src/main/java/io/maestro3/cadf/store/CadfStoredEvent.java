@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.store;
+
+import io.maestro3.cadf.filter.CadfResourceRole;
+import io.maestro3.cadf.model.CadfAuditEvent;
+
+/**
+ * Cursor over the rows of a {@link CadfEventStore} scan. Fields are read from the columns on access, the event
+ * itself is created by {@link #toEvent()} only. The instance is reused for every row of a scan and must not be kept.
+ */
+public final class CadfStoredEvent {
+
+    private EventChunk chunk;
+    private int index;
+
+    CadfStoredEvent() {
+    }
+
+    CadfStoredEvent moveTo(EventChunk chunk, int index) {
+        this.chunk = chunk;
+        this.index = index;
+        return this;
+    }
+
+    public long getRow() {
+        return chunk.firstRow + index;
+    }
+
+    /**
+     * Creates the id string, the uuid part of generated ids is kept as two longs.
+     */
+    public String getId() {
+        return chunk.id(index);
+    }
+
+    public long getEventTimeNanos() {
+        return chunk.getEventTimeNanos(index);
+    }
+
+    public String getEventType() {
+        return chunk.eventType(index).getName();
+    }
+
+    public String getAction() {
+        return chunk.getAction(index);
+    }
+
+    public String getOutcome() {
+        return chunk.getOutcome(index);
+    }
+
+    public String getName() {
+        return chunk.name(index);
+    }
+
+    public String getSeverity() {
+        return chunk.severity(index);
+    }
+
+    // ================================= resources ========================================
+
+    public String getInitiatorId() {
+        return chunk.getResourceId(index, CadfResourceRole.INITIATOR);
+    }
+
+    public String getInitiatorTypeURI() {
+        return chunk.getResourceTypeURI(index, CadfResourceRole.INITIATOR);
+    }
+
+    public String getInitiatorName() {
+        return chunk.getResourceName(index, CadfResourceRole.INITIATOR);
+    }
+
+    public String getTargetId() {
+        return chunk.getResourceId(index, CadfResourceRole.TARGET);
+    }
+
+    public String getTargetTypeURI() {
+        return chunk.getResourceTypeURI(index, CadfResourceRole.TARGET);
+    }
+
+    public String getTargetName() {
+        return chunk.getResourceName(index, CadfResourceRole.TARGET);
+    }
+
+    public String getObserverId() {
+        return chunk.getResourceId(index, CadfResourceRole.OBSERVER);
+    }
+
+    public String getObserverTypeURI() {
+        return chunk.getResourceTypeURI(index, CadfResourceRole.OBSERVER);
+    }
+
+    public String getObserverName() {
+        return chunk.getResourceName(index, CadfResourceRole.OBSERVER);
+    }
+
+    /**
+     * @return new event equal to the appended one, sharing its measurements, tags, attachments and resources with
+     * credentials or attachments
+     */
+    public CadfAuditEvent toEvent() {
+        return chunk.toEvent(index);
+    }
+
+    @Override
+    public String toString() {
+        return "CadfStoredEvent{" +
+            "row=" + getRow() +
+            ", eventTime=" + getEventTimeNanos() +
+            ", eventType='" + getEventType() + '\'' +
+            ", action='" + getAction() + '\'' +
+            ", outcome='" + getOutcome() + '\'' +
+            '}';
+    }
+}
@@ -0,0 +1,556 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.store;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.codec.UnknownTaxonomyValue;
+import io.maestro3.cadf.filter.CadfResourceRole;
+import io.maestro3.cadf.filter.ICadfEventColumns;
+import io.maestro3.cadf.index.CadfTagIndex;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.model.CadfTag;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed capacity block of events in columns. Taxonomy values are stored as ordinals and other strings as codes of
+ * the chunk dictionary, event ids in the {@code <prefix><uuid>} format as two longs. What does not fit into columns
+ * (measurements, tags, attachments, credentials and unusual ids) is kept by reference in sparse {@link Extras}.
+ * <p/>
+ * Written by one thread at a time; rows below {@link #size()} are immutable, so they may be read concurrently. A
+ * sealed chunk does not accept appends anymore and drops its dictionary lookup map. The optional tag index maps tags
+ * to chunk rows, it changes with every append and is read under the writer's lock until the chunk is sealed.
+ */
+final class EventChunk implements ICadfEventColumns {
+
+    // codes are shorts, negative taxonomy codes refer to the dictionary as well
+    private static final int MAX_DICTIONARY_SIZE = Short.MAX_VALUE;
+    // upper bound of new dictionary strings per event: id prefix, 3 resource ids, names and types, action, outcome,
+    // name and severity
+    private static final int MAX_STRINGS_PER_EVENT = 14;
+    private static final int UUID_LENGTH = 36;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final CadfEventType[] EVENT_TYPES = CadfEventType.values();
+    private static final Map<String, Integer> ACTION_ORDINALS = actionOrdinals();
+    private static final Map<String, Integer> OUTCOME_ORDINALS = outcomeOrdinals();
+    private static final Map<String, Integer> RESOURCE_TYPE_CODES = resourceTypeCodes();
+    private static final String[] RESOURCE_TYPE_URIS = resourceTypeUris();
+
+    final long firstRow;
+    private final int capacity;
+    private final long[] eventTimes;
+    private final byte[] eventTypes;
+    private final short[] actions;
+    private final short[] outcomes;
+    private final short[] names;
+    private final short[] severities;
+    // id prefix code, 0 if the id is kept in the extras
+    private final short[] idPrefixes;
+    // most and least significant bits of the id uuid, interleaved
+    private final long[] idBits;
+    // 3 per event: initiator, target, observer
+    private final short[] resourceIds;
+    private final short[] resourceTypes;
+    private final short[] resourceNames;
+    // null if tags are not indexed
+    private final CadfTagIndex tagIndex;
+
+    private volatile Extras[] extras;
+    private volatile String[] dictionary = new String[64];
+    private Map<String, Integer> dictionaryCodes = new HashMap<>();
+    private int dictionarySize;
+    private long minEventTime = Long.MAX_VALUE;
+    private long maxEventTime = Long.MIN_VALUE;
+    private boolean sealed;
+    private volatile int size;
+
+    EventChunk(long firstRow, int capacity, boolean indexTags) {
+        this.firstRow = firstRow;
+        this.capacity = capacity;
+        this.eventTimes = new long[capacity];
+        this.eventTypes = new byte[capacity];
+        this.actions = new short[capacity];
+        this.outcomes = new short[capacity];
+        this.names = new short[capacity];
+        this.severities = new short[capacity];
+        this.idPrefixes = new short[capacity];
+        this.idBits = new long[capacity * 2];
+        this.resourceIds = new short[capacity * 3];
+        this.resourceTypes = new short[capacity * 3];
+        this.resourceNames = new short[capacity * 3];
+        this.tagIndex = indexTags ? new CadfTagIndex() : null;
+    }
+
+    // ================================= writing ========================================
+
+    /**
+     * @return false if the chunk is sealed, full or its dictionary may overflow, the event is not added then
+     */
+    boolean append(CadfAuditEvent event) {
+        int index = size;
+        if (sealed || index == capacity || dictionarySize > MAX_DICTIONARY_SIZE - MAX_STRINGS_PER_EVENT) {
+            return false;
+        }
+        Extras[] currentExtras = extras;
+        if (currentExtras != null) {
+            // left over by an append which failed half way
+            currentExtras[index] = null;
+        }
+        long eventTime = event.eventTimeNanos();
+        eventTimes[index] = eventTime;
+        eventTypes[index] = (byte) (CadfEventType.fromName(event.getEventType()).ordinal() + 1);
+        actions[index] = taxonomyCode(ACTION_ORDINALS, event.getAction());
+        outcomes[index] = taxonomyCode(OUTCOME_ORDINALS, event.getOutcome());
+        names[index] = code(event.getName());
+        severities[index] = code(event.getSeverity());
+        if (!putId(index, event.getId())) {
+            extras(index).id = event.getId();
+        }
+        putResource(index, CadfResourceRole.INITIATOR, event.getInitiator());
+        putResource(index, CadfResourceRole.TARGET, event.getTarget());
+        putResource(index, CadfResourceRole.OBSERVER, event.getObserver());
+        if (event.getMeasurements() != null || event.getTags() != null || event.getAttachments() != null
+            || event.getSecureAttachments() != null) {
+            Extras extra = extras(index);
+            extra.measurements = event.getMeasurements();
+            extra.tags = event.getTags();
+            extra.attachments = event.getAttachments();
+            extra.secureAttachments = event.getSecureAttachments();
+        }
+        if (tagIndex != null) {
+            tagIndex.add(index, event.getTags());
+        }
+        minEventTime = Math.min(minEventTime, eventTime);
+        maxEventTime = Math.max(maxEventTime, eventTime);
+        size = index + 1;
+        return true;
+    }
+
+    void seal() {
+        sealed = true;
+        dictionaryCodes = null;
+    }
+
+    // ================================= reading ========================================
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Valid after {@link #size()} was read, covers the rows below it.
+     */
+    @Override
+    public long getMinEventTimeNanos() {
+        return minEventTime;
+    }
+
+    @Override
+    public long getMaxEventTimeNanos() {
+        return maxEventTime;
+    }
+
+    @Override
+    public long getEventTimeNanos(int index) {
+        return eventTimes[index];
+    }
+
+    @Override
+    public int getEventTypeOrdinal(int index) {
+        return eventTypes[index] - 1;
+    }
+
+    @Override
+    public int getActionOrdinal(int index) {
+        int code = actions[index];
+        return code > 0 ? code - 1 : -1;
+    }
+
+    @Override
+    public String getAction(int index) {
+        int code = actions[index];
+        return code > 0 ? CadfActions.byOrdinal(code - 1).getRelativeUri() : string(-code);
+    }
+
+    @Override
+    public int getOutcomeOrdinal(int index) {
+        int code = outcomes[index];
+        return code > 0 ? code - 1 : -1;
+    }
+
+    @Override
+    public String getOutcome(int index) {
+        int code = outcomes[index];
+        return code > 0 ? CadfOutcomes.byOrdinal(code - 1).getRelativeUri() : string(-code);
+    }
+
+    @Override
+    public int getNameCode(int index) {
+        return names[index];
+    }
+
+    @Override
+    public int getSeverityCode(int index) {
+        return severities[index];
+    }
+
+    /**
+     * @return index from tags to rows, null if tags are not indexed
+     */
+    CadfTagIndex tagIndex() {
+        return tagIndex;
+    }
+
+    CadfEventType eventType(int index) {
+        return EVENT_TYPES[eventTypes[index] - 1];
+    }
+
+    String name(int index) {
+        return string(names[index]);
+    }
+
+    String severity(int index) {
+        return string(severities[index]);
+    }
+
+    String id(int index) {
+        int prefix = idPrefixes[index];
+        if (prefix == 0) {
+            return extras[index].id;
+        }
+        String prefixString = string(prefix);
+        char[] id = new char[prefixString.length() + UUID_LENGTH];
+        prefixString.getChars(0, prefixString.length(), id, 0);
+        long msb = idBits[index * 2];
+        long lsb = idBits[index * 2 + 1];
+        int position = hex(id, prefixString.length(), msb >>> 32, 8);
+        id[position++] = '-';
+        position = hex(id, position, msb >>> 16, 4);
+        id[position++] = '-';
+        position = hex(id, position, msb, 4);
+        id[position++] = '-';
+        position = hex(id, position, lsb >>> 48, 4);
+        id[position++] = '-';
+        hex(id, position, lsb, 12);
+        return new String(id);
+    }
+
+    // ================================= resources ========================================
+
+    @Override
+    public int getResourceTypeOrdinal(int index, CadfResourceRole role) {
+        CadfResource resource = fullResource(index, role);
+        int code;
+        if (resource != null) {
+            Integer known = resource.getTypeURI() != null ? RESOURCE_TYPE_CODES.get(resource.getTypeURI()) : null;
+            code = known != null ? known + 1 : 0;
+        } else {
+            code = resourceTypes[slot(index, role)];
+        }
+        return code > 0 ? (code - 1) >> 1 : -1;
+    }
+
+    @Override
+    public String getResourceTypeURI(int index, CadfResourceRole role) {
+        CadfResource resource = fullResource(index, role);
+        if (resource != null) {
+            return resource.getTypeURI();
+        }
+        int code = resourceTypes[slot(index, role)];
+        return code > 0 ? RESOURCE_TYPE_URIS[code - 1] : string(-code);
+    }
+
+    @Override
+    public int getResourceIdCode(int index, CadfResourceRole role) {
+        return fullResource(index, role) != null ? -1 : resourceIds[slot(index, role)];
+    }
+
+    @Override
+    public String getResourceId(int index, CadfResourceRole role) {
+        CadfResource resource = fullResource(index, role);
+        return resource != null ? resource.getId() : string(resourceIds[slot(index, role)]);
+    }
+
+    @Override
+    public int getResourceNameCode(int index, CadfResourceRole role) {
+        return fullResource(index, role) != null ? -1 : resourceNames[slot(index, role)];
+    }
+
+    @Override
+    public String getResourceName(int index, CadfResourceRole role) {
+        CadfResource resource = fullResource(index, role);
+        return resource != null ? resource.getName() : string(resourceNames[slot(index, role)]);
+    }
+
+    /**
+     * Scans the dictionary, so it works on sealed chunks and concurrently with appends.
+     */
+    @Override
+    public int getStringCode(String value) {
+        String[] current = dictionary;
+        for (int i = 0; i < current.length && current[i] != null; i++) {
+            if (value.equals(current[i])) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates the event, sharing measurements, tags and attachments with the appended one.
+     */
+    CadfAuditEvent toEvent(int index) {
+        Extras extra = extras != null ? extras[index] : null;
+        CadfAuditEvent.Builder builder = CadfAuditEvent.builder()
+            .withId(id(index))
+            .withEventType(eventType(index))
+            .withEventTimeNanos(eventTimes[index])
+            .withAction(actionValue(actions[index]))
+            .withOutcome(outcomeValue(outcomes[index]))
+            .withInitiator(resource(index, CadfResourceRole.INITIATOR))
+            .withTarget(resource(index, CadfResourceRole.TARGET))
+            .withObserver(resource(index, CadfResourceRole.OBSERVER))
+            .withName(name(index))
+            .withSeverity(severity(index));
+        if (extra != null) {
+            if (extra.measurements != null) {
+                builder.withMeasurements(extra.measurements);
+            }
+            if (extra.tags != null) {
+                builder.withTags(extra.tags);
+            }
+            if (extra.attachments != null) {
+                builder.withAttachments(extra.attachments);
+            }
+            if (extra.secureAttachments != null) {
+                builder.withSecureAttachments(extra.secureAttachments);
+            }
+        }
+        return builder.build();
+    }
+
+    // ================================= internals ========================================
+
+    private Extras extras(int index) {
+        Extras[] current = extras;
+        if (current == null) {
+            current = new Extras[capacity];
+            extras = current;
+        }
+        if (current[index] == null) {
+            current[index] = new Extras();
+        }
+        return current[index];
+    }
+
+    private static int slot(int index, CadfResourceRole role) {
+        return index * 3 + role.ordinal();
+    }
+
+    private CadfResource fullResource(int index, CadfResourceRole role) {
+        Extras[] current = extras;
+        Extras extra = current != null ? current[index] : null;
+        return extra != null && extra.resources != null ? extra.resources[role.ordinal()] : null;
+    }
+
+    private void putResource(int index, CadfResourceRole role, CadfResource resource) {
+        int slot = slot(index, role);
+        if (resource == null || resource.getCredential() != null || resource.getAttachments() != null
+            || (resource.getId() == null && resource.getTypeURI() == null && resource.getName() == null)) {
+            resourceIds[slot] = 0;
+            resourceTypes[slot] = 0;
+            resourceNames[slot] = 0;
+            if (resource != null) {
+                Extras extra = extras(index);
+                if (extra.resources == null) {
+                    extra.resources = new CadfResource[3];
+                }
+                extra.resources[role.ordinal()] = resource;
+            }
+            return;
+        }
+        resourceIds[slot] = code(resource.getId());
+        resourceTypes[slot] = taxonomyCode(RESOURCE_TYPE_CODES, resource.getTypeURI());
+        resourceNames[slot] = code(resource.getName());
+    }
+
+    private CadfResource resource(int index, CadfResourceRole role) {
+        CadfResource full = fullResource(index, role);
+        if (full != null) {
+            return full;
+        }
+        int slot = slot(index, role);
+        if (resourceIds[slot] == 0 && resourceTypes[slot] == 0 && resourceNames[slot] == 0) {
+            return null;
+        }
+        CadfResource resource = new CadfResource();
+        resource.setId(string(resourceIds[slot]));
+        resource.setTypeURI(getResourceTypeURI(index, role));
+        resource.setName(string(resourceNames[slot]));
+        return resource;
+    }
+
+    private ICadfAction actionValue(int code) {
+        return code > 0 ? CadfActions.byOrdinal(code - 1) : new UnknownTaxonomyValue(string(-code));
+    }
+
+    private ICadfOutcome outcomeValue(int code) {
+        return code > 0 ? CadfOutcomes.byOrdinal(code - 1) : new UnknownTaxonomyValue(string(-code));
+    }
+
+    /**
+     * Parses {@code <prefix><uuid>} ids with a lower case uuid, as generated by the default id generator.
+     */
+    private boolean putId(int index, String id) {
+        int start = id != null ? id.length() - UUID_LENGTH : -1;
+        if (start < 0 || id.charAt(start + 8) != '-' || id.charAt(start + 13) != '-'
+            || id.charAt(start + 18) != '-' || id.charAt(start + 23) != '-') {
+            idPrefixes[index] = 0;
+            return false;
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                continue;
+            }
+            char c = id.charAt(start + i);
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0) {
+                idPrefixes[index] = 0;
+                return false;
+            }
+            if (i < 18) {
+                msb = msb << 4 | digit;
+            } else {
+                lsb = lsb << 4 | digit;
+            }
+        }
+        idPrefixes[index] = code(id.substring(0, start));
+        idBits[index * 2] = msb;
+        idBits[index * 2 + 1] = lsb;
+        return true;
+    }
+
+    private static int hex(char[] target, int position, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            target[position + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        return position + digits;
+    }
+
+    /**
+     * @return 0 for null, ordinal + 1 for known values, minus the dictionary code otherwise
+     */
+    private short taxonomyCode(Map<String, Integer> ordinals, String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer ordinal = ordinals.get(value);
+        return ordinal != null ? (short) (ordinal + 1) : (short) -code(value);
+    }
+
+    /**
+     * @return 0 for null, dictionary index + 1 otherwise
+     */
+    private short code(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Integer code = dictionaryCodes.get(value);
+        if (code == null) {
+            String[] current = dictionary;
+            if (dictionarySize == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[dictionarySize] = value;
+            // published before the rows referring to it through the size write
+            dictionary = current;
+            code = ++dictionarySize;
+            dictionaryCodes.put(value, code);
+        }
+        return (short) (int) code;
+    }
+
+    private String string(int code) {
+        return code != 0 ? dictionary[code - 1] : null;
+    }
+
+    private static Map<String, Integer> actionOrdinals() {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (ICadfAction action : CadfActions.values()) {
+            ordinals.put(action.getRelativeUri(), action.getOrdinal());
+        }
+        return ordinals;
+    }
+
+    private static Map<String, Integer> outcomeOrdinals() {
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (ICadfOutcome outcome : CadfOutcomes.values()) {
+            ordinals.put(outcome.getRelativeUri(), outcome.getOrdinal());
+        }
+        return ordinals;
+    }
+
+    /**
+     * Relative and full uris of each resource type, at 2 * ordinal and 2 * ordinal + 1.
+     */
+    private static String[] resourceTypeUris() {
+        String[] uris = new String[CadfResourceTypes.values().size() * 2];
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            uris[type.getOrdinal() * 2] = type.getRelativeUri();
+            uris[type.getOrdinal() * 2 + 1] = CadfResource.FULL_ROOT_URI + "/" + type.getRelativeUri();
+        }
+        return uris;
+    }
+
+    private static Map<String, Integer> resourceTypeCodes() {
+        String[] uris = resourceTypeUris();
+        Map<String, Integer> codes = new HashMap<>();
+        for (int i = 0; i < uris.length; i++) {
+            codes.put(uris[i], i);
+        }
+        return codes;
+    }
+
+    /**
+     * Parts of an event which are kept by reference.
+     */
+    private static final class Extras {
+        private String id;
+        private CadfResource[] resources;
+        private List<CadfMeasurement> measurements;
+        private List<CadfTag> tags;
+        private List<CadfAttachment> attachments;
+        private List<CadfAttachment> secureAttachments;
+    }
+}
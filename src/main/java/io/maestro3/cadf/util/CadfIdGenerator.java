@@ -0,0 +1,191 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free generator of time-ordered event ids in the UUID version 7 layout, rendered as canonical UUID strings with
+ * an optional prefix, e.g. {@code maestro2:0190a7e4-3c1a-7b2f-8000-2a41c7000003}.
+ * <p/>
+ * Bits: 48 bits of epoch millis, version 7, a 26 bit per-thread sequence split around the variant bits, a 24 bit node
+ * discriminator and a 24 bit thread discriminator. The sequence starts at a random value below half of its range
+ * every millisecond and counts up within it; when it runs out, the thread borrows the next millisecond. Ids of one
+ * thread are therefore strictly increasing, also across a clock set back, and ids of all threads sort by creation
+ * millisecond. Uniqueness within a process comes from the thread discriminator, across processes from the node,
+ * which is random unless assigned with {@link Builder#withNode(int)}. No shared state is touched per id.
+ */
+public final class CadfIdGenerator {
+
+    private static final int NODE_MASK = 0xFFFFFF;
+    private static final int SEQUENCE_BITS = 26;
+    private static final int SEQUENCE_MASK = (1 << SEQUENCE_BITS) - 1;
+    private static final int SEQUENCE_SEED_MASK = SEQUENCE_MASK >>> 1;
+    private static final long MILLIS_MASK = 0xFFFF_FFFF_FFFFL;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final byte[] HEX_PAIRS = hexPairs();
+
+    // seeding a SecureRandom may block on entropy, so all builders draw their random node from one instance
+    private static final SecureRandom NODE_RANDOM = new SecureRandom();
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ThreadLocal<Sequence> SEQUENCE = ThreadLocal.withInitial(Sequence::new);
+    private static final CadfIdGenerator DEFAULT = builder().build();
+
+    private final byte[] prefix;
+    private final long node;
+
+    private CadfIdGenerator(Builder builder) {
+        this.prefix = builder.prefix.getBytes(StandardCharsets.US_ASCII);
+        this.node = (long) builder.node << 24;
+    }
+
+    /**
+     * @return generator without prefix and with a random node, used by {@code CadfAuditEvent.Builder} for events
+     * built without id
+     */
+    public static CadfIdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return prefix followed by the canonical string of {@link #nextUuid()}
+     */
+    public String nextId() {
+        Sequence sequence = SEQUENCE.get();
+        long msb = sequence.nextMostSignificantBits();
+        long lsb = leastSignificantBits(sequence);
+        byte[] id = new byte[prefix.length + 36];
+        System.arraycopy(prefix, 0, id, 0, prefix.length);
+        int position = hex(id, prefix.length, msb >>> 32, 8);
+        id[position++] = '-';
+        position = hex(id, position, msb >>> 16, 4);
+        id[position++] = '-';
+        position = hex(id, position, msb, 4);
+        id[position++] = '-';
+        position = hex(id, position, lsb >>> 48, 4);
+        id[position++] = '-';
+        hex(id, position, lsb, 12);
+        return new String(id, StandardCharsets.ISO_8859_1);
+    }
+
+    public UUID nextUuid() {
+        Sequence sequence = SEQUENCE.get();
+        long msb = sequence.nextMostSignificantBits();
+        return new UUID(msb, leastSignificantBits(sequence));
+    }
+
+    /**
+     * @return epoch millis the id was generated at, as far as the generating thread did not borrow ahead
+     * @throws IllegalArgumentException if the uuid is not of version 7
+     */
+    public static long getTimestampMillis(UUID uuid) {
+        Assert.notNull(uuid, "uuid can not be null");
+        Assert.isTrue(uuid.version() == 7, "uuid is not of version 7: " + uuid);
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    private long leastSignificantBits(Sequence sequence) {
+        return VARIANT | ((long) (sequence.value & 0x3FFF) << 48) | node | sequence.thread;
+    }
+
+    /**
+     * Writes an even number of lower hex digits of the value, two digits per table lookup.
+     */
+    private static int hex(byte[] target, int offset, long value, int digits) {
+        for (int i = offset + digits - 2; i >= offset; i -= 2) {
+            int pair = ((int) value & 0xFF) << 1;
+            target[i] = HEX_PAIRS[pair];
+            target[i + 1] = HEX_PAIRS[pair + 1];
+            value >>>= 8;
+        }
+        return offset + digits;
+    }
+
+    private static byte[] hexPairs() {
+        byte[] digits = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        byte[] pairs = new byte[512];
+        for (int i = 0; i < 256; i++) {
+            pairs[i << 1] = digits[i >>> 4];
+            pairs[(i << 1) + 1] = digits[i & 0xF];
+        }
+        return pairs;
+    }
+
+    /**
+     * Per-thread clock and counter.
+     */
+    private static final class Sequence {
+
+        private final long thread = THREADS.getAndIncrement() & NODE_MASK;
+        private long millis = Long.MIN_VALUE;
+        private int value;
+
+        private long nextMostSignificantBits() {
+            long now = System.currentTimeMillis();
+            if (now > millis) {
+                millis = now;
+                value = ThreadLocalRandom.current().nextInt() & SEQUENCE_SEED_MASK;
+            } else if (++value > SEQUENCE_MASK) {
+                millis++;
+                value = 0;
+            }
+            return ((millis & MILLIS_MASK) << 16) | VERSION | (value >>> 14);
+        }
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private String prefix = "";
+        private int node = NODE_RANDOM.nextInt() & NODE_MASK;
+
+        private Builder() {
+        }
+
+        /**
+         * ASCII prefix of the ids, e.g. {@code maestro2:}.
+         */
+        public Builder withPrefix(String prefix) {
+            Assert.notNull(prefix, "prefix can not be null");
+            Assert.isTrue(StandardCharsets.US_ASCII.newEncoder().canEncode(prefix), "prefix must be ASCII");
+            this.prefix = prefix;
+            return this;
+        }
+
+        /**
+         * Node discriminator of this process, only the lower 24 bits are used. Random by default.
+         */
+        public Builder withNode(int node) {
+            this.node = node & NODE_MASK;
+            return this;
+        }
+
+        public CadfIdGenerator build() {
+            return new CadfIdGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Conversion between epoch nanos and CADF timestamps, {@code yyyy-MM-ddTHH:mm:ss.SSS+00:00}.
+ * <p/>
+ * Formatting always renders UTC with 3, 6 or 9 fraction digits, whichever is enough for the value. The date and time
+ * prefix of the last formatted second is cached, so consecutive events of the same second only render the fraction.
+ * Parsing accepts ISO-8601 date times with an optional fraction of up to 9 digits and a {@code Z} or
+ * {@code +hh:mm}/{@code +hhmm}/{@code +hh} offset.
+ */
+public final class CadfTimestamps {
+
+    /**
+     * Longest formatted timestamp, with 9 fraction digits.
+     */
+    public static final int MAX_LENGTH = 35;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int PREFIX_LENGTH = 19;
+    private static final byte[] UTC_SUFFIX = "+00:00".getBytes(StandardCharsets.US_ASCII);
+
+    private static volatile Prefix lastPrefix = new Prefix(Long.MIN_VALUE, new byte[PREFIX_LENGTH]);
+
+    private CadfTimestamps() {
+        throw new UnsupportedOperationException("Instantiation is forbidden.");
+    }
+
+    // ================================= formatting ========================================
+
+    public static String format(long epochNanos) {
+        byte[] target = new byte[MAX_LENGTH];
+        int length = format(epochNanos, target, 0);
+        return new String(target, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the ASCII timestamp into the target, which must have {@link #MAX_LENGTH} bytes left.
+     *
+     * @return offset after the last written byte
+     */
+    public static int format(long epochNanos, byte[] target, int offset) {
+        long epochSecond = Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+        int nanos = (int) Math.floorMod(epochNanos, NANOS_PER_SECOND);
+        Prefix prefix = lastPrefix;
+        if (prefix.epochSecond != epochSecond) {
+            prefix = new Prefix(epochSecond, renderPrefix(epochSecond));
+            lastPrefix = prefix;
+        }
+        System.arraycopy(prefix.bytes, 0, target, offset, PREFIX_LENGTH);
+        int position = offset + PREFIX_LENGTH;
+        target[position++] = '.';
+        int digits;
+        int fraction;
+        if (nanos % 1_000_000 == 0) {
+            digits = 3;
+            fraction = nanos / 1_000_000;
+        } else if (nanos % 1_000 == 0) {
+            digits = 6;
+            fraction = nanos / 1_000;
+        } else {
+            digits = 9;
+            fraction = nanos;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            target[i] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        position += digits;
+        System.arraycopy(UTC_SUFFIX, 0, target, position, UTC_SUFFIX.length);
+        return position + UTC_SUFFIX.length;
+    }
+
+    private static byte[] renderPrefix(long epochSecond) {
+        long days = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = Math.floorMod(epochSecond, SECONDS_PER_DAY);
+        // civil from days, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        byte[] bytes = new byte[PREFIX_LENGTH];
+        writeDigits(bytes, 0, year, 4);
+        bytes[4] = '-';
+        writeDigits(bytes, 5, month, 2);
+        bytes[7] = '-';
+        writeDigits(bytes, 8, day, 2);
+        bytes[10] = 'T';
+        writeDigits(bytes, 11, secondOfDay / 3600, 2);
+        bytes[13] = ':';
+        writeDigits(bytes, 14, secondOfDay / 60 % 60, 2);
+        bytes[16] = ':';
+        writeDigits(bytes, 17, secondOfDay % 60, 2);
+        return bytes;
+    }
+
+    private static void writeDigits(byte[] target, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // ================================= parsing ========================================
+
+    /**
+     * @return epoch nanos of the timestamp
+     * @throws IllegalArgumentException if the timestamp is malformed or out of the epoch nanos range
+     */
+    public static long parse(CharSequence timestamp) {
+        Assert.notNull(timestamp, "timestamp can not be null");
+        int length = timestamp.length();
+        if (length < PREFIX_LENGTH + 1) {
+            throw malformed(timestamp);
+        }
+        int year = digits(timestamp, 0, 4);
+        int month = digits(timestamp, 5, 2);
+        int day = digits(timestamp, 8, 2);
+        int hour = digits(timestamp, 11, 2);
+        int minute = digits(timestamp, 14, 2);
+        int second = digits(timestamp, 17, 2);
+        char separator = timestamp.charAt(10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+            || hour > 23 || minute > 59 || second > 59
+            || timestamp.charAt(4) != '-' || timestamp.charAt(7) != '-'
+            || (separator != 'T' && separator != 't' && separator != ' ')
+            || timestamp.charAt(13) != ':' || timestamp.charAt(16) != ':') {
+            throw malformed(timestamp);
+        }
+
+        int position = PREFIX_LENGTH;
+        int nanos = 0;
+        if (timestamp.charAt(position) == '.' || timestamp.charAt(position) == ',') {
+            int start = ++position;
+            while (position < length && position - start < 9 && isDigit(timestamp.charAt(position))) {
+                nanos = nanos * 10 + (timestamp.charAt(position++) - '0');
+            }
+            int fractionDigits = position - start;
+            if (fractionDigits == 0) {
+                throw malformed(timestamp);
+            }
+            for (int i = fractionDigits; i < 9; i++) {
+                nanos *= 10;
+            }
+        }
+
+        int offsetSeconds = parseOffset(timestamp, position);
+        long epochSecond = daysFromCivil(year, month, day) * SECONDS_PER_DAY
+            + hour * 3600 + minute * 60 + second - offsetSeconds;
+        try {
+            return Math.addExact(Math.multiplyExact(epochSecond, NANOS_PER_SECOND), nanos);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Timestamp is out of the epoch nanos range: " + timestamp);
+        }
+    }
+
+    private static int parseOffset(CharSequence timestamp, int position) {
+        int length = timestamp.length();
+        if (position >= length) {
+            throw malformed(timestamp);
+        }
+        char sign = timestamp.charAt(position);
+        if ((sign == 'Z' || sign == 'z') && position + 1 == length) {
+            return 0;
+        }
+        if (sign != '+' && sign != '-') {
+            throw malformed(timestamp);
+        }
+        int remaining = length - position - 1;
+        int hours = digits(timestamp, position + 1, 2);
+        int minutes;
+        if (remaining == 2) {
+            minutes = 0;
+        } else if (remaining == 4) {
+            minutes = digits(timestamp, position + 3, 2);
+        } else if (remaining == 5 && timestamp.charAt(position + 3) == ':') {
+            minutes = digits(timestamp, position + 4, 2);
+        } else {
+            throw malformed(timestamp);
+        }
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+            throw malformed(timestamp);
+        }
+        int seconds = hours * 3600 + minutes * 60;
+        return sign == '-' ? -seconds : seconds;
+    }
+
+    /**
+     * @return the value of the digits, or -1 if any of the chars is not a digit
+     */
+    private static int digits(CharSequence text, int offset, int count) {
+        if (offset + count > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    private static IllegalArgumentException malformed(CharSequence timestamp) {
+        return new IllegalArgumentException("Malformed timestamp: " + timestamp);
+    }
+
+    private static final class Prefix {
+
+        private final long epochSecond;
+        private final byte[] bytes;
+
+        private Prefix(long epochSecond, byte[] bytes) {
+            this.epochSecond = epochSecond;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.validation;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.codec.CadfEncodedPayload;
+import io.maestro3.cadf.codec.CadfLazyAttachment;
+import io.maestro3.cadf.codec.CadfLazyCredential;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import io.maestro3.cadf.model.CadfMetric;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.model.CadfTag;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hand-written validator of events, checking the bean validation constraints of the model ({@code @NotBlank},
+ * {@code @NotEmpty} and {@code @Valid} cascades) and the CADF rules the builders enforce: event time set, initiator,
+ * target and observer present, measurements present on monitor events, exactly one of metric and metricId, known
+ * event type and, unless disabled, taxonomy values.
+ * <p/>
+ * Valid events are checked without allocation; on the first violation the event is walked again to collect all
+ * violations with their paths. Instances are immutable and thread-safe.
+ */
+public final class CadfValidator {
+
+    private static final String BLANK = "must not be blank";
+    private static final String MISSING = "must not be null";
+    private static final String EMPTY = "must not be empty";
+    private static final String MALFORMED = "is not a valid timestamp";
+    private static final Set<String> EVENT_TYPES = new HashSet<>();
+    private static final Set<String> ACTIONS = new HashSet<>();
+    private static final Set<String> OUTCOMES = new HashSet<>();
+    private static final Set<String> RESOURCE_TYPES = new HashSet<>();
+    private static final CadfValidator DEFAULT = builder().build();
+
+    static {
+        for (CadfEventType eventType : CadfEventType.values()) {
+            EVENT_TYPES.add(eventType.getName());
+        }
+        for (ICadfAction action : CadfActions.values()) {
+            ACTIONS.add(action.getRelativeUri());
+        }
+        for (ICadfOutcome outcome : CadfOutcomes.values()) {
+            OUTCOMES.add(outcome.getRelativeUri());
+        }
+        for (ICadfResourceType resourceType : CadfResourceTypes.values()) {
+            RESOURCE_TYPES.add(resourceType.getRelativeUri());
+        }
+    }
+
+    private final boolean taxonomyCheck;
+
+    private CadfValidator(Builder builder) {
+        this.taxonomyCheck = builder.taxonomyCheck;
+    }
+
+    /**
+     * @return validator with taxonomy checks
+     */
+    public static CadfValidator create() {
+        return DEFAULT;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean isValid(CadfAuditEvent event) {
+        return event != null && event(event, null);
+    }
+
+    /**
+     * @return all violations, an empty immutable list for a valid event
+     */
+    public List<CadfViolation> validate(CadfAuditEvent event) {
+        if (isValid(event)) {
+            return Collections.emptyList();
+        }
+        List<CadfViolation> violations = new ArrayList<>();
+        if (event == null) {
+            violations.add(new CadfViolation("", MISSING));
+        } else {
+            event(event, violations);
+        }
+        return violations;
+    }
+
+    /**
+     * @throws CadfValidationException with all violations if the event is not valid
+     */
+    public void assertValid(CadfAuditEvent event) {
+        List<CadfViolation> violations = validate(event);
+        if (!violations.isEmpty()) {
+            throw new CadfValidationException(violations);
+        }
+    }
+
+    // ================================= rules ========================================
+
+    /*
+     * Every rule gets the violation list, which is null on the allocation-free first pass, and the path of the
+     * validated object, which is built only when collecting. Rules return false to stop at the first violation of
+     * the first pass. Lists are walked by index, so no iterator is allocated.
+     */
+
+    private boolean event(CadfAuditEvent event, List<CadfViolation> out) {
+        if (isBlank(event.getTypeURI()) && !violation(out, "typeURI", BLANK)) {
+            return false;
+        }
+        if (isBlank(event.getId()) && !violation(out, "id", BLANK)) {
+            return false;
+        }
+        String eventType = event.getEventType();
+        if (isBlank(eventType)) {
+            if (!violation(out, "eventType", BLANK)) {
+                return false;
+            }
+        } else if (!EVENT_TYPES.contains(eventType) && !violation(out, "eventType", "is not a CADF event type")) {
+            return false;
+        }
+        if (!eventTime(event, out)) {
+            return false;
+        }
+        if (!taxonomyValue(event.getAction(), ACTIONS, "action", "is not part of the action taxonomy", out)
+            || !taxonomyValue(event.getOutcome(), OUTCOMES, "outcome", "is not part of the outcome taxonomy", out)) {
+            return false;
+        }
+        if (!requiredResource(event.getInitiator(), "initiator", out)
+            || !requiredResource(event.getTarget(), "target", out)
+            || !requiredResource(event.getObserver(), "observer", out)) {
+            return false;
+        }
+        List<CadfMeasurement> measurements = event.getMeasurements();
+        if (measurements == null || measurements.isEmpty()) {
+            if (CadfEventType.MONITOR.getName().equals(eventType)
+                && !violation(out, "measurements", "are required for monitor events")) {
+                return false;
+            }
+        } else {
+            CadfMeasurementBatch batch = measurements instanceof CadfMeasurementBatch
+                ? (CadfMeasurementBatch) measurements
+                : null;
+            for (int i = 0; i < measurements.size(); i++) {
+                String path = out == null ? null : "measurements[" + i + "]";
+                boolean valid = batch != null && (batch.isLong(i) || batch.isDouble(i))
+                    ? primitiveMeasurement(batch, i, out, path)
+                    : measurement(measurements.get(i), out, path);
+                if (!valid) {
+                    return false;
+                }
+            }
+        }
+        List<CadfTag> tags = event.getTags();
+        if (tags != null) {
+            for (int i = 0; i < tags.size(); i++) {
+                CadfTag tag = tags.get(i);
+                if (tag == null) {
+                    if (!violation(out, "tags[" + i + "]", MISSING)) {
+                        return false;
+                    }
+                } else if (isBlank(tag.getName()) && !violation(out, "tags[" + i + "].name", BLANK)) {
+                    return false;
+                }
+            }
+        }
+        return attachments(event.getAttachments(), out, "attachments")
+            && attachments(event.getSecureAttachments(), out, "secureAttachments");
+    }
+
+    private boolean taxonomyValue(String value, Set<String> taxonomy, String path, String message,
+                                  List<CadfViolation> out) {
+        if (isBlank(value)) {
+            return violation(out, path, BLANK);
+        }
+        return !taxonomyCheck || taxonomy.contains(value) || violation(out, path, message);
+    }
+
+    private boolean requiredResource(CadfResource resource, String path, List<CadfViolation> out) {
+        if (resource == null) {
+            return violation(out, path, MISSING);
+        }
+        return resource(resource, out, path);
+    }
+
+    private boolean resource(CadfResource resource, List<CadfViolation> out, String path) {
+        if (isBlank(resource.getId()) && !violation(out, path(out, path, "id"), BLANK)) {
+            return false;
+        }
+        String typeURI = resource.getTypeURI();
+        if (isBlank(typeURI)) {
+            if (!violation(out, path(out, path, "typeURI"), BLANK)) {
+                return false;
+            }
+        } else if (taxonomyCheck && !RESOURCE_TYPES.contains(typeURI)
+            // full uris are matched by the trie
+            && CadfResourceTypes.findByRelativeURI(typeURI) == null
+            && !violation(out, path(out, path, "typeURI"), "is not part of the resource taxonomy")) {
+            return false;
+        }
+        CadfCredential<?> credential = resource.getCredential();
+        if (credential != null && isEmptyToken(credential)
+            && !violation(out, path(out, path, "credential.token"), EMPTY)) {
+            return false;
+        }
+        return attachments(resource.getAttachments(), out, path(out, path, "attachments"));
+    }
+
+    private boolean measurement(CadfMeasurement<?> measurement, List<CadfViolation> out, String path) {
+        if (measurement == null) {
+            return violation(out, path, MISSING);
+        }
+        if (isEmpty(measurement.getResult()) && !violation(out, path(out, path, "result"), EMPTY)) {
+            return false;
+        }
+        CadfMetric metric = measurement.getMetric();
+        boolean hasMetricId = measurement.getMetricId() != null;
+        if ((metric == null) == !hasMetricId
+            && !violation(out, path, "must have either metricId or metric, not both")) {
+            return false;
+        }
+        if (hasMetricId && isBlank(measurement.getMetricId())
+            && !violation(out, path(out, path, "metricId"), BLANK)) {
+            return false;
+        }
+        if (metric != null) {
+            if (isBlank(metric.getMetricId()) && !violation(out, path(out, path, "metric.metricId"), BLANK)) {
+                return false;
+            }
+            if (isBlank(metric.getUnit()) && !violation(out, path(out, path, "metric.unit"), BLANK)) {
+                return false;
+            }
+        }
+        CadfResource calculatedBy = measurement.getCalculatedBy();
+        return calculatedBy == null || resource(calculatedBy, out, path(out, path, "calculatedBy"));
+    }
+
+    /**
+     * Entry of a batch with a long or double result, checked without creating the measurement.
+     */
+    private boolean primitiveMeasurement(CadfMeasurementBatch batch, int index, List<CadfViolation> out,
+                                         String path) {
+        if (isBlank(batch.getMetricId(index)) && !violation(out, path(out, path, "metricId"), BLANK)) {
+            return false;
+        }
+        CadfResource calculatedBy = batch.getCalculatedBy(index);
+        return calculatedBy == null || resource(calculatedBy, out, path(out, path, "calculatedBy"));
+    }
+
+    private boolean attachments(List<CadfAttachment> attachments, List<CadfViolation> out, String path) {
+        if (attachments == null) {
+            return true;
+        }
+        for (int i = 0; i < attachments.size(); i++) {
+            if (!attachment(attachments.get(i), out, out == null ? null : path + "[" + i + "]")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean attachment(CadfAttachment<?> attachment, List<CadfViolation> out, String path) {
+        if (attachment == null) {
+            return violation(out, path, MISSING);
+        }
+        if (isBlank(attachment.getContentType()) && !violation(out, path(out, path, "contentType"), BLANK)) {
+            return false;
+        }
+        // lazy contents are never resources, and their presence is known without decoding them
+        CadfEncodedPayload encoded = CadfLazyAttachment.encodedContent(attachment);
+        if (encoded != null) {
+            return !encoded.isEmpty() || violation(out, path(out, path, "content"), EMPTY);
+        }
+        Object content = attachment.getContent();
+        if (content instanceof CadfResource) {
+            return resource((CadfResource) content, out, path(out, path, "content"));
+        }
+        return !isEmpty(content) || violation(out, path(out, path, "content"), EMPTY);
+    }
+
+    // ================================= internals ========================================
+
+    /**
+     * The string of an event which was not built by the builder, e.g. deserialized by a mapper, is parsed here first.
+     */
+    private static boolean eventTime(CadfAuditEvent event, List<CadfViolation> out) {
+        long eventTime;
+        try {
+            eventTime = event.eventTimeNanos();
+        } catch (IllegalArgumentException e) {
+            return violation(out, "eventTime", MALFORMED);
+        }
+        return eventTime != CadfAuditEvent.NO_EVENT_TIME || violation(out, "eventTime", MISSING);
+    }
+
+    private static boolean isEmptyToken(CadfCredential<?> credential) {
+        CadfEncodedPayload encoded = CadfLazyCredential.encodedToken(credential);
+        return encoded != null ? encoded.isEmpty() : isEmpty(credential.getToken());
+    }
+
+    /**
+     * @return whether to go on, i.e. whether violations are collected
+     */
+    private static boolean violation(List<CadfViolation> out, String path, String message) {
+        if (out == null) {
+            return false;
+        }
+        out.add(new CadfViolation(path, message));
+        return true;
+    }
+
+    private static String path(List<CadfViolation> out, String path, String property) {
+        return out == null ? null : path + "." + property;
+    }
+
+    private static boolean isBlank(CharSequence text) {
+        if (text == null) {
+            return true;
+        }
+        int length = text.length();
+        // a non-blank value almost always starts with a non-whitespace char
+        if (length > 0 && !Character.isWhitespace(text.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generic payloads: null, blank text, empty collections, maps and arrays.
+     */
+    private static boolean isEmpty(Object value) {
+        if (value == null) {
+            return true;
+        }
+        // class checks first, interface checks miss slowly on the common scalar results
+        if (value instanceof Number || value instanceof Boolean) {
+            return false;
+        }
+        if (value instanceof String) {
+            return isBlank((String) value);
+        }
+        if (value instanceof CharSequence) {
+            return isBlank((CharSequence) value);
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).isEmpty();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).isEmpty();
+        }
+        return value.getClass().isArray() && Array.getLength(value) == 0;
+    }
+
+    // ================================= builder ========================================
+
+    public static final class Builder {
+
+        private boolean taxonomyCheck = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Whether action, outcome and resource type uris must be part of the CADF taxonomies, true by default.
+         * Disable for events of producers with custom taxonomy values.
+         */
+        public Builder withTaxonomyCheck(boolean taxonomyCheck) {
+            this.taxonomyCheck = taxonomyCheck;
+            return this;
+        }
+
+        public CadfValidator build() {
+            return new CadfValidator(this);
+        }
+    }
+}
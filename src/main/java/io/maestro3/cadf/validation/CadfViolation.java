@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.validation;
+
+/**
+ * One failed constraint of a validated event.
+ */
+public final class CadfViolation {
+
+    private final String path;
+    private final String message;
+
+    CadfViolation(String path, String message) {
+        this.path = path;
+        this.message = message;
+    }
+
+    /**
+     * @return property path within the event, e.g. {@code measurements[0].metric.unit}
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return path + " " + message;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf;
+
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfMetric;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.model.CadfTag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Events shared by the tests.
+ */
+public final class CadfTestEvents {
+
+    public static final String EVENT_TIME = "2001-07-04T12:08:56.235+00:00";
+
+    private CadfTestEvents() {
+    }
+
+    public static CadfResource resource(String id) {
+        return CadfResource.builder()
+            .withId(id)
+            .ofType(CadfResourceTypes.compute().machine().vm())
+            .withName("name of " + id)
+            .build();
+    }
+
+    /**
+     * Event with the required properties only.
+     */
+    public static CadfAuditEvent minimal(String id) {
+        return CadfAuditEvent.builder()
+            .withId(id)
+            .withEventType(CadfEventType.ACTIVITY)
+            .withEventTime(EVENT_TIME)
+            .withAction(CadfActions.create())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(resource("initiator"))
+            .withTarget(resource("target"))
+            .withObserver(resource("observer"))
+            .build();
+    }
+
+    /**
+     * Event with every optional property set, including strings which need escaping.
+     */
+    public static CadfAuditEvent full(String id) {
+        CadfMetric metric = new CadfMetric();
+        metric.setMetricId("metric-1");
+        metric.setUnit("ms");
+        metric.setName("latency");
+        List<CadfMeasurement> measurements = new ArrayList<>(Arrays.asList(
+            CadfMeasurement.<Double>builder().withResult(1.5).withMetricId("cpu").build(),
+            CadfMeasurement.<Long>builder().withResult(42L).withMetric(metric).build()));
+
+        CadfCredential<String> credential = new CadfCredential<>();
+        credential.setType("bearer");
+        credential.setToken("token");
+        credential.setAuthority("authority");
+        CadfResource target = resource("target");
+        target.setCredential(credential);
+
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("count", 1L);
+        content.put("values", Arrays.asList("x", true, null, 2.5));
+        List<CadfAttachment> attachments = new ArrayList<>(Arrays.asList(
+            CadfAttachment.builder().withContentType("map").withName("details").withContent(content).build(),
+            CadfAttachment.ofResource(resource("attached"))));
+        List<CadfAttachment> secureAttachments = new ArrayList<>(Arrays.asList(
+            CadfAttachment.<String>builder().withContentType("text").withContent("secret").build()));
+
+        List<CadfTag> tags = new ArrayList<>(Arrays.asList(
+            CadfTag.builder().withName("tenant").withValue("t1").build()));
+
+        return CadfAuditEvent.builder()
+            .withId(id)
+            .withEventType(CadfEventType.MONITOR)
+            .withEventTime(EVENT_TIME)
+            .withAction(CadfActions.monitor().start())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(resource("initiator"))
+            .withTarget(target)
+            .withObserver(resource("observer"))
+            .withMeasurements(measurements)
+            .withName("quoted \" and\nnew line, \u00e9 \u2603")
+            .withSeverity("high")
+            .withTags(tags)
+            .withAttachments(attachments)
+            .withSecureAttachments(secureAttachments)
+            .build();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.aggregate;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfWindowAggregatorTest {
+
+    private static final long MINUTE = Duration.ofMinutes(1).toNanos();
+    private static final long BASE_NANOS = 1_000 * MINUTE;
+    private static final ICadfAction[] ACTIONS = {CadfActions.create(), CadfActions.update(), CadfActions.delete()};
+    private static final ICadfOutcome[] OUTCOMES = {CadfOutcomes.success(), CadfOutcomes.failure()};
+
+    private final List<CadfRollup> rollups = new CopyOnWriteArrayList<>();
+
+    @Test
+    void countsTumblingWindowsPerKey() {
+        CadfWindowAggregator aggregator = CadfWindowAggregator.builder()
+            .withTumblingWindow(Duration.ofMinutes(1))
+            .withGroupBy(CadfGroupingField.ACTION, CadfGroupingField.OUTCOME)
+            .withStripes(4)
+            .withSink(rollups::addAll)
+            .build();
+        Map<String, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            CadfAuditEvent event = event(i, BASE_NANOS + i * (MINUTE / 200));
+            assertTrue(aggregator.add(event));
+            long start = Math.floorDiv(event.eventTimeNanos(), MINUTE) * MINUTE;
+            expected.merge(key(start, event.getAction(), event.getOutcome()), 1L, Long::sum);
+        }
+        aggregator.flush();
+
+        assertEquals(expected, counts());
+        assertEquals(1000, aggregator.getAggregatedCount());
+        for (CadfRollup rollup : rollups) {
+            assertEquals(MINUTE, rollup.getWindowEndNanos() - rollup.getWindowStartNanos());
+        }
+    }
+
+    @Test
+    void emitsWindowsOnceTheWatermarkPassesThem() {
+        CadfWindowAggregator aggregator = CadfWindowAggregator.builder()
+            .withTumblingWindow(Duration.ofMinutes(1))
+            .withAllowedLateness(Duration.ofSeconds(10))
+            .withSink(rollups::addAll)
+            .build();
+
+        aggregator.add(event(0, BASE_NANOS));
+        aggregator.add(event(1, BASE_NANOS + MINUTE + Duration.ofSeconds(5).toNanos()));
+        assertTrue(rollups.isEmpty());
+
+        aggregator.add(event(2, BASE_NANOS + MINUTE + Duration.ofSeconds(15).toNanos()));
+        assertEquals(1, rollups.size());
+        assertEquals(BASE_NANOS, rollups.get(0).getWindowStartNanos());
+        assertEquals(1, rollups.get(0).getCount());
+
+        assertFalse(aggregator.add(event(3, BASE_NANOS + 1)));
+        assertEquals(1, aggregator.getLateCount());
+
+        aggregator.advanceWatermark(BASE_NANOS + 2 * MINUTE);
+        assertEquals(2, rollups.size());
+        assertEquals(2, rollups.get(1).getCount());
+        assertEquals(BASE_NANOS + 2 * MINUTE, aggregator.getWatermarkNanos());
+    }
+
+    @Test
+    void countsEventsInEveryOverlappingSlidingWindow() {
+        CadfWindowAggregator aggregator = CadfWindowAggregator.builder()
+            .withSlidingWindow(Duration.ofMinutes(2), Duration.ofSeconds(30))
+            .withGroupBy(CadfGroupingField.TARGET_ID)
+            .withSink(rollups::addAll)
+            .build();
+        for (int i = 0; i < 300; i++) {
+            aggregator.add(event(i, BASE_NANOS + i * Duration.ofSeconds(1).toNanos()));
+        }
+        aggregator.flush();
+
+        long total = 0;
+        for (CadfRollup rollup : rollups) {
+            assertEquals(2 * MINUTE, rollup.getWindowEndNanos() - rollup.getWindowStartNanos());
+            assertEquals("target", rollup.getValue(CadfGroupingField.TARGET_ID));
+            total += rollup.getCount();
+        }
+        assertEquals(4 * 300, total);
+    }
+
+    @Test
+    void countsConcurrentProducers() throws InterruptedException {
+        CadfWindowAggregator aggregator = CadfWindowAggregator.builder()
+            .withTumblingWindow(Duration.ofHours(1))
+            .withGroupBy(CadfGroupingField.ACTION)
+            .withSink(rollups::addAll)
+            .build();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    aggregator.add(event(i, BASE_NANOS + i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        aggregator.flush();
+
+        long total = 0;
+        for (CadfRollup rollup : rollups) {
+            total += rollup.getCount();
+        }
+        assertEquals(40_000, total);
+        assertEquals(ACTIONS.length, rollups.size());
+    }
+
+    private Map<String, Long> counts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (CadfRollup rollup : rollups) {
+            String key = key(rollup.getWindowStartNanos(), rollup.getValue(CadfGroupingField.ACTION),
+                rollup.getValue(CadfGroupingField.OUTCOME));
+            assertNull(counts.put(key, rollup.getCount()), key);
+        }
+        return counts;
+    }
+
+    private static String key(long windowStart, String action, String outcome) {
+        return windowStart + " " + action + " " + outcome;
+    }
+
+    private static CadfAuditEvent event(int i, long eventTimeNanos) {
+        return CadfAuditEvent.builder()
+            .withId("event-" + i)
+            .withEventType(CadfEventType.ACTIVITY)
+            .withEventTimeNanos(eventTimeNanos)
+            .withAction(ACTIONS[i % ACTIONS.length])
+            .withOutcome(OUTCOMES[i / 7 % OUTCOMES.length])
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource("observer"))
+            .build();
+    }
+}
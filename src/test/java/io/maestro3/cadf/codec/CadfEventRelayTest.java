@@ -0,0 +1,269 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+import io.maestro3.cadf.codec.json.CadfJsonReader;
+import io.maestro3.cadf.codec.json.CadfJsonWriter;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfTag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfEventRelayTest {
+
+    private static final CadfTag RELAY_TAG = CadfTag.builder().withName("relay").withValue("r1").build();
+
+    private final CadfJsonWriter writer = CadfJsonWriter.create();
+    private final CadfJsonReader reader = CadfJsonReader.create();
+    private final CadfBinaryCodec codec = CadfBinaryCodec.create();
+
+    @Test
+    void splicesPatchAsIfTheEventWasEncodedWithIt() {
+        CadfRelayPatch patch = CadfRelayPatch.builder()
+            .withObserver(CadfTestEvents.resource("relay"))
+            .withSeverity("low")
+            .withTag(RELAY_TAG)
+            .build();
+        List<CadfTag> tags = Collections.singletonList(CadfTag.builder().withName("tenant").withValue("t1").build());
+        List<CadfTag> patchedTags = Arrays.asList(tags.get(0), RELAY_TAG);
+
+        for (Format format : formats()) {
+            // missing severity and tags are inserted, present ones are replaced and appended to
+            assertArrayEquals(format.encode(event("relay", "low", Collections.singletonList(RELAY_TAG))),
+                format.splice(event("observer", null, null), patch));
+            assertArrayEquals(format.encode(event("relay", "low", patchedTags)),
+                format.splice(event("observer", "high", tags), patch));
+            assertArrayEquals(format.encode(event("relay", "low", Collections.singletonList(RELAY_TAG))),
+                format.splice(event("observer", "high", new ArrayList<>()), patch));
+        }
+    }
+
+    @Test
+    void appliesPartialPatches() {
+        CadfRelayPatch severity = CadfRelayPatch.builder().withSeverity("low").build();
+        CadfRelayPatch tag = CadfRelayPatch.builder().withTag(RELAY_TAG).build();
+        CadfRelayPatch empty = CadfRelayPatch.builder().build();
+        assertTrue(empty.isEmpty());
+
+        for (Format format : formats()) {
+            byte[] event = format.encode(event("observer", "high", null));
+
+            assertArrayEquals(format.encode(event("observer", "low", null)),
+                format.canonical(format.relay.splice(ByteBuffer.wrap(event), severity)));
+            assertArrayEquals(format.encode(event("observer", "high", Collections.singletonList(RELAY_TAG))),
+                format.canonical(format.relay.splice(ByteBuffer.wrap(event), tag)));
+            assertArrayEquals(event, concat(format.relay.splice(ByteBuffer.wrap(event), empty)));
+        }
+    }
+
+    @Test
+    void indexesFieldsWithinTheBufferWindow() {
+        for (Format format : formats()) {
+            byte[] event = format.encode(event("observer", null, null));
+            byte[] padded = new byte[event.length + 16];
+            System.arraycopy(event, 0, padded, 7, event.length);
+            ByteBuffer buffer = ByteBuffer.wrap(padded, 7, event.length);
+
+            CadfEventIndex index = format.relay.index(buffer);
+
+            assertEquals(7, index.getStart());
+            assertEquals(7 + event.length, index.getEnd());
+            assertEquals(7, buffer.position());
+            assertTrue(index.isPresent(CadfEventIndex.Field.OBSERVER));
+            assertTrue(index.getStart(CadfEventIndex.Field.OBSERVER) < index.getEnd(CadfEventIndex.Field.OBSERVER));
+            assertFalse(index.isPresent(CadfEventIndex.Field.SEVERITY));
+            assertEquals(index.getStart(CadfEventIndex.Field.SEVERITY), index.getEnd(CadfEventIndex.Field.SEVERITY));
+
+            CadfRelayPatch patch = CadfRelayPatch.builder().withSeverity("low").build();
+            assertArrayEquals(format.encode(event("observer", "low", null)),
+                format.canonical(format.relay.splice(buffer, patch)));
+            assertEquals(7, buffer.position());
+        }
+    }
+
+    @Test
+    void relaysWithGatheringWrites() throws Exception {
+        CadfRelayPatch patch = CadfRelayPatch.builder()
+            .withObserver(CadfTestEvents.resource("relay"))
+            .withTag(RELAY_TAG)
+            .build();
+        for (Format format : formats()) {
+            byte[] expected = format.encode(event("relay", "high", Collections.singletonList(RELAY_TAG)));
+            ChunkedChannel channel = new ChunkedChannel(5);
+
+            long written = format.relay.relay(ByteBuffer.wrap(format.encode(event("observer", "high", null))), patch,
+                channel);
+
+            assertEquals(expected.length, written);
+            assertArrayEquals(expected, format.canonical(channel.bytes.toByteArray()));
+        }
+    }
+
+    @Test
+    void rejectsMalformedEvents() {
+        for (Format format : formats()) {
+            byte[] event = format.encode(event("observer", "high", null));
+            ByteBuffer truncated = ByteBuffer.wrap(event, 0, event.length / 2);
+
+            assertThrows(IllegalArgumentException.class, () -> format.relay.index(truncated));
+        }
+    }
+
+    /**
+     * Spliced json has inserted members at the end of the object, so it is compared after reading and writing it
+     * again. Binary records have a single encoding per event, spliced ones are compared as they are.
+     */
+    private List<Format> formats() {
+        return Arrays.asList(
+            new Format(writer.newRelay(), writer::toBytes, json -> writer.toBytes(reader.read(json))),
+            new Format(codec.newRelay(), codec::encode, Function.identity()));
+    }
+
+    /**
+     * Event with attachments after the tags, which relays copy without looking at them.
+     */
+    private static CadfAuditEvent event(String observerId, String severity, List<CadfTag> tags) {
+        CadfAuditEvent.Builder builder = CadfAuditEvent.builder()
+            .withId("maestro2:1")
+            .withEventType(CadfEventType.ACTIVITY)
+            .withEventTime(CadfTestEvents.EVENT_TIME)
+            .withAction(CadfActions.update())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource(observerId))
+            .withName("relayed")
+            .withAttachments(new ArrayList<>(Collections.singletonList(
+                CadfAttachment.builder().withContentType("text").withName("note").withContent("body").build())));
+        if (severity != null) {
+            builder.withSeverity(severity);
+        }
+        if (tags != null) {
+            builder.withTags(tags);
+        }
+        return builder.build();
+    }
+
+    private static byte[] concat(ByteBuffer[] parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteBuffer part : parts) {
+            byte[] bytes = new byte[part.remaining()];
+            part.get(bytes);
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Format {
+
+        private final ICadfEventRelay relay;
+        private final Function<CadfAuditEvent, byte[]> encoder;
+        private final Function<byte[], byte[]> canonicalizer;
+
+        private Format(ICadfEventRelay relay, Function<CadfAuditEvent, byte[]> encoder,
+                       Function<byte[], byte[]> canonicalizer) {
+            this.relay = relay;
+            this.encoder = encoder;
+            this.canonicalizer = canonicalizer;
+        }
+
+        private byte[] encode(CadfAuditEvent event) {
+            return encoder.apply(event);
+        }
+
+        private byte[] splice(CadfAuditEvent event, CadfRelayPatch patch) {
+            return canonical(relay.splice(ByteBuffer.wrap(encode(event)), patch));
+        }
+
+        private byte[] canonical(ByteBuffer[] parts) {
+            return canonical(concat(parts));
+        }
+
+        private byte[] canonical(byte[] event) {
+            return canonicalizer.apply(event);
+        }
+    }
+
+    /**
+     * Accepts at most a few bytes per write, like a congested socket.
+     */
+    private static final class ChunkedChannel implements GatheringByteChannel {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final int chunk;
+
+        private ChunkedChannel(int chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            long written = 0;
+            for (int i = offset; i < offset + length && written < chunk; i++) {
+                written += write(sources[i], (int) (chunk - written));
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return write(sources, 0, sources.length);
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            return write(source, chunk);
+        }
+
+        private int write(ByteBuffer source, int limit) {
+            int count = Math.min(limit, source.remaining());
+            for (int i = 0; i < count; i++) {
+                bytes.write(source.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
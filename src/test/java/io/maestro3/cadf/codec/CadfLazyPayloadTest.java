@@ -0,0 +1,194 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+import io.maestro3.cadf.codec.json.CadfJsonReader;
+import io.maestro3.cadf.codec.json.CadfJsonWriter;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.validation.CadfValidator;
+import io.maestro3.cadf.validation.CadfViolation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfLazyPayloadTest {
+
+    private final CadfJsonWriter writer = CadfJsonWriter.create();
+    private final CadfJsonReader jsonReader = CadfJsonReader.builder().withLazyPayloads(true).build();
+    private final CadfBinaryCodec binaryCodec = CadfBinaryCodec.builder().withLazyPayloads(true).build();
+    private final CadfBinaryCodec eagerCodec = CadfBinaryCodec.create();
+
+    @Test
+    void keepsPayloadsEncodedUntilAccessed() {
+        List<Function<CadfAuditEvent, CadfAuditEvent>> roundTrips = roundTrips();
+        List<Function<CadfAuditEvent, CadfAuditEvent>> eagerRoundTrips = eagerRoundTrips();
+        for (int i = 0; i < roundTrips.size(); i++) {
+            CadfAuditEvent eager = eagerRoundTrips.get(i).apply(CadfTestEvents.full("maestro2:1"));
+            CadfAuditEvent event = roundTrips.get(i).apply(CadfTestEvents.full("maestro2:1"));
+            CadfAttachment<?> attachment = event.getAttachments().get(0);
+            CadfCredential<?> credential = event.getTarget().getCredential();
+
+            assertInstanceOf(CadfLazyAttachment.class, attachment);
+            assertNotNull(CadfLazyAttachment.encodedContent(attachment));
+            assertNotNull(CadfLazyCredential.encodedToken(credential));
+
+            assertEquals(eager.getAttachments().get(0).getContent(), attachment.getContent());
+            assertEquals("token", credential.getToken());
+            assertNull(CadfLazyAttachment.encodedContent(attachment));
+            assertNull(CadfLazyCredential.encodedToken(credential));
+        }
+    }
+
+    @Test
+    void comparesEncodedPayloadsWithoutDecoding() {
+        List<Function<CadfAuditEvent, CadfAuditEvent>> roundTrips = roundTrips();
+        List<Function<CadfAuditEvent, CadfAuditEvent>> eagerRoundTrips = eagerRoundTrips();
+        for (int i = 0; i < roundTrips.size(); i++) {
+            Function<CadfAuditEvent, CadfAuditEvent> roundTrip = roundTrips.get(i);
+            CadfAuditEvent first = roundTrip.apply(CadfTestEvents.full("maestro2:1"));
+            CadfAuditEvent second = roundTrip.apply(CadfTestEvents.full("maestro2:1"));
+            CadfAuditEvent other = CadfTestEvents.full("maestro2:1");
+            other.getSecureAttachments().set(0, attachment("text", "another secret"));
+            other = roundTrip.apply(other);
+
+            assertEquals(first.getAttachments().get(0), second.getAttachments().get(0));
+            assertEquals(first.getTarget().getCredential(), second.getTarget().getCredential());
+            assertNotEquals(first.getSecureAttachments().get(0), other.getSecureAttachments().get(0));
+            for (CadfAuditEvent event : Arrays.asList(first, second, other)) {
+                assertNotNull(CadfLazyAttachment.encodedContent(event.getAttachments().get(0)));
+                assertNotNull(CadfLazyAttachment.encodedContent(event.getSecureAttachments().get(0)));
+                assertNotNull(CadfLazyCredential.encodedToken(event.getTarget().getCredential()));
+            }
+
+            // a plain attachment can only be compared with the decoded content
+            CadfAttachment<?> plain = eagerRoundTrips.get(i).apply(CadfTestEvents.full("maestro2:1"))
+                .getAttachments().get(0);
+            assertEquals(plain, first.getAttachments().get(0));
+            assertEquals(first.getAttachments().get(0), plain);
+        }
+    }
+
+    @Test
+    void printsNeitherDecodedPayloadsNorTokens() {
+        CadfAuditEvent original = CadfTestEvents.full("maestro2:1");
+        original.getTarget().setCredential(credential("s3cr3t"));
+        assertFalse(original.getTarget().getCredential().toString().contains("s3cr3t"));
+
+        for (Function<CadfAuditEvent, CadfAuditEvent> roundTrip : roundTrips()) {
+            CadfAuditEvent event = roundTrip.apply(original);
+            CadfAttachment<?> attachment = event.getAttachments().get(0);
+            CadfCredential<?> credential = event.getTarget().getCredential();
+
+            assertTrue(attachment.toString().contains("CadfEncodedPayload"), attachment.toString());
+            assertFalse(credential.toString().contains("s3cr3t"), credential.toString());
+            assertNotNull(CadfLazyAttachment.encodedContent(attachment));
+            assertNotNull(CadfLazyCredential.encodedToken(credential));
+
+            credential.getToken();
+            assertFalse(credential.toString().contains("s3cr3t"), credential.toString());
+        }
+    }
+
+    @Test
+    void validatesPresenceWithoutDecoding() {
+        CadfValidator validator = CadfValidator.create();
+        CadfAuditEvent invalid = CadfTestEvents.full("maestro2:1");
+        invalid.getTarget().setCredential(credential("  "));
+        invalid.getAttachments().set(0, attachment("map", Collections.emptyMap()));
+        invalid.getSecureAttachments().set(0, attachment("text", new ArrayList<>()));
+        List<String> expected = Arrays.asList(
+            "target.credential.token", "attachments[0].content", "secureAttachments[0].content");
+        assertEquals(expected, paths(validator.validate(invalid)));
+
+        for (Function<CadfAuditEvent, CadfAuditEvent> roundTrip : roundTrips()) {
+            CadfAuditEvent valid = roundTrip.apply(CadfTestEvents.full("maestro2:1"));
+            CadfAuditEvent event = roundTrip.apply(invalid);
+
+            assertTrue(validator.isValid(valid));
+            assertEquals(expected, paths(validator.validate(event)));
+            for (CadfAuditEvent read : Arrays.asList(valid, event)) {
+                assertNotNull(CadfLazyAttachment.encodedContent(read.getAttachments().get(0)));
+                assertNotNull(CadfLazyAttachment.encodedContent(read.getSecureAttachments().get(0)));
+                assertNotNull(CadfLazyCredential.encodedToken(read.getTarget().getCredential()));
+            }
+        }
+    }
+
+    @Test
+    void reencodesUntouchedPayloadsVerbatim() {
+        CadfAuditEvent original = CadfTestEvents.full("maestro2:1");
+        byte[] json = writer.toBytes(original);
+        byte[] binary = binaryCodec.encode(original);
+
+        assertArrayEquals(json, writer.toBytes(jsonReader.read(json)));
+        assertArrayEquals(binary, binaryCodec.encode(binaryCodec.decode(binary)));
+        assertArrayEquals(json, writer.toBytes(binaryCodec.decode(binary)));
+    }
+
+    private List<Function<CadfAuditEvent, CadfAuditEvent>> roundTrips() {
+        return Arrays.asList(
+            event -> jsonReader.read(writer.toBytes(event)),
+            event -> binaryCodec.decode(binaryCodec.encode(event)));
+    }
+
+    private List<Function<CadfAuditEvent, CadfAuditEvent>> eagerRoundTrips() {
+        CadfJsonReader reader = CadfJsonReader.create();
+        return Arrays.asList(
+            event -> reader.read(writer.toBytes(event)),
+            event -> eagerCodec.decode(eagerCodec.encode(event)));
+    }
+
+    /**
+     * Replaces a payload of {@link CadfTestEvents#full(String)}, whose lists hold attachments of any content type.
+     */
+    private static <T> CadfAttachment<T> attachment(String contentType, T content) {
+        return CadfAttachment.<T>builder().withContentType(contentType).withContent(content).build();
+    }
+
+    private static CadfCredential<String> credential(String token) {
+        CadfCredential<String> credential = new CadfCredential<>();
+        credential.setType("bearer");
+        credential.setToken(token);
+        credential.setAuthority("authority");
+        return credential;
+    }
+
+    private static List<String> paths(List<CadfViolation> violations) {
+        List<String> paths = new ArrayList<>();
+        for (CadfViolation violation : violations) {
+            paths.add(violation.getPath());
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.codec.json.CadfJsonWriter;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAttachment;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfDoubleMeasurement;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfLongMeasurement;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import io.maestro3.cadf.model.CadfOutcomes;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfBinaryCodecTest {
+
+    // events have no equals, the JSON form compares every property
+    private final CadfJsonWriter json = CadfJsonWriter.create();
+    private final CadfBinaryCodec codec = CadfBinaryCodec.create();
+
+    @Test
+    void decodesSelfContainedRecords() {
+        for (CadfAuditEvent event : new CadfAuditEvent[]{
+            CadfTestEvents.minimal("maestro2:1"), CadfTestEvents.full("maestro2:2")}) {
+            byte[] record = codec.encode(event);
+
+            assertArrayEquals(json.toBytes(event), json.toBytes(codec.decode(record)));
+        }
+    }
+
+    @Test
+    void sharesTheDictionaryWithinAStream() throws IOException {
+        List<CadfAuditEvent> events = Arrays.asList(
+            CadfTestEvents.full("maestro2:1"), CadfTestEvents.full("maestro2:2"), CadfTestEvents.full("maestro2:3"));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        CadfBinaryWriter writer = codec.newWriter(stream);
+        for (CadfAuditEvent event : events) {
+            writer.write(event);
+        }
+        writer.flush();
+
+        List<CadfAuditEvent> decoded = new ArrayList<>();
+        try (CadfBinaryReader reader = codec.newReader(new ByteArrayInputStream(stream.toByteArray()))) {
+            for (CadfAuditEvent event; (event = reader.read()) != null; ) {
+                decoded.add(event);
+            }
+        }
+
+        assertEquals(events.size(), decoded.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertArrayEquals(json.toBytes(events.get(i)), json.toBytes(decoded.get(i)));
+        }
+        assertTrue(stream.size() < 3 * codec.encode(events.get(0)).length, "repeated strings are not dictionary coded");
+    }
+
+    @Test
+    void usesRegisteredPayloadCodecs() {
+        CadfBinaryCodec custom = CadfBinaryCodec.builder()
+            .withPayloadCodec(32, UUID.class, new ICadfBinaryPayloadCodec<UUID>() {
+                @Override
+                public void write(UUID payload, BinaryOutput out) {
+                    out.writeLong(payload.getMostSignificantBits()).writeLong(payload.getLeastSignificantBits());
+                }
+
+                @Override
+                public UUID read(BinaryInput in) {
+                    return new UUID(in.readLong(), in.readLong());
+                }
+            })
+            .build();
+        UUID uuid = UUID.randomUUID();
+        CadfAuditEvent withUuid = CadfAuditEvent.builder()
+            .withId("maestro2:1")
+            .withEventType(CadfEventType.ACTIVITY)
+            .withEventTime(CadfTestEvents.EVENT_TIME)
+            .withAction(CadfActions.create())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource("observer"))
+            .withAttachments(new ArrayList<>(Arrays.asList(
+                CadfAttachment.<UUID>builder().withContentType("uuid").withContent(uuid).build())))
+            .build();
+
+        CadfAuditEvent decoded = custom.decode(custom.encode(withUuid));
+
+        assertEquals(uuid, decoded.getAttachments().get(0).getContent());
+    }
+
+    @Test
+    void rejectsForeignAndTruncatedStreams() throws IOException {
+        assertThrows(IllegalArgumentException.class,
+            () -> codec.newReader(new ByteArrayInputStream("{\"id\":1}".getBytes())));
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        CadfBinaryWriter writer = codec.newWriter(stream);
+        writer.write(CadfTestEvents.full("maestro2:1"));
+        writer.flush();
+        byte[] truncated = Arrays.copyOf(stream.toByteArray(), stream.size() - 3);
+        CadfBinaryReader reader = codec.newReader(new ByteArrayInputStream(truncated));
+
+        assertThrows(EOFException.class, reader::read);
+    }
+
+    @Test
+    void decodesPrimitiveMeasurementsIntoBatches() {
+        CadfBinaryCodec batches = CadfBinaryCodec.builder().withMeasurementBatches(true).build();
+        CadfMeasurementBatch batch = new CadfMeasurementBatch();
+        batch.addAll(CadfTestEvents.full("maestro2:1").getMeasurements());
+        batch.add(new CadfLongMeasurement("count", Long.MIN_VALUE));
+        batch.add(new CadfDoubleMeasurement("ratio", -0.25));
+        CadfAuditEvent event = CadfAuditEvent.builder()
+            .withId("maestro2:1")
+            .withEventType(CadfEventType.MONITOR)
+            .withEventTime(CadfTestEvents.EVENT_TIME)
+            .withAction(CadfActions.monitor().start())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource("observer"))
+            .withMeasurements(batch)
+            .build();
+
+        for (byte[] record : new byte[][]{codec.encode(event), batches.encode(event)}) {
+            CadfAuditEvent decoded = batches.decode(record);
+
+            CadfMeasurementBatch decodedBatch = assertInstanceOf(CadfMeasurementBatch.class, decoded.getMeasurements());
+            assertEquals(Long.MIN_VALUE, decodedBatch.getLong(2));
+            assertArrayEquals(json.toBytes(event), json.toBytes(decoded));
+            assertArrayEquals(json.toBytes(event), json.toBytes(codec.decode(record)));
+        }
+    }
+
+    @Test
+    void rejectsRecordsWithoutId() {
+        CadfAuditEvent event = CadfTestEvents.minimal("maestro2:1");
+        event.setId(null);
+        byte[] record = codec.encode(event);
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(record));
+    }
+
+    @Test
+    void returnsNullAtTheEndOfAnEmptyStream() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        codec.newWriter(stream).flush();
+
+        assertNull(codec.newReader(new ByteArrayInputStream(stream.toByteArray())).read());
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.binary;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.codec.json.CadfJsonWriter;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CadfBinaryEventBuilderTest {
+
+    private final CadfJsonWriter json = CadfJsonWriter.create();
+    private final CadfBinaryCodec codec = CadfBinaryCodec.create();
+
+    @Test
+    void encodesTheRecordOfTheBuiltEvent() {
+        CadfAuditEvent event = CadfTestEvents.full("maestro2:1");
+        BinaryOutput out = new BinaryOutput();
+
+        codec.newEventBuilder()
+            .withId(event.getId())
+            .withEventType(CadfEventType.MONITOR)
+            .withEventTime(CadfTestEvents.EVENT_TIME)
+            .withAction(CadfActions.monitor().start())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(event.getInitiator())
+            .withTarget(event.getTarget())
+            .withObserver(event.getObserver())
+            .withMeasurements(event.getMeasurements())
+            .withName(event.getName())
+            .withSeverity(event.getSeverity())
+            .withTags(event.getTags())
+            .withAttachments(event.getAttachments())
+            .withSecureAttachments(event.getSecureAttachments())
+            .encode(out);
+
+        assertArrayEquals(codec.encode(event), out.toByteArray());
+    }
+
+    @Test
+    void encodesInlineResourcesLikeResourceObjects() {
+        BinaryOutput out = new BinaryOutput();
+
+        minimal(codec.newEventBuilder())
+            .withInitiator("initiator", CadfResourceTypes.compute().machine().vm(), "name of initiator")
+            .withTarget("target", CadfResourceTypes.compute().machine().vm(), "name of target")
+            .withObserver("observer", CadfResourceTypes.compute().machine().vm(), "name of observer")
+            .encode(out);
+
+        assertArrayEquals(codec.encode(CadfTestEvents.minimal("maestro2:1")), out.toByteArray());
+    }
+
+    @Test
+    void keepsPropertiesAcrossEncodes() {
+        CadfBinaryEventBuilder builder = minimal(codec.newEventBuilder())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource("observer"));
+        BinaryOutput first = new BinaryOutput();
+        builder.encode(first);
+        BinaryOutput second = new BinaryOutput();
+        builder.withId("maestro2:2").encode(second);
+
+        assertArrayEquals(json.toBytes(CadfTestEvents.minimal("maestro2:1")),
+            json.toBytes(codec.decode(first.toByteArray())));
+        assertArrayEquals(json.toBytes(CadfTestEvents.minimal("maestro2:2")),
+            json.toBytes(codec.decode(second.toByteArray())));
+        assertEquals("observer", builder.getObserverId());
+    }
+
+    @Test
+    void requiresTheEventPropertiesAfterReset() {
+        CadfBinaryEventBuilder builder = minimal(codec.newEventBuilder())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource("observer"))
+            .reset();
+
+        assertThrows(IllegalArgumentException.class, () -> builder.encode(new BinaryOutput()));
+        assertEquals(CadfAuditEvent.NO_EVENT_TIME, builder.getEventTimeNanos());
+    }
+
+    private static CadfBinaryEventBuilder minimal(CadfBinaryEventBuilder builder) {
+        return builder
+            .withId("maestro2:1")
+            .withEventType(CadfEventType.ACTIVITY)
+            .withEventTime(CadfTestEvents.EVENT_TIME)
+            .withAction(CadfActions.create())
+            .withOutcome(CadfOutcomes.success());
+    }
+}
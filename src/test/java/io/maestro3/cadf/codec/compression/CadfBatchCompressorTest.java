@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.compression;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.codec.binary.CadfBinaryCodec;
+import io.maestro3.cadf.codec.json.CadfJsonWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfBatchCompressorTest {
+
+    private final CadfJsonWriter json = CadfJsonWriter.create();
+    private final CadfBatchCompressor compressor = CadfBatchCompressor.create();
+
+    @Test
+    void restoresJsonAndBinaryBatches() {
+        CadfBinaryCodec codec = CadfBinaryCodec.create();
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (int i = 0; i < 10; i++) {
+            records.writeBytes(codec.encode(CadfTestEvents.full("maestro2:" + i)));
+        }
+
+        for (byte[] batch : new byte[][]{jsonBatch(0, 10), records.toByteArray(), new byte[0]}) {
+            assertArrayEquals(batch, compressor.decompress(compressor.compress(batch)));
+        }
+        byte[] batch = jsonBatch(0, 3);
+        byte[] framed = new byte[batch.length + 10];
+        System.arraycopy(batch, 0, framed, 5, batch.length);
+        assertArrayEquals(batch, compressor.decompress(compressor.compress(framed, 5, batch.length)));
+    }
+
+    @Test
+    void compressesSmallBatchesBetterThanPlainDeflate() {
+        byte[] batch = jsonBatch(0, 1);
+
+        assertTrue(compressor.compress(batch).length - CadfBatchCompressor.FRAME_HEADER_SIZE < deflate(batch),
+            "taxonomy dictionary does not help");
+    }
+
+    @Test
+    void trainsDictionariesOnSampleBatches() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            samples.add(jsonBatch(i * 4, 4));
+        }
+        CadfCompressionDictionary trained = CadfCompressionDictionary.train(samples, 8 * 1024);
+        CadfBatchCompressor withTrained = CadfBatchCompressor.builder().withDictionary(trained).build();
+        byte[] batch = jsonBatch(1000, 1);
+
+        assertTrue(trained.size() <= 8 * 1024);
+        assertEquals(trained, CadfCompressionDictionary.of(trained.getBytes()));
+        assertArrayEquals(batch, withTrained.decompress(withTrained.compress(batch)));
+        assertTrue(withTrained.compress(batch).length <= compressor.compress(batch).length,
+            "trained dictionary is worse than the taxonomy");
+    }
+
+    @Test
+    void streamsIndependentFrames() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        List<byte[]> batches = Arrays.asList(jsonBatch(0, 2), jsonBatch(2, 5), jsonBatch(7, 1));
+        for (byte[] batch : batches) {
+            compressor.writeFrame(batch, 0, batch.length, stream);
+        }
+
+        ByteArrayInputStream in = new ByteArrayInputStream(stream.toByteArray());
+        for (byte[] batch : batches) {
+            assertArrayEquals(batch, compressor.readFrame(in));
+        }
+        assertNull(compressor.readFrame(in));
+
+        byte[] truncated = Arrays.copyOf(stream.toByteArray(), stream.size() - 1);
+        ByteArrayInputStream truncatedIn = new ByteArrayInputStream(truncated);
+        compressor.readFrame(truncatedIn);
+        compressor.readFrame(truncatedIn);
+        assertThrows(EOFException.class, () -> compressor.readFrame(truncatedIn));
+    }
+
+    @Test
+    void rejectsForeignAndCorruptFrames() {
+        byte[] frame = compressor.compress(jsonBatch(0, 2));
+        CadfBatchCompressor other = CadfBatchCompressor.builder()
+            .withDictionary(CadfCompressionDictionary.of(new byte[]{'{', '"', '}'}))
+            .build();
+
+        assertThrows(IllegalArgumentException.class, () -> other.decompress(frame));
+        byte[] corrupt = frame.clone();
+        corrupt[corrupt.length - 3] ^= 0x10;
+        assertThrows(IllegalArgumentException.class, () -> compressor.decompress(corrupt));
+        assertThrows(IllegalArgumentException.class,
+            () -> CadfBatchCompressor.builder().withMaxBatchSize(16).build().compress(jsonBatch(0, 1)));
+    }
+
+    private byte[] jsonBatch(int from, int count) {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        for (int i = from; i < from + count; i++) {
+            batch.writeBytes(json.toBytes(CadfTestEvents.full("maestro2:" + i)));
+            batch.write('\n');
+        }
+        return batch.toByteArray();
+    }
+
+    private static int deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(bytes);
+        deflater.finish();
+        byte[] buffer = new byte[bytes.length + 64];
+        int length = deflater.deflate(buffer);
+        deflater.end();
+        return length;
+    }
+}
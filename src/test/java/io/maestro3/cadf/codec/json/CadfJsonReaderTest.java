@@ -0,0 +1,144 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.json;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfDoubleMeasurement;
+import io.maestro3.cadf.model.CadfLongMeasurement;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CadfJsonReaderTest {
+
+    private final CadfJsonWriter writer = CadfJsonWriter.create();
+    private final CadfJsonReader reader = CadfJsonReader.create();
+
+    @Test
+    void readsWhatTheWriterWrote() {
+        for (CadfAuditEvent event : new CadfAuditEvent[]{
+            CadfTestEvents.minimal("maestro2:1"), CadfTestEvents.full("maestro2:2")}) {
+            byte[] json = writer.toBytes(event);
+
+            assertArrayEquals(json, writer.toBytes(reader.read(json)));
+        }
+    }
+
+    @Test
+    void resolvesTaxonomyValuesToCanonicalInstances() {
+        CadfAuditEvent event = reader.read(json(CadfTestEvents.minimal("maestro2:1")));
+
+        assertSame(CadfActions.create().getRelativeUri(), event.getAction());
+        assertEquals("success", event.getOutcome());
+    }
+
+    @Test
+    void keepsUnknownTaxonomyValuesAndSkipsUnknownMembers() {
+        String json = new String(json(CadfTestEvents.minimal("maestro2:1")), StandardCharsets.UTF_8)
+            .replace("\"action\":\"create\"", "\"action\":\"custom/verb\",\"extra\":{\"nested\":[1,2,{}]}");
+
+        CadfAuditEvent event = reader.read(json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("custom/verb", event.getAction());
+        assertNull(event.getSeverity());
+    }
+
+    @Test
+    void readsNumericMeasurementsIntoBatches() {
+        CadfAuditEvent event = CadfTestEvents.full("maestro2:1");
+        event.getMeasurements().add(new CadfLongMeasurement("count", 1L << 40));
+        event.getMeasurements().add(new CadfDoubleMeasurement("ratio", -0.25));
+        byte[] json = json(event);
+
+        CadfAuditEvent read = CadfJsonReader.builder().withMeasurementBatches(true).build().read(json);
+
+        CadfMeasurementBatch batch = assertInstanceOf(CadfMeasurementBatch.class, read.getMeasurements());
+        assertEquals(1L << 40, batch.getLong(2));
+        assertEquals(-0.25, batch.getDouble(3));
+        assertArrayEquals(json, writer.toBytes(read));
+    }
+
+    @Test
+    void rejectsEventsWithoutId() {
+        String json = new String(json(CadfTestEvents.minimal("maestro2:1")), StandardCharsets.UTF_8)
+            .replace("\"id\":\"maestro2:1\",", "");
+
+        assertThrows(IllegalArgumentException.class, () -> reader.read(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void normalizesEventTimeToUtc() {
+        String json = new String(json(CadfTestEvents.minimal("maestro2:1")), StandardCharsets.UTF_8)
+            .replace(CadfTestEvents.EVENT_TIME, "2001-07-04T12:08:56.235-07:00");
+
+        CadfAuditEvent event = reader.read(json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("2001-07-04T19:08:56.235+00:00", event.getEventTime());
+    }
+
+    @Test
+    void readsByteBuffersAndNewlineDelimitedStreams() throws IOException {
+        byte[] json = json(CadfTestEvents.full("maestro2:2"));
+        ByteBuffer direct = ByteBuffer.allocateDirect(json.length).put(json).flip();
+
+        assertArrayEquals(json, writer.toBytes(reader.read(direct)));
+
+        byte[] lines = (new String(json, StandardCharsets.UTF_8) + "\n\n" + new String(json, StandardCharsets.UTF_8))
+            .getBytes(StandardCharsets.UTF_8);
+        List<CadfAuditEvent> events = new ArrayList<>();
+
+        assertEquals(2, reader.readAll(new ByteArrayInputStream(lines), events::add));
+        assertArrayEquals(json, writer.toBytes(events.get(1)));
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        byte[] json = json(CadfTestEvents.minimal("maestro2:1"));
+        byte[] truncated = Arrays.copyOf(json, json.length - 1);
+
+        assertThrows(IllegalArgumentException.class, () -> reader.read(truncated));
+        assertThrows(IllegalArgumentException.class, () -> reader.read("{\"id\":}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void rejectsEventsWithoutRequiredProperties() {
+        String json = new String(json(CadfTestEvents.minimal("maestro2:1")), StandardCharsets.UTF_8)
+            .replace("\"eventType\":\"activity\",", "");
+
+        assertThrows(IllegalArgumentException.class, () -> reader.read(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private byte[] json(CadfAuditEvent event) {
+        return writer.toBytes(event);
+    }
+}
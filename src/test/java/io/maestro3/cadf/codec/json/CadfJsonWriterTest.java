@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.codec.json;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurement;
+import io.maestro3.cadf.model.CadfOutcomes;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfJsonWriterTest {
+
+    private final CadfJsonWriter writer = CadfJsonWriter.create();
+
+    @Test
+    void writesRequiredMembersOnlyByDefault() {
+        String json = json(writer, CadfTestEvents.minimal("maestro2:1"));
+
+        assertEquals("{\"typeURI\":\"http://schemas.dmtf.org/cloud/audit/1.0/event\",\"id\":\"maestro2:1\","
+            + "\"eventType\":\"activity\",\"eventTime\":\"2001-07-04T12:08:56.235+00:00\",\"action\":\"create\","
+            + "\"outcome\":\"success\","
+            + "\"initiator\":{\"id\":\"initiator\",\"typeURI\":\"compute/machine/vm\",\"name\":\"name of initiator\"},"
+            + "\"target\":{\"id\":\"target\",\"typeURI\":\"compute/machine/vm\",\"name\":\"name of target\"},"
+            + "\"observer\":{\"id\":\"observer\",\"typeURI\":\"compute/machine/vm\",\"name\":\"name of observer\"}}",
+            json);
+    }
+
+    @Test
+    void writesAbsentMembersAsNullWhenConfigured() {
+        String json = json(CadfJsonWriter.builder().withNullFields(true).build(), CadfTestEvents.minimal("maestro2:1"));
+
+        assertTrue(json.contains("\"severity\":null"), json);
+        assertTrue(json.contains("\"credential\":null"), json);
+    }
+
+    @Test
+    void escapesStringsAndEncodesUtf8() {
+        String json = json(writer, CadfTestEvents.full("maestro2:2"));
+
+        assertTrue(json.contains("\"name\":\"quoted \\\" and\\nnew line, \u00e9 \u2603\""), json);
+    }
+
+    @Test
+    void escapesControlCharsWithUpperCaseHex() {
+        byte[] json = writer.newOutput().value("a\u001Fb\u0000\u007F").toByteArray();
+
+        assertEquals("\"a\\u001Fb\\u0000\u007F\"", new String(json, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void writesNonFiniteNumbersAsStrings() {
+        JsonOutput out = writer.newOutput().beginArray()
+            .value(Double.NaN).value(Double.POSITIVE_INFINITY).value(Double.NEGATIVE_INFINITY)
+            .value(Float.NaN).value(Float.NEGATIVE_INFINITY).value(1.5).value(-0.25f)
+            .endArray();
+
+        assertEquals("[\"NaN\",\"Infinity\",\"-Infinity\",\"NaN\",\"-Infinity\",1.5,-0.25]",
+            new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        CadfAuditEvent event = CadfAuditEvent.builder()
+            .withId("maestro2:1")
+            .withEventType(CadfEventType.MONITOR)
+            .withEventTime(CadfTestEvents.EVENT_TIME)
+            .withAction(CadfActions.monitor())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource("observer"))
+            .withMeasurements(Collections.singletonList(
+                CadfMeasurement.<Double>builder().withResult(Double.NaN).withMetricId("cpu").build()))
+            .build();
+        String json = json(writer, event);
+
+        assertTrue(json.contains("\"measurements\":[{\"result\":\"NaN\",\"metricId\":\"cpu\"}]"), json);
+    }
+
+    @Test
+    void writesPayloadsAsJsonValues() {
+        String json = json(writer, CadfTestEvents.full("maestro2:2"));
+
+        assertTrue(json.contains("\"content\":{\"count\":1,\"values\":[\"x\",true,null,2.5]}"), json);
+        assertTrue(json.contains("\"measurements\":[{\"result\":1.5,\"metricId\":\"cpu\"},{\"result\":42,"), json);
+        assertTrue(json.contains("\"credential\":{\"type\":\"bearer\",\"token\":\"token\""), json);
+    }
+
+    @Test
+    void writesTheSameBytesToEveryTarget() throws IOException {
+        CadfAuditEvent event = CadfTestEvents.full("maestro2:2");
+        byte[] expected = writer.toBytes(event);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.write(event, stream);
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+        writer.write(event, buffer);
+
+        assertArrayEquals(expected, stream.toByteArray());
+        assertArrayEquals(expected, buffer.array());
+    }
+
+    private static String json(CadfJsonWriter writer, CadfAuditEvent event) {
+        return new String(writer.toBytes(event), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.converter;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfBulkConversionTest {
+
+    private static final IdConverter CONVERTER = new IdConverter();
+
+    @Test
+    void deliversBatchesInSourceOrderWithPool() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<String> ids = ids(1000);
+            CadfConversionOptions options = CadfConversionOptions.builder().withPool(pool).withBatchSize(7).build();
+            List<CadfConversionBatch<String, CadfAuditEvent>> batches = new ArrayList<>();
+            Thread caller = Thread.currentThread();
+
+            CONVERTER.convertAll(ids, options, batch -> {
+                assertSame(caller, Thread.currentThread());
+                batches.add(batch);
+            });
+
+            List<String> converted = new ArrayList<>();
+            long position = 0;
+            for (int i = 0; i < batches.size(); i++) {
+                CadfConversionBatch<String, CadfAuditEvent> batch = batches.get(i);
+                assertEquals(i, batch.getIndex());
+                assertEquals(position, batch.getFirstPosition());
+                position += batch.size();
+                for (CadfAuditEvent event : batch.getResults()) {
+                    converted.add(event.getId());
+                }
+            }
+            assertEquals(ids, converted);
+            assertEquals(143, batches.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void deliversEveryBatchOnceUnordered() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<CadfAuditEvent> events = new ArrayList<>();
+            for (String id : ids(500)) {
+                events.add(CadfTestEvents.minimal(id));
+            }
+            CadfConversionOptions options = CadfConversionOptions.builder()
+                .withPool(pool)
+                .withBatchSize(10)
+                .withOrdered(false)
+                .build();
+            Set<Long> indexes = new HashSet<>();
+            List<String> unconverted = new ArrayList<>();
+
+            CONVERTER.unconvertAll(events.stream(), options, batch -> {
+                assertTrue(indexes.add(batch.getIndex()));
+                unconverted.addAll(batch.getResults());
+            });
+
+            Collections.sort(unconverted);
+            List<String> expected = ids(500);
+            Collections.sort(expected);
+            assertEquals(expected, unconverted);
+            assertEquals(50, indexes.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void reportsFailedItemsWithTheirBatch() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            List<String> ids = ids(100);
+            for (int i = 3; i < ids.size(); i += 10) {
+                ids.set(i, "bad:" + i);
+            }
+            for (ForkJoinPool batchPool : new ForkJoinPool[]{null, pool}) {
+                CadfConversionOptions options = CadfConversionOptions.builder()
+                    .withPool(batchPool)
+                    .withBatchSize(16)
+                    .build();
+                List<CadfConversionError<String>> errors = new ArrayList<>();
+                AtomicInteger converted = new AtomicInteger();
+
+                CONVERTER.convertAll(ids, options, batch -> {
+                    assertEquals(batch.size(), batch.getResults().size() + batch.getErrors().size());
+                    for (CadfConversionError<String> error : batch.getErrors()) {
+                        assertTrue(error.getPosition() >= batch.getFirstPosition());
+                        assertTrue(error.getPosition() < batch.getFirstPosition() + batch.size());
+                    }
+                    errors.addAll(batch.getErrors());
+                    converted.addAndGet(batch.getResults().size());
+                });
+
+                assertEquals(90, converted.get());
+                assertEquals(10, errors.size());
+                for (int i = 0; i < errors.size(); i++) {
+                    CadfConversionError<String> error = errors.get(i);
+                    assertEquals(3 + 10 * i, error.getPosition());
+                    assertEquals("bad:" + error.getPosition(), error.getSource());
+                    assertEquals(IllegalArgumentException.class, error.getCause().getClass());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void boundsBatchesInFlight() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger read = new AtomicInteger();
+        AtomicInteger converted = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ICadfConverter<String> blocking = new IdConverter() {
+            @Override
+            public CadfAuditEvent convert(String id) {
+                await(release);
+                return super.convert(id);
+            }
+        };
+        Thread caller = new Thread(() -> {
+            try {
+                CadfConversionOptions options = CadfConversionOptions.builder().withPool(pool).withBatchSize(5).build();
+                blocking.convertAll(counting(ids(1000), read), options,
+                    batch -> converted.addAndGet(batch.getResults().size()));
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        try {
+            caller.start();
+            // parallelism 2 allows 4 batches of 5 items to be converting or waiting for delivery
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (read.get() < 20 && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            Thread.sleep(50);
+            assertEquals(20, read.get());
+            assertEquals(0, converted.get());
+
+            release.countDown();
+            caller.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(caller.isAlive());
+            assertNull(failure.get());
+            assertEquals(1000, read.get());
+            assertEquals(1000, converted.get());
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void deliversNothingForEmptySource() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            CadfConversionOptions parallel = CadfConversionOptions.builder().withPool(pool).build();
+            List<Object> batches = new ArrayList<>();
+
+            CONVERTER.convertAll(Collections.<String>emptyList(), CadfConversionOptions.sequential(), batches::add);
+            CONVERTER.convertAll(Stream.<String>empty(), parallel, batches::add);
+            CONVERTER.unconvertAll(Collections.<CadfAuditEvent>emptyList(), parallel, batches::add);
+
+            assertTrue(batches.isEmpty());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add("maestro2:" + i);
+        }
+        return ids;
+    }
+
+    private static <T> Spliterator<T> counting(List<T> items, AtomicInteger read) {
+        Iterator<T> iterator = items.iterator();
+        return Spliterators.spliteratorUnknownSize(new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                read.incrementAndGet();
+                return iterator.next();
+            }
+        }, Spliterator.ORDERED);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class IdConverter implements ICadfConverter<String> {
+
+        @Override
+        public CadfAuditEvent convert(String id) {
+            if (id.startsWith("bad:")) {
+                throw new IllegalArgumentException("malformed id " + id);
+            }
+            // uneven work, so later batches of a parallel run often finish first
+            if (id.hashCode() % 7 == 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+            }
+            return CadfTestEvents.minimal(id);
+        }
+
+        @Override
+        public String unconvert(CadfAuditEvent event) {
+            return event.getId();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.dedup;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.publisher.ICadfEventSink;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfEventDeduplicatorTest {
+
+    @Test
+    void suppressesRedeliveredIds() {
+        CadfEventDeduplicator deduplicator = CadfEventDeduplicator.builder()
+            .withWindow(Duration.ofMinutes(10))
+            .withExpectedEvents(1000)
+            .build();
+
+        assertFalse(deduplicator.isDuplicate("maestro2:1"));
+        assertTrue(deduplicator.isDuplicate("maestro2:1"));
+        assertTrue(deduplicator.isDuplicate(CadfTestEvents.minimal("maestro2:1")));
+        assertFalse(deduplicator.isDuplicate("maestro2:2"));
+
+        assertEquals(4, deduplicator.getCheckedCount());
+        assertEquals(2, deduplicator.getSuppressedCount());
+        assertTrue(deduplicator.getMemoryBytes() > 0);
+    }
+
+    @Test
+    void keepsToTheFalsePositiveRate() {
+        // no rotation within the test, so the current partition takes all 200K ids, a third of the expected events
+        CadfEventDeduplicator deduplicator = CadfEventDeduplicator.builder()
+            .withWindow(Duration.ofMinutes(10))
+            .withExpectedEvents(600_000)
+            .withFalsePositiveRate(0.01)
+            .build();
+        for (int i = 0; i < 100_000; i++) {
+            deduplicator.isDuplicate("seen-" + i);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(deduplicator.isDuplicate("seen-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (deduplicator.isDuplicate("new-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_000, falsePositives + " false positives");
+    }
+
+    @Test
+    void forgetsIdsOlderThanTheRotatedPartitions() throws InterruptedException {
+        CadfEventDeduplicator deduplicator = CadfEventDeduplicator.builder()
+            .withWindow(Duration.ofMillis(20))
+            .withPartitions(2)
+            .withExpectedEvents(1000)
+            .build();
+        deduplicator.isDuplicate("maestro2:1");
+
+        Thread.sleep(200);
+
+        assertFalse(deduplicator.isDuplicate("maestro2:1"));
+        assertTrue(deduplicator.getRotationCount() > 0);
+    }
+
+    @Test
+    void passesUniqueEventsOn() {
+        CadfEventDeduplicator deduplicator = CadfEventDeduplicator.builder()
+            .withWindow(Duration.ofMinutes(10))
+            .withExpectedEvents(1000)
+            .build();
+        List<List<String>> published = new ArrayList<>();
+        ICadfEventSink sink = deduplicator.filtering(events -> {
+            List<String> ids = new ArrayList<>();
+            for (CadfAuditEvent event : events) {
+                ids.add(event.getId());
+            }
+            published.add(ids);
+        });
+
+        sink.publish(events("a", "b", "a", "c"));
+        sink.publish(events("b", "c"));
+        sink.publish(events("d"));
+
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Arrays.asList("d")), published);
+    }
+
+    @Test
+    void validatesTheConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> CadfEventDeduplicator.builder().withPartitions(1));
+        assertThrows(IllegalArgumentException.class, () -> CadfEventDeduplicator.builder().withFalsePositiveRate(1));
+    }
+
+    private static List<CadfAuditEvent> events(String... ids) {
+        List<CadfAuditEvent> events = new ArrayList<>();
+        for (String id : ids) {
+            events.add(CadfTestEvents.minimal(id));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.filter;
+
+import io.maestro3.cadf.ICadfAction;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.ICadfResourceType;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfResource;
+import io.maestro3.cadf.model.CadfResourceTypes;
+import io.maestro3.cadf.store.CadfEventStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfEventFilterTest {
+
+    private static final long BASE_MILLIS = 1_683_000_000_000L;
+    private static final ICadfAction[] ACTIONS = {
+        CadfActions.create(), CadfActions.update(), CadfActions.delete(), CadfActions.monitor().start(),
+        CadfActions.monitor()};
+    private static final ICadfOutcome[] OUTCOMES = {
+        CadfOutcomes.success(), CadfOutcomes.failure(), CadfOutcomes.pending()};
+    private static final ICadfResourceType[] TYPES = {
+        CadfResourceTypes.compute().machine().vm(), CadfResourceTypes.data().security().account().user(),
+        CadfResourceTypes.data().security()};
+    private static final String[] NAMES = {null, "deploy web", "backup"};
+    private static final String[] SEVERITIES = {"high", null, "low", "medium"};
+
+    private final List<CadfAuditEvent> events = events(200);
+
+    @Test
+    void evaluatesColumnsLikeEvents() {
+        CadfEventStore store = CadfEventStore.builder().withChunkSize(64).build();
+        events.forEach(store::append);
+
+        for (String expression : new String[]{
+            "true",
+            "false",
+            "eventType = monitor",
+            "action = create",
+            "action under monitor",
+            "action != update",
+            "outcome = failure OR outcome = pending",
+            "target.type under data/security",
+            "target.type = compute/machine/vm",
+            "initiator.id = user-3 AND NOT observer.name = \"name of observer\"",
+            "target.id != target-1",
+            "name = \"deploy web\"",
+            "severity = high OR severity != low",
+            "time in [" + (BASE_MILLIS + 10_000) + ", " + (BASE_MILLIS + 50_000) + ")",
+            "(action under monitor OR outcome = failure) AND NOT target.type under data",
+        }) {
+            CadfEventFilter filter = CadfEventFilter.parse(expression);
+            List<String> expected = new ArrayList<>();
+            for (CadfAuditEvent event : events) {
+                if (filter.test(event)) {
+                    expected.add(event.getId());
+                }
+            }
+            List<String> scanned = new ArrayList<>();
+            long count = store.scan(filter, event -> scanned.add(event.getId()));
+
+            assertEquals(expected, scanned, expression);
+            assertEquals(expected.size(), count, expression);
+            assertEquals(expected.size(), store.count(filter), expression);
+        }
+    }
+
+    @Test
+    void matchesParsedTerms() {
+        CadfAuditEvent event = event(3);
+
+        assertTrue(CadfEventFilter.parse("ACTION under monitor and outcome = success").test(event));
+        assertTrue(CadfEventFilter.parse("target.type under compute").test(event));
+        assertFalse(CadfEventFilter.parse("target.type under data/security").test(event));
+        assertTrue(CadfEventFilter.parse("time in [" + (BASE_MILLIS + 3_000) + ", " + (BASE_MILLIS + 3_000) + "]")
+            .test(event));
+        assertFalse(CadfEventFilter.parse("time in [" + BASE_MILLIS + ", " + (BASE_MILLIS + 3_000) + ")")
+            .test(event));
+    }
+
+    @Test
+    void buildsFiltersEquivalentToExpressions() {
+        CadfEventFilter built = CadfEventFilter.builder()
+            .withActionUnder(CadfActions.monitor())
+            .withResourceTypeUnder(CadfResourceRole.TARGET, CadfResourceTypes.data())
+            .withSeverity("high")
+            .build();
+        CadfEventFilter parsed = CadfEventFilter.parse("action under monitor AND target.type under data"
+            + " AND severity = high");
+        CadfEventFilter combined = CadfEventFilter.anyOf(built, CadfEventFilter.not(CadfEventFilter.all()));
+
+        for (CadfAuditEvent event : events) {
+            assertEquals(parsed.test(event), built.test(event), event.getId());
+            assertEquals(parsed.test(event), combined.test(event), event.getId());
+        }
+    }
+
+    @Test
+    void rejectsMalformedExpressions() {
+        for (String expression : new String[]{
+            "action", "action ==", "(action = create", "action = create AND", "color = red", "time in [1, 2",
+            "target.size = 1", "name = \"open"}) {
+            assertThrows(IllegalArgumentException.class, () -> CadfEventFilter.parse(expression), expression);
+        }
+    }
+
+    private static List<CadfAuditEvent> events(int count) {
+        List<CadfAuditEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(event(i));
+        }
+        return events;
+    }
+
+    private static CadfAuditEvent event(int i) {
+        ICadfAction action = ACTIONS[i % ACTIONS.length];
+        return CadfAuditEvent.builder()
+            .withId("event-" + i)
+            .withEventType(i % 5 >= 3 ? CadfEventType.MONITOR : CadfEventType.ACTIVITY)
+            .withEventTimeMillis(BASE_MILLIS + i * 1_000L)
+            .withAction(action)
+            .withOutcome(OUTCOMES[i % OUTCOMES.length])
+            .withInitiator(resource("user-" + i % 7, CadfResourceTypes.data().security().account().user()))
+            .withTarget(resource("target-" + i % 3, TYPES[i % TYPES.length]))
+            .withObserver(i % 11 == 0 ? resource("probe", TYPES[0]) : resource("observer", TYPES[0]))
+            .withName(NAMES[i % NAMES.length])
+            .withSeverity(SEVERITIES[i % SEVERITIES.length])
+            .build();
+    }
+
+    private static CadfResource resource(String id, ICadfResourceType type) {
+        return CadfResource.builder().withId(id).ofType(type).withName("name of " + id).build();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.index;
+
+import io.maestro3.cadf.codec.binary.BinaryInput;
+import io.maestro3.cadf.codec.binary.BinaryOutput;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfBitmapTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void holdsTheSameValuesAsASortedSet() {
+        // sparse values stay in array containers, the dense range turns its container into a bitmap one
+        TreeSet<Integer> expected = new TreeSet<>();
+        CadfBitmap bitmap = new CadfBitmap();
+        for (int i = 0; i < 20_000; i++) {
+            int value = i % 2 == 0 ? random.nextInt(1 << 24) : (1 << 20) + random.nextInt(10_000);
+            expected.add(value);
+            bitmap.add(value);
+        }
+        bitmap.add(0);
+        expected.add(0);
+
+        assertArrayEquals(toArray(expected), bitmap.toArray());
+        assertEquals(expected.size(), bitmap.cardinality());
+        for (int i = 0; i < 10_000; i++) {
+            int value = random.nextInt(1 << 24);
+            assertEquals(expected.contains(value), bitmap.contains(value));
+        }
+        List<Integer> visited = new ArrayList<>();
+        bitmap.forEach(visited::add);
+        assertEquals(new ArrayList<>(expected), visited);
+    }
+
+    @Test
+    void combinesLikeSetOperations() {
+        for (int round = 0; round < 20; round++) {
+            TreeSet<Integer> left = randomSet();
+            TreeSet<Integer> right = randomSet();
+
+            TreeSet<Integer> and = new TreeSet<>(left);
+            and.retainAll(right);
+            TreeSet<Integer> or = new TreeSet<>(left);
+            or.addAll(right);
+            TreeSet<Integer> andNot = new TreeSet<>(left);
+            andNot.removeAll(right);
+
+            CadfBitmap leftBitmap = bitmap(left);
+            CadfBitmap rightBitmap = bitmap(right);
+            assertArrayEquals(toArray(and), CadfBitmap.and(leftBitmap, rightBitmap).toArray());
+            assertArrayEquals(toArray(or), CadfBitmap.or(leftBitmap, rightBitmap).toArray());
+            assertArrayEquals(toArray(andNot), CadfBitmap.andNot(leftBitmap, rightBitmap).toArray());
+            // operands are left as they were
+            assertArrayEquals(toArray(left), leftBitmap.toArray());
+            assertArrayEquals(toArray(right), rightBitmap.toArray());
+        }
+    }
+
+    @Test
+    void survivesWriteAndRead() {
+        CadfBitmap bitmap = bitmap(randomSet());
+        BinaryOutput out = new BinaryOutput();
+        bitmap.write(out);
+        byte[] bytes = out.toByteArray();
+
+        CadfBitmap read = CadfBitmap.read(new BinaryInput(bytes, 0, bytes.length));
+
+        assertArrayEquals(bitmap.toArray(), read.toArray());
+        assertEquals(bitmap.cardinality(), read.cardinality());
+    }
+
+    @Test
+    void copiesAreIndependent() {
+        CadfBitmap bitmap = CadfBitmap.of(1, 5, 70_000);
+        CadfBitmap copy = bitmap.copy();
+        copy.add(9);
+
+        assertArrayEquals(new int[]{1, 5, 70_000}, bitmap.toArray());
+        assertArrayEquals(new int[]{1, 5, 9, 70_000}, copy.toArray());
+        assertTrue(new CadfBitmap().isEmpty());
+        assertFalse(bitmap.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+    }
+
+    /**
+     * Values of a few containers, some of them dense enough for bitmap containers.
+     */
+    private TreeSet<Integer> randomSet() {
+        TreeSet<Integer> values = new TreeSet<>();
+        for (int container = 0; container < 6; container++) {
+            int count = random.nextBoolean() ? random.nextInt(100) : 4_000 + random.nextInt(20_000);
+            for (int i = 0; i < count; i++) {
+                values.add((container << 16) + random.nextInt(1 << 16));
+            }
+        }
+        return values;
+    }
+
+    private static CadfBitmap bitmap(TreeSet<Integer> values) {
+        CadfBitmap bitmap = new CadfBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    private static int[] toArray(TreeSet<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
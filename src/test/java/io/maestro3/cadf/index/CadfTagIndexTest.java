@@ -0,0 +1,111 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.index;
+
+import io.maestro3.cadf.codec.binary.BinaryInput;
+import io.maestro3.cadf.codec.binary.BinaryOutput;
+import io.maestro3.cadf.model.CadfTag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfTagIndexTest {
+
+    @Test
+    void findsPositionsByNameAndTag() {
+        CadfTagIndex index = index();
+
+        assertArrayEquals(new int[]{0, 1, 2, 3}, index.getByName("tenant").toArray());
+        assertArrayEquals(new int[]{0, 2}, index.getByTag("tenant", "t1").toArray());
+        assertArrayEquals(new int[]{1, 3}, index.getByTag("tenant", "t2").toArray());
+        assertArrayEquals(new int[]{2, 4}, index.getByName("route").toArray());
+        assertTrue(index.getByName("missing").isEmpty());
+        assertTrue(index.getByTag("route", "missing").isEmpty());
+        assertEquals(3, index.getNameCount());
+    }
+
+    @Test
+    void skipsTagsWithoutName() {
+        CadfTagIndex index = new CadfTagIndex();
+        index.add(0, Arrays.asList(null, new CadfTag(), tag("tenant", "t1")));
+        index.add(1, null);
+
+        assertEquals(1, index.getNameCount());
+        assertArrayEquals(new int[]{0}, index.getByName("tenant").toArray());
+    }
+
+    @Test
+    void evaluatesQueries() {
+        CadfTagIndex index = index();
+
+        assertArrayEquals(new int[]{2}, CadfTagQuery.hasTag("tenant", "t1").and(CadfTagQuery.hasName("route"))
+            .evaluate(index).toArray());
+        assertArrayEquals(new int[]{0, 2, 4}, CadfTagQuery.hasTag("tenant", "t1").or(CadfTagQuery.hasName("route"))
+            .evaluate(index).toArray());
+        assertArrayEquals(new int[]{3}, CadfTagQuery.allOf(
+                CadfTagQuery.hasTag("tenant", "t2"),
+                CadfTagQuery.anyOf(CadfTagQuery.hasName("flag"), CadfTagQuery.hasName("route")))
+            .evaluate(index).toArray());
+        assertTrue(CadfTagQuery.allOf(CadfTagQuery.hasName("missing"), CadfTagQuery.hasName("tenant"))
+            .evaluate(index).isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidQueries() {
+        assertThrows(IllegalArgumentException.class, () -> CadfTagQuery.hasName(""));
+        assertThrows(IllegalArgumentException.class, () -> CadfTagQuery.hasTag("tenant", null));
+        assertThrows(IllegalArgumentException.class, CadfTagQuery::allOf);
+    }
+
+    @Test
+    void survivesWriteAndRead() {
+        CadfTagIndex index = index();
+        BinaryOutput out = new BinaryOutput();
+        index.write(out);
+        byte[] bytes = out.toByteArray();
+
+        CadfTagIndex read = CadfTagIndex.read(new BinaryInput(bytes, 0, bytes.length));
+
+        assertEquals(index.getNameCount(), read.getNameCount());
+        assertArrayEquals(index.getByName("tenant").toArray(), read.getByName("tenant").toArray());
+        assertArrayEquals(index.getByTag("tenant", "t2").toArray(), read.getByTag("tenant", "t2").toArray());
+        assertArrayEquals(index.getByName("flag").toArray(), read.getByName("flag").toArray());
+    }
+
+    /**
+     * tenant t1 at 0 and 2, t2 at 1 and 3; route at 2 and 4; flag without value at 3.
+     */
+    private static CadfTagIndex index() {
+        CadfTagIndex index = new CadfTagIndex();
+        index.add(0, Arrays.asList(tag("tenant", "t1")));
+        index.add(1, Arrays.asList(tag("tenant", "t2")));
+        index.add(2, Arrays.asList(tag("tenant", "t1"), tag("route", "r1")));
+        index.add(3, "tenant", "t2");
+        index.add(3, "flag", null);
+        index.add(4, Arrays.asList(tag("route", "r2")));
+        return index;
+    }
+
+    private static CadfTag tag(String name, String value) {
+        return CadfTag.builder().withName(name).withValue(value).build();
+    }
+}
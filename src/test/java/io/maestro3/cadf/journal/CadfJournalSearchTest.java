@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.journal;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.index.CadfTagQuery;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfTag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CadfJournalSearchTest {
+
+    private static final long BASE_NANOS = 1_000_000_000_000_000_000L;
+    private static final int EVENTS = 400;
+    private static final int TARGETS = 4;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void appendEvents() throws IOException {
+        try (CadfJournal journal = CadfJournal.builder(directory)
+            .withSegmentSize(64 * 1024)
+            .withIndexBlockSize(16)
+            .build()) {
+            for (int i = 0; i < EVENTS; i++) {
+                journal.append(event(i));
+            }
+        }
+    }
+
+    @Test
+    void findsByTimeRange() throws IOException {
+        List<String> found = new ArrayList<>();
+        int count = CadfJournalSearch.open(directory)
+            .findByTime(nanos(100), nanos(149), event -> found.add(event.getId()));
+
+        assertEquals(50, count);
+        assertEquals(ids(100, 150, 1), found);
+    }
+
+    @Test
+    void findsByResourceId() throws IOException {
+        List<String> found = new ArrayList<>();
+        int count = CadfJournalSearch.open(directory).findByResourceId("target-1", event -> found.add(event.getId()));
+
+        assertEquals(EVENTS / TARGETS, count);
+        assertEquals(ids(1, EVENTS, TARGETS), found);
+    }
+
+    @Test
+    void findsByResourceIdAndTimeRange() throws IOException {
+        List<String> found = new ArrayList<>();
+        CadfJournalSearch.open(directory)
+            .findByResourceId("target-2", nanos(10), nanos(30), event -> found.add(event.getId()));
+
+        assertEquals(ids(10, 31, TARGETS), found);
+    }
+
+    @Test
+    void findsByTags() throws IOException {
+        List<String> found = new ArrayList<>();
+        int count = CadfJournalSearch.open(directory).findByTags(
+            CadfTagQuery.hasTag("tenant", "t1").and(CadfTagQuery.hasTag("parity", "odd")),
+            event -> found.add(event.getId()));
+
+        assertEquals(EVENTS / TARGETS, count);
+        assertEquals(ids(1, EVENTS, TARGETS), found);
+    }
+
+    @Test
+    void findsByTagsAndTimeRange() throws IOException {
+        List<String> found = new ArrayList<>();
+        CadfJournalSearch.open(directory).findByTags(
+            CadfTagQuery.hasTag("tenant", "t0").or(CadfTagQuery.hasTag("tenant", "t3")), nanos(10), nanos(20),
+            event -> found.add(event.getId()));
+
+        assertEquals(Arrays.asList("event-11", "event-12", "event-15", "event-16", "event-19", "event-20"), found);
+    }
+
+    @Test
+    void rebuildsMissingIndexes() throws IOException {
+        for (Path segment : JournalSegment.list(directory)) {
+            Files.deleteIfExists(JournalIndex.path(segment));
+        }
+
+        List<String> found = new ArrayList<>();
+        CadfJournalSearch search = CadfJournalSearch.open(directory);
+        search.findByResourceId("target-3", event -> found.add(event.getId()));
+
+        assertEquals(ids(3, EVENTS, TARGETS), found);
+        assertEquals(EVENTS / 2, search.findByTags(CadfTagQuery.hasTag("parity", "even"), event -> { }));
+    }
+
+    private static CadfAuditEvent event(int i) {
+        return CadfAuditEvent.builder()
+            .withId("event-" + i)
+            .withEventType(CadfEventType.ACTIVITY)
+            .withEventTimeNanos(nanos(i))
+            .withAction(CadfActions.create())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target-" + i % TARGETS))
+            .withObserver(CadfTestEvents.resource("observer"))
+            .withTags(new ArrayList<>(Arrays.asList(
+                CadfTag.builder().withName("tenant").withValue("t" + i % TARGETS).build(),
+                CadfTag.builder().withName("parity").withValue(i % 2 == 0 ? "even" : "odd").build())))
+            .build();
+    }
+
+    private static long nanos(int i) {
+        return BASE_NANOS + i * 1_000_000L;
+    }
+
+    private static List<String> ids(int from, int to, int step) {
+        List<String> ids = new ArrayList<>();
+        for (int i = from; i < to; i += step) {
+            ids.add("event-" + i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.journal;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfJournalTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysAppendedEventsAcrossSegments() throws IOException {
+        List<Long> positions = new ArrayList<>();
+        try (CadfJournal journal = journal()) {
+            for (int i = 0; i < 300; i++) {
+                positions.add(journal.append(CadfTestEvents.full("maestro2:" + i)));
+            }
+        }
+
+        assertTrue(JournalSegment.list(directory).size() > 1, "journal did not roll over");
+        for (int i = 1; i < positions.size(); i++) {
+            assertTrue(positions.get(i) > positions.get(i - 1));
+        }
+        assertEquals(ids(0, 300), replay());
+    }
+
+    @Test
+    void continuesAfterReopening() throws IOException {
+        try (CadfJournal journal = journal()) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(CadfTestEvents.full("maestro2:" + i));
+            }
+        }
+        try (CadfJournal journal = journal()) {
+            for (int i = 10; i < 20; i++) {
+                journal.append(CadfTestEvents.full("maestro2:" + i));
+            }
+        }
+
+        assertEquals(ids(0, 20), replay());
+    }
+
+    @Test
+    void dropsARecordTornByACrash() throws IOException {
+        try (CadfJournal journal = journal()) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(CadfTestEvents.full("maestro2:" + i));
+            }
+        }
+        Path path = JournalSegment.list(directory).get(0);
+        int end;
+        try (JournalSegment segment = JournalSegment.open(path, false)) {
+            end = segment.scanEnd();
+        }
+        // length and part of a payload, the CRC does not match
+        writeAt(path, end, ByteBuffer.allocate(64).putInt(500).putInt(42).put(new byte[]{1, 2, 3}).flip());
+
+        try (CadfJournal journal = journal()) {
+            journal.append(CadfTestEvents.full("maestro2:5"));
+        }
+
+        assertEquals(ids(0, 6), replay());
+    }
+
+    @Test
+    void clearsOnlyTheTornRecord() throws IOException {
+        try (JournalSegment segment = JournalSegment.create(directory, 0, SEGMENT_SIZE, System.currentTimeMillis())) {
+            byte[] payload = {1, 2, 3, 4};
+            segment.write(JournalSegment.HEADER_SIZE, payload, payload.length, 7);
+        }
+        Path path = directory.resolve(JournalSegment.fileName(0));
+        int torn = JournalSegment.HEADER_SIZE + JournalSegment.RECORD_HEADER_SIZE + 4;
+        writeAt(path, torn, ByteBuffer.allocate(12).putInt(4).putInt(9).putInt(-1).flip());
+        writeAt(path, SEGMENT_SIZE - 1, ByteBuffer.wrap(new byte[]{5}));
+
+        try (JournalSegment segment = JournalSegment.open(path, true)) {
+            segment.clearTorn(torn);
+        }
+
+        ByteBuffer content = ByteBuffer.allocate(SEGMENT_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.read(content, 0);
+        }
+        assertEquals(4, content.getInt(JournalSegment.HEADER_SIZE));
+        for (int offset = torn; offset < torn + 12; offset++) {
+            assertEquals(0, content.get(offset), "offset " + offset);
+        }
+        assertEquals(5, content.get(SEGMENT_SIZE - 1));
+    }
+
+    private CadfJournal journal() throws IOException {
+        return CadfJournal.builder(directory).withSegmentSize(SEGMENT_SIZE).build();
+    }
+
+    private List<String> replay() throws IOException {
+        List<String> ids = new ArrayList<>();
+        try (CadfJournalReader reader = CadfJournalReader.open(directory)) {
+            for (CadfAuditEvent event; (event = reader.next()) != null; ) {
+                ids.add(event.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static List<String> ids(int from, int to) {
+        List<String> ids = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            ids.add("maestro2:" + i);
+        }
+        return ids;
+    }
+
+    private static void writeAt(Path path, long position, ByteBuffer bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(bytes, position);
+        }
+    }
+}
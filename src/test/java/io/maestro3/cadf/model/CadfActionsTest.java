@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import io.maestro3.cadf.ICadfAction;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CadfActionsTest {
+
+    @Test
+    void listsActionsInDeclarationOrder() {
+        List<ICadfAction> values = CadfActions.values();
+
+        assertEquals(Arrays.asList(CadfActions.onboard(), CadfActions.onboard().azure(), CadfActions.security(),
+            CadfActions.security().unauthorized()), values.subList(0, 4));
+        assertSame(CadfActions.scan(), values.get(values.size() - 1));
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i, values.get(i).getOrdinal(), values.get(i).getRelativeUri());
+        }
+        assertThrows(UnsupportedOperationException.class, () -> values.add(CadfActions.create()));
+    }
+
+    @Test
+    void findsActionsByOrdinalWithinBounds() {
+        List<ICadfAction> values = CadfActions.values();
+        for (ICadfAction action : values) {
+            assertSame(action, CadfActions.byOrdinal(action.getOrdinal()));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> CadfActions.byOrdinal(-1));
+        assertThrows(IllegalArgumentException.class, () -> CadfActions.byOrdinal(values.size()));
+    }
+
+    @Test
+    void handsOutCanonicalSingletons() {
+        assertSame(CadfActions.create(), CadfActions.create());
+        assertSame(CadfActions.update().size(), CadfActions.update().size());
+        assertSame(CadfActions.monitor().start(), CadfActions.monitor().start());
+        assertSame(CadfActions.terminated().instance(), CadfActions.terminated().instance());
+        assertSame(CadfActions.command().reboot(), CadfActions.command().reboot());
+        assertSame(CadfActions.security().unauthorized().networkChange(),
+            CadfActions.security().unauthorized().networkChange());
+        assertSame(CadfActions.move().to(), CadfActions.move().to());
+
+        for (ICadfAction action : CadfActions.values()) {
+            assertSame(action, CadfActions.byRelativeURI(action.getRelativeUri()));
+        }
+    }
+
+    @Test
+    void resolvesLegacyAliases() {
+        assertSame(CadfActions.monitor(), CadfActions.byRelativeURI("monitor"));
+        assertSame(CadfActions.monitor().start(), CadfActions.byRelativeURI("monitor/start"));
+        assertSame(CadfActions.monitor().stop(), CadfActions.byRelativeURI("monitor/stop"));
+        assertSame(CadfActions.monitor().update(), CadfActions.byRelativeURI("monitor/update"));
+        assertSame(CadfActions.monitor().instance(), CadfActions.byRelativeURI("monitor/instance"));
+        assertSame(CadfActions.monitor().hardware(), CadfActions.byRelativeURI("monitor/hardware"));
+        assertSame(CadfActions.monitor().volume(), CadfActions.byRelativeURI("monitor/volume"));
+        assertSame(CadfActions.monitor().checkpoint(), CadfActions.byRelativeURI("monitor/checkpoint"));
+        assertSame(CadfActions.terminated(), CadfActions.byRelativeURI("terminated"));
+        assertSame(CadfActions.terminated().instance(), CadfActions.byRelativeURI("terminated/instance"));
+        assertSame(CadfActions.terminated().hardware(), CadfActions.byRelativeURI("terminated/hardware"));
+
+        assertEquals("capture/checkpoint", CadfActions.byRelativeURI("monitor/checkpoint").getRelativeUri());
+        assertEquals("terminate", CadfActions.byRelativeURI("terminated").getRelativeUri());
+    }
+
+    @Test
+    void rejectsUnknownUris() {
+        assertThrows(UnsupportedOperationException.class, () -> CadfActions.byRelativeURI("monitor/unknown"));
+        assertThrows(IllegalArgumentException.class, () -> CadfActions.byRelativeURI(null));
+    }
+}
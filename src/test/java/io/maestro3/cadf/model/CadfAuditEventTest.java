@@ -0,0 +1,163 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.util.CadfIdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfAuditEventTest {
+
+    @Test
+    void keepsEventTimeAsStringAndNanos() {
+        CadfAuditEvent event = CadfTestEvents.minimal("maestro2:1");
+
+        assertEquals(CadfTestEvents.EVENT_TIME, event.getEventTime());
+        assertEquals(Instant.parse("2001-07-04T12:08:56.235Z").toEpochMilli() * 1_000_000L, event.eventTimeNanos());
+    }
+
+    @Test
+    void parsesNanosOfEventTimeSetDirectly() {
+        CadfAuditEvent event = new CadfAuditEvent("maestro2:1");
+
+        assertEquals(CadfAuditEvent.NO_EVENT_TIME, event.eventTimeNanos());
+
+        // as reflective mappers do
+        event.eventTime = "1970-01-01T00:00:01.000+00:00";
+
+        assertEquals(1_000_000_000L, event.eventTimeNanos());
+    }
+
+    @Test
+    void exposesEventTimeToMappersAsStringOnly() throws Exception {
+        for (PropertyDescriptor property : Introspector.getBeanInfo(CadfAuditEvent.class).getPropertyDescriptors()) {
+            assertFalse(property.getName().startsWith("eventTimeNanos"), property.getName());
+            if (property.getName().equals("eventTime")) {
+                assertEquals(String.class, property.getPropertyType());
+            }
+        }
+        for (Field field : CadfAuditEvent.class.getDeclaredFields()) {
+            if (field.getName().startsWith("eventTime") && !Modifier.isTransient(field.getModifiers())) {
+                assertEquals(String.class, field.getType(), field.getName());
+            }
+        }
+    }
+
+    @Test
+    void rendersEventTimeInUtc() {
+        CadfAuditEvent event = CadfAuditEvent.builder()
+            .withId("maestro2:1")
+            .withEventType(CadfEventType.ACTIVITY)
+            .withEventTime("2001-07-04T12:08:56.235-07:00")
+            .withAction(CadfActions.create())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource("observer"))
+            .build();
+
+        assertEquals("2001-07-04T19:08:56.235+00:00", event.getEventTime());
+    }
+
+    @Test
+    void rendersEventTimeOnFirstUse() {
+        CadfAuditEvent event = CadfTestEvents.minimal("maestro2:1");
+
+        assertNull(event.eventTime);
+        assertEquals(CadfTestEvents.EVENT_TIME, event.getEventTime());
+        assertSame(event.getEventTime(), event.getEventTime());
+    }
+
+    @Test
+    void normalizesEventTimeOnlyIfNotCanonical() {
+        assertEquals(CadfTestEvents.EVENT_TIME, eventAt(CadfTestEvents.EVENT_TIME).getEventTime());
+        assertEquals("2001-07-04T12:08:56.000+00:00", eventAt("2001-07-04T12:08:56Z").getEventTime());
+        assertEquals("2001-07-04T12:08:56.235+00:00", eventAt("2001-07-04T14:08:56.235+0200").getEventTime());
+        assertEquals("2001-07-04T12:08:56.235100+00:00", eventAt("2001-07-04T12:08:56.2351Z").getEventTime());
+    }
+
+    @Test
+    void requiresEventTime() {
+        CadfAuditEvent.Builder builder = CadfAuditEvent.builder()
+            .withId("maestro2:1")
+            .withEventType(CadfEventType.ACTIVITY)
+            .withAction(CadfActions.create())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource("observer"));
+
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    @Test
+    void generatesIdWhenNotSet() {
+        CadfAuditEvent event = withoutId()
+            .withIdGenerator(CadfIdGenerator.builder().withPrefix("maestro2:").build())
+            .build();
+
+        assertTrue(event.getId().startsWith("maestro2:"), event.getId());
+        assertEquals("maestro2:".length() + 36, event.getId().length());
+    }
+
+    @Test
+    void requiresIdWithoutIdGenerator() {
+        assertThrows(IllegalArgumentException.class, () -> withoutId().withoutIdGenerator().build());
+        assertEquals("maestro2:1", withoutId().withoutIdGenerator().withId("maestro2:1").build().getId());
+    }
+
+    @Test
+    void buildsIndependentEventsWithOneBuilder() {
+        CadfAuditEvent.Builder builder = withoutId().withId("maestro2:1");
+        CadfAuditEvent first = builder.build();
+        CadfAuditEvent second = builder.withId("maestro2:2").withSeverity("low").build();
+
+        assertEquals("maestro2:1", first.getId());
+        assertEquals("maestro2:2", second.getId());
+        assertEquals("low", second.getSeverity());
+        assertNull(first.getSeverity());
+        assertThrows(IllegalArgumentException.class, () -> builder.reset().build());
+    }
+
+    private static CadfAuditEvent.Builder withoutId() {
+        return CadfAuditEvent.builder()
+            .withEventType(CadfEventType.ACTIVITY)
+            .withEventTime(CadfTestEvents.EVENT_TIME)
+            .withAction(CadfActions.create())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target"))
+            .withObserver(CadfTestEvents.resource("observer"));
+    }
+
+    private static CadfAuditEvent eventAt(String eventTime) {
+        return withoutId().withId("maestro2:1").withEventTime(eventTime).build();
+    }
+}
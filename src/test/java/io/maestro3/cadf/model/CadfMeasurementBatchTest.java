@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import io.maestro3.cadf.CadfTestEvents;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfMeasurementBatchTest {
+
+    @Test
+    void keepsPrimitiveEntriesUnboxed() {
+        CadfResource calculatedBy = CadfTestEvents.resource("agent");
+        CadfMeasurementBatch batch = new CadfMeasurementBatch(0)
+            .addLong("count", 42)
+            .addDouble("cpu", 0.5, "agent", calculatedBy);
+
+        assertTrue(batch.isLong(0));
+        assertTrue(batch.isDouble(1));
+        assertEquals(42, batch.getLong(0));
+        assertEquals(0.5, batch.getDouble(1));
+        assertEquals("cpu", batch.getMetricId(1));
+        assertEquals("agent", batch.getCalculatedById(1));
+        assertSame(calculatedBy, batch.getCalculatedBy(1));
+        assertThrows(IllegalStateException.class, () -> batch.getDouble(0));
+        assertThrows(IllegalStateException.class, () -> batch.getLong(1));
+    }
+
+    @Test
+    void createsSnapshotsOfPrimitiveEntries() {
+        CadfMeasurementBatch batch = new CadfMeasurementBatch().addLong("count", 42).addDouble("cpu", 0.5);
+
+        CadfLongMeasurement count = assertInstanceOf(CadfLongMeasurement.class, batch.get(0));
+        assertEquals(42L, count.getResult());
+        assertEquals("count", count.getMetricId());
+        assertEquals(0.5, batch.get(1).getResult());
+
+        count.setResult(7L);
+        assertEquals(42, batch.getLong(0));
+        batch.set(0, count);
+        assertEquals(7, batch.getLong(0));
+    }
+
+    @Test
+    void keepsOtherMeasurementsAsTheyAre() {
+        CadfMetric metric = new CadfMetric();
+        metric.setMetricId("metric-1");
+        metric.setUnit("ms");
+        CadfMeasurement<Long> withMetric = CadfMeasurement.<Long>builder().withResult(1L).withMetric(metric).build();
+        CadfMeasurement<String> text = CadfMeasurement.<String>builder().withResult("ok").withMetricId("state").build();
+        CadfMeasurementBatch batch = new CadfMeasurementBatch();
+        batch.addAll(Arrays.asList(withMetric, text, new CadfLongMeasurement("count", 3)));
+
+        assertSame(withMetric, batch.get(0));
+        assertSame(text, batch.get(1));
+        assertEquals("state", batch.getMetricId(1));
+        assertFalse(batch.isLong(1));
+        assertTrue(batch.isLong(2));
+    }
+
+    @Test
+    void growsAndShiftsLikeAList() {
+        CadfMeasurementBatch batch = new CadfMeasurementBatch(1);
+        for (int i = 0; i < 20; i++) {
+            batch.addLong("m" + i, i);
+        }
+        batch.add(0, new CadfDoubleMeasurement("first", 1.5));
+        batch.remove(10);
+
+        assertEquals(20, batch.size());
+        assertEquals(1.5, batch.getDouble(0));
+        assertEquals(8, batch.getLong(9));
+        assertEquals(10, batch.getLong(10));
+        assertEquals("m19", batch.getMetricId(19));
+
+        batch.clear();
+        assertTrue(batch.isEmpty());
+    }
+
+    @Test
+    void requiresMetricIdOfPrimitiveMeasurements() {
+        assertThrows(IllegalArgumentException.class, () -> new CadfLongMeasurement("", 1));
+        assertThrows(IllegalArgumentException.class, () -> new CadfDoubleMeasurement(null, 1));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import io.maestro3.cadf.CadfTestEvents;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfResourceCacheTest {
+
+    @Test
+    void returnsTheCanonicalInstance() {
+        CadfResourceCache cache = CadfResourceCache.create(16);
+        CadfResource first = cache.intern(CadfTestEvents.resource("vm-1"));
+
+        assertSame(first, cache.intern(CadfTestEvents.resource("vm-1")));
+        assertSame(first, CadfResource.builder()
+            .withId("vm-1")
+            .ofType(CadfResourceTypes.compute().machine().vm())
+            .withName("name of vm-1")
+            .buildInterned(cache));
+        assertNull(cache.intern(null));
+    }
+
+    @Test
+    void keepsMostResourcesOfAHalfFullCache() {
+        CadfResourceCache cache = CadfResourceCache.create(1 << 18);
+        List<CadfResource> interned = new ArrayList<>();
+        for (int i = 0; i < cache.capacity() / 2; i++) {
+            interned.add(cache.intern(CadfTestEvents.resource("vm-" + i)));
+        }
+
+        int hits = 0;
+        for (int i = 0; i < interned.size(); i++) {
+            if (cache.intern(CadfTestEvents.resource("vm-" + i)) == interned.get(i)) {
+                hits++;
+            }
+        }
+        assertTrue(hits > interned.size() * 4 / 5, hits + " of " + interned.size());
+    }
+
+    @Test
+    void rejectsModificationOfInternedResources() {
+        CadfResource resource = CadfTestEvents.resource("vm-1");
+        assertFalse(resource.isInterned());
+        resource.setName("renamed");
+
+        CadfResource interned = CadfResourceCache.create(16).intern(resource);
+
+        assertTrue(interned.isInterned());
+        assertThrows(UnsupportedOperationException.class, () -> interned.setName("other"));
+        assertThrows(UnsupportedOperationException.class, () -> interned.setCredential(new CadfCredential<>()));
+        assertEquals("renamed", interned.getName());
+    }
+
+    @Test
+    void sharesAttachmentsUnmodifiably() {
+        CadfResource resource = CadfResource.builder()
+            .withId("vm-1")
+            .ofType(CadfResourceTypes.compute().machine().vm())
+            .withAttachments(CadfAttachment.ofResource(CadfTestEvents.resource("disk-1")))
+            .buildInterned(CadfResourceCache.create(16));
+
+        assertThrows(UnsupportedOperationException.class, () -> resource.getAttachments().set(0, null));
+    }
+
+    @Test
+    void clearsAllSlots() {
+        CadfResourceCache cache = CadfResourceCache.create(3);
+        CadfResource first = cache.intern(CadfTestEvents.resource("vm-1"));
+        cache.clear();
+
+        assertEquals(4, cache.capacity());
+        assertFalse(first == cache.intern(CadfTestEvents.resource("vm-1")));
+    }
+}
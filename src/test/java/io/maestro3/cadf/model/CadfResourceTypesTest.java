@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import io.maestro3.cadf.ICadfResourceType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfResourceTypesTest {
+
+    @Test
+    void numbersTypesInPreOrder() {
+        List<ICadfResourceType> values = CadfResourceTypes.values();
+
+        assertEquals(Arrays.asList(CadfResourceTypes.unknown(), CadfResourceTypes.system(),
+            CadfResourceTypes.privateAgent(), CadfResourceTypes.compute(), CadfResourceTypes.compute().machine(),
+            CadfResourceTypes.compute().machine().vm(), CadfResourceTypes.compute().machine().hw(),
+            CadfResourceTypes.storage()), values.subList(0, 8));
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i, values.get(i).getOrdinal(), values.get(i).getRelativeUri());
+            assertSame(values.get(i), CadfResourceTypes.byOrdinal(i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> CadfResourceTypes.byOrdinal(-1));
+        assertThrows(IllegalArgumentException.class, () -> CadfResourceTypes.byOrdinal(values.size()));
+    }
+
+    @Test
+    void coversExactlyTheSubtreeWithDescendantRange() {
+        CadfResourceType machine = CadfResourceTypes.compute().machine();
+        assertEquals(CadfResourceTypes.compute().machine().hw().getOrdinal(), machine.getLastDescendantOrdinal());
+        assertEquals(CadfResourceTypes.storage().getOrdinal() - 1,
+            CadfResourceTypes.compute().getLastDescendantOrdinal());
+
+        for (ICadfResourceType ancestor : CadfResourceTypes.values()) {
+            int last = ((CadfResourceType) ancestor).getLastDescendantOrdinal();
+            for (ICadfResourceType type : CadfResourceTypes.values()) {
+                boolean inSubtree = type.getRelativeUri().equals(ancestor.getRelativeUri())
+                    || type.getRelativeUri().startsWith(ancestor.getRelativeUri() + "/");
+                boolean inRange = ancestor.getOrdinal() <= type.getOrdinal() && type.getOrdinal() <= last;
+                assertEquals(inSubtree, inRange, type.getRelativeUri() + " in " + ancestor.getRelativeUri());
+                assertEquals(inSubtree, CadfResourceTypes.isDescendantOf(type, ancestor));
+            }
+        }
+    }
+
+    @Test
+    void comparesAdHocTypesByUriPrefix() {
+        ICadfResourceType vm = new CadfResourceType("compute/machine/vm");
+
+        assertTrue(CadfResourceTypes.isDescendantOf(vm, CadfResourceTypes.compute()));
+        assertTrue(CadfResourceTypes.isDescendantOf(vm, new CadfResourceType("compute")));
+        assertFalse(CadfResourceTypes.isDescendantOf(new CadfResourceType("computer"), CadfResourceTypes.compute()));
+    }
+
+    @Test
+    void resolvesCanonicalTypesByUri() {
+        for (ICadfResourceType type : CadfResourceTypes.values()) {
+            assertSame(type, CadfResourceTypes.byRelativeURI(type.getRelativeUri()));
+            assertSame(type, CadfResourceTypes.byRelativeURI(CadfResource.FULL_ROOT_URI + "/" + type.getRelativeUri()));
+        }
+        assertSame(CadfResourceTypes.data().security().iam().user(),
+            CadfResourceTypes.byRelativeURI("data/security/iam/user"));
+        assertSame(CadfResourceTypes.service().bss().scope().project(),
+            CadfResourceTypes.byRelativeURI("service/bss/scope/project"));
+    }
+
+    @Test
+    void requiresSeparatorAfterRootUri() {
+        assertNull(CadfResourceTypes.findByRelativeURI(CadfResource.FULL_ROOT_URI + "compute"));
+        assertNull(CadfResourceTypes.findByRelativeURI(CadfResource.FULL_ROOT_URI));
+        assertNull(CadfResourceTypes.findByRelativeURI(CadfResource.FULL_ROOT_URI + "/"));
+        assertThrows(UnsupportedOperationException.class,
+            () -> CadfResourceTypes.byRelativeURI(CadfResource.FULL_ROOT_URI + "compute"));
+    }
+
+    @Test
+    void rejectsUrisOutsideOfTheTaxonomy() {
+        assertNull(CadfResourceTypes.findByRelativeURI(""));
+        assertNull(CadfResourceTypes.findByRelativeURI("computer"));
+        assertNull(CadfResourceTypes.findByRelativeURI("compute/machine/cpu"));
+        assertNull(CadfResourceTypes.findByRelativeURI("compute//machine"));
+        assertThrows(UnsupportedOperationException.class, () -> CadfResourceTypes.byRelativeURI("compute/cpu"));
+        assertThrows(IllegalArgumentException.class, () -> CadfResourceTypes.findByRelativeURI(null));
+    }
+
+    @Test
+    void createsRecursivePathsBelowTheTaxonomyOnEveryCall() {
+        CadfResourceTypes.CadfResourceData.CadfTemplateData stack = CadfResourceTypes.data().template().stack();
+        assertSame(stack, CadfResourceTypes.data().template().stack());
+
+        ICadfResourceType nested = stack.stack();
+        assertNotSame(nested, stack.stack());
+        assertEquals("data/template/stack/stack", nested.getRelativeUri());
+        assertEquals(-1, nested.getOrdinal());
+        assertNull(CadfResourceTypes.findByRelativeURI(nested.getRelativeUri()));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfTagCacheTest {
+
+    @Test
+    void returnsTheCanonicalInstance() {
+        CadfTagCache cache = CadfTagCache.create(16);
+        CadfTag first = cache.intern(tag("tenant", "t1"));
+
+        assertSame(first, cache.intern(tag("tenant", "t1")));
+        assertSame(first, cache.intern("tenant", "t1"));
+        assertSame(first, CadfTag.builder().withName("tenant").withValue("t1").buildInterned(cache));
+        assertNotSame(first, cache.intern("tenant", "t2"));
+        assertNull(cache.intern(null));
+    }
+
+    @Test
+    void keepsMostTagsOfAHalfFullCache() {
+        CadfTagCache cache = CadfTagCache.create(1 << 18);
+        List<CadfTag> interned = new ArrayList<>();
+        for (int i = 0; i < cache.capacity() / 2; i++) {
+            interned.add(cache.intern("tenant", "t" + i));
+        }
+
+        int hits = 0;
+        for (int i = 0; i < interned.size(); i++) {
+            if (cache.intern("tenant", "t" + i) == interned.get(i)) {
+                hits++;
+            }
+        }
+        assertTrue(hits > interned.size() * 4 / 5, hits + " of " + interned.size());
+    }
+
+    @Test
+    void rejectsModificationOfInternedTags() {
+        CadfTag tag = tag("tenant", "t1");
+        assertFalse(tag.isInterned());
+        tag.setValue("t2");
+
+        CadfTag interned = CadfTagCache.create(16).intern(tag);
+        CadfTag created = CadfTagCache.create(16).intern("route", "r1");
+
+        assertTrue(interned.isInterned());
+        assertTrue(created.isInterned());
+        assertThrows(UnsupportedOperationException.class, () -> interned.setName("other"));
+        assertThrows(UnsupportedOperationException.class, () -> created.setValue("other"));
+        assertEquals("tenant?value=t2", interned.get());
+        assertEquals("route?value=r1", created.get());
+    }
+
+    @Test
+    void clearsAllSlots() {
+        CadfTagCache cache = CadfTagCache.create(3);
+        CadfTag first = cache.intern("tenant", "t1");
+        cache.clear();
+
+        assertEquals(4, cache.capacity());
+        assertNotSame(first, cache.intern("tenant", "t1"));
+        assertThrows(IllegalArgumentException.class, () -> CadfTagCache.create(1));
+    }
+
+    private static CadfTag tag(String name, String value) {
+        return CadfTag.builder().withName(name).withValue(value).build();
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.publisher;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfEventPublisherTest {
+
+    @Test
+    void roundsCapacityUpToAWorkingRing() {
+        // the drain holds the first event in the sink, the ring then takes as many events as its capacity
+        assertEquals(2, bufferedWhileSinkIsBusy(1));
+        assertEquals(2, bufferedWhileSinkIsBusy(2));
+        assertEquals(4, bufferedWhileSinkIsBusy(3));
+        assertThrows(IllegalArgumentException.class, () -> CadfEventPublisher.builder().withCapacity(0));
+    }
+
+    @Test
+    void dropsTheNewestEventOfAFullRing() throws InterruptedException {
+        RecordingSink sink = new RecordingSink(true);
+        CadfEventPublisher publisher = publisher(sink, CadfOverflowPolicy.DROP_NEWEST);
+        fillWhileSinkIsBusy(publisher, sink);
+
+        assertFalse(publisher.publish(event(3)));
+        sink.release();
+        publisher.close();
+
+        assertEquals(ids(0, 1, 2), sink.ids());
+        assertEquals(1, publisher.getDroppedCount());
+    }
+
+    @Test
+    void dropsTheOldestEventOfAFullRing() throws InterruptedException {
+        RecordingSink sink = new RecordingSink(true);
+        CadfEventPublisher publisher = publisher(sink, CadfOverflowPolicy.DROP_OLDEST);
+        fillWhileSinkIsBusy(publisher, sink);
+
+        assertTrue(publisher.publish(event(3)));
+        sink.release();
+        publisher.close();
+
+        assertEquals(ids(0, 2, 3), sink.ids());
+        assertEquals(1, publisher.getDroppedCount());
+        assertEquals(4, publisher.getEnqueuedCount());
+    }
+
+    @Test
+    void blocksUntilTheDrainMakesRoom() throws InterruptedException {
+        RecordingSink sink = new RecordingSink(true);
+        CadfEventPublisher publisher = publisher(sink, CadfOverflowPolicy.BLOCK);
+        fillWhileSinkIsBusy(publisher, sink);
+
+        AtomicBoolean published = new AtomicBoolean();
+        Thread producer = new Thread(() -> published.set(publisher.publish(event(3))));
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive());
+
+        sink.release();
+        producer.join();
+        publisher.close();
+
+        assertTrue(published.get());
+        assertEquals(ids(0, 1, 2, 3), sink.ids());
+        assertEquals(0, publisher.getDroppedCount());
+    }
+
+    @Test
+    void runsTheSinkOnTheCallerWithoutOverlappingTheDrain() throws InterruptedException {
+        RecordingSink sink = new RecordingSink(true);
+        CadfEventPublisher publisher = publisher(sink, CadfOverflowPolicy.CALLER_RUNS);
+        fillWhileSinkIsBusy(publisher, sink);
+
+        Thread producer = new Thread(() -> publisher.publish(event(3)));
+        producer.start();
+        producer.join(200);
+        // the drain is still in the sink, the caller waits for it
+        assertTrue(producer.isAlive());
+
+        sink.release();
+        producer.join();
+        publisher.close();
+
+        assertEquals(new HashSet<>(ids(0, 1, 2, 3)), new HashSet<>(sink.ids()));
+        assertEquals(1, sink.maxConcurrency.get());
+        assertEquals(0, publisher.getDroppedCount());
+    }
+
+    @Test
+    void deliversEveryEventOfConcurrentProducersInOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 10_000;
+        RecordingSink sink = new RecordingSink(false);
+        CadfEventPublisher publisher = CadfEventPublisher.builder()
+            .withSink(sink)
+            .withCapacity(64)
+            .withBatchSize(100)
+            .withLinger(Duration.ofMillis(1))
+            .build();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String prefix = "p" + p + "-";
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    publisher.publish(CadfTestEvents.minimal(prefix + i));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        publisher.close();
+
+        List<String> ids = sink.ids();
+        assertEquals(producers * perProducer, ids.size());
+        int[] next = new int[producers];
+        for (String id : ids) {
+            String[] parts = id.substring(1).split("-");
+            int producer = Integer.parseInt(parts[0]);
+            assertEquals(next[producer]++, Integer.parseInt(parts[1]), id);
+        }
+        assertEquals(producers * perProducer, publisher.getFlushedCount());
+        assertEquals(0, publisher.getDroppedCount());
+        assertEquals(1, sink.maxConcurrency.get());
+    }
+
+    @Test
+    void flushesPendingEventsOnClose() {
+        RecordingSink sink = new RecordingSink(false);
+        // neither the batch size nor the linger would flush these events before close
+        CadfEventPublisher publisher = CadfEventPublisher.builder()
+            .withSink(sink)
+            .withBatchSize(1000)
+            .withLinger(Duration.ofHours(1))
+            .build();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(publisher.publish(event(i)));
+        }
+
+        publisher.close();
+        publisher.close();
+
+        assertEquals(ids(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), sink.ids());
+        assertEquals(0, publisher.getPendingCount());
+        assertFalse(publisher.publish(event(10)));
+        assertEquals(1, publisher.getDroppedCount());
+        assertEquals(10, sink.ids().size());
+    }
+
+    @Test
+    void reportsFailedBatchesAndKeepsDraining() {
+        List<List<CadfAuditEvent>> failures = new ArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        CadfEventPublisher publisher = CadfEventPublisher.builder()
+            .withSink(events -> {
+                if (calls.getAndIncrement() == 0) {
+                    throw new IllegalStateException("broker down");
+                }
+            })
+            .withBatchSize(1)
+            .withErrorHandler((events, e) -> failures.add(new ArrayList<>(events)))
+            .build();
+        publisher.publish(event(0));
+        publisher.publish(event(1));
+        publisher.close();
+
+        assertEquals(1, failures.size());
+        assertEquals(1, publisher.getFailedCount());
+        assertEquals(1, publisher.getFlushedCount());
+    }
+
+    private static int bufferedWhileSinkIsBusy(int capacity) {
+        RecordingSink sink = new RecordingSink(true);
+        CadfEventPublisher publisher = CadfEventPublisher.builder()
+            .withSink(sink)
+            .withCapacity(capacity)
+            .withBatchSize(1)
+            .withOverflowPolicy(CadfOverflowPolicy.DROP_NEWEST)
+            .build();
+        try {
+            publisher.publish(event(0));
+            sink.awaitEntered();
+            int buffered = 0;
+            while (publisher.publish(event(buffered + 1))) {
+                buffered++;
+            }
+            return buffered;
+        } finally {
+            sink.release();
+            publisher.close();
+        }
+    }
+
+    /**
+     * Leaves event 0 in the blocked sink and events 1 and 2 in the ring of capacity 2.
+     */
+    private static void fillWhileSinkIsBusy(CadfEventPublisher publisher, RecordingSink sink) {
+        assertTrue(publisher.publish(event(0)));
+        sink.awaitEntered();
+        assertTrue(publisher.publish(event(1)));
+        assertTrue(publisher.publish(event(2)));
+        assertEquals(2, publisher.getPendingCount());
+    }
+
+    private static CadfEventPublisher publisher(RecordingSink sink, CadfOverflowPolicy overflowPolicy) {
+        return CadfEventPublisher.builder()
+            .withSink(sink)
+            .withCapacity(2)
+            .withBatchSize(1)
+            .withOverflowPolicy(overflowPolicy)
+            .build();
+    }
+
+    private static CadfAuditEvent event(int i) {
+        return CadfTestEvents.minimal("maestro2:" + i);
+    }
+
+    private static List<String> ids(int... numbers) {
+        List<String> ids = new ArrayList<>();
+        for (int number : numbers) {
+            ids.add("maestro2:" + number);
+        }
+        return ids;
+    }
+
+    /**
+     * Records the ids it receives and the most threads it saw inside at once. A blocking sink holds its first batch
+     * until released.
+     */
+    private static final class RecordingSink implements ICadfEventSink {
+
+        private final List<String> ids = new ArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch released;
+        private final AtomicInteger inside = new AtomicInteger();
+        private final AtomicInteger maxConcurrency = new AtomicInteger();
+
+        private RecordingSink(boolean blocking) {
+            this.released = new CountDownLatch(blocking ? 1 : 0);
+        }
+
+        @Override
+        public void publish(List<CadfAuditEvent> events) {
+            maxConcurrency.accumulateAndGet(inside.incrementAndGet(), Math::max);
+            try {
+                entered.countDown();
+                await(released);
+                synchronized (ids) {
+                    for (CadfAuditEvent event : events) {
+                        ids.add(event.getId());
+                    }
+                }
+            } finally {
+                inside.decrementAndGet();
+            }
+        }
+
+        private void awaitEntered() {
+            await(entered);
+        }
+
+        private void release() {
+            released.countDown();
+        }
+
+        private List<String> ids() {
+            synchronized (ids) {
+                return new ArrayList<>(ids);
+            }
+        }
+
+        private static void await(CountDownLatch latch) {
+            try {
+                assertTrue(latch.await(10, TimeUnit.SECONDS), "timed out");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
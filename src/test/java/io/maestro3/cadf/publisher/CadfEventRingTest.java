@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.publisher;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfEventRingTest {
+
+    @Test
+    void rejectsCapacitiesItCanNotWorkWith() {
+        assertThrows(IllegalArgumentException.class, () -> new CadfEventRing(0));
+        assertThrows(IllegalArgumentException.class, () -> new CadfEventRing(1));
+        assertThrows(IllegalArgumentException.class, () -> new CadfEventRing(3));
+        assertEquals(2, new CadfEventRing(2).capacity());
+    }
+
+    @Test
+    void holdsUpToItsCapacity() {
+        CadfEventRing ring = new CadfEventRing(2);
+        CadfAuditEvent first = CadfTestEvents.minimal("maestro2:1");
+        CadfAuditEvent second = CadfTestEvents.minimal("maestro2:2");
+
+        assertTrue(ring.offer(first));
+        assertTrue(ring.offer(second));
+        assertFalse(ring.offer(CadfTestEvents.minimal("maestro2:3")));
+        assertEquals(2, ring.size());
+
+        assertSame(first, ring.poll());
+        assertSame(second, ring.poll());
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void keepsOrderAcrossWrapArounds() {
+        CadfEventRing ring = new CadfEventRing(4);
+        List<CadfAuditEvent> events = events("e", 3);
+        for (int round = 0; round < 100; round++) {
+            for (CadfAuditEvent event : events) {
+                assertTrue(ring.offer(event));
+            }
+            for (CadfAuditEvent event : events) {
+                assertSame(event, ring.poll());
+            }
+        }
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void losesNothingUnderConcurrentProducersAndConsumers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+        CadfEventRing ring = new CadfEventRing(64);
+        List<List<CadfAuditEvent>> published = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            List<CadfAuditEvent> events = events("p" + p + "-", perProducer);
+            published.add(events);
+            threads.add(new Thread(() -> {
+                for (CadfAuditEvent event : events) {
+                    while (!ring.offer(event)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+        // two consumers, each checks the events of a producer come in publishing order
+        AtomicInteger polled = new AtomicInteger();
+        List<String> errors = new ArrayList<>();
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                int[] last = new int[producers];
+                Arrays.fill(last, -1);
+                while (polled.get() < producers * perProducer) {
+                    CadfAuditEvent event = ring.poll();
+                    if (event == null) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    polled.incrementAndGet();
+                    String[] parts = event.getId().substring(1).split("-");
+                    int producer = Integer.parseInt(parts[0]);
+                    int sequence = Integer.parseInt(parts[1]);
+                    if (sequence <= last[producer]) {
+                        synchronized (errors) {
+                            errors.add(event.getId() + " after p" + producer + "-" + last[producer]);
+                        }
+                    }
+                    last[producer] = sequence;
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(producers * perProducer, polled.get());
+        assertEquals(List.of(), errors);
+        assertNull(ring.poll());
+    }
+
+    private static List<CadfAuditEvent> events(String prefix, int count) {
+        List<CadfAuditEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(CadfTestEvents.minimal(prefix + i));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.sampling;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.ICadfOutcome;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfMeasurementBatch;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfTag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfEventSamplerTest {
+
+    @Test
+    void passesEventsOutOfScope() {
+        CadfEventSampler sampler = CadfEventSampler.builder().withProbability(0.001).withTokenBucket(1, 1).build();
+        CadfAuditEvent event = CadfTestEvents.minimal("maestro2:1");
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sampler.sample(event));
+        }
+        assertNull(event.getTags());
+        assertEquals(0, sampler.getKeptCount() + sampler.getDroppedCount());
+    }
+
+    @Test
+    void alwaysKeepsFailures() {
+        CadfEventSampler sampler = CadfEventSampler.builder().withProbability(0.001).build();
+
+        for (int i = 0; i < 100; i++) {
+            CadfAuditEvent event = monitor("cpu", "vm-1", CadfOutcomes.failure());
+            assertTrue(sampler.sample(event));
+            assertNull(event.getTags());
+        }
+        assertEquals(100, sampler.getAlwaysKeptCount());
+    }
+
+    @Test
+    void keepsTheConfiguredFractionAndTagsItsRate() {
+        CadfEventSampler sampler = CadfEventSampler.builder().withProbability(0.25).build();
+
+        int kept = 0;
+        for (int i = 0; i < 20_000; i++) {
+            CadfAuditEvent event = monitor("cpu", "vm-" + i, CadfOutcomes.success());
+            if (sampler.sample(event)) {
+                kept++;
+                assertEquals("0.25", sampleRate(event));
+            }
+        }
+        assertTrue(kept > 4_500 && kept < 5_500, Integer.toString(kept));
+        assertEquals(kept, sampler.getKeptCount());
+        assertEquals(20_000 - kept, sampler.getDroppedCount());
+    }
+
+    @Test
+    void limitsEachSeriesToItsBurst() {
+        CadfEventSampler sampler = CadfEventSampler.builder().withTokenBucket(0.001, 5).build();
+
+        assertEquals(5, keptOf(sampler, "cpu", "vm-1", 20));
+        assertEquals(5, keptOf(sampler, "cpu", "vm-2", 20));
+        assertEquals(5, keptOf(sampler, "memory", "vm-1", 20));
+        assertEquals(0, keptOf(sampler, "cpu", "vm-1", 20));
+    }
+
+    @Test
+    void tagsTheEventsRejectedSinceThePreviousKeptOne() throws InterruptedException {
+        CadfEventSampler sampler = CadfEventSampler.builder().withTokenBucket(20, 1).build();
+        CadfAuditEvent first = monitor("cpu", "vm-1", CadfOutcomes.success());
+        assertTrue(sampler.sample(first));
+        assertNull(first.getTags());
+        for (int i = 0; i < 3; i++) {
+            assertFalse(sampler.sample(monitor("cpu", "vm-1", CadfOutcomes.success())));
+        }
+
+        Thread.sleep(100);
+
+        CadfAuditEvent next = monitor("cpu", "vm-1", CadfOutcomes.success());
+        assertTrue(sampler.sample(next));
+        assertEquals("0.25", sampleRate(next));
+    }
+
+    @Test
+    void passesSampledBatchesOn() {
+        CadfEventSampler sampler = CadfEventSampler.builder().withTokenBucket(0.001, 1).build();
+        List<Integer> published = new ArrayList<>();
+
+        sampler.filtering(events -> published.add(events.size())).publish(List.of(
+            monitor("cpu", "vm-1", CadfOutcomes.success()), monitor("cpu", "vm-1", CadfOutcomes.success()),
+            CadfTestEvents.minimal("maestro2:1")));
+        sampler.filtering(events -> published.add(events.size())).publish(List.of(
+            monitor("cpu", "vm-1", CadfOutcomes.success())));
+
+        assertEquals(List.of(2), published);
+    }
+
+    private static int keptOf(CadfEventSampler sampler, String metricId, String targetId, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (sampler.sample(monitor(metricId, targetId, CadfOutcomes.success()))) {
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    private static String sampleRate(CadfAuditEvent event) {
+        for (CadfTag tag : event.getTags()) {
+            if (CadfEventSampler.SAMPLE_RATE_TAG.equals(tag.getName())) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static CadfAuditEvent monitor(String metricId, String targetId, ICadfOutcome outcome) {
+        return CadfAuditEvent.builder()
+            .withEventType(CadfEventType.MONITOR)
+            .withEventTime(CadfTestEvents.EVENT_TIME)
+            .withAction(CadfActions.monitor())
+            .withOutcome(outcome)
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource(targetId))
+            .withObserver(CadfTestEvents.resource("observer"))
+            .withMeasurements(new CadfMeasurementBatch().addDouble(metricId, 0.5))
+            .build();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.store;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.codec.json.CadfJsonWriter;
+import io.maestro3.cadf.index.CadfTagQuery;
+import io.maestro3.cadf.model.CadfActions;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfEventType;
+import io.maestro3.cadf.model.CadfOutcomes;
+import io.maestro3.cadf.model.CadfTag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CadfEventStoreTest {
+
+    private static final long BASE_NANOS = 1_000_000_000_000_000_000L;
+
+    // events have no equals, the JSON form compares every property
+    private final CadfJsonWriter json = CadfJsonWriter.create();
+
+    @Test
+    void recreatesAppendedEvents() {
+        CadfEventStore store = CadfEventStore.create();
+        CadfAuditEvent minimal = CadfTestEvents.minimal("maestro2:1");
+        CadfAuditEvent full = CadfTestEvents.full("maestro2:2");
+
+        assertEquals(0, store.append(minimal));
+        assertEquals(1, store.append(full));
+
+        assertEquals(2, store.size());
+        assertArrayEquals(json.toBytes(minimal), json.toBytes(store.get(0)));
+        assertArrayEquals(json.toBytes(full), json.toBytes(store.get(1)));
+        assertThrows(IllegalArgumentException.class, () -> store.get(2));
+    }
+
+    @Test
+    void readsColumnsThroughTheCursor() {
+        CadfEventStore store = CadfEventStore.create();
+        CadfAuditEvent full = CadfTestEvents.full("maestro2:1");
+        store.append(full);
+
+        List<String> columns = new ArrayList<>();
+        store.scan(event -> {
+            columns.add(event.getId());
+            columns.add(event.getEventType());
+            columns.add(event.getAction());
+            columns.add(event.getOutcome());
+            columns.add(event.getTargetId());
+            columns.add(event.getTargetTypeURI());
+            columns.add(event.getObserverName());
+            columns.add(event.getName());
+            columns.add(event.getSeverity());
+            assertEquals(full.eventTimeNanos(), event.getEventTimeNanos());
+            assertArrayEquals(json.toBytes(full), json.toBytes(event.toEvent()));
+        });
+
+        assertEquals(List.of("maestro2:1", full.getEventType(), full.getAction(), full.getOutcome(), "target",
+            full.getTarget().getTypeURI(), "name of observer", full.getName(), "high"), columns);
+    }
+
+    @Test
+    void scansTimeRangesAcrossChunks() {
+        CadfEventStore store = CadfEventStore.builder().withChunkSize(16).build();
+        for (int i = 0; i < 100; i++) {
+            store.append(event(i));
+        }
+
+        List<String> ids = new ArrayList<>();
+        long visited = store.scan(nanos(10), nanos(40), event -> ids.add(event.getId()));
+
+        assertEquals(31, visited);
+        assertEquals(31, store.count(nanos(10), nanos(40)));
+        assertEquals("event-10", ids.get(0));
+        assertEquals("event-40", ids.get(30));
+        assertEquals(100, store.scan(event -> { }));
+    }
+
+    @Test
+    void scansTagQueriesAcrossChunks() {
+        CadfEventStore store = CadfEventStore.builder().withChunkSize(16).withTagIndex(true).build();
+        for (int i = 0; i < 100; i++) {
+            store.append(event(i));
+        }
+        CadfTagQuery query = CadfTagQuery.hasTag("tenant", "t2").and(CadfTagQuery.hasName("parity"));
+
+        List<String> ids = new ArrayList<>();
+        long visited = store.scan(query, event -> ids.add(event.getId()));
+
+        assertEquals(25, visited);
+        assertEquals(25, store.count(query));
+        assertEquals("event-2", ids.get(0));
+        assertEquals("event-98", ids.get(24));
+        assertEquals(50, store.count(CadfTagQuery.hasTag("parity", "odd")));
+        assertEquals(0, store.count(CadfTagQuery.hasTag("tenant", "t2").and(CadfTagQuery.hasTag("parity", "odd"))));
+    }
+
+    @Test
+    void requiresTheTagIndexForTagQueries() {
+        CadfEventStore store = CadfEventStore.create();
+        store.append(event(0));
+
+        assertThrows(IllegalStateException.class, () -> store.count(CadfTagQuery.hasName("tenant")));
+    }
+
+    @Test
+    void evictsSealedChunksOnly() {
+        CadfEventStore store = CadfEventStore.builder().withChunkSize(16).build();
+        for (int i = 0; i < 40; i++) {
+            store.append(event(i));
+        }
+
+        assertEquals(0, store.evictBefore(nanos(15)));
+        assertEquals(32, store.evictBefore(nanos(100)));
+
+        assertEquals(32, store.getFirstRow());
+        assertEquals(40, store.getNextRow());
+        assertEquals(8, store.size());
+        assertEquals("event-32", store.get(32).getId());
+        assertThrows(IllegalArgumentException.class, () -> store.get(31));
+    }
+
+    @Test
+    void rejectsIncompleteEvents() {
+        CadfEventStore store = CadfEventStore.create();
+
+        assertThrows(IllegalArgumentException.class, () -> store.append(new CadfAuditEvent("maestro2:1")));
+        assertEquals(0, store.size());
+    }
+
+    private static CadfAuditEvent event(int i) {
+        return CadfAuditEvent.builder()
+            .withId("event-" + i)
+            .withEventType(CadfEventType.ACTIVITY)
+            .withEventTimeNanos(nanos(i))
+            .withAction(CadfActions.create())
+            .withOutcome(CadfOutcomes.success())
+            .withInitiator(CadfTestEvents.resource("initiator"))
+            .withTarget(CadfTestEvents.resource("target-" + i % 4))
+            .withObserver(CadfTestEvents.resource("observer"))
+            .withTags(new ArrayList<>(Arrays.asList(
+                CadfTag.builder().withName("tenant").withValue("t" + i % 4).build(),
+                CadfTag.builder().withName("parity").withValue(i % 2 == 0 ? "even" : "odd").build())))
+            .build();
+    }
+
+    private static long nanos(int i) {
+        return BASE_NANOS + i * 1_000_000L;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfIdGeneratorTest {
+
+    @Test
+    void rendersPrefixedCanonicalUuids() {
+        String id = CadfIdGenerator.builder().withPrefix("maestro2:").build().nextId();
+
+        assertTrue(id.startsWith("maestro2:"), id);
+        UUID uuid = UUID.fromString(id.substring("maestro2:".length()));
+        assertEquals(id.substring("maestro2:".length()), uuid.toString());
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+    }
+
+    @Test
+    void generatesIncreasingIdsWithinAThread() {
+        CadfIdGenerator generator = CadfIdGenerator.getDefault();
+        String previous = generator.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            String next = generator.nextId();
+            assertTrue(next.compareTo(previous) > 0, previous + " >= " + next);
+            previous = next;
+        }
+    }
+
+    @Test
+    void generatesUniqueIdsAcrossThreads() throws InterruptedException {
+        CadfIdGenerator generator = CadfIdGenerator.getDefault();
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4 * 50_000, ids.size());
+    }
+
+    @Test
+    void exposesTheGenerationMillis() {
+        long before = System.currentTimeMillis();
+        UUID uuid = CadfIdGenerator.getDefault().nextUuid();
+
+        long millis = CadfIdGenerator.getTimestampMillis(uuid);
+        assertTrue(millis >= before && millis <= System.currentTimeMillis() + 1000, Long.toString(millis));
+        assertThrows(IllegalArgumentException.class, () -> CadfIdGenerator.getTimestampMillis(UUID.randomUUID()));
+    }
+}
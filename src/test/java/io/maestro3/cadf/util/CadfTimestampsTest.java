@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CadfTimestampsTest {
+
+    @Test
+    void formatsUtcWithShortestFraction() {
+        assertEquals("2001-07-04T12:08:56.000+00:00", CadfTimestamps.format(nanos("2001-07-04T12:08:56Z")));
+        assertEquals("2001-07-04T12:08:56.235+00:00", CadfTimestamps.format(nanos("2001-07-04T12:08:56.235Z")));
+        assertEquals("2001-07-04T12:08:56.235100+00:00", CadfTimestamps.format(nanos("2001-07-04T12:08:56.2351Z")));
+        assertEquals("1969-12-31T23:59:59.999999999+00:00", CadfTimestamps.format(-1));
+    }
+
+    @Test
+    void parsesOffsetsAndFractions() {
+        long expected = nanos("2001-07-04T19:08:56.235Z");
+
+        assertEquals(expected, CadfTimestamps.parse("2001-07-04T12:08:56.235-07:00"));
+        assertEquals(expected, CadfTimestamps.parse("2001-07-04T12:08:56.235-0700"));
+        assertEquals(expected, CadfTimestamps.parse("2001-07-04T12:08:56.235-07"));
+        assertEquals(expected, CadfTimestamps.parse("2001-07-04T19:08:56.235000000Z"));
+        assertEquals(nanos("2001-07-04T19:08:56Z"), CadfTimestamps.parse("2001-07-04T19:08:56+00:00"));
+    }
+
+    @Test
+    void formatsWhatJavaTimeFormats() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            long epochNanos = random.nextLong() >> 2;
+            Instant instant = Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                Math.floorMod(epochNanos, 1_000_000_000L));
+            String formatted = CadfTimestamps.format(epochNanos);
+
+            assertEquals(instant, OffsetDateTime.parse(formatted, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant());
+            assertEquals(epochNanos, CadfTimestamps.parse(formatted));
+        }
+    }
+
+    @Test
+    void rejectsMalformedTimestamps() {
+        assertThrows(IllegalArgumentException.class, () -> CadfTimestamps.parse("2001-07-04"));
+        assertThrows(IllegalArgumentException.class, () -> CadfTimestamps.parse("2001-13-04T12:08:56Z"));
+        assertThrows(IllegalArgumentException.class, () -> CadfTimestamps.parse("2001-07-04T12:08:56.1234567891Z"));
+        assertThrows(IllegalArgumentException.class, () -> CadfTimestamps.parse("2001-02-29T12:08:56Z"));
+    }
+
+    private static long nanos(String instant) {
+        Instant parsed = Instant.parse(instant);
+        return parsed.getEpochSecond() * 1_000_000_000L + parsed.getNano();
+    }
+}
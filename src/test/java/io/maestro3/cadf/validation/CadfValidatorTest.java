@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 Maestro Cloud Control LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.maestro3.cadf.validation;
+
+import io.maestro3.cadf.CadfTestEvents;
+import io.maestro3.cadf.model.CadfAuditEvent;
+import io.maestro3.cadf.model.CadfCredential;
+import io.maestro3.cadf.model.CadfResource;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CadfValidatorTest {
+
+    private final CadfValidator validator = CadfValidator.create();
+
+    @Test
+    void acceptsValidEvents() {
+        for (CadfAuditEvent event : new CadfAuditEvent[]{
+            CadfTestEvents.minimal("maestro2:1"), CadfTestEvents.full("maestro2:2")}) {
+            assertTrue(validator.isValid(event));
+            assertTrue(validator.validate(event).isEmpty());
+            validator.assertValid(event);
+        }
+    }
+
+    @Test
+    void collectsAllViolationsWithPaths() {
+        CadfAuditEvent event = CadfTestEvents.full("maestro2:1");
+        event.setId(" ");
+        CadfCredential<String> credential = new CadfCredential<>();
+        credential.setToken("");
+        event.getTarget().setCredential(credential);
+        event.getTags().get(0).setName(null);
+        event.getAttachments().get(0).setContentType("");
+
+        assertFalse(validator.isValid(event));
+        assertEquals(Arrays.asList("id", "target.credential.token", "tags[0].name", "attachments[0].contentType"),
+            paths(validator.validate(event)));
+    }
+
+    @Test
+    void reportsMissingEvent() {
+        assertFalse(validator.isValid(null));
+        assertEquals(Arrays.asList(""), paths(validator.validate(null)));
+    }
+
+    @Test
+    void checksTaxonomyUnlessDisabled() {
+        CadfAuditEvent event = CadfTestEvents.minimal("maestro2:1");
+        CadfResource target = event.getTarget();
+        target.setTypeURI("custom/type");
+
+        assertEquals(Arrays.asList("target.typeURI"), paths(validator.validate(event)));
+        assertTrue(CadfValidator.builder().withTaxonomyCheck(false).build().isValid(event));
+    }
+
+    @Test
+    void throwsWithAllViolations() {
+        CadfAuditEvent event = CadfTestEvents.minimal("maestro2:1");
+        event.setId(null);
+        event.getObserver().setId("");
+
+        CadfValidationException exception = assertThrows(CadfValidationException.class,
+            () -> validator.assertValid(event));
+        assertEquals(Arrays.asList("id", "observer.id"), paths(exception.getViolations()));
+    }
+
+    @Test
+    void reportsMalformedEventTimeInsteadOfThrowing() {
+        CadfAuditEvent event = new MappedEvent(CadfTestEvents.minimal("maestro2:1"), "yesterday");
+
+        List<CadfViolation> violations = validator.validate(event);
+
+        assertEquals(Arrays.asList("eventTime"), paths(violations));
+        assertEquals("is not a valid timestamp", violations.get(0).getMessage());
+        assertFalse(validator.isValid(event));
+        assertEquals(Arrays.asList("eventTime"), paths(validator.validate(new MappedEvent(event, null))));
+    }
+
+    private static List<String> paths(List<CadfViolation> violations) {
+        List<String> paths = new ArrayList<>();
+        for (CadfViolation violation : violations) {
+            paths.add(violation.getPath());
+        }
+        return paths;
+    }
+
+    /**
+     * Event as a reflective mapper creates it, with the event time string set as read.
+     */
+    private static final class MappedEvent extends CadfAuditEvent {
+
+        private MappedEvent(CadfAuditEvent event, String eventTime) {
+            super(event.getId());
+            this.eventType = event.getEventType();
+            this.eventTime = eventTime;
+            this.action = event.getAction();
+            this.outcome = event.getOutcome();
+            this.initiator = event.getInitiator();
+            this.target = event.getTarget();
+            this.observer = event.getObserver();
+        }
+    }
+}